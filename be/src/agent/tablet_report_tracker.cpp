@@ -0,0 +1,94 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#include "agent/tablet_report_tracker.h"
+
+#include <vector>
+
+#include "common/config.h"
+#include "common/logging.h"
+#include "util/hash_util.hpp"
+#include "util/thrift_util.h"
+
+namespace doris {
+
+void TabletReportTracker::build_report(TReportRequest* request, int64_t now_ms) {
+    _sending_tablets.clear();
+    _sending_tablets.reserve(request->tablets.size());
+    _sending_report_version = request->report_version;
+    _sending_report_ms = now_ms;
+    _sending_full_report = _full_report_requested || !config::enable_delta_tablet_report ||
+                           !has_base() ||
+                           now_ms - _last_full_report_ms >=
+                                   config::tablet_full_report_interval_seconds * 1000L;
+
+    ThriftSerializer serializer(false, 256);
+    for (auto& [tablet_id, tablet] : request->tablets) {
+        uint8_t* buffer = nullptr;
+        uint32_t len = 0;
+        if (!serializer.serialize(&tablet, &len, &buffer).ok()) {
+            // the tablet can not be compared, report all the tablets
+            _sending_full_report = true;
+            continue;
+        }
+        _sending_tablets[tablet_id] =
+                HashUtil::xxHash64WithSeed(reinterpret_cast<const char*>(buffer), len, 0);
+    }
+    if (_sending_full_report) {
+        return;
+    }
+
+    size_t total = request->tablets.size();
+    for (auto it = request->tablets.begin(); it != request->tablets.end();) {
+        auto base = _base_tablets.find(it->first);
+        if (base != _base_tablets.end() && base->second == _sending_tablets[it->first]) {
+            it = request->tablets.erase(it);
+        } else {
+            ++it;
+        }
+    }
+    std::vector<int64_t> deleted_tablets;
+    for (auto& [tablet_id, hash] : _base_tablets) {
+        if (_sending_tablets.find(tablet_id) == _sending_tablets.end()) {
+            deleted_tablets.push_back(tablet_id);
+        }
+    }
+    LOG(INFO) << "build delta tablet report. base report version: " << _base_report_version
+              << ", changed: " << request->tablets.size() << ", deleted: " << deleted_tablets.size()
+              << ", total: " << total;
+    request->__set_is_delta_report(true);
+    request->__set_base_report_version(_base_report_version);
+    request->__set_deleted_tablets(deleted_tablets);
+}
+
+void TabletReportTracker::finish_report(bool accepted, bool need_full_report) {
+    _full_report_requested = accepted && need_full_report;
+    if (accepted && !need_full_report) {
+        _base_tablets.swap(_sending_tablets);
+        _base_report_version = _sending_report_version;
+        if (_sending_full_report) {
+            _last_full_report_ms = _sending_report_ms;
+        }
+    } else {
+        // FE may have handled the report or not, only a full report makes them consistent again.
+        _base_tablets.clear();
+        _base_report_version = -1;
+    }
+    _sending_tablets.clear();
+}
+
+} // namespace doris
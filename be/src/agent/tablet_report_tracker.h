@@ -0,0 +1,65 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#pragma once
+
+#include <stdint.h>
+
+#include <unordered_map>
+
+#include "gen_cpp/MasterService_types.h"
+
+namespace doris {
+
+// Track the tablets of the last tablet report accepted by FE, so that only the tablets changed
+// since then are sent in the next report (a delta tablet report). A full tablet report is sent
+// when there is no accepted report, every tablet_full_report_interval_seconds,
+// or when FE asks for it.
+//
+// Not thread safe, it is only used by the tablet report thread.
+class TabletReportTracker {
+public:
+    // `request->tablets` contains all the tablets of this BE and `request->report_version` is set.
+    // Turn the request into a delta report if possible.
+    void build_report(TReportRequest* request, int64_t now_ms);
+
+    // Called after the report built by build_report() is sent.
+    // `accepted` is true if FE returned OK.
+    // The report becomes the base of the next delta report only if FE accepted its tablets.
+    void finish_report(bool accepted, bool need_full_report);
+
+    // True if FE rejected the last delta report, the full report should be sent without waiting.
+    bool full_report_requested() const { return _full_report_requested; }
+
+    bool has_base() const { return _base_report_version >= 0; }
+
+private:
+    // tablet id -> hash of the reported tablet info, of the last report accepted by FE
+    std::unordered_map<int64_t, uint64_t> _base_tablets;
+    int64_t _base_report_version = -1;
+    int64_t _last_full_report_ms = 0;
+
+    // of the report being sent
+    std::unordered_map<int64_t, uint64_t> _sending_tablets;
+    int64_t _sending_report_version = -1;
+    int64_t _sending_report_ms = 0;
+    bool _sending_full_report = true;
+
+    bool _full_report_requested = false;
+};
+
+} // namespace doris
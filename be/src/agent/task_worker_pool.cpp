@@ -1313,7 +1313,7 @@ void TaskWorkerPool::_report_tablet_worker_thread_callback() {
     while (_is_work) {
         _is_doing_work = false;
 
-        {
+        if (!_tablet_report_tracker.full_report_requested()) {
             // wait at most report_tablet_interval_seconds, or being notified
             std::unique_lock<std::mutex> worker_thread_lock(_worker_thread_lock);
             _worker_thread_condition_variable.wait_for(
@@ -1374,7 +1374,12 @@ void TaskWorkerPool::_report_tablet_worker_thread_callback() {
         }
         request.__isset.resource = true;
 
-        _handle_report(request, ReportType::TABLET);
+        // only send the tablets changed since the last report accepted by FE if possible
+        _tablet_report_tracker.build_report(&request, UnixMillis());
+        TMasterResult result;
+        bool accepted = _handle_report(request, ReportType::TABLET, &result);
+        _tablet_report_tracker.finish_report(
+                accepted, result.__isset.need_full_tablet_report && result.need_full_tablet_report);
     }
     StorageEngine::instance()->deregister_report_listener(this);
 }
@@ -1647,7 +1652,8 @@ Status TaskWorkerPool::_move_dir(const TTabletId tablet_id, const std::string& s
     return loader.move(src, tablet, overwrite);
 }
 
-void TaskWorkerPool::_handle_report(const TReportRequest& request, ReportType type) {
+bool TaskWorkerPool::_handle_report(const TReportRequest& request, ReportType type,
+                                    TMasterResult* out_result) {
     TMasterResult result;
     Status status = MasterServerClient::instance()->report(request, &result);
     bool is_report_success = false;
@@ -1689,6 +1695,10 @@ void TaskWorkerPool::_handle_report(const TReportRequest& request, ReportType ty
     default:
         break;
     }
+    if (out_result != nullptr) {
+        *out_result = std::move(result);
+    }
+    return is_report_success;
 }
 
 void TaskWorkerPool::_random_sleep(int second) {
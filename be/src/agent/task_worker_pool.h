@@ -23,6 +23,7 @@
 #include <utility>
 #include <vector>
 
+#include "agent/tablet_report_tracker.h"
 #include "common/status.h"
 #include "gen_cpp/AgentService_types.h"
 #include "gen_cpp/HeartbeatService_types.h"
@@ -203,7 +204,9 @@ private:
 
     void _alter_tablet(const TAgentTaskRequest& alter_tablet_request, int64_t signature,
                        const TTaskType::type task_type, TFinishTaskRequest* finish_task_request);
-    void _handle_report(const TReportRequest& request, ReportType type);
+    // return true if FE handled the report successfully, and the result is set if not null
+    bool _handle_report(const TReportRequest& request, ReportType type,
+                        TMasterResult* result = nullptr);
 
     Status _get_tablet_info(const TTabletId tablet_id, const TSchemaHash schema_hash,
                             int64_t signature, TTabletInfo* tablet_info);
@@ -246,6 +249,8 @@ private:
     TaskWorkerType _task_worker_type;
 
     static std::atomic_ulong _s_report_version;
+    // Only used by the tablet report thread
+    TabletReportTracker _tablet_report_tracker;
 
     static std::mutex _s_task_signatures_lock;
     static std::map<TTaskType::type, std::set<int64_t>> _s_task_signatures;
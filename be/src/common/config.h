@@ -137,6 +137,11 @@ CONF_mInt32(storage_refresh_storage_policy_task_interval_seconds, "5");
 CONF_mInt32(report_disk_state_interval_seconds, "60");
 // the interval time(seconds) for agent report olap table to FE
 CONF_mInt32(report_tablet_interval_seconds, "60");
+// if true, only the tablets changed since the last tablet report accepted by FE are reported.
+// FE also needs enable_delta_tablet_report to accept them.
+CONF_mBool(enable_delta_tablet_report, "true");
+// the interval time(seconds) for agent to report all the tablets to FE when delta tablet report is enabled
+CONF_mInt32(tablet_full_report_interval_seconds, "3600");
 // the max download speed(KB/s)
 CONF_mInt32(max_download_speed_kbps, "50000");
 // download low speed limit(KB/s)
@@ -21,7 +21,9 @@
 #include <unistd.h>
 
 #include <cstdint>
+#include <cstring>
 #include <memory>
+#include <vector>
 
 #include "common/status.h"
 #include "gutil/strings/substitute.h"
@@ -45,6 +47,8 @@ const char* UDAF_EXECUTOR_ADD_SIGNATURE = "(ZJJ)V";
 const char* UDAF_EXECUTOR_SERIALIZE_SIGNATURE = "(J)[B";
 const char* UDAF_EXECUTOR_MERGE_SIGNATURE = "(J[B)V";
 const char* UDAF_EXECUTOR_RESULT_SIGNATURE = "(JJ)Z";
+const char* UDAF_EXECUTOR_SERIALIZE_ALL_SIGNATURE = "(I)[B";
+const char* UDAF_EXECUTOR_MERGE_ALL_SIGNATURE = "([BI)V";
 // Calling Java method about those signature means: "(argument-types)return-type"
 // https://www.iitk.ac.in/esc101/05Aug/tutorial/native1.1/implementing/method.html
 
@@ -220,6 +224,55 @@ public:
         return JniUtil::GetJniExceptionMsg(env);
     }
 
+    // Serialize the states of all the places with one JNI call. The serialized state of each place
+    // is written to buf the same as write() does.
+    Status write_all(BufferWritable& buf, const int64_t places_address[], size_t num_places) {
+        JNIEnv* env = nullptr;
+        RETURN_NOT_OK_STATUS_WITH_WARN(JniUtil::GetJNIEnv(&env), "Java-Udaf write_all function");
+        *input_place_ptrs = reinterpret_cast<int64_t>(places_address);
+        jbyteArray arr = (jbyteArray)(env->CallNonvirtualObjectMethod(
+                executor_obj, executor_cl, executor_serialize_all_id, (jint)num_places));
+        RETURN_IF_ERROR(JniUtil::GetJniExceptionMsg(env));
+        int len = env->GetArrayLength(arr);
+        serialize_data.resize(len);
+        env->GetByteArrayRegion(arr, 0, len, reinterpret_cast<jbyte*>(serialize_data.data()));
+        env->DeleteLocalRef(arr);
+
+        // each state follows its length, which is a little endian int32
+        const char* pos = serialize_data.data();
+        for (size_t i = 0; i < num_places; ++i) {
+            int32_t state_len = 0;
+            memcpy(&state_len, pos, sizeof(state_len));
+            pos += sizeof(state_len);
+            write_binary(StringRef(pos, state_len), buf);
+            buf.commit();
+            pos += state_len;
+        }
+        return Status::OK();
+    }
+
+    // Merge the deserialized states into the places with one JNI call,
+    // the i-th state is merged into the i-th place.
+    Status merge_all(const std::vector<int64_t>& places_address,
+                     const std::vector<const AggregateJavaUdafData*>& states) {
+        JNIEnv* env = nullptr;
+        RETURN_NOT_OK_STATUS_WITH_WARN(JniUtil::GetJNIEnv(&env), "Java-Udaf merge_all function");
+        serialize_data.clear();
+        for (const AggregateJavaUdafData* state : states) {
+            int32_t state_len = state->serialize_data.length();
+            serialize_data.append(reinterpret_cast<const char*>(&state_len), sizeof(state_len));
+            serialize_data.append(state->serialize_data);
+        }
+        *input_place_ptrs = reinterpret_cast<int64_t>(places_address.data());
+        long len = serialize_data.length();
+        jbyteArray arr = env->NewByteArray(len);
+        env->SetByteArrayRegion(arr, 0, len, reinterpret_cast<jbyte*>(serialize_data.data()));
+        env->CallNonvirtualVoidMethod(executor_obj, executor_cl, executor_merge_all_id, arr,
+                                      (jint)places_address.size());
+        env->DeleteLocalRef(arr);
+        return JniUtil::GetJniExceptionMsg(env);
+    }
+
     void read(BufferReadable& buf) { read_binary(serialize_data, buf); }
 
     Status destroy() {
@@ -356,6 +409,10 @@ private:
         RETURN_IF_ERROR(register_id("merge", UDAF_EXECUTOR_MERGE_SIGNATURE, executor_merge_id));
         RETURN_IF_ERROR(
                 register_id("serialize", UDAF_EXECUTOR_SERIALIZE_SIGNATURE, executor_serialize_id));
+        RETURN_IF_ERROR(register_id("serializeAll", UDAF_EXECUTOR_SERIALIZE_ALL_SIGNATURE,
+                                    executor_serialize_all_id));
+        RETURN_IF_ERROR(
+                register_id("mergeAll", UDAF_EXECUTOR_MERGE_ALL_SIGNATURE, executor_merge_all_id));
         RETURN_IF_ERROR(
                 register_id("getValue", UDAF_EXECUTOR_RESULT_SIGNATURE, executor_result_id));
         RETURN_IF_ERROR(
@@ -373,6 +430,8 @@ private:
     jmethodID executor_add_id;
     jmethodID executor_merge_id;
     jmethodID executor_serialize_id;
+    jmethodID executor_serialize_all_id;
+    jmethodID executor_merge_all_id;
     jmethodID executor_result_id;
     jmethodID executor_close_id;
     jmethodID executor_destroy_id;
@@ -474,11 +533,32 @@ public:
         this->data(_exec_place).merge(this->data(rhs), reinterpret_cast<int64_t>(place));
     }
 
+    void merge_vec(const AggregateDataPtr* places, size_t offset, ConstAggregateDataPtr rhs,
+                   Arena*, const size_t num_rows) const override {
+        _merge_vec(places, offset, rhs, num_rows);
+    }
+
+    void merge_vec_selected(const AggregateDataPtr* places, size_t offset,
+                            ConstAggregateDataPtr rhs, Arena*,
+                            const size_t num_rows) const override {
+        _merge_vec(places, offset, rhs, num_rows);
+    }
+
     void serialize(ConstAggregateDataPtr __restrict place, BufferWritable& buf) const override {
         this->data(const_cast<AggregateDataPtr&>(_exec_place))
                 .write(buf, reinterpret_cast<int64_t>(place));
     }
 
+    // Serialize the states of all the places with one JNI call instead of one call per place
+    void serialize_vec(const std::vector<AggregateDataPtr>& places, size_t offset,
+                       BufferWritable& buf, const size_t num_rows) const override {
+        std::vector<int64_t> places_address(num_rows);
+        for (size_t i = 0; i < num_rows; ++i) {
+            places_address[i] = reinterpret_cast<int64_t>(places[i] + offset);
+        }
+        this->data(_exec_place).write_all(buf, places_address.data(), num_rows);
+    }
+
     // during merge-finalized phase, for deserialize and merge firstly,
     // will call create --- deserialize --- merge --- destory for each rows ,
     // so need doing new (place), to create Data and read to buf, then call merge ,
@@ -495,6 +575,22 @@ public:
     }
 
 private:
+    // Merge the states of rhs into the places with one JNI call, the places of nullptr are skipped
+    void _merge_vec(const AggregateDataPtr* places, size_t offset, ConstAggregateDataPtr rhs,
+                    size_t num_rows) const {
+        std::vector<int64_t> places_address;
+        std::vector<const Data*> states;
+        places_address.reserve(num_rows);
+        states.reserve(num_rows);
+        for (size_t i = 0; i < num_rows; ++i) {
+            if (places[i]) {
+                places_address.push_back(reinterpret_cast<int64_t>(places[i] + offset));
+                states.push_back(&this->data(rhs + size_of_data() * i));
+            }
+        }
+        this->data(_exec_place).merge_all(places_address, states);
+    }
+
     TFunction _fn;
     DataTypePtr _return_type;
     mutable bool _first_created;
@@ -25,6 +25,7 @@
 #include "gutil/strings/substitute.h"
 #include "jni.h"
 #include "runtime/define_primitive_type.h"
+#include "runtime/primitive_type.h"
 #include "runtime/user_function_cache.h"
 #include "util/jni-util.h"
 #include "util/runtime_profile.h"
@@ -51,6 +52,9 @@ const char* JDBC_EXECUTOR_CONVERT_DATE_SIGNATURE = "(Ljava/lang/Object;Z)J";
 const char* JDBC_EXECUTOR_CONVERT_DATETIME_SIGNATURE = "(Ljava/lang/Object;Z)J";
 const char* JDBC_EXECUTOR_TRANSACTION_SIGNATURE = "()V";
 const char* JDBC_EXECUTOR_COPY_BATCH_SIGNATURE = "(Ljava/lang/Object;ZIJJ)V";
+const char* JDBC_EXECUTOR_OPEN_BATCH_WRITER_SIGNATURE =
+        "(Ljava/lang/String;[Ljava/lang/String;[I[I)V";
+const char* JDBC_EXECUTOR_WRITE_BATCH_SIGNATURE = "(I[J[J[J)V";
 
 JdbcConnector::JdbcConnector(const JdbcConnectorParam& param)
         : TableConnector(param.tuple_desc, param.query_string),
@@ -149,8 +153,13 @@ Status JdbcConnector::open(RuntimeState* state, bool read) {
         ctor_params.__set_jdbc_password(_conn_param.passwd);
         ctor_params.__set_jdbc_driver_class(_conn_param.driver_class);
         ctor_params.__set_driver_path(local_location);
-        ctor_params.__set_batch_size(read ? state->batch_size() : 0);
+        ctor_params.__set_batch_size(read || _conn_param.use_batch_write ? state->batch_size() : 0);
         ctor_params.__set_op(read ? TJdbcOperation::READ : TJdbcOperation::WRITE);
+        if (!read && _conn_param.use_batch_write) {
+            ctor_params.__set_sink_parallelism(_conn_param.sink_parallelism);
+            ctor_params.__set_sink_commit_interval(_conn_param.sink_commit_interval);
+            ctor_params.__set_sink_use_bulk_load(_conn_param.sink_use_bulk_load);
+        }
 
         jbyteArray ctor_params_bytes;
         // Pushed frame will be popped when jni_frame goes out-of-scope.
@@ -652,6 +661,14 @@ Status JdbcConnector::_register_func_id(JNIEnv* env) {
                                 _executor_finish_trans_id));
     RETURN_IF_ERROR(register_id(_executor_clazz, "rollbackTrans",
                                 JDBC_EXECUTOR_TRANSACTION_SIGNATURE, _executor_abort_trans_id));
+    RETURN_IF_ERROR(register_id(_executor_clazz, "openBatchWriter",
+                                JDBC_EXECUTOR_OPEN_BATCH_WRITER_SIGNATURE,
+                                _executor_open_batch_writer_id));
+    RETURN_IF_ERROR(register_id(_executor_clazz, "writeBatch", JDBC_EXECUTOR_WRITE_BATCH_SIGNATURE,
+                                _executor_write_batch_id));
+    RETURN_IF_ERROR(register_id(_executor_clazz, "finishBatchWrite",
+                                JDBC_EXECUTOR_TRANSACTION_SIGNATURE,
+                                _executor_finish_batch_write_id));
     RETURN_IF_ERROR(register_id(_executor_clazz, "getResultColumnTypeNames",
                                 JDBC_EXECUTOR_GET_TYPES_SIGNATURE, _executor_get_types_id));
     RETURN_IF_ERROR(register_id(_executor_clazz, "getArrayColumnData",
@@ -908,6 +925,116 @@ Status JdbcConnector::exec_write_sql(const std::u16string& insert_stmt,
     return Status::OK();
 }
 
+bool JdbcConnector::is_batch_write_supported(const TypeDescriptor& type) {
+    switch (type.type) {
+    case TYPE_BOOLEAN:
+    case TYPE_TINYINT:
+    case TYPE_SMALLINT:
+    case TYPE_INT:
+    case TYPE_BIGINT:
+    case TYPE_LARGEINT:
+    case TYPE_FLOAT:
+    case TYPE_DOUBLE:
+    case TYPE_DATE:
+    case TYPE_DATETIME:
+    case TYPE_DATEV2:
+    case TYPE_DATETIMEV2:
+    case TYPE_DECIMALV2:
+    case TYPE_DECIMAL32:
+    case TYPE_DECIMAL64:
+    case TYPE_DECIMAL128I:
+    case TYPE_CHAR:
+    case TYPE_VARCHAR:
+    case TYPE_STRING:
+        return true;
+    default:
+        return false;
+    }
+}
+
+Status JdbcConnector::write_batch(const std::string& table_name, Block* block,
+                                  const std::vector<VExprContext*>& output_vexpr_ctxs) {
+    if (!_is_open) {
+        return Status::InternalError("Write before open of JdbcConnector.");
+    }
+    JNIEnv* env = nullptr;
+    RETURN_IF_ERROR(JniUtil::GetJNIEnv(&env));
+    int num_columns = block->columns();
+    // Pushed frame will be popped when jni_frame goes out-of-scope.
+    JniLocalFrame jni_frame;
+    RETURN_IF_ERROR(jni_frame.push(env));
+    if (!_batch_writer_opened) {
+        std::vector<jint> types(num_columns);
+        std::vector<jint> scales(num_columns);
+        for (int i = 0; i < num_columns; ++i) {
+            const TypeDescriptor& type = output_vexpr_ctxs[i]->root()->type();
+            types[i] = to_thrift(type.type);
+            scales[i] = type.scale;
+        }
+        jstring jtable_name = env->NewStringUTF(table_name.c_str());
+        jintArray jtypes = env->NewIntArray(num_columns);
+        env->SetIntArrayRegion(jtypes, 0, num_columns, types.data());
+        jintArray jscales = env->NewIntArray(num_columns);
+        env->SetIntArrayRegion(jscales, 0, num_columns, scales.data());
+        // the columns are inserted in the order of the table, as the INSERT of append()
+        env->CallNonvirtualVoidMethod(_executor_obj, _executor_clazz,
+                                      _executor_open_batch_writer_id, jtable_name, nullptr, jtypes,
+                                      jscales);
+        RETURN_IF_ERROR(JniUtil::GetJniExceptionMsg(env));
+        _batch_writer_opened = true;
+    }
+
+    std::vector<jlong> null_map_addrs(num_columns, 0);
+    std::vector<jlong> data_addrs(num_columns, 0);
+    std::vector<jlong> offsets_addrs(num_columns, 0);
+    {
+        SCOPED_TIMER(_convert_tuple_timer);
+        for (int i = 0; i < num_columns; ++i) {
+            // the block is materialized, so the columns outlive the call
+            const IColumn* column = block->get_by_position(i).column.get();
+            if (const auto* nullable = check_and_get_column<ColumnNullable>(*column)) {
+                null_map_addrs[i] = reinterpret_cast<jlong>(nullable->get_null_map_data().data());
+                column = &nullable->get_nested_column();
+            }
+            if (const auto* str_col = check_and_get_column<ColumnString>(*column)) {
+                data_addrs[i] = reinterpret_cast<jlong>(str_col->get_chars().data());
+                offsets_addrs[i] = reinterpret_cast<jlong>(str_col->get_offsets().data());
+            } else if (column->is_numeric() || column->is_column_decimal()) {
+                data_addrs[i] = reinterpret_cast<jlong>(column->get_raw_data().data);
+            } else {
+                return Status::InternalError("Unsupported column {} of jdbc batch write: {}", i,
+                                             column->get_name());
+            }
+        }
+    }
+
+    SCOPED_TIMER(_result_send_timer);
+    jlongArray jnull_map_addrs = env->NewLongArray(num_columns);
+    env->SetLongArrayRegion(jnull_map_addrs, 0, num_columns, null_map_addrs.data());
+    jlongArray jdata_addrs = env->NewLongArray(num_columns);
+    env->SetLongArrayRegion(jdata_addrs, 0, num_columns, data_addrs.data());
+    jlongArray joffsets_addrs = env->NewLongArray(num_columns);
+    env->SetLongArrayRegion(joffsets_addrs, 0, num_columns, offsets_addrs.data());
+    env->CallNonvirtualVoidMethod(_executor_obj, _executor_clazz, _executor_write_batch_id,
+                                  (jint)block->rows(), jnull_map_addrs, jdata_addrs,
+                                  joffsets_addrs);
+    RETURN_IF_ERROR(JniUtil::GetJniExceptionMsg(env));
+    COUNTER_UPDATE(_sent_rows_counter, block->rows());
+    return Status::OK();
+}
+
+Status JdbcConnector::finish_batch_write() {
+    if (!_batch_writer_opened) {
+        return Status::OK();
+    }
+    SCOPED_TIMER(_result_send_timer);
+    JNIEnv* env = nullptr;
+    RETURN_IF_ERROR(JniUtil::GetJNIEnv(&env));
+    _batch_writer_opened = false;
+    env->CallNonvirtualVoidMethod(_executor_obj, _executor_clazz, _executor_finish_batch_write_id);
+    return JniUtil::GetJniExceptionMsg(env);
+}
+
 std::string JdbcConnector::_jobject_to_string(JNIEnv* env, jobject jobj) {
     jobject jstr = env->CallObjectMethod(jobj, _to_string_id);
     auto coding = env->NewStringUTF("UTF-8");
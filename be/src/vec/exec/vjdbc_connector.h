@@ -41,6 +41,11 @@ struct JdbcConnectorParam {
     std::string passwd;
     std::string query_string;
     TOdbcTableType::type table_type;
+    // write with the batched PreparedStatement of JdbcExecutor, see write_batch()
+    bool use_batch_write = false;
+    int32_t sink_parallelism = 1;
+    int32_t sink_commit_interval = 0;
+    bool sink_use_bulk_load = false;
 
     const TupleDescriptor* tuple_desc;
 };
@@ -70,6 +75,17 @@ public:
     Status get_next(bool* eos, std::vector<MutableColumnPtr>& columns, Block* block,
                     int batch_size);
 
+    // whether write_batch() is able to write a column of the type
+    static bool is_batch_write_supported(const TypeDescriptor& type);
+
+    // write all rows of the materialized block with the batch writer of JdbcExecutor,
+    // the writer is opened by the first call
+    Status write_batch(const std::string& table_name, Block* block,
+                       const std::vector<VExprContext*>& output_vexpr_ctxs);
+
+    // flush the rows of write_batch(), should be called before finish_trans() and close()
+    Status finish_batch_write();
+
     // use in JDBC transaction
     Status begin_trans() override; // should be call after connect and before query or init_to_write
     Status abort_trans() override; // should be call after transaction abort
@@ -151,6 +167,10 @@ private:
     jmethodID _executor_begin_trans_id;
     jmethodID _executor_finish_trans_id;
     jmethodID _executor_abort_trans_id;
+    jmethodID _executor_open_batch_writer_id;
+    jmethodID _executor_write_batch_id;
+    jmethodID _executor_finish_batch_write_id;
+    bool _batch_writer_opened = false;
     bool _need_cast_array_type = false;
     std::map<int, int> _map_column_idx_to_cast_idx;
     std::vector<DataTypePtr> _input_array_string_types;
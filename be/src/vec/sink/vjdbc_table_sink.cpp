@@ -47,6 +47,16 @@ Status VJdbcTableSink::init(const TDataSink& t_sink) {
     _jdbc_param.table_type = t_jdbc_sink.table_type;
     _table_name = t_jdbc_sink.jdbc_table.jdbc_table_name;
     _use_transaction = t_jdbc_sink.use_transaction;
+    _jdbc_param.use_batch_write =
+            t_jdbc_sink.__isset.use_batch_write && t_jdbc_sink.use_batch_write;
+    if (t_jdbc_sink.__isset.sink_parallelism) {
+        _jdbc_param.sink_parallelism = t_jdbc_sink.sink_parallelism;
+    }
+    if (t_jdbc_sink.__isset.sink_commit_interval) {
+        _jdbc_param.sink_commit_interval = t_jdbc_sink.sink_commit_interval;
+    }
+    _jdbc_param.sink_use_bulk_load =
+            t_jdbc_sink.__isset.sink_use_bulk_load && t_jdbc_sink.sink_use_bulk_load;
 
     return Status::OK();
 }
@@ -55,6 +65,18 @@ Status VJdbcTableSink::open(RuntimeState* state) {
     START_AND_SCOPE_SPAN(state->get_tracer(), span, "VJdbcTableSink::open");
     RETURN_IF_ERROR(VTableSink::open(state));
 
+    if (_jdbc_param.use_batch_write) {
+        for (auto* ctx : _output_vexpr_ctxs) {
+            if (!JdbcConnector::is_batch_write_supported(ctx->root()->type())) {
+                // e.g. array columns, fallback to the literal INSERT statements
+                LOG(INFO) << "jdbc batch write does not support type " << ctx->root()->type()
+                          << ", fallback to insert statements";
+                _jdbc_param.use_batch_write = false;
+                break;
+            }
+        }
+    }
+
     // create writer
     _writer.reset(new JdbcConnector(_jdbc_param));
     RETURN_IF_ERROR(_writer->open(state, false));
@@ -77,6 +99,10 @@ Status VJdbcTableSink::send(RuntimeState* state, Block* block, bool eos) {
             _output_vexpr_ctxs, *block, status);
     materialize_block_inplace(output_block);
 
+    if (_jdbc_param.use_batch_write) {
+        return _writer->write_batch(_table_name, &output_block, _output_vexpr_ctxs);
+    }
+
     uint32_t start_send_row = 0;
     uint32_t num_row_sent = 0;
     while (start_send_row < output_block.rows()) {
@@ -92,6 +118,9 @@ Status VJdbcTableSink::send(RuntimeState* state, Block* block, bool eos) {
 Status VJdbcTableSink::close(RuntimeState* state, Status exec_status) {
     START_AND_SCOPE_SPAN(state->get_tracer(), span, "VJdbcTableSink::close");
     RETURN_IF_ERROR(VTableSink::close(state, exec_status));
+    if (exec_status.ok() && _jdbc_param.use_batch_write) {
+        RETURN_IF_ERROR(_writer->finish_batch_write());
+    }
     if (exec_status.ok() && _use_transaction) {
         RETURN_IF_ERROR(_writer->finish_trans());
     }
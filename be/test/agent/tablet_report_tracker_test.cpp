@@ -0,0 +1,199 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#include "agent/tablet_report_tracker.h"
+
+#include <gtest/gtest.h>
+
+#include <algorithm>
+#include <map>
+#include <vector>
+
+#include "common/config.h"
+
+namespace doris {
+
+class TabletReportTrackerTest : public testing::Test {
+public:
+    void SetUp() override {
+        _enable_delta_tablet_report = config::enable_delta_tablet_report;
+        _tablet_full_report_interval_seconds = config::tablet_full_report_interval_seconds;
+        config::enable_delta_tablet_report = true;
+        config::tablet_full_report_interval_seconds = 3600;
+    }
+
+    void TearDown() override {
+        config::enable_delta_tablet_report = _enable_delta_tablet_report;
+        config::tablet_full_report_interval_seconds = _tablet_full_report_interval_seconds;
+    }
+
+protected:
+    // tablet id -> version of the tablets in this BE
+    std::map<int64_t, int64_t> _tablets;
+
+    TReportRequest _build_request(int64_t report_version) {
+        TReportRequest request;
+        request.__isset.tablets = true;
+        for (auto& [tablet_id, version] : _tablets) {
+            TTabletInfo tablet_info;
+            tablet_info.__set_tablet_id(tablet_id);
+            tablet_info.__set_schema_hash(1);
+            tablet_info.__set_version(version);
+            tablet_info.__set_version_hash(0);
+            tablet_info.__set_row_count(version * 10);
+            tablet_info.__set_data_size(version * 100);
+            request.tablets[tablet_id].tablet_infos.push_back(tablet_info);
+        }
+        request.__set_report_version(report_version);
+        return request;
+    }
+
+    static std::vector<int64_t> _tablet_ids(const TReportRequest& request) {
+        std::vector<int64_t> tablet_ids;
+        for (auto& [tablet_id, tablet] : request.tablets) {
+            tablet_ids.push_back(tablet_id);
+        }
+        std::sort(tablet_ids.begin(), tablet_ids.end());
+        return tablet_ids;
+    }
+
+    static std::vector<int64_t> _deleted_ids(const TReportRequest& request) {
+        std::vector<int64_t> tablet_ids = request.deleted_tablets;
+        std::sort(tablet_ids.begin(), tablet_ids.end());
+        return tablet_ids;
+    }
+
+private:
+    bool _enable_delta_tablet_report;
+    int32_t _tablet_full_report_interval_seconds;
+};
+
+TEST_F(TabletReportTrackerTest, delta_report) {
+    TabletReportTracker tracker;
+    _tablets = {{1, 2}, {2, 2}, {3, 2}};
+
+    // the first report is always full
+    TReportRequest request = _build_request(100);
+    tracker.build_report(&request, 1000);
+    EXPECT_FALSE(request.__isset.is_delta_report);
+    EXPECT_EQ(3, request.tablets.size());
+    tracker.finish_report(true, false);
+    EXPECT_TRUE(tracker.has_base());
+
+    // only the changed and the new tablets are reported, with the dropped ones
+    _tablets[2] = 3;
+    _tablets[4] = 2;
+    _tablets.erase(3);
+    request = _build_request(101);
+    tracker.build_report(&request, 2000);
+    EXPECT_TRUE(request.is_delta_report);
+    EXPECT_EQ(100, request.base_report_version);
+    EXPECT_EQ(std::vector<int64_t>({2, 4}), _tablet_ids(request));
+    EXPECT_EQ(std::vector<int64_t>({3}), _deleted_ids(request));
+    EXPECT_EQ(3, request.tablets[2].tablet_infos[0].version);
+    tracker.finish_report(true, false);
+
+    // the delta report is based on the last accepted one
+    request = _build_request(101);
+    tracker.build_report(&request, 3000);
+    EXPECT_TRUE(request.is_delta_report);
+    EXPECT_EQ(101, request.base_report_version);
+    EXPECT_TRUE(request.tablets.empty());
+    EXPECT_TRUE(request.deleted_tablets.empty());
+    tracker.finish_report(true, false);
+}
+
+TEST_F(TabletReportTrackerTest, full_report_requested) {
+    TabletReportTracker tracker;
+    _tablets = {{1, 2}, {2, 2}};
+    TReportRequest request = _build_request(100);
+    tracker.build_report(&request, 1000);
+    tracker.finish_report(true, false);
+
+    // FE rejects the delta report, e.g. after FE restarted
+    _tablets[1] = 3;
+    request = _build_request(101);
+    tracker.build_report(&request, 2000);
+    EXPECT_TRUE(request.is_delta_report);
+    tracker.finish_report(true, true);
+    EXPECT_TRUE(tracker.full_report_requested());
+    EXPECT_FALSE(tracker.has_base());
+
+    // the full report is sent, and the delta reports are based on it
+    request = _build_request(101);
+    tracker.build_report(&request, 3000);
+    EXPECT_FALSE(request.__isset.is_delta_report);
+    EXPECT_EQ(2, request.tablets.size());
+    tracker.finish_report(true, false);
+    EXPECT_FALSE(tracker.full_report_requested());
+
+    _tablets[2] = 3;
+    request = _build_request(102);
+    tracker.build_report(&request, 4000);
+    EXPECT_TRUE(request.is_delta_report);
+    EXPECT_EQ(101, request.base_report_version);
+    EXPECT_EQ(std::vector<int64_t>({2}), _tablet_ids(request));
+}
+
+TEST_F(TabletReportTrackerTest, failed_report) {
+    TabletReportTracker tracker;
+    _tablets = {{1, 2}, {2, 2}};
+    TReportRequest request = _build_request(100);
+    tracker.build_report(&request, 1000);
+    tracker.finish_report(true, false);
+
+    // FE may have handled the failed report or not, so the next one is full
+    _tablets[1] = 3;
+    request = _build_request(101);
+    tracker.build_report(&request, 2000);
+    EXPECT_TRUE(request.is_delta_report);
+    tracker.finish_report(false, false);
+    EXPECT_FALSE(tracker.full_report_requested());
+
+    request = _build_request(101);
+    tracker.build_report(&request, 3000);
+    EXPECT_FALSE(request.__isset.is_delta_report);
+    EXPECT_EQ(2, request.tablets.size());
+}
+
+TEST_F(TabletReportTrackerTest, full_report_interval) {
+    TabletReportTracker tracker;
+    _tablets = {{1, 2}, {2, 2}};
+    TReportRequest request = _build_request(100);
+    tracker.build_report(&request, 1000);
+    tracker.finish_report(true, false);
+
+    // the accepted delta reports do not reset the time of the last full report
+    config::tablet_full_report_interval_seconds = 10;
+    request = _build_request(100);
+    tracker.build_report(&request, 6000);
+    EXPECT_TRUE(request.is_delta_report);
+    tracker.finish_report(true, false);
+    request = _build_request(100);
+    tracker.build_report(&request, 11000);
+    EXPECT_FALSE(request.__isset.is_delta_report);
+    EXPECT_EQ(2, request.tablets.size());
+    tracker.finish_report(true, false);
+
+    config::enable_delta_tablet_report = false;
+    request = _build_request(100);
+    tracker.build_report(&request, 12000);
+    EXPECT_FALSE(request.__isset.is_delta_report);
+    EXPECT_EQ(2, request.tablets.size());
+}
+
+} // namespace doris
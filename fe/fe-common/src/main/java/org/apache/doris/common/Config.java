@@ -115,6 +115,26 @@ public class Config extends ConfigBase {
     @ConfField
     public static String audit_log_roll_mode = "TIME-DAY";
 
+    /**
+     * The capacity of the audit event queue of each audit plugin.
+     */
+    @ConfField
+    public static int audit_event_queue_size = 10000;
+
+    /**
+     * The max number of audit events delivered to an audit plugin in one batch.
+     */
+    @ConfField(mutable = true)
+    public static int audit_event_batch_size = 1000;
+
+    /**
+     * What to do when the audit event queue of an audit plugin is full:
+     *      drop:   drop the event, so that the query is never blocked by a slow plugin.
+     *      block:  wait until the plugin consumes the queued events, so that no audit event is lost.
+     */
+    @ConfField(mutable = true)
+    public static String audit_event_queue_full_policy = "drop";
+
     /**
      * plugin_dir:
      * plugin install directory
@@ -213,6 +233,20 @@ public class Config extends ConfigBase {
     @ConfField(mutable = true, masterOnly = true)
     public static int edit_log_roll_num = 50000;
 
+    /**
+     * If true, concurrent edit log writes on master are grouped and committed to the journal
+     * in one transaction by a dedicated writer thread, instead of one sync per operation.
+     * The caller still returns only after its own journal is persisted.
+     */
+    @ConfField
+    public static boolean enable_edit_log_group_commit = false;
+
+    /**
+     * The max number of journals committed in one batch when *enable_edit_log_group_commit* is true.
+     */
+    @ConfField(mutable = true, masterOnly = true)
+    public static int edit_log_group_commit_max_batch_size = 512;
+
     /**
      * Non-master FE will stop offering service
      * if meta data delay gap exceeds *meta_delay_toleration_second*
@@ -432,6 +466,19 @@ public class Config extends ConfigBase {
      */
     @ConfField public static int max_mysql_service_task_threads_num = 4096;
 
+    /**
+     * Size of the direct buffer used to send data to a mysql client.
+     * The buffers are borrowed from a shared pool when a connection sends a response,
+     * and returned to the pool after the response is flushed, so idle connections hold no send buffer.
+     */
+    @ConfField public static int mysql_send_buffer_size = 2 * 1024 * 1024;
+
+    /**
+     * Max num of idle send buffers kept in the pool. Buffers beyond this are released.
+     */
+    @ConfField(mutable = true)
+    public static int mysql_send_buffer_pool_max_idle_num = 64;
+
     /**
      * node(FE or BE) will be considered belonging to the same Palo cluster if they have same cluster id.
      * Cluster id is usually a random integer generated when master FE start at first time.
@@ -474,7 +521,9 @@ public class Config extends ConfigBase {
     public static int commit_timeout_second = 30; // 30 seconds
 
     /**
-     * minimal intervals between two publish version action
+     * minimal intervals between two publish version action.
+     * The publish version daemon is also woken up when a transaction is committed or a publish version
+     * task is finished, so this interval only bounds the retry of transactions that can not be finished yet.
      */
     @ConfField public static int publish_version_interval_ms = 10;
 
@@ -1078,6 +1127,15 @@ public class Config extends ConfigBase {
     @ConfField(mutable = true)
     public static int max_point_query_retry_time = 2;
 
+    /**
+     * Max number of plans of prepared statements kept in the prepared plan cache.
+     * The cached plans are shared by all connections which prepare the same statement,
+     * and are reused on EXECUTE by binding the new parameters into the cached plan.
+     * 0 means the prepared plan cache is disabled.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static int prepared_plan_cache_max_num = 0;
+
     /**
      * The tryLock timeout configuration of catalog lock.
      * Normally it does not need to change, unless you need to test something.
@@ -1197,6 +1255,28 @@ public class Config extends ConfigBase {
     @ConfField(mutable = true, masterOnly = true)
     public static int report_queue_size = 100;
 
+    /**
+     * Number of threads to handle the reports from backends.
+     * Reports of one backend are always handled by the same thread in order.
+     */
+    @ConfField(masterOnly = true)
+    public static int report_worker_num = 4;
+
+    /**
+     * If set to true, FE accepts delta tablet reports from backends, which only contain the tablets
+     * changed since the last accepted tablet report. Otherwise FE asks backends for full tablet reports.
+     * Backends send delta tablet reports only if enable_delta_tablet_report of BE is also true.
+     */
+    @ConfField(mutable = true, masterOnly = true)
+    public static boolean enable_delta_tablet_report = true;
+
+    /**
+     * FE rejects the delta tablet report and asks for a full tablet report
+     * if the last full tablet report of the backend is older than this interval.
+     */
+    @ConfField(mutable = true, masterOnly = true)
+    public static long tablet_full_report_interval_second = 3600;
+
     /**
      * If set to true, metric collector will be run as a daemon timer to collect metrics at fix interval
      */
@@ -1273,6 +1353,15 @@ public class Config extends ConfigBase {
     @ConfField(mutable = true, masterOnly = true)
     public static boolean force_do_metadata_checkpoint = false;
 
+    /**
+     * The number of threads used to save and load image.
+     * If greater than 1, meta modules are serialized concurrently when saving image, and databases
+     * are deserialized concurrently when loading an image saved in this way.
+     * Set to 1 to save and load image sequentially.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static int metadata_image_parallel_num = 4;
+
     /**
      * The multi cluster feature will be deprecated in version 0.12
      * set this config to true will disable all operations related to cluster feature, include:
@@ -1392,6 +1481,13 @@ public class Config extends ConfigBase {
     @ConfField(mutable = true, masterOnly = false)
     public static int cache_result_max_row_count = 3000;
 
+    /**
+     * Max bytes of the FE-local result cache, which is checked before fetching the result cache from BE.
+     * The cached results are kept out of the java heap. 0 means the FE-local result cache is disabled.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static long cache_fe_local_max_bytes = 0;
+
     /**
      * Used to limit element num of InPredicate in delete statement.
      */
@@ -1852,6 +1948,26 @@ public class Config extends ConfigBase {
     @ConfField(mutable = true, masterOnly = false)
     public static int max_query_profile_num = 100;
 
+    /**
+     * Max memory in bytes of the finished query profiles, which are kept in a compact binary form.
+     * The oldest profiles beyond it are spilled to query_profile_spill_dir if it is set, otherwise dropped.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static long max_query_profile_memory_bytes = 512L * 1024 * 1024; // 512MB
+
+    /**
+     * The local dir to spill the finished query profiles to. Spilling is disabled if it is empty.
+     * The spilled profiles are removed when FE restarts.
+     */
+    @ConfField(mutable = false, masterOnly = false)
+    public static String query_profile_spill_dir = "";
+
+    /**
+     * Max disk space in bytes of the spilled query profiles. The oldest spilled profiles beyond it are dropped.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static long max_query_profile_spill_bytes = 1024L * 1024 * 1024; // 1GB
+
     /**
      * Set to true to disable backend black list, so that even if we failed to send task to a backend,
      * that backend won't be added to black list.
@@ -1907,6 +2023,8 @@ public class Config extends ConfigBase {
     /**
      * Max cache num of hive partition.
      * Decrease this value if FE's memory is small
+     * Deprecated, the external meta cache is bounded by external_meta_cache_max_bytes now,
+     * this still limits the number of entries as long as they fit in the memory.
      */
     @ConfField(mutable = false, masterOnly = false)
     public static long max_hive_partition_cache_num = 100000;
@@ -1914,6 +2032,8 @@ public class Config extends ConfigBase {
     /**
      * Max cache num of external catalog's file
      * Decrease this value if FE's memory is small
+     * Deprecated, the external meta cache is bounded by external_meta_cache_max_bytes now,
+     * this still limits the number of entries as long as they fit in the memory.
      */
     @ConfField(mutable = false, masterOnly = false)
     public static long max_external_file_cache_num = 100000;
@@ -1921,6 +2041,8 @@ public class Config extends ConfigBase {
     /**
      * Max cache num of external table's schema
      * Decrease this value if FE's memory is small
+     * Deprecated, the external meta cache is bounded by external_meta_cache_max_bytes now,
+     * this still limits the number of entries as long as they fit in the memory.
      */
     @ConfField(mutable = false, masterOnly = false)
     public static long max_external_schema_cache_num = 10000;
@@ -1932,6 +2054,49 @@ public class Config extends ConfigBase {
     @ConfField(mutable = false, masterOnly = false)
     public static long external_cache_expire_time_minutes_after_access = 24 * 60; // 1 day
 
+    /**
+     * The entries of external schema cache and hive meta cache accessed after this time since
+     * they are loaded will be reloaded in background, the old value is returned until the reloading is done.
+     * 0 means not to refresh.
+     */
+    @ConfField(mutable = false, masterOnly = false)
+    public static long external_cache_refresh_time_minutes = 0;
+
+    /**
+     * Max memory in bytes of the meta cache of all external catalogs, including schemas,
+     * hive partitions and file lists. The memory of entries are estimated.
+     * It is shared by all catalogs, catalogs that are short of memory can use the share of idle ones.
+     * Decrease this value if FE's memory is small
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static long external_meta_cache_max_bytes = 1024L * 1024 * 1024; // 1GB
+
+    /**
+     * If set to true, the partition values, partitions and file lists of hive catalogs are also
+     * kept in a local disk cache under hive_meta_disk_cache_dir, so that they need not to be loaded
+     * from hive metastore and file system again after FE restarts.
+     */
+    @ConfField(mutable = false, masterOnly = false)
+    public static boolean enable_hive_meta_disk_cache = false;
+
+    /**
+     * The local dir of hive meta disk cache. It is not replicated, so it should not be under meta_dir.
+     */
+    @ConfField(mutable = false, masterOnly = false)
+    public static String hive_meta_disk_cache_dir = System.getenv("DORIS_HOME") + "/hive_meta_cache";
+
+    /**
+     * Max total size in bytes of the entries in hive meta disk cache. The oldest entries beyond it are removed.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static long hive_meta_disk_cache_max_bytes = 10L * 1024 * 1024 * 1024; // 10GB
+
+    /**
+     * The entries in hive meta disk cache loaded before this time are ignored and removed.
+     */
+    @ConfField(mutable = true, masterOnly = false)
+    public static long hive_meta_disk_cache_expire_minutes = 24 * 60; // 1 day
+
     /**
      * Github workflow test type, for setting some session variables
      * only for certain test type. E.g. only settting batch_size to small
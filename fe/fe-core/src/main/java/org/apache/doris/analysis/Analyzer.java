@@ -303,7 +303,7 @@ public class Analyzer {
         private final DescriptorTable descTbl = new DescriptorTable();
         private final Env env;
         private final IdGenerator<ExprId> conjunctIdGenerator = ExprId.createGenerator();
-        private final ConnectContext context;
+        private ConnectContext context;
 
         // True if we are analyzing an explain request. Should be set before starting
         // analysis.
@@ -2201,6 +2201,14 @@ public class Analyzer {
         return globalState.context;
     }
 
+    /**
+     * Change the connection of this analyzer and all the analyzers sharing its global state.
+     * Only used to share the cached plan of prepared statement between connections, see PreparedPlanCache.
+     */
+    public void setContext(ConnectContext context) {
+        globalState.context = context;
+    }
+
     public String getSchemaWild() {
         return schemaWild;
     }
@@ -452,8 +452,9 @@ public class BinaryPredicate extends Predicate implements Writable {
     public void analyzeImpl(Analyzer analyzer) throws AnalysisException {
         super.analyzeImpl(analyzer);
 
-        // Ignore placeholder
-        if (getChild(0) instanceof PlaceHolderExpr || getChild(1) instanceof PlaceHolderExpr) {
+        // Ignore placeholder of point query and the one not bound yet. The placeholder bound on
+        // execute is analyzed as a literal, then the cached plan could be reused with other values.
+        if (isPlaceHolderToIgnore(getChild(0), analyzer) || isPlaceHolderToIgnore(getChild(1), analyzer)) {
             return;
         }
 
@@ -512,6 +513,11 @@ public class BinaryPredicate extends Predicate implements Writable {
         // vectorizedAnalyze(analyzer);
     }
 
+    private static boolean isPlaceHolderToIgnore(Expr expr, Analyzer analyzer) {
+        return expr instanceof PlaceHolderExpr
+                && (expr.getType().isInvalid() || analyzer.getPrepareStmt() != null);
+    }
+
     /**
      * If predicate is of the form "<slotref> <op> <expr>", returns expr,
      * otherwise returns null. Slotref may be wrapped in a CastExpr.
@@ -19,6 +19,7 @@ package org.apache.doris.analysis;
 
 import org.apache.doris.catalog.Column;
 import org.apache.doris.catalog.OlapTable;
+import org.apache.doris.catalog.View;
 import org.apache.doris.common.UserException;
 import org.apache.doris.qe.ConnectContext;
 import org.apache.doris.thrift.TDescriptorTable;
@@ -54,6 +55,9 @@ public class PrepareStmt extends StatementBase {
     private UUID id;
     // whether return binary protocol mysql row or not
     private boolean binaryRowFormat;
+    // whether the inner stmt is a point query which is executed by short circuit,
+    // other queries are planned on execute and their plans are kept in PreparedPlanCache
+    private boolean isPointQuery = false;
     int schemaVersion = -1;
     OlapTable tbl;
     ConnectContext context;
@@ -69,6 +73,10 @@ public class PrepareStmt extends StatementBase {
         this.context = ctx;
     }
 
+    public boolean isPointQuery() {
+        return isPointQuery;
+    }
+
     public boolean needReAnalyze() {
         if (schemaVersion == tbl.getBaseSchemaVersion()) {
             return false;
@@ -133,7 +141,7 @@ public class PrepareStmt extends StatementBase {
 
     public List<Expr> getSlotRefOfPlaceHolders() {
         ArrayList<Expr> slots = new ArrayList<>();
-        if (inner instanceof SelectStmt) {
+        if (inner instanceof SelectStmt && isPointQuery) {
             SelectStmt select = (SelectStmt) inner;
             for (PlaceHolderExpr pexpr : placeholders) {
                 // Only point query support
@@ -152,6 +160,13 @@ public class PrepareStmt extends StatementBase {
 
     public List<String> getColLabelsOfPlaceHolders() {
         ArrayList<String> lables = new ArrayList<>();
+        if (inner instanceof SelectStmt && !isPointQuery) {
+            // The types of place holders are unknown until execute
+            for (int i = 0; i < placeholders.size(); ++i) {
+                lables.add("?");
+            }
+            return lables;
+        }
         if (inner instanceof SelectStmt) {
             for (Expr slotExpr : getSlotRefOfPlaceHolders()) {
                 SlotRef slot = (SlotRef) slotExpr;
@@ -176,20 +191,98 @@ public class PrepareStmt extends StatementBase {
         Analyzer tmpAnalyzer = new Analyzer(context.getEnv(), context);
         // collect placeholders from stmt exprs tree
         SelectStmt selectStmt = (SelectStmt) inner;
-        // TODO(lhy) support more clauses
-        if (selectStmt.getWhereClause() != null) {
-            selectStmt.getWhereClause().collect(PlaceHolderExpr.class, placeholders);
+        placeholders.addAll(collectPlaceHolders(selectStmt));
+        // The values are bound to the place holders of the where clause in order,
+        // the place holders of the other clauses would never be bound
+        List<PlaceHolderExpr> allPlaceholders = new ArrayList<>();
+        collectAllPlaceHolders(selectStmt, allPlaceholders);
+        if (allPlaceholders.size() != placeholders.size()) {
+            throw new UserException("Only support place holders in the where clause of the outermost query");
         }
+        // Place holders are ignored in analyzing, even if they are bound on re-analyze
+        tmpAnalyzer.setPrepareStmt(this);
         inner.analyze(tmpAnalyzer);
-        if (!selectStmt.checkAndSetPointQuery()) {
-            throw new UserException("Only support prepare SelectStmt point query now");
+        isPointQuery = selectStmt.checkAndSetPointQuery();
+        // reset will be reAnalyzed
+        selectStmt.reset();
+        if (!isPointQuery) {
+            // Analyze and plan on execute, when the types of place holders are known
+            return;
         }
         tbl = (OlapTable) selectStmt.getTableRefs().get(0).getTable();
         schemaVersion = tbl.getBaseSchemaVersion();
-        // reset will be reAnalyzed
-        selectStmt.reset();
         analyzer.setPrepareStmt(this);
-        // tmpAnalyzer.setPrepareStmt(this);
+    }
+
+    /**
+     * Collect place holders of the stmt in the order they appear.
+     */
+    public static List<PlaceHolderExpr> collectPlaceHolders(SelectStmt selectStmt) {
+        List<PlaceHolderExpr> result = new ArrayList<>();
+        // TODO(lhy) support more clauses
+        if (selectStmt.getWhereClause() != null) {
+            selectStmt.getWhereClause().collect(PlaceHolderExpr.class, result);
+        }
+        return result;
+    }
+
+    // Collect the place holders of all the clauses, including the ones of the with clause,
+    // inline views and subqueries
+    private static void collectAllPlaceHolders(QueryStmt stmt, List<PlaceHolderExpr> result) {
+        if (stmt.hasWithClause()) {
+            for (View view : stmt.getWithClause().getViews()) {
+                collectAllPlaceHolders(view.getQueryStmt(), result);
+            }
+        }
+        List<Expr> exprs = new ArrayList<>();
+        if (stmt instanceof SetOperationStmt) {
+            for (SetOperationStmt.SetOperand operand : ((SetOperationStmt) stmt).getOperands()) {
+                collectAllPlaceHolders(operand.getQueryStmt(), result);
+            }
+        } else if (stmt instanceof SelectStmt) {
+            SelectStmt selectStmt = (SelectStmt) stmt;
+            for (SelectListItem item : selectStmt.getSelectList().getItems()) {
+                if (!item.isStar()) {
+                    exprs.add(item.getExpr());
+                }
+            }
+            for (TableRef tableRef : selectStmt.getTableRefs()) {
+                if (tableRef.getOnClause() != null) {
+                    exprs.add(tableRef.getOnClause());
+                }
+                if (tableRef instanceof InlineViewRef) {
+                    collectAllPlaceHolders(((InlineViewRef) tableRef).getViewStmt(), result);
+                }
+            }
+            if (selectStmt.getWhereClause() != null) {
+                exprs.add(selectStmt.getWhereClause());
+            }
+            if (selectStmt.getHavingClause() != null) {
+                exprs.add(selectStmt.getHavingClause());
+            }
+            GroupByClause groupByClause = selectStmt.getGroupByClause();
+            if (groupByClause != null && groupByClause.getOriGroupingExprs() != null) {
+                exprs.addAll(groupByClause.getOriGroupingExprs());
+            }
+            if (groupByClause != null && groupByClause.getGroupingSetList() != null) {
+                for (List<Expr> groupingSet : groupByClause.getGroupingSetList()) {
+                    exprs.addAll(groupingSet);
+                }
+            }
+        }
+        if (stmt.getOrderByElements() != null) {
+            for (OrderByElement orderByElement : stmt.getOrderByElements()) {
+                exprs.add(orderByElement.getExpr());
+            }
+        }
+        List<Subquery> subqueries = new ArrayList<>();
+        for (Expr expr : exprs) {
+            expr.collect(PlaceHolderExpr.class, result);
+            expr.collect(Subquery.class, subqueries);
+        }
+        for (Subquery subquery : subqueries) {
+            collectAllPlaceHolders(subquery.getStatement(), result);
+        }
     }
 
     public String getName() {
@@ -290,6 +290,10 @@ public class SelectStmt extends QueryStmt {
         return havingClauseAfterAnaylzed;
     }
 
+    public Expr getHavingClause() {
+        return havingClause;
+    }
+
     public List<TableRef> getTableRefs() {
         return fromClause.getTableRefs();
     }
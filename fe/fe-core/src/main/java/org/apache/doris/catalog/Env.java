@@ -200,6 +200,7 @@ import org.apache.doris.persist.TableRenameColumnInfo;
 import org.apache.doris.persist.TruncateTableInfo;
 import org.apache.doris.persist.meta.MetaHeader;
 import org.apache.doris.persist.meta.MetaReader;
+import org.apache.doris.persist.meta.MetaTaskExecutor;
 import org.apache.doris.persist.meta.MetaWriter;
 import org.apache.doris.plugin.PluginInfo;
 import org.apache.doris.plugin.PluginMgr;
@@ -742,7 +743,9 @@ public class Env {
     }
 
     public static final boolean isCheckpointThread() {
-        return Thread.currentThread().getId() == checkpointThreadId;
+        Thread thread = Thread.currentThread();
+        // the image workers started by checkpoint thread also work on the checkpoint env
+        return thread.getId() == checkpointThreadId || MetaTaskExecutor.isCheckpointWorker(thread);
     }
 
     public static PluginMgr getCurrentPluginMgr() {
@@ -1259,6 +1262,7 @@ public class Env {
         canRead.set(false);
 
         editLog.open();
+        editLog.startGroupCommit();
 
         if (Config.edit_log_type.equalsIgnoreCase("bdb")) {
             if (!haProtocol.fencing()) {
@@ -3479,6 +3483,10 @@ public class Env {
         return this.backupHandler;
     }
 
+    public PublishVersionDaemon getPublishVersionDaemon() {
+        return this.publishVersionDaemon;
+    }
+
     public DeleteHandler getDeleteHandler() {
         return this.deleteHandler;
     }
@@ -20,6 +20,9 @@ package org.apache.doris.catalog;
 import org.apache.doris.catalog.Replica.ReplicaState;
 import org.apache.doris.common.Config;
 import org.apache.doris.common.Pair;
+import org.apache.doris.common.util.LongLongHashMap;
+import org.apache.doris.common.util.LongObjectHashMap;
+import org.apache.doris.common.util.LongObjectHashMap.LongObjectConsumer;
 import org.apache.doris.cooldown.CooldownConf;
 import org.apache.doris.task.PublishVersionTask;
 import org.apache.doris.thrift.TPartitionVersionInfo;
@@ -48,6 +51,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +65,10 @@ import java.util.stream.Collectors;
  * key is tablet id. value is the related ids of this tablet
  * Checkpoint thread is no need to modify this inverted index, because this inverted index will not be wrote
  * into images, all meta data are in catalog, and the inverted index will be rebuild when FE restart.
+ *
+ * The index is split into shards by tablet id (and by replica id for replica -> tablet mapping),
+ * each shard has its own lock, so that a tablet report of one backend only locks one shard at a time.
+ * Primitive long keyed maps are used to avoid boxing the ids of millions of tablets and replicas.
  */
 public class TabletInvertedIndex {
     private static final Logger LOG = LogManager.getLogger(TabletInvertedIndex.class);
@@ -70,13 +78,10 @@ public class TabletInvertedIndex {
     public static final TabletMeta NOT_EXIST_TABLET_META = new TabletMeta(NOT_EXIST_VALUE, NOT_EXIST_VALUE,
             NOT_EXIST_VALUE, NOT_EXIST_VALUE, NOT_EXIST_VALUE, TStorageMedium.HDD);
 
-    private StampedLock lock = new StampedLock();
+    // must be power of 2
+    private static final int SHARD_NUM = 64;
 
-    // tablet id -> tablet meta
-    private Map<Long, TabletMeta> tabletMetaMap = Maps.newHashMap();
-
-    // replica id -> tablet id
-    private Map<Long, Long> replicaToTabletMap = Maps.newHashMap();
+    private final Shard[] shards;
 
     /*
      *  we use this to save memory.
@@ -86,39 +91,72 @@ public class TabletInvertedIndex {
      *  we use 'tabletMetaTable' to do the update things
      *      (eg. update schema hash in TabletMeta)
      *  partition id -> (index id -> tablet meta)
+     *  It is guarded by itself, not by the shard locks.
      */
-    private Table<Long, Long, TabletMeta> tabletMetaTable = HashBasedTable.create();
-
-    // tablet id -> (backend id -> replica)
-    private Table<Long, Long, Replica> replicaMetaTable = HashBasedTable.create();
-    // backing replica table, for visiting backend replicas faster.
-    // backend id -> (tablet id -> replica)
-    private Table<Long, Long, Replica> backingReplicaMetaTable = HashBasedTable.create();
+    private final Table<Long, Long, TabletMeta> tabletMetaTable = HashBasedTable.create();
 
     private volatile ImmutableSet<Long> partitionIdInMemorySet = ImmutableSet.of();
 
     private ForkJoinPool taskPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
-    public TabletInvertedIndex() {
-    }
+    private static class Shard {
+        private final StampedLock lock = new StampedLock();
 
-    private long readLock() {
-        return this.lock.readLock();
-    }
+        // tablet id -> tablet meta
+        private final LongObjectHashMap<TabletMeta> tabletMetaMap = new LongObjectHashMap<>();
+
+        // tablet id -> replicas of this tablet, at most one replica on each backend
+        private final LongObjectHashMap<Replica[]> replicaMetaMap = new LongObjectHashMap<>();
+
+        // backing replica map, for visiting backend replicas faster.
+        // backend id -> (tablet id -> replica), only contains the tablets of this shard
+        private final LongObjectHashMap<LongObjectHashMap<Replica>> backingReplicaMetaMap = new LongObjectHashMap<>();
+
+        // replica id -> tablet id, only contains the replicas whose id belongs to this shard
+        private final LongLongHashMap replicaToTabletMap = new LongLongHashMap();
+
+        private long readLock() {
+            return lock.readLock();
+        }
+
+        private void readUnlock(long stamp) {
+            lock.unlockRead(stamp);
+        }
+
+        private long writeLock() {
+            return lock.writeLock();
+        }
+
+        private void writeUnlock(long stamp) {
+            lock.unlockWrite(stamp);
+        }
 
-    private void readUnlock(long stamp) {
-        this.lock.unlockRead(stamp);
+        private void clear() {
+            tabletMetaMap.clear();
+            replicaMetaMap.clear();
+            backingReplicaMetaMap.clear();
+            replicaToTabletMap.clear();
+        }
     }
 
-    private long writeLock() {
-        return this.lock.writeLock();
+    public TabletInvertedIndex() {
+        shards = new Shard[SHARD_NUM];
+        for (int i = 0; i < SHARD_NUM; i++) {
+            shards[i] = new Shard();
+        }
     }
 
-    private void writeUnlock(long stamp) {
-        this.lock.unlockWrite(stamp);
+    private Shard getShard(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return shards[(int) (h >>> 32) & (SHARD_NUM - 1)];
     }
 
-    public void tabletReport(long backendId, Map<Long, TTablet> backendTablets,
+    /*
+     * If deletedTablets is null, backendTablets contains all the tablets on the backend (full report),
+     * and all the replicas of this backend in meta are diffed with them.
+     * Otherwise it is a delta report, only the tablets in backendTablets and deletedTablets are diffed.
+     */
+    public void tabletReport(long backendId, Map<Long, TTablet> backendTablets, List<Long> deletedTablets,
                              final HashMap<Long, TStorageMedium> storageMediumMap,
                              ListMultimap<Long, Long> tabletSyncMap,
                              ListMultimap<Long, Long> tabletDeleteFromMeta,
@@ -130,189 +168,197 @@ public class TabletInvertedIndex {
                              List<Triple<Long, Integer, Boolean>> tabletToInMemory,
                              List<CooldownConf> cooldownConfToPush,
                              List<CooldownConf> cooldownConfToUpdate) {
-        long stamp = readLock();
         long start = System.currentTimeMillis();
-        try {
-            LOG.debug("begin to do tablet diff with backend[{}]. num: {}", backendId, backendTablets.size());
-            Map<Long, Replica> replicaMetaWithBackend = backingReplicaMetaTable.row(backendId);
-            if (replicaMetaWithBackend != null) {
-                taskPool.submit(() -> {
-                    // traverse replicas in meta with this backend
-                    replicaMetaWithBackend.entrySet().parallelStream().forEach(entry -> {
-                        long tabletId = entry.getKey();
-                        Preconditions.checkState(tabletMetaMap.containsKey(tabletId));
-                        TabletMeta tabletMeta = tabletMetaMap.get(tabletId);
-
-                        if (backendTablets.containsKey(tabletId)) {
-                            TTablet backendTablet = backendTablets.get(tabletId);
-                            Replica replica = entry.getValue();
-                            tabletFoundInMeta.add(tabletId);
-                            TTabletInfo backendTabletInfo = backendTablet.getTabletInfos().get(0);
-                            if (partitionIdInMemorySet.contains(
-                                    backendTabletInfo.getPartitionId()) != backendTabletInfo.isIsInMemory()) {
-                                synchronized (tabletToInMemory) {
-                                    tabletToInMemory.add(new ImmutableTriple<>(tabletId,
-                                            backendTabletInfo.getSchemaHash(), !backendTabletInfo.isIsInMemory()));
-                                }
-                            }
-                            // 1. (intersection)
-                            if (needSync(replica, backendTabletInfo)) {
-                                // need sync
-                                synchronized (tabletSyncMap) {
-                                    tabletSyncMap.put(tabletMeta.getDbId(), tabletId);
-                                }
-                            }
+        LOG.debug("begin to do tablet diff with backend[{}]. num: {}", backendId, backendTablets.size());
+        // called with the read lock of the shard which the tablet belongs to.
+        LongObjectConsumer<Replica> diffFunc = (tabletId, replica) -> {
+            TabletMeta tabletMeta = getShard(tabletId).tabletMetaMap.get(tabletId);
+            Preconditions.checkState(tabletMeta != null);
+
+            if (backendTablets.containsKey(tabletId)) {
+                TTablet backendTablet = backendTablets.get(tabletId);
+                tabletFoundInMeta.add(tabletId);
+                TTabletInfo backendTabletInfo = backendTablet.getTabletInfos().get(0);
+                if (partitionIdInMemorySet.contains(
+                        backendTabletInfo.getPartitionId()) != backendTabletInfo.isIsInMemory()) {
+                    synchronized (tabletToInMemory) {
+                        tabletToInMemory.add(new ImmutableTriple<>(tabletId,
+                                backendTabletInfo.getSchemaHash(), !backendTabletInfo.isIsInMemory()));
+                    }
+                }
+                // 1. (intersection)
+                if (needSync(replica, backendTabletInfo)) {
+                    // need sync
+                    synchronized (tabletSyncMap) {
+                        tabletSyncMap.put(tabletMeta.getDbId(), tabletId);
+                    }
+                }
 
-                            // check and set path
-                            // path info of replica is only saved in Master FE
-                            if (backendTabletInfo.isSetPathHash()
-                                    && replica.getPathHash() != backendTabletInfo.getPathHash()) {
-                                replica.setPathHash(backendTabletInfo.getPathHash());
-                            }
+                // check and set path
+                // path info of replica is only saved in Master FE
+                if (backendTabletInfo.isSetPathHash()
+                        && replica.getPathHash() != backendTabletInfo.getPathHash()) {
+                    replica.setPathHash(backendTabletInfo.getPathHash());
+                }
 
-                            if (backendTabletInfo.isSetSchemaHash() && replica.getState() == ReplicaState.NORMAL
-                                    && replica.getSchemaHash() != backendTabletInfo.getSchemaHash()) {
-                                // update the schema hash only when replica is normal
-                                replica.setSchemaHash(backendTabletInfo.getSchemaHash());
-                            }
+                if (backendTabletInfo.isSetSchemaHash() && replica.getState() == ReplicaState.NORMAL
+                        && replica.getSchemaHash() != backendTabletInfo.getSchemaHash()) {
+                    // update the schema hash only when replica is normal
+                    replica.setSchemaHash(backendTabletInfo.getSchemaHash());
+                }
 
-                            if (needRecover(replica, tabletMeta.getOldSchemaHash(), backendTabletInfo)) {
-                                LOG.warn("replica {} of tablet {} on backend {} need recovery. "
-                                                + "replica in FE: {}, report version {}, report schema hash: {},"
-                                                + " is bad: {}, is version missing: {}",
-                                        replica.getId(), tabletId, backendId, replica,
-                                        backendTabletInfo.getVersion(),
-                                        backendTabletInfo.getSchemaHash(),
-                                        backendTabletInfo.isSetUsed() ? !backendTabletInfo.isUsed() : "false",
-                                        backendTabletInfo.isSetVersionMiss() ? backendTabletInfo.isVersionMiss() :
-                                                "unset");
-                                synchronized (tabletRecoveryMap) {
-                                    tabletRecoveryMap.put(tabletMeta.getDbId(), tabletId);
-                                }
-                            }
+                if (needRecover(replica, tabletMeta.getOldSchemaHash(), backendTabletInfo)) {
+                    LOG.warn("replica {} of tablet {} on backend {} need recovery. "
+                                    + "replica in FE: {}, report version {}, report schema hash: {},"
+                                    + " is bad: {}, is version missing: {}",
+                            replica.getId(), tabletId, backendId, replica,
+                            backendTabletInfo.getVersion(),
+                            backendTabletInfo.getSchemaHash(),
+                            backendTabletInfo.isSetUsed() ? !backendTabletInfo.isUsed() : "false",
+                            backendTabletInfo.isSetVersionMiss() ? backendTabletInfo.isVersionMiss() :
+                                    "unset");
+                    synchronized (tabletRecoveryMap) {
+                        tabletRecoveryMap.put(tabletMeta.getDbId(), tabletId);
+                    }
+                }
+
+                if (Config.enable_storage_policy && backendTabletInfo.isSetCooldownTerm()) {
+                    handleCooldownConf(tabletMeta, backendTabletInfo, cooldownConfToPush,
+                            cooldownConfToUpdate);
+                    replica.setCooldownMetaId(backendTabletInfo.getCooldownMetaId());
+                    replica.setCooldownTerm(backendTabletInfo.getCooldownTerm());
+                }
 
-                            if (Config.enable_storage_policy && backendTabletInfo.isSetCooldownTerm()) {
-                                handleCooldownConf(tabletMeta, backendTabletInfo, cooldownConfToPush,
-                                        cooldownConfToUpdate);
-                                replica.setCooldownMetaId(backendTabletInfo.getCooldownMetaId());
-                                replica.setCooldownTerm(backendTabletInfo.getCooldownTerm());
+                long partitionId = tabletMeta.getPartitionId();
+                if (!Config.disable_storage_medium_check) {
+                    // check if need migration
+                    TStorageMedium storageMedium = storageMediumMap.get(partitionId);
+                    if (storageMedium != null && backendTabletInfo.isSetStorageMedium()
+                            && isLocal(storageMedium) && isLocal(backendTabletInfo.getStorageMedium())
+                            && isLocal(tabletMeta.getStorageMedium())) {
+                        if (storageMedium != backendTabletInfo.getStorageMedium()) {
+                            synchronized (tabletMigrationMap) {
+                                tabletMigrationMap.put(storageMedium, tabletId);
                             }
+                        }
+                        if (storageMedium != tabletMeta.getStorageMedium()) {
+                            tabletMeta.setStorageMedium(storageMedium);
+                        }
+                    }
+                }
 
-                            long partitionId = tabletMeta.getPartitionId();
-                            if (!Config.disable_storage_medium_check) {
-                                // check if need migration
-                                TStorageMedium storageMedium = storageMediumMap.get(partitionId);
-                                if (storageMedium != null && backendTabletInfo.isSetStorageMedium()
-                                        && isLocal(storageMedium) && isLocal(backendTabletInfo.getStorageMedium())
-                                        && isLocal(tabletMeta.getStorageMedium())) {
-                                    if (storageMedium != backendTabletInfo.getStorageMedium()) {
-                                        synchronized (tabletMigrationMap) {
-                                            tabletMigrationMap.put(storageMedium, tabletId);
-                                        }
-                                    }
-                                    if (storageMedium != tabletMeta.getStorageMedium()) {
-                                        tabletMeta.setStorageMedium(storageMedium);
+                // check if should clear transactions
+                if (backendTabletInfo.isSetTransactionIds()) {
+                    List<Long> transactionIds = backendTabletInfo.getTransactionIds();
+                    GlobalTransactionMgr transactionMgr = Env.getCurrentGlobalTransactionMgr();
+                    for (Long transactionId : transactionIds) {
+                        TransactionState transactionState
+                                = transactionMgr.getTransactionState(tabletMeta.getDbId(), transactionId);
+                        if (transactionState == null
+                                || transactionState.getTransactionStatus() == TransactionStatus.ABORTED) {
+                            synchronized (transactionsToClear) {
+                                transactionsToClear.put(transactionId, tabletMeta.getPartitionId());
+                            }
+                            LOG.debug("transaction id [{}] is not valid any more, "
+                                    + "clear it from backend [{}]", transactionId, backendId);
+                        } else if (transactionState.getTransactionStatus() == TransactionStatus.VISIBLE) {
+                            TableCommitInfo tableCommitInfo
+                                    = transactionState.getTableCommitInfo(tabletMeta.getTableId());
+                            PartitionCommitInfo partitionCommitInfo = tableCommitInfo == null
+                                    ? null : tableCommitInfo.getPartitionCommitInfo(partitionId);
+                            if (partitionCommitInfo != null) {
+                                TPartitionVersionInfo versionInfo
+                                        = new TPartitionVersionInfo(tabletMeta.getPartitionId(),
+                                        partitionCommitInfo.getVersion(), 0);
+                                synchronized (transactionsToPublish) {
+                                    ListMultimap<Long, TPartitionVersionInfo> map
+                                            = transactionsToPublish.get(transactionState.getDbId());
+                                    if (map == null) {
+                                        map = ArrayListMultimap.create();
+                                        transactionsToPublish.put(transactionState.getDbId(), map);
                                     }
+                                    map.put(transactionId, versionInfo);
                                 }
                             }
-
-                            // check if should clear transactions
-                            if (backendTabletInfo.isSetTransactionIds()) {
-                                List<Long> transactionIds = backendTabletInfo.getTransactionIds();
-                                GlobalTransactionMgr transactionMgr = Env.getCurrentGlobalTransactionMgr();
-                                for (Long transactionId : transactionIds) {
-                                    TransactionState transactionState
-                                            = transactionMgr.getTransactionState(tabletMeta.getDbId(), transactionId);
-                                    if (transactionState == null
-                                            || transactionState.getTransactionStatus() == TransactionStatus.ABORTED) {
-                                        synchronized (transactionsToClear) {
-                                            transactionsToClear.put(transactionId, tabletMeta.getPartitionId());
-                                        }
-                                        LOG.debug("transaction id [{}] is not valid any more, "
-                                                + "clear it from backend [{}]", transactionId, backendId);
-                                    } else if (transactionState.getTransactionStatus() == TransactionStatus.VISIBLE) {
-                                        TableCommitInfo tableCommitInfo
-                                                = transactionState.getTableCommitInfo(tabletMeta.getTableId());
-                                        PartitionCommitInfo partitionCommitInfo = tableCommitInfo == null
-                                                ? null : tableCommitInfo.getPartitionCommitInfo(partitionId);
-                                        if (partitionCommitInfo != null) {
-                                            TPartitionVersionInfo versionInfo
-                                                    = new TPartitionVersionInfo(tabletMeta.getPartitionId(),
-                                                    partitionCommitInfo.getVersion(), 0);
-                                            synchronized (transactionsToPublish) {
-                                                ListMultimap<Long, TPartitionVersionInfo> map
-                                                        = transactionsToPublish.get(transactionState.getDbId());
-                                                if (map == null) {
-                                                    map = ArrayListMultimap.create();
-                                                    transactionsToPublish.put(transactionState.getDbId(), map);
-                                                }
-                                                map.put(transactionId, versionInfo);
-                                            }
-                                        }
-                                    } else if (transactionState.getTransactionStatus() == TransactionStatus.COMMITTED) {
-                                        // for some reasons, transaction pushlish succeed replica num less than quorum,
-                                        // this transaction's status can not to be VISIBLE, and this publish task of
-                                        // this replica of this tablet on this backend need retry publish success to
-                                        // make transaction VISIBLE when last publish failed.
-                                        Map<Long, PublishVersionTask> publishVersionTask =
-                                                        transactionState.getPublishVersionTasks();
-                                        PublishVersionTask task = publishVersionTask.get(backendId);
-                                        if (task != null && task.isFinished()) {
-                                            List<Long> errorTablets = task.getErrorTablets();
-                                            if (errorTablets != null) {
-                                                for (int i = 0; i < errorTablets.size(); i++) {
-                                                    if (tabletId == errorTablets.get(i)) {
-                                                        TableCommitInfo tableCommitInfo
-                                                                = transactionState.getTableCommitInfo(
-                                                                        tabletMeta.getTableId());
-                                                        PartitionCommitInfo partitionCommitInfo =
-                                                                tableCommitInfo == null ? null :
-                                                                tableCommitInfo.getPartitionCommitInfo(partitionId);
-                                                        if (partitionCommitInfo != null) {
-                                                            TPartitionVersionInfo versionInfo
-                                                                    = new TPartitionVersionInfo(
-                                                                        tabletMeta.getPartitionId(),
-                                                                        partitionCommitInfo.getVersion(), 0);
-                                                            synchronized (transactionsToPublish) {
-                                                                ListMultimap<Long, TPartitionVersionInfo> map
-                                                                        = transactionsToPublish.get(
-                                                                        transactionState.getDbId());
-                                                                if (map == null) {
-                                                                    map = ArrayListMultimap.create();
-                                                                    transactionsToPublish.put(
-                                                                            transactionState.getDbId(), map);
-                                                                }
-                                                                map.put(transactionId, versionInfo);
-                                                            }
-                                                        }
-                                                        break;
+                        } else if (transactionState.getTransactionStatus() == TransactionStatus.COMMITTED) {
+                            // for some reasons, transaction pushlish succeed replica num less than quorum,
+                            // this transaction's status can not to be VISIBLE, and this publish task of
+                            // this replica of this tablet on this backend need retry publish success to
+                            // make transaction VISIBLE when last publish failed.
+                            Map<Long, PublishVersionTask> publishVersionTask =
+                                            transactionState.getPublishVersionTasks();
+                            PublishVersionTask task = publishVersionTask.get(backendId);
+                            if (task != null && task.isFinished()) {
+                                List<Long> errorTablets = task.getErrorTablets();
+                                if (errorTablets != null) {
+                                    for (int i = 0; i < errorTablets.size(); i++) {
+                                        if (tabletId == errorTablets.get(i)) {
+                                            TableCommitInfo tableCommitInfo
+                                                    = transactionState.getTableCommitInfo(
+                                                            tabletMeta.getTableId());
+                                            PartitionCommitInfo partitionCommitInfo =
+                                                    tableCommitInfo == null ? null :
+                                                    tableCommitInfo.getPartitionCommitInfo(partitionId);
+                                            if (partitionCommitInfo != null) {
+                                                TPartitionVersionInfo versionInfo
+                                                        = new TPartitionVersionInfo(
+                                                            tabletMeta.getPartitionId(),
+                                                            partitionCommitInfo.getVersion(), 0);
+                                                synchronized (transactionsToPublish) {
+                                                    ListMultimap<Long, TPartitionVersionInfo> map
+                                                            = transactionsToPublish.get(
+                                                            transactionState.getDbId());
+                                                    if (map == null) {
+                                                        map = ArrayListMultimap.create();
+                                                        transactionsToPublish.put(
+                                                                transactionState.getDbId(), map);
                                                     }
+                                                    map.put(transactionId, versionInfo);
                                                 }
                                             }
+                                            break;
                                         }
-
                                     }
                                 }
-                            } // end for txn id
-
-                            // update replicase's version count
-                            // no need to write log, and no need to get db lock.
-                            if (backendTabletInfo.isSetVersionCount()) {
-                                replica.setVersionCount(backendTabletInfo.getVersionCount());
-                            }
-                        } else {
-                            // 2. (meta - be)
-                            // may need delete from meta
-                            LOG.debug("backend[{}] does not report tablet[{}-{}]", backendId, tabletId, tabletMeta);
-                            synchronized (tabletDeleteFromMeta) {
-                                tabletDeleteFromMeta.put(tabletMeta.getDbId(), tabletId);
                             }
+
                         }
-                    });
-                }).join();
+                    }
+                } // end for txn id
+
+                // update replicase's version count
+                // no need to write log, and no need to get db lock.
+                if (backendTabletInfo.isSetVersionCount()) {
+                    replica.setVersionCount(backendTabletInfo.getVersionCount());
+                }
+            } else {
+                // 2. (meta - be)
+                // may need delete from meta
+                LOG.debug("backend[{}] does not report tablet[{}-{}]", backendId, tabletId, tabletMeta);
+                synchronized (tabletDeleteFromMeta) {
+                    tabletDeleteFromMeta.put(tabletMeta.getDbId(), tabletId);
+                }
             }
-        } finally {
-            readUnlock(stamp);
+        };
+
+        if (deletedTablets == null) {
+            // traverse replicas in meta with this backend, shard by shard.
+            taskPool.submit(() -> {
+                Arrays.stream(shards).parallel().forEach(shard -> {
+                    long stamp = shard.readLock();
+                    try {
+                        LongObjectHashMap<Replica> replicaMetaWithBackend
+                                = shard.backingReplicaMetaMap.get(backendId);
+                        if (replicaMetaWithBackend != null) {
+                            replicaMetaWithBackend.forEach(diffFunc);
+                        }
+                    } finally {
+                        shard.readUnlock(stamp);
+                    }
+                });
+            }).join();
+        } else {
+            deltaTabletReport(backendId, backendTablets.keySet(), deletedTablets, diffFunc, tabletDeleteFromMeta);
         }
 
         long end = System.currentTimeMillis();
@@ -325,35 +371,77 @@ public class TabletInvertedIndex {
                 tabletRecoveryMap.size(), (end - start));
     }
 
+    // only traverse the reported tablets and the deleted tablets of this backend.
+    private void deltaTabletReport(long backendId, Set<Long> reportedTablets, List<Long> deletedTablets,
+            LongObjectConsumer<Replica> diffFunc, ListMultimap<Long, Long> tabletDeleteFromMeta) {
+        Map<Shard, List<Long>> tabletsByShard = Maps.newHashMap();
+        for (Long tabletId : reportedTablets) {
+            tabletsByShard.computeIfAbsent(getShard(tabletId), k -> Lists.newArrayList()).add(tabletId);
+        }
+        for (Shard shard : tabletsByShard.keySet()) {
+            long stamp = shard.readLock();
+            try {
+                LongObjectHashMap<Replica> replicaMetaWithBackend = shard.backingReplicaMetaMap.get(backendId);
+                if (replicaMetaWithBackend == null) {
+                    continue;
+                }
+                for (long tabletId : tabletsByShard.get(shard)) {
+                    Replica replica = replicaMetaWithBackend.get(tabletId);
+                    if (replica != null) {
+                        diffFunc.accept(tabletId, replica);
+                    }
+                }
+            } finally {
+                shard.readUnlock(stamp);
+            }
+        }
+
+        // (meta - be), the tablets dropped on the backend
+        for (Long tabletId : deletedTablets) {
+            Shard shard = getShard(tabletId);
+            long stamp = shard.readLock();
+            try {
+                LongObjectHashMap<Replica> replicaMetaWithBackend = shard.backingReplicaMetaMap.get(backendId);
+                TabletMeta tabletMeta = shard.tabletMetaMap.get(tabletId);
+                if (replicaMetaWithBackend != null && replicaMetaWithBackend.containsKey(tabletId)
+                        && tabletMeta != null) {
+                    LOG.debug("backend[{}] deleted tablet[{}-{}]", backendId, tabletId, tabletMeta);
+                    tabletDeleteFromMeta.put(tabletMeta.getDbId(), tabletId);
+                }
+            } finally {
+                shard.readUnlock(stamp);
+            }
+        }
+    }
+
     public Long getTabletIdByReplica(long replicaId) {
-        long stamp = readLock();
+        Shard shard = getShard(replicaId);
+        long stamp = shard.readLock();
         try {
-            return replicaToTabletMap.get(replicaId);
+            long tabletId = shard.replicaToTabletMap.get(replicaId, NOT_EXIST_VALUE);
+            return tabletId == NOT_EXIST_VALUE ? null : tabletId;
         } finally {
-            readUnlock(stamp);
+            shard.readUnlock(stamp);
         }
     }
 
     public TabletMeta getTabletMeta(long tabletId) {
-        long stamp = readLock();
+        Shard shard = getShard(tabletId);
+        long stamp = shard.readLock();
         try {
-            return tabletMetaMap.get(tabletId);
+            return shard.tabletMetaMap.get(tabletId);
         } finally {
-            readUnlock(stamp);
+            shard.readUnlock(stamp);
         }
     }
 
     public List<TabletMeta> getTabletMetaList(List<Long> tabletIdList) {
         List<TabletMeta> tabletMetaList = new ArrayList<>(tabletIdList.size());
-        long stamp = readLock();
-        try {
-            for (Long tabletId : tabletIdList) {
-                tabletMetaList.add(tabletMetaMap.getOrDefault(tabletId, NOT_EXIST_TABLET_META));
-            }
-            return tabletMetaList;
-        } finally {
-            readUnlock(stamp);
+        for (Long tabletId : tabletIdList) {
+            TabletMeta tabletMeta = getTabletMeta(tabletId);
+            tabletMetaList.add(tabletMeta == null ? NOT_EXIST_TABLET_META : tabletMeta);
         }
+        return tabletMetaList;
     }
 
     private boolean needSync(Replica replicaInFe, TTabletInfo backendTabletInfo) {
@@ -417,12 +505,13 @@ public class TabletInvertedIndex {
         }
 
         // check cooldown replica is alive
-        Map<Long, Replica> replicaMap = replicaMetaTable.row(beTabletInfo.getTabletId());
-        if (replicaMap.isEmpty()) {
+        // the read lock of the shard is held by tabletReport()
+        Replica[] replicas = getShard(beTabletInfo.getTabletId()).replicaMetaMap.get(beTabletInfo.getTabletId());
+        if (replicas == null || replicas.length == 0) {
             return;
         }
         boolean replicaAlive = false;
-        for (Replica replica : replicaMap.values()) {
+        for (Replica replica : replicas) {
             if (replica.getId() == cooldownConf.first) {
                 if (replica.isAlive()) {
                     replicaAlive = true;
@@ -449,13 +538,7 @@ public class TabletInvertedIndex {
     }
 
     public List<Replica> getReplicas(Long tabletId) {
-        long stamp = readLock();
-        try {
-            Map<Long, Replica> replicaMap = replicaMetaTable.row(tabletId);
-            return replicaMap.values().stream().collect(Collectors.toList());
-        } finally {
-            readUnlock(stamp);
-        }
+        return getReplicasByTabletId(tabletId);
     }
 
     /**
@@ -498,174 +581,235 @@ public class TabletInvertedIndex {
         if (Env.isCheckpointThread()) {
             return;
         }
-        long stamp = writeLock();
+        Shard shard = getShard(tabletId);
+        long stamp = shard.writeLock();
         try {
-            if (tabletMetaMap.containsKey(tabletId)) {
+            if (shard.tabletMetaMap.containsKey(tabletId)) {
                 return;
             }
-            tabletMetaMap.put(tabletId, tabletMeta);
+            shard.tabletMetaMap.put(tabletId, tabletMeta);
+        } finally {
+            shard.writeUnlock(stamp);
+        }
+
+        synchronized (tabletMetaTable) {
             if (!tabletMetaTable.contains(tabletMeta.getPartitionId(), tabletMeta.getIndexId())) {
                 tabletMetaTable.put(tabletMeta.getPartitionId(), tabletMeta.getIndexId(), tabletMeta);
                 LOG.debug("add tablet meta: {}", tabletId);
             }
-
-            LOG.debug("add tablet: {}", tabletId);
-        } finally {
-            writeUnlock(stamp);
         }
+
+        LOG.debug("add tablet: {}", tabletId);
     }
 
     public void deleteTablet(long tabletId) {
         if (Env.isCheckpointThread()) {
             return;
         }
-        long stamp = writeLock();
+        Replica[] replicas;
+        TabletMeta tabletMeta;
+        Shard shard = getShard(tabletId);
+        long stamp = shard.writeLock();
         try {
-            Map<Long, Replica> replicas = replicaMetaTable.rowMap().remove(tabletId);
+            replicas = shard.replicaMetaMap.remove(tabletId);
             if (replicas != null) {
-                for (Replica replica : replicas.values()) {
-                    replicaToTabletMap.remove(replica.getId());
+                for (Replica replica : replicas) {
+                    removeBackingReplica(shard, replica.getBackendId(), tabletId);
                 }
+            }
+            tabletMeta = shard.tabletMetaMap.remove(tabletId);
+        } finally {
+            shard.writeUnlock(stamp);
+        }
 
-                for (long backendId : replicas.keySet()) {
-                    backingReplicaMetaTable.remove(backendId, tabletId);
-                }
+        if (replicas != null) {
+            for (Replica replica : replicas) {
+                removeReplicaToTablet(replica.getId());
             }
-            TabletMeta tabletMeta = tabletMetaMap.remove(tabletId);
-            if (tabletMeta != null) {
+        }
+
+        if (tabletMeta != null) {
+            synchronized (tabletMetaTable) {
                 tabletMetaTable.remove(tabletMeta.getPartitionId(), tabletMeta.getIndexId());
-                LOG.debug("delete tablet meta: {}", tabletId);
             }
-
-            LOG.debug("delete tablet: {}", tabletId);
-        } finally {
-            writeUnlock(stamp);
+            LOG.debug("delete tablet meta: {}", tabletId);
         }
+
+        LOG.debug("delete tablet: {}", tabletId);
     }
 
     public void addReplica(long tabletId, Replica replica) {
         if (Env.isCheckpointThread()) {
             return;
         }
-        long stamp = writeLock();
+        Shard shard = getShard(tabletId);
+        long stamp = shard.writeLock();
+        try {
+            Preconditions.checkState(shard.tabletMetaMap.containsKey(tabletId));
+            Replica[] replicas = shard.replicaMetaMap.get(tabletId);
+            shard.replicaMetaMap.put(tabletId, putReplica(replicas, replica));
+            LongObjectHashMap<Replica> backingMap = shard.backingReplicaMetaMap.get(replica.getBackendId());
+            if (backingMap == null) {
+                backingMap = new LongObjectHashMap<>();
+                shard.backingReplicaMetaMap.put(replica.getBackendId(), backingMap);
+            }
+            backingMap.put(tabletId, replica);
+        } finally {
+            shard.writeUnlock(stamp);
+        }
+
+        Shard replicaShard = getShard(replica.getId());
+        stamp = replicaShard.writeLock();
         try {
-            Preconditions.checkState(tabletMetaMap.containsKey(tabletId));
-            replicaMetaTable.put(tabletId, replica.getBackendId(), replica);
-            replicaToTabletMap.put(replica.getId(), tabletId);
-            backingReplicaMetaTable.put(replica.getBackendId(), tabletId, replica);
-            LOG.debug("add replica {} of tablet {} in backend {}",
-                    replica.getId(), tabletId, replica.getBackendId());
+            replicaShard.replicaToTabletMap.put(replica.getId(), tabletId);
         } finally {
-            writeUnlock(stamp);
+            replicaShard.writeUnlock(stamp);
         }
+        LOG.debug("add replica {} of tablet {} in backend {}",
+                replica.getId(), tabletId, replica.getBackendId());
     }
 
     public void deleteReplica(long tabletId, long backendId) {
         if (Env.isCheckpointThread()) {
             return;
         }
-        long stamp = writeLock();
+        Replica replica = null;
+        Shard shard = getShard(tabletId);
+        long stamp = shard.writeLock();
         try {
-            Preconditions.checkState(tabletMetaMap.containsKey(tabletId));
-            if (replicaMetaTable.containsRow(tabletId)) {
-                Replica replica = replicaMetaTable.remove(tabletId, backendId);
-                replicaToTabletMap.remove(replica.getId());
-                replicaMetaTable.remove(tabletId, backendId);
-                backingReplicaMetaTable.remove(backendId, tabletId);
-                LOG.debug("delete replica {} of tablet {} in backend {}",
-                        replica.getId(), tabletId, backendId);
-            } else {
-                // this may happen when fe restart after tablet is empty(bug cause)
-                // add log instead of assertion to observe
-                LOG.error("tablet[{}] contains no replica in inverted index", tabletId);
+            Preconditions.checkState(shard.tabletMetaMap.containsKey(tabletId));
+            Replica[] replicas = shard.replicaMetaMap.get(tabletId);
+            if (replicas != null) {
+                int idx = indexOfBackend(replicas, backendId);
+                if (idx >= 0) {
+                    replica = replicas[idx];
+                    if (replicas.length == 1) {
+                        shard.replicaMetaMap.remove(tabletId);
+                    } else {
+                        shard.replicaMetaMap.put(tabletId, removeReplica(replicas, idx));
+                    }
+                }
+                removeBackingReplica(shard, backendId, tabletId);
             }
         } finally {
-            writeUnlock(stamp);
+            shard.writeUnlock(stamp);
+        }
+
+        if (replica != null) {
+            removeReplicaToTablet(replica.getId());
+            LOG.debug("delete replica {} of tablet {} in backend {}",
+                    replica.getId(), tabletId, backendId);
+        } else {
+            // this may happen when fe restart after tablet is empty(bug cause)
+            // add log instead of assertion to observe
+            LOG.error("tablet[{}] contains no replica in inverted index", tabletId);
         }
     }
 
     public Replica getReplica(long tabletId, long backendId) {
-        long stamp = readLock();
+        Shard shard = getShard(tabletId);
+        long stamp = shard.readLock();
         try {
-            Preconditions.checkState(tabletMetaMap.containsKey(tabletId), tabletId);
-            return replicaMetaTable.get(tabletId, backendId);
+            Preconditions.checkState(shard.tabletMetaMap.containsKey(tabletId), tabletId);
+            Replica[] replicas = shard.replicaMetaMap.get(tabletId);
+            if (replicas == null) {
+                return null;
+            }
+            int idx = indexOfBackend(replicas, backendId);
+            return idx < 0 ? null : replicas[idx];
         } finally {
-            readUnlock(stamp);
+            shard.readUnlock(stamp);
         }
     }
 
     public List<Replica> getReplicasByTabletId(long tabletId) {
-        long stamp = readLock();
+        Shard shard = getShard(tabletId);
+        long stamp = shard.readLock();
         try {
-            if (replicaMetaTable.containsRow(tabletId)) {
-                return Lists.newArrayList(replicaMetaTable.row(tabletId).values());
+            Replica[] replicas = shard.replicaMetaMap.get(tabletId);
+            if (replicas != null) {
+                return Lists.newArrayList(replicas);
             }
             return Lists.newArrayList();
         } finally {
-            readUnlock(stamp);
+            shard.readUnlock(stamp);
         }
     }
 
     public List<Long> getTabletIdsByBackendId(long backendId) {
         List<Long> tabletIds = Lists.newArrayList();
-        long stamp = readLock();
-        try {
-            Map<Long, Replica> replicaMetaWithBackend = backingReplicaMetaTable.row(backendId);
-            if (replicaMetaWithBackend != null) {
-                tabletIds.addAll(replicaMetaWithBackend.keySet());
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                LongObjectHashMap<Replica> replicaMetaWithBackend = shard.backingReplicaMetaMap.get(backendId);
+                if (replicaMetaWithBackend != null) {
+                    for (long tabletId : replicaMetaWithBackend.keys()) {
+                        tabletIds.add(tabletId);
+                    }
+                }
+            } finally {
+                shard.readUnlock(stamp);
             }
-        } finally {
-            readUnlock(stamp);
         }
         return tabletIds;
     }
 
     public List<Long> getTabletIdsByBackendIdAndStorageMedium(long backendId, TStorageMedium storageMedium) {
         List<Long> tabletIds = Lists.newArrayList();
-        long stamp = readLock();
-        try {
-            Map<Long, Replica> replicaMetaWithBackend = backingReplicaMetaTable.row(backendId);
-            if (replicaMetaWithBackend != null) {
-                tabletIds = replicaMetaWithBackend.keySet().stream().filter(
-                        id -> tabletMetaMap.get(id).getStorageMedium() == storageMedium).collect(Collectors.toList());
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                LongObjectHashMap<Replica> replicaMetaWithBackend = shard.backingReplicaMetaMap.get(backendId);
+                if (replicaMetaWithBackend != null) {
+                    for (long tabletId : replicaMetaWithBackend.keys()) {
+                        if (shard.tabletMetaMap.get(tabletId).getStorageMedium() == storageMedium) {
+                            tabletIds.add(tabletId);
+                        }
+                    }
+                }
+            } finally {
+                shard.readUnlock(stamp);
             }
-        } finally {
-            readUnlock(stamp);
         }
         return tabletIds;
     }
 
     public int getTabletNumByBackendId(long backendId) {
-        long stamp = readLock();
-        try {
-            Map<Long, Replica> replicaMetaWithBackend = backingReplicaMetaTable.row(backendId);
-            if (replicaMetaWithBackend != null) {
-                return replicaMetaWithBackend.size();
+        int num = 0;
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                LongObjectHashMap<Replica> replicaMetaWithBackend = shard.backingReplicaMetaMap.get(backendId);
+                if (replicaMetaWithBackend != null) {
+                    num += replicaMetaWithBackend.size();
+                }
+            } finally {
+                shard.readUnlock(stamp);
             }
-        } finally {
-            readUnlock(stamp);
         }
-        return 0;
+        return num;
     }
 
     public Map<TStorageMedium, Long> getReplicaNumByBeIdAndStorageMedium(long backendId) {
         Map<TStorageMedium, Long> replicaNumMap = Maps.newHashMap();
         long hddNum = 0;
         long ssdNum = 0;
-        long stamp = readLock();
-        try {
-            Map<Long, Replica> replicaMetaWithBackend = backingReplicaMetaTable.row(backendId);
-            if (replicaMetaWithBackend != null) {
-                for (long tabletId : replicaMetaWithBackend.keySet()) {
-                    if (tabletMetaMap.get(tabletId).getStorageMedium() == TStorageMedium.HDD) {
-                        hddNum++;
-                    } else {
-                        ssdNum++;
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                LongObjectHashMap<Replica> replicaMetaWithBackend = shard.backingReplicaMetaMap.get(backendId);
+                if (replicaMetaWithBackend != null) {
+                    for (long tabletId : replicaMetaWithBackend.keys()) {
+                        if (shard.tabletMetaMap.get(tabletId).getStorageMedium() == TStorageMedium.HDD) {
+                            hddNum++;
+                        } else {
+                            ssdNum++;
+                        }
                     }
                 }
+            } finally {
+                shard.readUnlock(stamp);
             }
-        } finally {
-            readUnlock(stamp);
         }
         replicaNumMap.put(TStorageMedium.HDD, hddNum);
         replicaNumMap.put(TStorageMedium.SSD, ssdNum);
@@ -674,15 +818,16 @@ public class TabletInvertedIndex {
 
     // just for test
     public void clear() {
-        long stamp = writeLock();
-        try {
-            tabletMetaMap.clear();
-            replicaToTabletMap.clear();
+        for (Shard shard : shards) {
+            long stamp = shard.writeLock();
+            try {
+                shard.clear();
+            } finally {
+                shard.writeUnlock(stamp);
+            }
+        }
+        synchronized (tabletMetaTable) {
             tabletMetaTable.clear();
-            replicaMetaTable.clear();
-            backingReplicaMetaTable.clear();
-        } finally {
-            writeUnlock(stamp);
         }
     }
 
@@ -690,15 +835,23 @@ public class TabletInvertedIndex {
         this.partitionIdInMemorySet = partitionIdInMemorySet;
     }
 
+    // return a snapshot of replica id -> tablet id
     public Map<Long, Long> getReplicaToTabletMap() {
+        Map<Long, Long> replicaToTabletMap = Maps.newHashMap();
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                shard.replicaToTabletMap.forEach(replicaToTabletMap::put);
+            } finally {
+                shard.readUnlock(stamp);
+            }
+        }
         return replicaToTabletMap;
     }
 
     // Only build from available bes, exclude colocate tables
     public Map<TStorageMedium, TreeMultimap<Long, PartitionBalanceInfo>> buildPartitionInfoBySkew(
             List<Long> availableBeIds) {
-        long stamp = readLock();
-
         // 1. gen <partitionId-indexId, <beId, replicaCount>>
         // for each replica(all tablets):
         //      find beId, then replicaCount++
@@ -706,41 +859,19 @@ public class TabletInvertedIndex {
         for (TStorageMedium medium : TStorageMedium.values()) {
             partitionReplicasInfoMaps.put(medium, HashBasedTable.create());
         }
-        try {
-            // Changes to the returned set will update the underlying table
-            // tablet id -> (backend id -> replica)
-            Set<Table.Cell<Long, Long, Replica>> cells = replicaMetaTable.cellSet();
-            for (Table.Cell<Long, Long, Replica> cell : cells) {
-                Long tabletId = cell.getRowKey();
-                Long beId = cell.getColumnKey();
-                try {
-                    Preconditions.checkState(availableBeIds.contains(beId), "dead be " + beId);
-                    TabletMeta tabletMeta = tabletMetaMap.get(tabletId);
-                    Preconditions.checkNotNull(tabletMeta, "invalid tablet " + tabletId);
-                    Preconditions.checkState(
-                            !Env.getCurrentColocateIndex().isColocateTable(tabletMeta.getTableId()),
-                            "should not be the colocate table");
-
-                    TStorageMedium medium = tabletMeta.getStorageMedium();
-                    Table<Long, Long, Map<Long, Long>> partitionReplicasInfo = partitionReplicasInfoMaps.get(medium);
-                    Map<Long, Long> countMap = partitionReplicasInfo.get(
-                            tabletMeta.getPartitionId(), tabletMeta.getIndexId());
-                    if (countMap == null) {
-                        // If one be doesn't have any replica of one partition, it should be counted too.
-                        countMap = availableBeIds.stream().collect(Collectors.toMap(i -> i, i -> 0L));
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                // tablet id -> replicas
+                shard.replicaMetaMap.forEach((tabletId, replicas) -> {
+                    for (Replica replica : replicas) {
+                        countReplicaForSkew(tabletId, replica.getBackendId(), shard.tabletMetaMap.get(tabletId),
+                                availableBeIds, partitionReplicasInfoMaps);
                     }
-
-                    Long count = countMap.get(beId);
-                    countMap.put(beId, count + 1L);
-                    partitionReplicasInfo.put(tabletMeta.getPartitionId(), tabletMeta.getIndexId(), countMap);
-                    partitionReplicasInfoMaps.put(medium, partitionReplicasInfo);
-                } catch (IllegalStateException | NullPointerException e) {
-                    // If the tablet or be has some problem, don't count in
-                    LOG.debug(e.getMessage());
-                }
+                });
+            } finally {
+                shard.readUnlock(stamp);
             }
-        } finally {
-            readUnlock(stamp);
         }
 
         // 2. Populate ClusterBalanceInfo::table_info_by_skew
@@ -772,6 +903,33 @@ public class TabletInvertedIndex {
         return skewMaps;
     }
 
+    private void countReplicaForSkew(long tabletId, long beId, TabletMeta tabletMeta, List<Long> availableBeIds,
+            Map<TStorageMedium, Table<Long, Long, Map<Long, Long>>> partitionReplicasInfoMaps) {
+        try {
+            Preconditions.checkState(availableBeIds.contains(beId), "dead be " + beId);
+            Preconditions.checkNotNull(tabletMeta, "invalid tablet " + tabletId);
+            Preconditions.checkState(
+                    !Env.getCurrentColocateIndex().isColocateTable(tabletMeta.getTableId()),
+                    "should not be the colocate table");
+
+            TStorageMedium medium = tabletMeta.getStorageMedium();
+            Table<Long, Long, Map<Long, Long>> partitionReplicasInfo = partitionReplicasInfoMaps.get(medium);
+            Map<Long, Long> countMap = partitionReplicasInfo.get(
+                    tabletMeta.getPartitionId(), tabletMeta.getIndexId());
+            if (countMap == null) {
+                // If one be doesn't have any replica of one partition, it should be counted too.
+                countMap = availableBeIds.stream().collect(Collectors.toMap(i -> i, i -> 0L));
+            }
+
+            Long count = countMap.get(beId);
+            countMap.put(beId, count + 1L);
+            partitionReplicasInfo.put(tabletMeta.getPartitionId(), tabletMeta.getIndexId(), countMap);
+        } catch (IllegalStateException | NullPointerException e) {
+            // If the tablet or be has some problem, don't count in
+            LOG.debug(e.getMessage());
+        }
+    }
+
     public static class PartitionBalanceInfo {
         public Long partitionId;
         public Long indexId;
@@ -790,13 +948,36 @@ public class TabletInvertedIndex {
         }
     }
 
-    // just for ut
+    // just for ut, return a snapshot of tablet id -> (backend id -> replica)
     public Table<Long, Long, Replica> getReplicaMetaTable() {
+        Table<Long, Long, Replica> replicaMetaTable = HashBasedTable.create();
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                shard.replicaMetaMap.forEach((tabletId, replicas) -> {
+                    for (Replica replica : replicas) {
+                        replicaMetaTable.put(tabletId, replica.getBackendId(), replica);
+                    }
+                });
+            } finally {
+                shard.readUnlock(stamp);
+            }
+        }
         return replicaMetaTable;
     }
 
-    // just for ut
+    // just for ut, return a snapshot of backend id -> (tablet id -> replica)
     public Table<Long, Long, Replica> getBackingReplicaMetaTable() {
+        Table<Long, Long, Replica> backingReplicaMetaTable = HashBasedTable.create();
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                shard.backingReplicaMetaMap.forEach((backendId, replicaMap) -> replicaMap.forEach(
+                        (tabletId, replica) -> backingReplicaMetaTable.put(backendId, tabletId, replica)));
+            } finally {
+                shard.readUnlock(stamp);
+            }
+        }
         return backingReplicaMetaTable;
     }
 
@@ -805,11 +986,74 @@ public class TabletInvertedIndex {
         return tabletMetaTable;
     }
 
-    // just for ut
+    // just for ut, return a snapshot of tablet id -> tablet meta
     public Map<Long, TabletMeta> getTabletMetaMap() {
+        Map<Long, TabletMeta> tabletMetaMap = Maps.newHashMap();
+        for (Shard shard : shards) {
+            long stamp = shard.readLock();
+            try {
+                shard.tabletMetaMap.forEach(tabletMetaMap::put);
+            } finally {
+                shard.readUnlock(stamp);
+            }
+        }
         return tabletMetaMap;
     }
 
+    private void removeReplicaToTablet(long replicaId) {
+        Shard replicaShard = getShard(replicaId);
+        long stamp = replicaShard.writeLock();
+        try {
+            replicaShard.replicaToTabletMap.remove(replicaId);
+        } finally {
+            replicaShard.writeUnlock(stamp);
+        }
+    }
+
+    // must be called with the write lock of the shard
+    private static void removeBackingReplica(Shard shard, long backendId, long tabletId) {
+        LongObjectHashMap<Replica> backingMap = shard.backingReplicaMetaMap.get(backendId);
+        if (backingMap != null) {
+            backingMap.remove(tabletId);
+            if (backingMap.isEmpty()) {
+                shard.backingReplicaMetaMap.remove(backendId);
+            }
+        }
+    }
+
+    private static int indexOfBackend(Replica[] replicas, long backendId) {
+        for (int i = 0; i < replicas.length; i++) {
+            if (replicas[i].getBackendId() == backendId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // the replica arrays are copied on write, so the array got by readers will not be changed.
+    private static Replica[] putReplica(Replica[] replicas, Replica replica) {
+        if (replicas == null) {
+            return new Replica[] {replica};
+        }
+        int idx = indexOfBackend(replicas, replica.getBackendId());
+        Replica[] newReplicas;
+        if (idx >= 0) {
+            newReplicas = replicas.clone();
+            newReplicas[idx] = replica;
+        } else {
+            newReplicas = Arrays.copyOf(replicas, replicas.length + 1);
+            newReplicas[replicas.length] = replica;
+        }
+        return newReplicas;
+    }
+
+    private static Replica[] removeReplica(Replica[] replicas, int idx) {
+        Replica[] newReplicas = new Replica[replicas.length - 1];
+        System.arraycopy(replicas, 0, newReplicas, 0, idx);
+        System.arraycopy(replicas, idx + 1, newReplicas, idx, replicas.length - idx - 1);
+        return newReplicas;
+    }
+
     private boolean isLocal(TStorageMedium storageMedium) {
         return storageMedium == TStorageMedium.HDD || storageMedium == TStorageMedium.SSD;
     }
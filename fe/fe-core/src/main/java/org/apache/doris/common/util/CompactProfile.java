@@ -0,0 +1,239 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.common.util;
+
+import org.apache.doris.common.Pair;
+import org.apache.doris.thrift.TUnit;
+
+import com.google.common.collect.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compact binary form of a finished {@link RuntimeProfile}.
+ *
+ * All the names, counter names and info strings of a profile are interned in a string table,
+ * and each node refers to them by index. The counters of a node are delta encoded against the
+ * counters with the same name of its previous sibling, because the instances of a fragment have
+ * the same counters with close values. The encoded content is deflated at last.
+ * The profile is expanded back to a {@link RuntimeProfile} only when it is viewed.
+ */
+public class CompactProfile {
+    private static final String TOTAL_TIME = "TotalTime";
+
+    private final byte[] data;
+
+    private CompactProfile(byte[] data) {
+        this.data = data;
+    }
+
+    public static CompactProfile fromBytes(byte[] data) {
+        return new CompactProfile(data);
+    }
+
+    public static CompactProfile compact(RuntimeProfile profile) throws IOException {
+        Map<String, Integer> stringTable = Maps.newLinkedHashMap();
+        ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+        writeNode(new DataOutputStream(nodes), profile, stringTable, Collections.emptyMap());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writeVLong(out, stringTable.size());
+            for (String str : stringTable.keySet()) {
+                byte[] strBytes = str.getBytes(StandardCharsets.UTF_8);
+                writeVLong(out, strBytes.length);
+                out.write(strBytes);
+            }
+            nodes.writeTo(out);
+        }
+        return new CompactProfile(bytes.toByteArray());
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int size() {
+        return data.length;
+    }
+
+    public RuntimeProfile expand() throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            int size = (int) readVLong(in);
+            List<String> stringTable = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte[] strBytes = new byte[(int) readVLong(in)];
+                in.readFully(strBytes);
+                stringTable.add(new String(strBytes, StandardCharsets.UTF_8));
+            }
+            RuntimeProfile profile = new RuntimeProfile();
+            readNode(in, profile, stringTable, Collections.emptyMap());
+            return profile;
+        }
+    }
+
+    // Return the counter values of the node by the index of counter name,
+    // which are the base of the delta encoding of its next sibling.
+    private static Map<Integer, Long> writeNode(DataOutputStream out, RuntimeProfile profile,
+            Map<String, Integer> stringTable, Map<Integer, Long> siblingCounters) throws IOException {
+        writeString(out, profile.getName(), stringTable);
+        out.writeDouble(profile.getLocalTimePercent());
+
+        List<String> infoKeys = profile.getInfoStringsDisplayOrder();
+        writeVLong(out, infoKeys.size());
+        for (String key : infoKeys) {
+            writeString(out, key, stringTable);
+            writeString(out, profile.getInfoString(key), stringTable);
+        }
+
+        Map<Integer, Long> counters = Maps.newHashMap();
+        Map<String, Counter> counterMap = profile.getCounterMap();
+        writeVLong(out, counterMap.size());
+        for (Map.Entry<String, Counter> entry : counterMap.entrySet()) {
+            int nameIdx = writeString(out, entry.getKey(), stringTable);
+            long value = entry.getValue().getValue();
+            writeVLong(out, entry.getValue().getType().getValue());
+            writeZigZag(out, value - siblingCounters.getOrDefault(nameIdx, 0L));
+            counters.put(nameIdx, value);
+        }
+
+        Map<String, TreeSet<String>> childCounterMap = profile.getChildCounterMap();
+        writeVLong(out, childCounterMap.size());
+        for (Map.Entry<String, TreeSet<String>> entry : childCounterMap.entrySet()) {
+            writeString(out, entry.getKey(), stringTable);
+            Set<String> childCounters = entry.getValue();
+            writeVLong(out, childCounters.size());
+            for (String childCounter : childCounters) {
+                writeString(out, childCounter, stringTable);
+            }
+        }
+
+        List<Pair<RuntimeProfile, Boolean>> children = profile.getChildList();
+        writeVLong(out, children.size());
+        Map<Integer, Long> previous = Collections.emptyMap();
+        for (Pair<RuntimeProfile, Boolean> child : children) {
+            out.writeBoolean(child.second);
+            previous = writeNode(out, child.first, stringTable, previous);
+        }
+        return counters;
+    }
+
+    private static Map<Integer, Long> readNode(DataInputStream in, RuntimeProfile profile,
+            List<String> stringTable, Map<Integer, Long> siblingCounters) throws IOException {
+        profile.setName(readString(in, stringTable));
+        profile.setLocalTimePercent(in.readDouble());
+
+        long infoNum = readVLong(in);
+        for (long i = 0; i < infoNum; i++) {
+            String key = readString(in, stringTable);
+            profile.addInfoString(key, readString(in, stringTable));
+        }
+
+        Map<Integer, Long> counters = Maps.newHashMap();
+        long counterNum = readVLong(in);
+        for (long i = 0; i < counterNum; i++) {
+            int nameIdx = (int) readVLong(in);
+            TUnit type = TUnit.findByValue((int) readVLong(in));
+            long value = readZigZag(in) + siblingCounters.getOrDefault(nameIdx, 0L);
+            counters.put(nameIdx, value);
+            String name = stringTable.get(nameIdx);
+            if (name.equals(TOTAL_TIME)) {
+                profile.getCounterTotalTime().setType(type);
+                profile.getCounterTotalTime().setValue(value);
+            } else {
+                profile.getCounterMap().put(name, new Counter(type, value));
+            }
+        }
+
+        long parentNum = readVLong(in);
+        for (long i = 0; i < parentNum; i++) {
+            String parent = readString(in, stringTable);
+            TreeSet<String> childCounters = new TreeSet<>();
+            long childNum = readVLong(in);
+            for (long j = 0; j < childNum; j++) {
+                childCounters.add(readString(in, stringTable));
+            }
+            profile.getChildCounterMap().put(parent, childCounters);
+        }
+
+        long childNum = readVLong(in);
+        Map<Integer, Long> previous = Collections.emptyMap();
+        for (long i = 0; i < childNum; i++) {
+            boolean indent = in.readBoolean();
+            RuntimeProfile child = new RuntimeProfile();
+            previous = readNode(in, child, stringTable, previous);
+            profile.addChild(child, indent);
+        }
+        return counters;
+    }
+
+    private static int writeString(DataOutputStream out, String str, Map<String, Integer> stringTable)
+            throws IOException {
+        // null is stored as an empty string
+        Integer idx = stringTable.computeIfAbsent(str == null ? "" : str, k -> stringTable.size());
+        writeVLong(out, idx);
+        return idx;
+    }
+
+    private static String readString(DataInputStream in, List<String> stringTable) throws IOException {
+        return stringTable.get((int) readVLong(in));
+    }
+
+    private static void writeZigZag(DataOutputStream out, long value) throws IOException {
+        writeVLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(DataInputStream in) throws IOException {
+        long value = readVLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed variable length long");
+    }
+}
@@ -35,6 +35,9 @@ public class Daemon extends Thread {
 
     private MetaContext metaContext = null;
 
+    private final Object wakeUpLock = new Object();
+    private boolean wakeUpRequested = false;
+
     {
         setDaemon(true);
     }
@@ -98,6 +101,29 @@ public class Daemon extends Thread {
         this.intervalMs = intervalMs;
     }
 
+    /**
+     * Run the next cycle immediately instead of waiting for the interval.
+     * Wake ups requested while a cycle is running are merged into one more cycle.
+     */
+    public void wakeUp() {
+        synchronized (wakeUpLock) {
+            wakeUpRequested = true;
+            wakeUpLock.notifyAll();
+        }
+    }
+
+    private void waitForNextCycle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + intervalMs;
+        synchronized (wakeUpLock) {
+            long waitMs = intervalMs;
+            while (!wakeUpRequested && waitMs > 0) {
+                wakeUpLock.wait(waitMs);
+                waitMs = deadline - System.currentTimeMillis();
+            }
+            wakeUpRequested = false;
+        }
+    }
+
     /**
      * implement in child
      */
@@ -119,7 +145,7 @@ public class Daemon extends Thread {
             }
 
             try {
-                Thread.sleep(intervalMs);
+                waitForNextCycle();
             } catch (InterruptedException e) {
                 LOG.error("InterruptedException: ", e);
             }
@@ -0,0 +1,199 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.common.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long to primitive long, using open addressing with linear probing.
+ * See {@link LongObjectHashMap} for details.
+ *
+ * This class is not thread safe.
+ */
+public class LongLongHashMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // key 0 is used to mark the empty slot, so the value of key 0 is stored separately.
+    private long[] keys;
+    private long[] values;
+    private boolean hasZeroKey = false;
+    private long zeroValue = 0;
+    // number of mappings, including key 0
+    private int size = 0;
+    private int mask;
+    private int resizeThreshold;
+
+    public LongLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(LongObjectHashMap.tableSizeFor(expectedSize));
+    }
+
+    public long get(long key, long defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int idx = findSlot(key);
+        return idx < 0 ? defaultValue : values[idx];
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return findSlot(key) >= 0;
+    }
+
+    public void put(long key, long value) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int idx = LongObjectHashMap.hash(key) & mask;
+        while (keys[idx] != 0) {
+            if (keys[idx] == key) {
+                values[idx] = value;
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Returns true if the key existed and was removed.
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            return true;
+        }
+        int idx = findSlot(key);
+        if (idx < 0) {
+            return false;
+        }
+        shiftKeys(idx);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    public void forEach(LongLongConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int findSlot(long key) {
+        int idx = LongObjectHashMap.hash(key) & mask;
+        while (keys[idx] != 0) {
+            if (keys[idx] == key) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward shift deletion, so that no tombstone is needed.
+    private void shiftKeys(int pos) {
+        int last;
+        int slot;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if (keys[pos] == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                slot = LongObjectHashMap.hash(keys[pos]) & mask;
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = keys[pos];
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int idx = LongObjectHashMap.hash(key) & mask;
+                while (keys[idx] != 0) {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = key;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
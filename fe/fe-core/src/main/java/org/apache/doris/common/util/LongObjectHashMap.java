@@ -0,0 +1,268 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.common.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from primitive long to object, using open addressing with linear probing.
+ * Compared to HashMap<Long, V>, it does not box the keys and does not create an entry object for each mapping,
+ * which saves a lot of memory when there are millions of entries, such as tablets and replicas.
+ *
+ * This class is not thread safe.
+ */
+public class LongObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // key 0 is used to mark the empty slot, so the value of key 0 is stored separately.
+    private long[] keys;
+    private Object[] values;
+    private boolean hasZeroKey = false;
+    private V zeroValue = null;
+    // number of mappings, including key 0
+    private int size = 0;
+    private int mask;
+    private int resizeThreshold;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public V get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : null;
+        }
+        int idx = findSlot(key);
+        return idx < 0 ? null : valueAt(idx);
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        V value = get(key);
+        return value == null && !containsKey(key) ? defaultValue : value;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Returns the previous value of the key, or null if there was no mapping for the key.
+     */
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int idx = hash(key) & mask;
+        while (keys[idx] != 0) {
+            if (keys[idx] == key) {
+                V old = valueAt(idx);
+                values[idx] = value;
+                return old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V putIfAbsent(long key, V value) {
+        V old = get(key);
+        if (old == null) {
+            put(key, value);
+        }
+        return old;
+    }
+
+    /**
+     * Returns the removed value, or null if there was no mapping for the key.
+     */
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            V old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return old;
+        }
+        int idx = findSlot(key);
+        if (idx < 0) {
+            return null;
+        }
+        V old = valueAt(idx);
+        shiftKeys(idx);
+        size--;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    public void forEach(LongObjectConsumer<? super V> consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], valueAt(i));
+            }
+        }
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int pos = 0;
+        if (hasZeroKey) {
+            result[pos++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[pos++] = key;
+            }
+        }
+        return result;
+    }
+
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        if (hasZeroKey) {
+            result.add(zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                result.add(valueAt(i));
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int idx) {
+        return (V) values[idx];
+    }
+
+    private int findSlot(long key) {
+        int idx = hash(key) & mask;
+        while (keys[idx] != 0) {
+            if (keys[idx] == key) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward shift deletion, so that no tombstone is needed.
+    private void shiftKeys(int pos) {
+        int last;
+        int slot;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if (keys[pos] == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                slot = hash(keys[pos]) & mask;
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = keys[pos];
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int idx = hash(key) & mask;
+                while (keys[idx] != 0) {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = key;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        long capacity = Math.max(2, (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR));
+        return (int) Math.min(1 << 30, Long.highestOneBit(capacity - 1) << 1);
+    }
+
+    // Mix the bits of the key, ids are usually allocated sequentially.
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+}
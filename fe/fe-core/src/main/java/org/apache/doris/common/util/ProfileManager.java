@@ -34,10 +34,14 @@ import org.apache.commons.lang3.tuple.Triple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +58,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
  * why the element in the finished profile array is not RuntimeProfile,
  * the purpose is let coordinator can destruct earlier(the fragment profile is in Coordinator)
  *
+ * A finished profile is kept as a CompactProfile, and it is expanded only when it is viewed. The expanded
+ * form of the last few viewed profiles is kept, because a profile page asks for the same profile several times.
+ * If query_profile_spill_dir is set, the oldest compacted profiles beyond max_query_profile_memory_bytes
+ * are spilled to disk, and at most max_query_profile_spill_bytes of them are kept there.
+ *
  */
 public class ProfileManager {
     private static final Logger LOG = LogManager.getLogger(ProfileManager.class);
@@ -88,6 +97,9 @@ public class ProfileManager {
     public static final String WRITE_RESULT_TIME = "Write Result Time";
     public static final String WAIT_FETCH_RESULT_TIME = "Wait and Fetch Result Time";
 
+    private static final String SPILL_FILE_SUFFIX = ".profile";
+    private static final int MAX_EXPANDED_PROFILE_NUM = 4;
+
     public enum ProfileType {
         QUERY,
         LOAD,
@@ -105,23 +117,29 @@ public class ProfileManager {
             this.profile = profile;
         }
 
-        private final RuntimeProfile profile;
-        // cache the result of getProfileContent method
-        private volatile String profileContent;
+        // the running profile, released after the profile is finished and compacted
+        private volatile RuntimeProfile profile;
+        // the finished profile, null if it is spilled to disk
+        private volatile CompactProfile compactProfile;
+        private volatile File spillFile;
+        private int size = 0;
+        // chosen to be spilled and counted in spilledBytes, guarded by the write lock of ProfileManager.
+        // The spill file is written after the lock is released, so it may not exist yet.
+        private boolean spilled = false;
+        // removed from ProfileManager, guarded by the monitor of this element
+        private boolean released = false;
+        // the expanded form of the compacted profile, only kept while it is recently viewed
+        private volatile RuntimeProfile expandedProfile = null;
+        private volatile MultiProfileTreeBuilder builder = null;
         public Map<String, String> infoStrings = Maps.newHashMap();
-        public MultiProfileTreeBuilder builder = null;
         public String errMsg = "";
 
         public StatsErrorEstimator statsErrorEstimator;
 
-        // lazy load profileContent because sometimes profileContent is very large
+        // render profileContent lazily because sometimes profileContent is very large
         public String getProfileContent() {
-            if (profileContent != null) {
-                return profileContent;
-            }
-            // no need to lock because the possibility of concurrent read is very low
-            profileContent = profile.toString();
-            return profileContent;
+            RuntimeProfile runtimeProfile = getRuntimeProfile();
+            return runtimeProfile == null ? null : runtimeProfile.toString();
         }
 
         public double getError() {
@@ -131,9 +149,104 @@ public class ProfileManager {
         public void setStatsErrorEstimator(StatsErrorEstimator statsErrorEstimator) {
             this.statsErrorEstimator = statsErrorEstimator;
         }
+
+        public boolean isCompacted() {
+            return profile == null;
+        }
+
+        public boolean isSpilled() {
+            return spillFile != null;
+        }
+
+        private RuntimeProfile getRuntimeProfile() {
+            RuntimeProfile runtimeProfile = profile;
+            if (runtimeProfile != null) {
+                return runtimeProfile;
+            }
+            runtimeProfile = expandedProfile;
+            if (runtimeProfile != null) {
+                return runtimeProfile;
+            }
+            try {
+                CompactProfile compact = compactProfile;
+                if (compact == null) {
+                    compact = CompactProfile.fromBytes(Files.readAllBytes(spillFile.toPath()));
+                }
+                runtimeProfile = compact.expand();
+                expandedProfile = runtimeProfile;
+                return runtimeProfile;
+            } catch (Exception e) {
+                // the spill file may be removed concurrently
+                errMsg = "failed to read profile: " + e.getMessage();
+                LOG.warn("failed to read profile {}", infoStrings.get(QUERY_ID), e);
+                return null;
+            }
+        }
+
+        private MultiProfileTreeBuilder getBuilder() {
+            MultiProfileTreeBuilder cachedBuilder = builder;
+            if (cachedBuilder != null) {
+                return cachedBuilder;
+            }
+            RuntimeProfile runtimeProfile = getRuntimeProfile();
+            if (runtimeProfile == null) {
+                return null;
+            }
+            MultiProfileTreeBuilder newBuilder = new MultiProfileTreeBuilder(runtimeProfile);
+            try {
+                newBuilder.build();
+            } catch (Exception e) {
+                errMsg = e.getMessage();
+                LOG.debug("failed to build profile tree", e);
+                return null;
+            }
+            builder = newBuilder;
+            return newBuilder;
+        }
+
+        private void dropExpanded() {
+            if (isCompacted()) {
+                expandedProfile = null;
+                builder = null;
+            }
+        }
+
+        // the running profile is merged with the reports of backends in place,
+        // so only the summary and the cached tree need to be refreshed.
+        private void refresh(ProfileElement newElement) {
+            profile = newElement.profile;
+            infoStrings = newElement.infoStrings;
+            builder = null;
+        }
+
+        private void setCompactProfile(CompactProfile compact) {
+            compactProfile = compact;
+            size = compact.size();
+            profile = null;
+            builder = null;
+        }
+
+        // called without the lock of ProfileManager, the profile may be removed meanwhile
+        private synchronized void spill(File dir) throws IOException {
+            if (released) {
+                return;
+            }
+            File file = new File(dir, infoStrings.get(QUERY_ID) + SPILL_FILE_SUFFIX);
+            Files.write(file.toPath(), compactProfile.getData());
+            // the readers get the compacted profile from the file once it is dropped from memory
+            spillFile = file;
+            compactProfile = null;
+        }
+
+        private synchronized void release() {
+            released = true;
+            if (spillFile != null && !spillFile.delete()) {
+                LOG.warn("failed to delete profile spill file {}", spillFile);
+            }
+        }
     }
 
-    // only protect queryIdDeque; queryIdToProfileMap is concurrent, no need to protect
+    // protect queryIdDeque and the byte counters; queryIdToProfileMap is concurrent, no need to protect
     private ReentrantReadWriteLock lock;
     private ReadLock readLock;
     private WriteLock writeLock;
@@ -141,6 +254,22 @@ public class ProfileManager {
     // record the order of profiles by queryId
     private Deque<String> queryIdDeque;
     private Map<String, ProfileElement> queryIdToProfileMap; // from QueryId to RuntimeProfile
+    // bytes of the compacted profiles kept in memory and spilled to disk
+    private long memoryBytes = 0;
+    private long spilledBytes = 0;
+    private File spillDir;
+    // the compacted profiles viewed recently, which keep their expanded form, in the order of access
+    private final Map<ProfileElement, Boolean> expandedElements = Collections.synchronizedMap(
+            new LinkedHashMap<ProfileElement, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ProfileElement, Boolean> eldest) {
+                    if (size() > MAX_EXPANDED_PROFILE_NUM) {
+                        eldest.getKey().dropExpanded();
+                        return true;
+                    }
+                    return false;
+                }
+            });
 
     public static ProfileManager getInstance() {
         if (INSTANCE == null) {
@@ -153,12 +282,35 @@ public class ProfileManager {
         return INSTANCE;
     }
 
-    private ProfileManager() {
+    // for test, use getInstance() otherwise
+    ProfileManager() {
         lock = new ReentrantReadWriteLock(true);
         readLock = lock.readLock();
         writeLock = lock.writeLock();
         queryIdDeque = new LinkedList<>();
         queryIdToProfileMap = new ConcurrentHashMap<>();
+        spillDir = initSpillDir(Config.query_profile_spill_dir);
+    }
+
+    // the profiles spilled before restart can not be found anymore, clean them
+    private static File initSpillDir(String path) {
+        if (Strings.isNullOrEmpty(path)) {
+            return null;
+        }
+        File dir = new File(path);
+        if (!dir.exists() && !dir.mkdirs()) {
+            LOG.warn("failed to create profile spill dir {}, spilling profiles is disabled", path);
+            return null;
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SPILL_FILE_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    LOG.warn("failed to delete profile spill file {}", file);
+                }
+            }
+        }
+        return dir;
     }
 
     public ProfileElement createElement(RuntimeProfile profile) {
@@ -174,27 +326,26 @@ public class ProfileManager {
                 element.infoStrings.put(header, executionProfile.getInfoString(header));
             }
         }
-
-        MultiProfileTreeBuilder builder = new MultiProfileTreeBuilder(profile);
-        try {
-            builder.build();
-        } catch (Exception e) {
-            element.errMsg = e.getMessage();
-            LOG.debug("failed to build profile tree", e);
-            return element;
-        }
-        element.builder = builder;
         return element;
     }
 
     public void pushProfile(RuntimeProfile profile) {
+        pushProfile(profile, true);
+    }
+
+    /**
+     * Push a profile which may be pushed multiple times while it is running.
+     * A finished profile is compacted, and the oldest compacted profiles are spilled to disk
+     * or dropped when they use more memory than max_query_profile_memory_bytes.
+     */
+    public void pushProfile(RuntimeProfile profile, boolean isFinished) {
         if (profile == null) {
             return;
         }
 
-        ProfileElement element = createElement(profile);
+        ProfileElement newElement = createElement(profile);
         // 'insert into' does have job_id, put all profiles key with query_id
-        String key = element.infoStrings.get(ProfileManager.QUERY_ID);
+        String key = newElement.infoStrings.get(ProfileManager.QUERY_ID);
         // check when push in, which can ensure every element in the list has QUERY_ID column,
         // so there is no need to check when remove element from list.
         if (Strings.isNullOrEmpty(key)) {
@@ -202,21 +353,168 @@ public class ProfileManager {
                     + "may be forget to insert 'QUERY_ID' or 'JOB_ID' column into infoStrings");
         }
 
+        // compact out of the lock, which is taken by every query and every profile page
+        CompactProfile compactProfile = null;
+        if (isFinished) {
+            try {
+                compactProfile = CompactProfile.compact(profile);
+            } catch (IOException e) {
+                LOG.warn("failed to compact profile {}", key, e);
+            }
+        }
+
+        // The profiles to spill and to remove are chosen under the lock, which is taken by every query
+        // and every profile page, and their files are written and deleted after it is released.
+        List<ProfileElement> toSpill = Lists.newArrayList();
+        List<ProfileElement> toRelease = Lists.newArrayList();
         // a profile may be updated multiple times in queryIdToProfileMap,
         // and only needs to be inserted into the queryIdDeque for the first time.
-        queryIdToProfileMap.put(key, element);
         writeLock.lock();
         try {
-            if (!queryIdDeque.contains(key)) {
+            ProfileElement element = queryIdToProfileMap.get(key);
+            if (element == null || element.isCompacted()) {
+                if (element != null) {
+                    removeProfile(key, toRelease);
+                }
+                element = newElement;
+                queryIdToProfileMap.put(key, element);
                 if (queryIdDeque.size() >= Config.max_query_profile_num) {
-                    queryIdToProfileMap.remove(queryIdDeque.getFirst());
-                    queryIdDeque.removeFirst();
+                    removeProfile(queryIdDeque.getFirst(), toRelease);
                 }
                 queryIdDeque.addLast(key);
+            } else {
+                element.refresh(newElement);
+            }
+            if (compactProfile != null) {
+                element.setCompactProfile(compactProfile);
+                memoryBytes += element.size;
+                evictProfiles(toSpill, toRelease);
             }
         } finally {
             writeLock.unlock();
         }
+
+        spillProfiles(toSpill, toRelease);
+        toRelease.forEach(this::releaseElement);
+    }
+
+    // must hold writeLock, the removed element is added to toRelease
+    private void removeProfile(String key, List<ProfileElement> toRelease) {
+        queryIdDeque.remove(key);
+        ProfileElement element = queryIdToProfileMap.remove(key);
+        if (element == null) {
+            return;
+        }
+        if (element.spilled) {
+            spilledBytes -= element.size;
+        } else if (element.isCompacted()) {
+            memoryBytes -= element.size;
+        }
+        toRelease.add(element);
+    }
+
+    private void releaseElement(ProfileElement element) {
+        expandedElements.remove(element);
+        element.release();
+    }
+
+    // remember the viewed compacted profile, and drop the expanded form of the least recently viewed one
+    private void touchExpanded(ProfileElement element) {
+        if (element.isCompacted()) {
+            expandedElements.put(element, Boolean.TRUE);
+        }
+    }
+
+    // must hold writeLock, only chooses the profiles to spill and to remove, without doing any io
+    private void evictProfiles(List<ProfileElement> toSpill, List<ProfileElement> toRelease) {
+        Iterator<String> iter = queryIdDeque.iterator();
+        while (memoryBytes > Config.max_query_profile_memory_bytes && iter.hasNext()) {
+            String key = iter.next();
+            ProfileElement element = queryIdToProfileMap.get(key);
+            if (element == null || !element.isCompacted() || element.spilled) {
+                continue;
+            }
+            memoryBytes -= element.size;
+            if (spillDir != null) {
+                element.spilled = true;
+                spilledBytes += element.size;
+                toSpill.add(element);
+                continue;
+            }
+            queryIdToProfileMap.remove(key);
+            iter.remove();
+            toRelease.add(element);
+        }
+
+        // the spilled profiles are kept as a ring buffer, drop the oldest ones
+        iter = queryIdDeque.iterator();
+        while (spilledBytes > Config.max_query_profile_spill_bytes && iter.hasNext()) {
+            String key = iter.next();
+            ProfileElement element = queryIdToProfileMap.get(key);
+            if (element == null || !element.spilled) {
+                continue;
+            }
+            spilledBytes -= element.size;
+            queryIdToProfileMap.remove(key);
+            iter.remove();
+            toRelease.add(element);
+        }
+        // dropped before its file is written
+        toSpill.removeIf(toRelease::contains);
+    }
+
+    // called without the lock, the profiles failed to spill are removed
+    private void spillProfiles(List<ProfileElement> toSpill, List<ProfileElement> toRelease) {
+        List<ProfileElement> failed = Lists.newArrayList();
+        for (ProfileElement element : toSpill) {
+            try {
+                element.spill(spillDir);
+            } catch (IOException e) {
+                LOG.warn("failed to spill profile {}", element.infoStrings.get(QUERY_ID), e);
+                failed.add(element);
+            }
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            for (ProfileElement element : failed) {
+                String key = element.infoStrings.get(QUERY_ID);
+                // it may have been removed or replaced meanwhile
+                if (queryIdToProfileMap.get(key) == element) {
+                    removeProfile(key, toRelease);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private MultiProfileTreeBuilder getBuilder(ProfileElement element) {
+        MultiProfileTreeBuilder builder = element.getBuilder();
+        touchExpanded(element);
+        return builder;
+    }
+
+    // for test
+    long getMemoryBytes() {
+        readLock.lock();
+        try {
+            return memoryBytes;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // for test
+    long getSpilledBytes() {
+        readLock.lock();
+        try {
+            return spilledBytes;
+        } finally {
+            readLock.unlock();
+        }
     }
 
     public List<List<String>> getAllQueries() {
@@ -261,7 +559,9 @@ public class ProfileManager {
             if (element == null) {
                 return null;
             }
-            return element.getProfileContent();
+            String content = element.getProfileContent();
+            touchExpanded(element);
+            return content;
         } finally {
             readLock.unlock();
         }
@@ -298,11 +598,11 @@ public class ProfileManager {
         readLock.lock();
         try {
             ProfileElement element = queryIdToProfileMap.get(queryID);
-            if (element == null || element.builder == null) {
+            builder = element == null ? null : getBuilder(element);
+            if (builder == null) {
                 throw new AnalysisException("failed to get fragment profile tree. err: "
                         + (element == null ? "not found" : element.errMsg));
             }
-            builder = element.builder;
         } finally {
             readLock.unlock();
         }
@@ -316,11 +616,11 @@ public class ProfileManager {
         readLock.lock();
         try {
             ProfileElement element = queryIdToProfileMap.get(queryID);
-            if (element == null || element.builder == null) {
+            builder = element == null ? null : getBuilder(element);
+            if (builder == null) {
                 throw new AnalysisException("failed to get instance list. err: "
                         + (element == null ? "not found" : element.errMsg));
             }
-            builder = element.builder;
         } finally {
             readLock.unlock();
         }
@@ -335,11 +635,11 @@ public class ProfileManager {
         readLock.lock();
         try {
             ProfileElement element = queryIdToProfileMap.get(queryID);
-            if (element == null || element.builder == null) {
+            builder = element == null ? null : getBuilder(element);
+            if (builder == null) {
                 throw new AnalysisException("failed to get instance profile tree. err: "
                         + (element == null ? "not found" : element.errMsg));
             }
-            builder = element.builder;
         } finally {
             readLock.unlock();
         }
@@ -363,11 +663,12 @@ public class ProfileManager {
         readLock.lock();
         try {
             ProfileElement element = queryIdToProfileMap.get(jobId);
-            if (element == null || element.builder == null) {
+            MultiProfileTreeBuilder builder = element == null ? null : getBuilder(element);
+            if (builder == null) {
                 throw new AnalysisException("failed to get task ids. err: "
                         + (element == null ? "not found" : element.errMsg));
             }
-            return element.builder;
+            return builder;
         } finally {
             readLock.unlock();
         }
@@ -103,6 +103,10 @@ public class RuntimeProfile {
         return localTimePercent;
     }
 
+    void setLocalTimePercent(double localTimePercent) {
+        this.localTimePercent = localTimePercent;
+    }
+
     public Counter addCounter(String name, TUnit type, String parentCounterName) {
         counterLock.writeLock().lock();
         try {
@@ -377,6 +381,17 @@ public class RuntimeProfile {
         }
     }
 
+    // add the child with the given indent, used to rebuild a profile from CompactProfile
+    void addChild(RuntimeProfile child, boolean indent) {
+        childLock.writeLock().lock();
+        try {
+            this.childMap.put(child.name, child);
+            this.childList.add(Pair.of(child, indent));
+        } finally {
+            childLock.writeLock().unlock();
+        }
+    }
+
     public void addFirstChild(RuntimeProfile child) {
         if (child == null) {
             return;
@@ -478,4 +493,13 @@ public class RuntimeProfile {
     public Map<String, String> getInfoStrings() {
         return infoStrings;
     }
+
+    List<String> getInfoStringsDisplayOrder() {
+        infoStringsLock.readLock().lock();
+        try {
+            return Lists.newArrayList(infoStringsDisplayOrder);
+        } finally {
+            infoStringsLock.readLock().unlock();
+        }
+    }
 }
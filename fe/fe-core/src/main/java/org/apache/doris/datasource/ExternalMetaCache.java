@@ -0,0 +1,275 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.datasource;
+
+import org.apache.doris.common.Config;
+import org.apache.doris.metric.GaugeMetric;
+import org.apache.doris.metric.Metric;
+import org.apache.doris.metric.MetricLabel;
+import org.apache.doris.metric.MetricRepo;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * All the meta cache entries of one external catalog, e.g. schemas, hive partitions and file lists.
+ * Each kind of entries, distinguished by the class of the key, has its own cache, so that the loader of
+ * one kind can look up the entries of another kind. The caches are bounded by the estimated memory size
+ * of the entries, and share the capacity of the catalog, which is decided by ExternalMetaCacheMgr from
+ * a global budget. The capacity of the catalog is split among the caches in the same way.
+ *
+ * The loader and weigher of each key class should be registered before the entries are accessed.
+ * NOTICE: a loader should not access the entries of its own key class, or the loading may deadlock.
+ */
+public class ExternalMetaCache {
+    private static final Logger LOG = LogManager.getLogger(ExternalMetaCache.class);
+    // estimated memory of the cache entry itself, key and the map node
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long catalogId;
+    private final String catalogName;
+    private final Executor executor;
+    // key class -> cache of the entries with the key class
+    private final Map<Class<?>, EntryCache<?, ?>> caches = Maps.newConcurrentMap();
+    private volatile long capacityBytes;
+    private final List<Metric> gauges = Lists.newArrayList();
+
+    public ExternalMetaCache(long catalogId, String catalogName, long capacityBytes, Executor executor) {
+        this.catalogId = catalogId;
+        this.catalogName = catalogName;
+        this.capacityBytes = capacityBytes;
+        this.executor = executor;
+        initMetrics();
+    }
+
+    private static class EntryCache<K, V> {
+        private final LoadingCache<K, V> cache;
+        // the max entry number, not limited if not positive
+        private final long maxEntryNum;
+
+        EntryCache(LoadingCache<K, V> cache, long maxEntryNum) {
+            this.cache = cache;
+            this.maxEntryNum = maxEntryNum;
+        }
+
+        long getUsedBytes() {
+            return cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+        }
+
+        long getCapacityBytes() {
+            return cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(0L);
+        }
+
+        // The entry number is limited by the capacity in bytes at the average size of the entries.
+        long getLimitBytes() {
+            long entryNum = cache.estimatedSize();
+            if (maxEntryNum <= 0 || entryNum == 0) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(1, (long) ((double) getUsedBytes() / entryNum * maxEntryNum));
+        }
+
+        void setCapacityBytes(long capacityBytes) {
+            cache.policy().eviction().ifPresent(e -> {
+                if (e.getMaximum() != capacityBytes) {
+                    e.setMaximum(capacityBytes);
+                }
+            });
+        }
+    }
+
+    /**
+     * Register how to load the value of keyClass and how to estimate its memory size in bytes.
+     * The number of entries of keyClass is limited by maxEntryNum if it is positive.
+     */
+    public <K, V> void registerEntryType(Class<K> keyClass, long maxEntryNum, Function<K, V> loader,
+            ToLongFunction<V> weigher) {
+        registerEntryType(keyClass, maxEntryNum, loader, loader, weigher);
+    }
+
+    /**
+     * Same as above, but the entries are refreshed by reloader instead of loader.
+     */
+    public <K, V> void registerEntryType(Class<K> keyClass, long maxEntryNum, Function<K, V> loader,
+            Function<K, V> reloader, ToLongFunction<V> weigher) {
+        Caffeine<K, V> builder = Caffeine.newBuilder()
+                .maximumWeight(capacityBytes / (caches.size() + 1))
+                .weigher((K key, V value) -> (int) Math.min(ENTRY_OVERHEAD_BYTES + weigher.applyAsLong(value),
+                        Integer.MAX_VALUE))
+                .expireAfterAccess(Config.external_cache_expire_time_minutes_after_access, TimeUnit.MINUTES)
+                .executor(executor)
+                .recordStats();
+        if (Config.external_cache_refresh_time_minutes > 0) {
+            // entries accessed after this time are reloaded in background, the old value is returned
+            // until the reloading is done. So the hot entries are kept fresh without blocking queries.
+            builder.refreshAfterWrite(Config.external_cache_refresh_time_minutes, TimeUnit.MINUTES);
+        }
+        LoadingCache<K, V> cache = builder.build(new CacheLoader<K, V>() {
+            @Override
+            public V load(K key) {
+                return loader.apply(key);
+            }
+
+            @Override
+            public V reload(K key, V oldValue) {
+                return reloader.apply(key);
+            }
+        });
+        caches.put(keyClass, new EntryCache<>(cache, maxEntryNum));
+        setCapacityBytes(capacityBytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LoadingCache<Object, Object> getCache(Class<?> keyClass) {
+        EntryCache<?, ?> entryCache = caches.get(keyClass);
+        if (entryCache == null) {
+            throw new IllegalStateException("no entry type registered for " + keyClass.getSimpleName()
+                    + " in catalog " + catalogName);
+        }
+        return (LoadingCache<Object, Object>) entryCache.cache;
+    }
+
+    private void initMetrics() {
+        addGauge("entry_num", "external meta cache entry number",
+                () -> caches.values().stream().mapToLong(c -> c.cache.estimatedSize()).sum());
+        addGauge("used_bytes", "estimated memory used by external meta cache", this::getUsedBytes);
+        addGauge("capacity_bytes", "capacity of external meta cache", this::getCapacityBytes);
+        addGauge("hit", "hit count of external meta cache",
+                () -> caches.values().stream().mapToLong(c -> c.cache.stats().hitCount()).sum());
+        addGauge("miss", "miss count of external meta cache",
+                () -> caches.values().stream().mapToLong(c -> c.cache.stats().missCount()).sum());
+        addGauge("eviction", "eviction count of external meta cache",
+                () -> caches.values().stream().mapToLong(c -> c.cache.stats().evictionCount()).sum());
+    }
+
+    private void addGauge(String type, String desc, LongSupplier supplier) {
+        GaugeMetric<Long> gauge = new GaugeMetric<Long>("external_meta_cache", Metric.MetricUnit.NOUNIT, desc) {
+            @Override
+            public Long getValue() {
+                return supplier.getAsLong();
+            }
+        };
+        gauge.addLabel(new MetricLabel("type", type));
+        gauge.addLabel(new MetricLabel("catalog", catalogName));
+        MetricRepo.DORIS_METRIC_REGISTER.addMetrics(gauge);
+        gauges.add(gauge);
+    }
+
+    // for test
+    List<Metric> getGauges() {
+        return gauges;
+    }
+
+    public long getCatalogId() {
+        return catalogId;
+    }
+
+    /**
+     * Get the value of key, load it if absent. Exceptions thrown by the loader are thrown as they are.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Object key) {
+        return (V) getCache(key.getClass()).get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V getIfPresent(Object key) {
+        return (V) getCache(key.getClass()).getIfPresent(key);
+    }
+
+    public void put(Object key, Object value) {
+        getCache(key.getClass()).put(key, value);
+    }
+
+    public void invalidate(Object key) {
+        getCache(key.getClass()).invalidate(key);
+    }
+
+    public void invalidateAll() {
+        caches.values().forEach(c -> c.cache.invalidateAll());
+    }
+
+    /**
+     * Invalidate all the entries and unregister the metrics, called when the catalog is dropped.
+     * The cache should not be used after closed.
+     */
+    public void close() {
+        invalidateAll();
+        MetricRepo.DORIS_METRIC_REGISTER.removeMetrics(gauges);
+    }
+
+    public void invalidateAll(Class<?> keyClass) {
+        getCache(keyClass).invalidateAll();
+    }
+
+    public <K> List<K> keys(Class<K> keyClass) {
+        List<K> keys = Lists.newArrayList();
+        for (Object key : getCache(keyClass).asMap().keySet()) {
+            keys.add(keyClass.cast(key));
+        }
+        return keys;
+    }
+
+    public long getUsedBytes() {
+        return caches.values().stream().mapToLong(EntryCache::getUsedBytes).sum();
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * Set the capacity of the catalog, and split it among the caches of each key class
+     * in the same way as ExternalMetaCacheMgr splits the global budget among catalogs.
+     * The cache of a key class with max entry number gets no more than the bytes of that number of entries.
+     */
+    public synchronized void setCapacityBytes(long capacityBytes) {
+        if (this.capacityBytes != capacityBytes) {
+            LOG.debug("set capacity of meta cache of catalog {} from {} to {}",
+                    catalogName, this.capacityBytes, capacityBytes);
+        }
+        this.capacityBytes = capacityBytes;
+        List<EntryCache<?, ?>> entryCaches = Lists.newArrayList(caches.values());
+        long[] usages = new long[entryCaches.size()];
+        long[] capacities = new long[entryCaches.size()];
+        long[] limits = new long[entryCaches.size()];
+        for (int i = 0; i < entryCaches.size(); i++) {
+            usages[i] = entryCaches.get(i).getUsedBytes();
+            capacities[i] = entryCaches.get(i).getCapacityBytes();
+            limits[i] = entryCaches.get(i).getLimitBytes();
+        }
+        long[] newCapacities = ExternalMetaCacheMgr.assignCapacities(capacityBytes, usages, capacities, limits);
+        for (int i = 0; i < entryCaches.size(); i++) {
+            entryCaches.get(i).setCapacityBytes(newCapacities[i]);
+        }
+    }
+}
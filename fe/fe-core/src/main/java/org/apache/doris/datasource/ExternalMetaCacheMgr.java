@@ -20,68 +20,161 @@ package org.apache.doris.datasource;
 import org.apache.doris.catalog.external.ExternalTable;
 import org.apache.doris.catalog.external.HMSExternalTable;
 import org.apache.doris.cluster.ClusterNamespace;
+import org.apache.doris.common.Config;
 import org.apache.doris.common.ThreadPoolManager;
 import org.apache.doris.datasource.hive.HiveMetaStoreCache;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Cache meta of external catalog
  * 1. Meta for hive meta store, mainly for partition.
  * 2. Table Schema cahce.
+ *
+ * All kinds of meta of a catalog are cached in one ExternalMetaCache, which is bounded by the estimated
+ * memory of the entries. The capacities of all catalogs add up to Config.external_meta_cache_max_bytes,
+ * and are rebalanced periodically: catalogs using less than an even share give the rest to the catalogs
+ * that are full, so that no memory is wasted and no catalog can squeeze out the others.
+ * Each kind of meta has its own cache in ExternalMetaCache, and the deprecated max_*_cache_num configs
+ * still limit the number of entries of their kinds.
  */
 public class ExternalMetaCacheMgr {
     private static final Logger LOG = LogManager.getLogger(ExternalMetaCacheMgr.class);
+    private static final long REBALANCE_INTERVAL_SECONDS = 30;
+    // a catalog is regarded as short of memory if its usage reaches this ratio of its capacity
+    private static final double FULL_RATIO = 0.9;
 
+    // catalog id -> meta cache of all kinds
+    private final Map<Long, ExternalMetaCache> metaCacheMap = Maps.newConcurrentMap();
     // catalog id -> HiveMetaStoreCache
-    private Map<Long, HiveMetaStoreCache> cacheMap = Maps.newConcurrentMap();
+    private final Map<Long, HiveMetaStoreCache> cacheMap = Maps.newConcurrentMap();
     // catalog id -> table schema cache
-    private Map<Long, ExternalSchemaCache> schemaCacheMap = Maps.newHashMap();
-    private Executor executor;
+    private final Map<Long, ExternalSchemaCache> schemaCacheMap = Maps.newConcurrentMap();
+    private final Executor executor;
 
     public ExternalMetaCacheMgr() {
-        executor = ThreadPoolManager.newDaemonCacheThreadPool(10, "ExternalMetaCacheMgr", false);
+        executor = ThreadPoolManager.newDaemonFixedThreadPool(10, 10000, "ExternalMetaCacheMgr", false);
+        ThreadPoolManager.newDaemonScheduledThreadPool(1, "ExternalMetaCacheRebalancer", false)
+                .scheduleWithFixedDelay(this::rebalance, REBALANCE_INTERVAL_SECONDS, REBALANCE_INTERVAL_SECONDS,
+                        TimeUnit.SECONDS);
     }
 
-    public HiveMetaStoreCache getMetaStoreCache(HMSExternalCatalog catalog) {
-        HiveMetaStoreCache cache = cacheMap.get(catalog.getId());
-        if (cache == null) {
-            synchronized (cacheMap) {
-                if (!cacheMap.containsKey(catalog.getId())) {
-                    cacheMap.put(catalog.getId(), new HiveMetaStoreCache(catalog, executor));
+    private ExternalMetaCache getMetaCache(ExternalCatalog catalog) {
+        ExternalMetaCache metaCache = metaCacheMap.get(catalog.getId());
+        if (metaCache == null) {
+            synchronized (metaCacheMap) {
+                metaCache = metaCacheMap.get(catalog.getId());
+                if (metaCache == null) {
+                    long capacity = Config.external_meta_cache_max_bytes / (metaCacheMap.size() + 1);
+                    metaCache = new ExternalMetaCache(catalog.getId(), catalog.getName(), capacity, executor);
+                    metaCacheMap.put(catalog.getId(), metaCache);
                 }
-                cache = cacheMap.get(catalog.getId());
             }
+            rebalance();
         }
-        return cache;
+        return metaCache;
+    }
+
+    public HiveMetaStoreCache getMetaStoreCache(HMSExternalCatalog catalog) {
+        return cacheMap.computeIfAbsent(catalog.getId(), id -> new HiveMetaStoreCache(catalog, getMetaCache(catalog)));
     }
 
     public ExternalSchemaCache getSchemaCache(ExternalCatalog catalog) {
-        ExternalSchemaCache cache = schemaCacheMap.get(catalog.getId());
-        if (cache == null) {
-            synchronized (schemaCacheMap) {
-                if (!schemaCacheMap.containsKey(catalog.getId())) {
-                    schemaCacheMap.put(catalog.getId(), new ExternalSchemaCache(catalog, executor));
+        return schemaCacheMap.computeIfAbsent(catalog.getId(),
+                id -> new ExternalSchemaCache(catalog, getMetaCache(catalog)));
+    }
+
+    public void removeCache(long catalogId) {
+        if (cacheMap.remove(catalogId) != null) {
+            LOG.info("remove hive metastore cache for catalog {}", catalogId);
+        }
+        if (schemaCacheMap.remove(catalogId) != null) {
+            LOG.info("remove schema cache for catalog {}", catalogId);
+        }
+        ExternalMetaCache metaCache;
+        synchronized (metaCacheMap) {
+            metaCache = metaCacheMap.remove(catalogId);
+        }
+        if (metaCache != null) {
+            metaCache.close();
+            rebalance();
+        }
+    }
+
+    // Reassign the capacities of catalogs according to their usage.
+    private void rebalance() {
+        try {
+            synchronized (metaCacheMap) {
+                List<ExternalMetaCache> metaCaches = Lists.newArrayList(metaCacheMap.values());
+                long[] usages = new long[metaCaches.size()];
+                long[] capacities = new long[metaCaches.size()];
+                for (int i = 0; i < metaCaches.size(); i++) {
+                    usages[i] = metaCaches.get(i).getUsedBytes();
+                    capacities[i] = metaCaches.get(i).getCapacityBytes();
+                }
+                long[] newCapacities = assignCapacities(Config.external_meta_cache_max_bytes, usages, capacities);
+                for (int i = 0; i < metaCaches.size(); i++) {
+                    metaCaches.get(i).setCapacityBytes(newCapacities[i]);
                 }
-                cache = schemaCacheMap.get(catalog.getId());
             }
+        } catch (Throwable t) {
+            LOG.warn("failed to rebalance external meta cache", t);
         }
-        return cache;
     }
 
-    public void removeCache(String catalogId) {
-        if (cacheMap.remove(catalogId) != null) {
-            LOG.info("remove hive metastore cache for catalog {}" + catalogId);
+    /**
+     * Split the budget with max-min fairness. A catalog whose usage is close to its capacity may need
+     * more memory and asks for as much as possible, other catalogs ask for some room above their usage,
+     * but not less than a quarter of the even share, so that an idle catalog can still start caching.
+     * The budget is given to the smaller demands first, no one gets more than an even share of what
+     * is left. What is left after all demands are satisfied is divided evenly.
+     */
+    static long[] assignCapacities(long budget, long[] usages, long[] capacities) {
+        long[] limits = new long[usages.length];
+        Arrays.fill(limits, Long.MAX_VALUE);
+        return assignCapacities(budget, usages, capacities, limits);
+    }
+
+    /**
+     * Same as above, but no one gets more than its limit.
+     */
+    static long[] assignCapacities(long budget, long[] usages, long[] capacities, long[] limits) {
+        int num = usages.length;
+        long[] result = new long[num];
+        if (num == 0) {
+            return result;
         }
-        if (schemaCacheMap.remove(catalogId) != null) {
-            LOG.info("remove schema cache for catalog {}" + catalogId);
+        long minDemand = budget / num / 4;
+        long[] demands = new long[num];
+        Integer[] order = new Integer[num];
+        for (int i = 0; i < num; i++) {
+            boolean isFull = usages[i] >= capacities[i] * FULL_RATIO;
+            long demand = isFull ? Long.MAX_VALUE : Math.max(usages[i] + usages[i] / 4, minDemand);
+            demands[i] = Math.min(demand, limits[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> demands[i]));
+        long remaining = budget;
+        for (int k = 0; k < num; k++) {
+            int i = order[k];
+            result[i] = Math.min(demands[i], remaining / (num - k));
+            remaining -= result[i];
+        }
+        long extra = remaining / num;
+        for (int i = 0; i < num; i++) {
+            result[i] = Math.min(result[i] + extra, limits[i]);
         }
+        return result;
     }
 
     public void invalidateTableCache(long catalogId, String dbName, String tblName) {
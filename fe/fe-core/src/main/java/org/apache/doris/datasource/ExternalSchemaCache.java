@@ -20,14 +20,7 @@ package org.apache.doris.datasource;
 import org.apache.doris.catalog.Column;
 import org.apache.doris.common.Config;
 import org.apache.doris.common.util.Util;
-import org.apache.doris.metric.GaugeMetric;
-import org.apache.doris.metric.Metric;
-import org.apache.doris.metric.MetricLabel;
-import org.apache.doris.metric.MetricRepo;
-
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+
 import com.google.common.collect.ImmutableList;
 import lombok.Data;
 import org.apache.logging.log4j.LogManager;
@@ -35,46 +28,31 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
 
 // The schema cache for external table
 public class ExternalSchemaCache {
     private static final Logger LOG = LogManager.getLogger(ExternalSchemaCache.class);
+    // estimated memory of a column, including its type and other attributes
+    private static final long COLUMN_BYTES = 512;
+
     private ExternalCatalog catalog;
 
-    private LoadingCache<SchemaCacheKey, ImmutableList<Column>> schemaCache;
+    // the meta cache of this catalog, the schemas share its capacity with other kinds of meta entries
+    private ExternalMetaCache metaCache;
 
-    public ExternalSchemaCache(ExternalCatalog catalog, Executor executor) {
+    public ExternalSchemaCache(ExternalCatalog catalog, ExternalMetaCache metaCache) {
         this.catalog = catalog;
-        init(executor);
-        initMetrics();
-    }
-
-    private void init(Executor executor) {
-        schemaCache = CacheBuilder.newBuilder().maximumSize(Config.max_external_schema_cache_num)
-                .expireAfterAccess(Config.external_cache_expire_time_minutes_after_access, TimeUnit.MINUTES)
-                .build(CacheLoader.asyncReloading(new CacheLoader<SchemaCacheKey, ImmutableList<Column>>() {
-                    @Override
-                    public ImmutableList<Column> load(SchemaCacheKey key) throws Exception {
-                        return loadSchema(key);
-                    }
-                }, executor));
+        this.metaCache = metaCache;
+        metaCache.registerEntryType(SchemaCacheKey.class, Config.max_external_schema_cache_num, this::loadSchema,
+                ExternalSchemaCache::estimateSchemaBytes);
     }
 
-    private void initMetrics() {
-        // schema cache
-        GaugeMetric<Long> schemaCacheGauge = new GaugeMetric<Long>("external_schema_cache",
-                Metric.MetricUnit.NOUNIT, "external schema cache number") {
-            @Override
-            public Long getValue() {
-                return schemaCache.size();
-            }
-        };
-        schemaCacheGauge.addLabel(new MetricLabel("catalog", catalog.getName()));
-        MetricRepo.DORIS_METRIC_REGISTER.addMetrics(schemaCacheGauge);
+    private static long estimateSchemaBytes(ImmutableList<Column> schema) {
+        long bytes = 0;
+        for (Column column : schema) {
+            bytes += COLUMN_BYTES + 2L * column.getName().length();
+        }
+        return bytes;
     }
 
     private ImmutableList<Column> loadSchema(SchemaCacheKey key) {
@@ -88,8 +66,8 @@ public class ExternalSchemaCache {
     public List<Column> getSchema(String dbName, String tblName) {
         SchemaCacheKey key = new SchemaCacheKey(dbName, tblName);
         try {
-            return schemaCache.get(key);
-        } catch (ExecutionException e) {
+            return metaCache.get(key);
+        } catch (RuntimeException e) {
             throw new CacheException("failed to get schema for %s in catalog %s. err: %s",
                     e, key, catalog.getName(), Util.getRootCauseMessage(e));
         }
@@ -97,16 +75,15 @@ public class ExternalSchemaCache {
 
     public void invalidateTableCache(String dbName, String tblName) {
         SchemaCacheKey key = new SchemaCacheKey(dbName, tblName);
-        schemaCache.invalidate(key);
+        metaCache.invalidate(key);
         LOG.debug("invalid schema cache for {}.{} in catalog {}", dbName, tblName, catalog.getName());
     }
 
     public void invalidateDbCache(String dbName) {
         long start = System.currentTimeMillis();
-        Set<SchemaCacheKey> keys = schemaCache.asMap().keySet();
-        for (SchemaCacheKey key : keys) {
+        for (SchemaCacheKey key : metaCache.keys(SchemaCacheKey.class)) {
             if (key.dbName.equals(dbName)) {
-                schemaCache.invalidate(key);
+                metaCache.invalidate(key);
             }
         }
         LOG.debug("invalid schema cache for db {} in catalog {} cost: {} ms", dbName, catalog.getName(),
@@ -114,7 +91,7 @@ public class ExternalSchemaCache {
     }
 
     public void invalidateAll() {
-        schemaCache.invalidateAll();
+        metaCache.invalidateAll(SchemaCacheKey.class);
         LOG.debug("invalid all schema cache in catalog {}", catalog.getName());
     }
 
@@ -3487,25 +3487,60 @@ public class InternalCatalog implements CatalogIf<Database> {
         return checksum;
     }
 
+    /**
+     * Return the databases to be saved in image, in the same order as {@link #saveDb}.
+     */
+    public List<Database> getDbsForImage() {
+        List<Database> dbs = Lists.newArrayListWithCapacity(idToDb.size());
+        for (Database db : idToDb.values()) {
+            // Don't write information_schema db meta
+            if (!InfoSchemaDb.isInfoSchemaDb(db.getFullName())) {
+                dbs.add(db);
+            }
+        }
+        return dbs;
+    }
+
     public long loadDb(DataInputStream dis, long checksum) throws IOException, DdlException {
         int dbCount = dis.readInt();
         long newChecksum = checksum ^ dbCount;
         for (long i = 0; i < dbCount; ++i) {
             Database db = new Database();
             db.readFields(dis);
-            newChecksum ^= db.getId();
-            idToDb.put(db.getId(), db);
-            fullNameToDb.put(db.getFullName(), db);
-            if (db.getDbState() == DbState.LINK) {
-                fullNameToDb.put(db.getAttachDb(), db);
-            }
-            Env.getCurrentGlobalTransactionMgr().addDatabaseTransactionMgr(db.getId());
+            newChecksum = addDbFromImage(db, newChecksum);
+        }
+        finishLoadDb();
+        return newChecksum;
+    }
+
+    /**
+     * Load databases which have been deserialized from the "db" section of image in parallel.
+     * The checksum should already include the database count.
+     */
+    public long loadDbs(List<Database> dbs, long checksum) {
+        long newChecksum = checksum;
+        for (Database db : dbs) {
+            newChecksum = addDbFromImage(db, newChecksum);
+        }
+        finishLoadDb();
+        return newChecksum;
+    }
+
+    private long addDbFromImage(Database db, long checksum) {
+        idToDb.put(db.getId(), db);
+        fullNameToDb.put(db.getFullName(), db);
+        if (db.getDbState() == DbState.LINK) {
+            fullNameToDb.put(db.getAttachDb(), db);
         }
+        Env.getCurrentGlobalTransactionMgr().addDatabaseTransactionMgr(db.getId());
+        return checksum ^ db.getId();
+    }
+
+    private void finishLoadDb() {
         // ATTN: this should be done after load Db, and before loadAlterJob
         recreateTabletInvertIndex();
         // rebuild es state state
         getEsRepository().loadTableFromCatalog();
         LOG.info("finished replay databases from image");
-        return newChecksum;
     }
 }
@@ -0,0 +1,526 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.datasource.hive;
+
+import org.apache.doris.common.Config;
+import org.apache.doris.common.io.DataOutputBuffer;
+import org.apache.doris.common.io.Text;
+import org.apache.doris.common.util.Daemon;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseNotFoundException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The local disk tier of HiveMetaStoreCache, so that partition values, partitions and file lists
+ * survive FE restarts and need not to be listed again from hive metastore and file system at once.
+ *
+ * Entries are stored in a local, non-replicated bdbje environment under Config.hive_meta_disk_cache_dir,
+ * one database for each catalog. Each entry is stored with the time it was loaded from the source, the entries
+ * older than Config.hive_meta_disk_cache_expire_minutes are ignored. The entries are read lazily when they are
+ * missing in memory, so nothing is loaded at startup.
+ *
+ * Only the entries written before this FE started are read, and each of them only once in a run. So when an
+ * entry is missing in memory again, because it is evicted or expired, it is loaded from the source instead of
+ * serving the stale one on disk. The entries are kept on disk after read, and the entries loaded from the
+ * source are written for the next start.
+ *
+ * A background thread removes the expired entries, and the oldest entries when the total size of the entries
+ * exceeds Config.hive_meta_disk_cache_max_bytes.
+ *
+ * Key layout:
+ *   partition values: <db> \0 <tbl> \0 V
+ *   partition:        <db> \0 <tbl> \0 P \0 <value1> \0 <value2> ...
+ *   file list:        \1 <location>
+ * So that the entries of a db or table can be found by prefix.
+ *
+ * All the errors are logged and regarded as cache missing, the disk tier never fails a query.
+ */
+public class HiveMetaDiskCache {
+    private static final Logger LOG = LogManager.getLogger(HiveMetaDiskCache.class);
+    private static final String DB_NAME_PREFIX = "catalog_";
+    // memory used by bdbje to cache the index and data of the environment
+    private static final long ENV_CACHE_BYTES = 32L * 1024 * 1024;
+    private static final long GC_INTERVAL_MS = 10 * 60 * 1000L;
+
+    private static final char SEPARATOR = '\0';
+    private static final char FILE_PREFIX = '\1';
+    private static final char TYPE_PARTITION_VALUES = 'V';
+    private static final char TYPE_PARTITION = 'P';
+
+    private static volatile HiveMetaDiskCache instance;
+
+    private Environment env;
+    private boolean isOpenFailed = false;
+    // the entries written since then are not read
+    private volatile long startTime = System.currentTimeMillis();
+    // catalog id -> database
+    private final Map<Long, Database> databases = Maps.newConcurrentMap();
+    // catalog id -> keys of the entries read since startup
+    private final Map<Long, Set<ByteBuffer>> readKeys = Maps.newConcurrentMap();
+
+    private HiveMetaDiskCache() {
+    }
+
+    public static HiveMetaDiskCache getInstance() {
+        if (instance == null) {
+            synchronized (HiveMetaDiskCache.class) {
+                if (instance == null) {
+                    instance = new HiveMetaDiskCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private synchronized Database getDatabase(long catalogId) {
+        Database database = databases.get(catalogId);
+        if (database != null || isOpenFailed) {
+            return database;
+        }
+        try {
+            if (env == null) {
+                File dir = new File(Config.hive_meta_disk_cache_dir);
+                if (!dir.exists() && !dir.mkdirs()) {
+                    throw new IOException("failed to create dir " + dir.getAbsolutePath());
+                }
+                EnvironmentConfig envConfig = new EnvironmentConfig();
+                envConfig.setAllowCreate(true);
+                envConfig.setTransactional(false);
+                envConfig.setCacheSize(ENV_CACHE_BYTES);
+                env = new Environment(dir, envConfig);
+                LOG.info("open hive meta disk cache in {}", dir.getAbsolutePath());
+                new Daemon("hive-meta-disk-cache-gc", GC_INTERVAL_MS) {
+                    @Override
+                    protected void runOneCycle() {
+                        gc();
+                    }
+                }.start();
+            }
+            DatabaseConfig dbConfig = new DatabaseConfig();
+            dbConfig.setAllowCreate(true);
+            dbConfig.setTransactional(false);
+            database = env.openDatabase(null, DB_NAME_PREFIX + catalogId, dbConfig);
+            databases.put(catalogId, database);
+            return database;
+        } catch (Exception e) {
+            // do not try again, or every cache missing will try to open it
+            isOpenFailed = true;
+            LOG.warn("failed to open hive meta disk cache, disk cache is disabled", e);
+            return null;
+        }
+    }
+
+    private static byte[] tableKey(String dbName, String tblName, char type) {
+        return (dbName + SEPARATOR + tblName + SEPARATOR + type).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] partitionKey(String dbName, String tblName, List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(dbName).append(SEPARATOR).append(tblName).append(SEPARATOR).append(TYPE_PARTITION);
+        for (String value : values) {
+            sb.append(SEPARATOR).append(value);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fileKey(String location) {
+        return (FILE_PREFIX + location).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isPartitionKey(byte[] key) {
+        // the type is after <db> \0 <tbl> \0
+        int separatorNum = 0;
+        for (int i = 0; i < key.length - 1; i++) {
+            if (key[i] == SEPARATOR && ++separatorNum == 2) {
+                return key[i + 1] == TYPE_PARTITION;
+            }
+        }
+        return false;
+    }
+
+    // Return the input stream of the value after the load time, or null if absent or expired.
+    // If forLoad is true, only return the entry written before startup and not read since then.
+    private DataInputStream read(long catalogId, byte[] key, boolean forLoad) {
+        Database database = getDatabase(catalogId);
+        if (database == null) {
+            return null;
+        }
+        try {
+            DatabaseEntry value = new DatabaseEntry();
+            if (database.get(null, new DatabaseEntry(key), value, LockMode.READ_UNCOMMITTED)
+                    != OperationStatus.SUCCESS) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(value.getData(),
+                    value.getOffset(), value.getSize()));
+            long loadTime = in.readLong();
+            if (forLoad && loadTime >= startTime) {
+                return null;
+            }
+            if (System.currentTimeMillis() - loadTime > Config.hive_meta_disk_cache_expire_minutes * 60 * 1000L) {
+                database.delete(null, new DatabaseEntry(key));
+                return null;
+            }
+            if (forLoad && !readKeys.computeIfAbsent(catalogId, k -> Sets.newConcurrentHashSet())
+                    .add(ByteBuffer.wrap(key))) {
+                return null;
+            }
+            return in;
+        } catch (Exception e) {
+            LOG.warn("failed to read hive meta disk cache of catalog {}", catalogId, e);
+            return null;
+        }
+    }
+
+    private void write(long catalogId, byte[] key, DataOutputBuffer value) {
+        Database database = getDatabase(catalogId);
+        if (database == null) {
+            return;
+        }
+        try {
+            database.put(null, new DatabaseEntry(key), new DatabaseEntry(value.getData(), 0, value.getLength()));
+        } catch (Exception e) {
+            LOG.warn("failed to write hive meta disk cache of catalog {}", catalogId, e);
+        }
+    }
+
+    private void delete(long catalogId, byte[] key) {
+        Database database = getDatabase(catalogId);
+        if (database == null) {
+            return;
+        }
+        try {
+            database.delete(null, new DatabaseEntry(key));
+        } catch (Exception e) {
+            LOG.warn("failed to delete hive meta disk cache of catalog {}", catalogId, e);
+        }
+    }
+
+    private static DataOutputBuffer newValue() throws IOException {
+        DataOutputBuffer out = new DataOutputBuffer(256);
+        out.writeLong(System.currentTimeMillis());
+        return out;
+    }
+
+    public List<String> getPartitionNames(long catalogId, String dbName, String tblName) {
+        DataInputStream in = read(catalogId, tableKey(dbName, tblName, TYPE_PARTITION_VALUES), true);
+        if (in == null) {
+            return null;
+        }
+        try {
+            int num = in.readInt();
+            List<String> partitionNames = Lists.newArrayListWithCapacity(num);
+            for (int i = 0; i < num; i++) {
+                partitionNames.add(Text.readString(in));
+            }
+            return partitionNames;
+        } catch (IOException e) {
+            LOG.warn("failed to read partition names of {}.{} in catalog {}", dbName, tblName, catalogId, e);
+            return null;
+        }
+    }
+
+    public void putPartitionNames(long catalogId, String dbName, String tblName, List<String> partitionNames) {
+        try {
+            DataOutputBuffer out = newValue();
+            out.writeInt(partitionNames.size());
+            for (String partitionName : partitionNames) {
+                Text.writeString(out, partitionName);
+            }
+            write(catalogId, tableKey(dbName, tblName, TYPE_PARTITION_VALUES), out);
+        } catch (Exception e) {
+            LOG.warn("failed to write partition names of {}.{} in catalog {}", dbName, tblName, catalogId, e);
+        }
+    }
+
+    public void invalidatePartitionNames(long catalogId, String dbName, String tblName) {
+        delete(catalogId, tableKey(dbName, tblName, TYPE_PARTITION_VALUES));
+    }
+
+    public HivePartition getPartition(long catalogId, String dbName, String tblName, List<String> values) {
+        return readPartition(catalogId, dbName, tblName, values, true);
+    }
+
+    private HivePartition readPartition(long catalogId, String dbName, String tblName, List<String> values,
+            boolean forLoad) {
+        DataInputStream in = read(catalogId, partitionKey(dbName, tblName, values), forLoad);
+        if (in == null) {
+            return null;
+        }
+        try {
+            String inputFormat = Text.readString(in);
+            String location = Text.readString(in);
+            return new HivePartition(inputFormat, location, values);
+        } catch (IOException e) {
+            LOG.warn("failed to read partition {} of {}.{} in catalog {}", values, dbName, tblName, catalogId, e);
+            return null;
+        }
+    }
+
+    public void putPartition(long catalogId, String dbName, String tblName, HivePartition partition) {
+        try {
+            DataOutputBuffer out = newValue();
+            Text.writeString(out, partition.getInputFormat());
+            Text.writeString(out, partition.getPath());
+            write(catalogId, partitionKey(dbName, tblName, partition.getPartitionValues()), out);
+        } catch (Exception e) {
+            LOG.warn("failed to write partition {} of {}.{} in catalog {}",
+                    partition.getPartitionValues(), dbName, tblName, catalogId, e);
+        }
+    }
+
+    /**
+     * Invalidate the partition and the file list of its location.
+     */
+    public void invalidatePartition(long catalogId, String dbName, String tblName, List<String> values) {
+        HivePartition partition = readPartition(catalogId, dbName, tblName, values, false);
+        if (partition != null) {
+            delete(catalogId, fileKey(partition.getPath()));
+        }
+        delete(catalogId, partitionKey(dbName, tblName, values));
+    }
+
+    public ImmutableList<InputSplit> getFiles(long catalogId, String location) {
+        DataInputStream in = read(catalogId, fileKey(location), true);
+        if (in == null) {
+            return null;
+        }
+        try {
+            int num = in.readInt();
+            ImmutableList.Builder<InputSplit> splits = ImmutableList.builderWithExpectedSize(num);
+            for (int i = 0; i < num; i++) {
+                Path path = new Path(Text.readString(in));
+                long start = in.readLong();
+                long length = in.readLong();
+                String[] hosts = new String[in.readInt()];
+                for (int j = 0; j < hosts.length; j++) {
+                    hosts[j] = Text.readString(in);
+                }
+                splits.add(new FileSplit(path, start, length, hosts));
+            }
+            return splits.build();
+        } catch (IOException e) {
+            LOG.warn("failed to read files of {} in catalog {}", location, catalogId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Only the list made up of plain FileSplit is stored, other kinds of splits are not supported.
+     */
+    public void putFiles(long catalogId, String location, List<InputSplit> splits) {
+        for (InputSplit split : splits) {
+            if (split.getClass() != FileSplit.class) {
+                return;
+            }
+        }
+        try {
+            DataOutputBuffer out = newValue();
+            out.writeInt(splits.size());
+            for (InputSplit split : splits) {
+                FileSplit fileSplit = (FileSplit) split;
+                Text.writeString(out, fileSplit.getPath().toString());
+                out.writeLong(fileSplit.getStart());
+                out.writeLong(fileSplit.getLength());
+                String[] hosts = fileSplit.getLocations();
+                out.writeInt(hosts.length);
+                for (String host : hosts) {
+                    Text.writeString(out, host);
+                }
+            }
+            write(catalogId, fileKey(location), out);
+        } catch (Exception e) {
+            LOG.warn("failed to write files of {} in catalog {}", location, catalogId, e);
+        }
+    }
+
+    public void invalidateFiles(long catalogId, String location) {
+        delete(catalogId, fileKey(location));
+    }
+
+    public void invalidateTable(long catalogId, String dbName, String tblName) {
+        invalidateByPrefix(catalogId, (dbName + SEPARATOR + tblName + SEPARATOR).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void invalidateDb(long catalogId, String dbName) {
+        invalidateByPrefix(catalogId, (dbName + SEPARATOR).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Delete all the entries with the prefix, and the file lists of the partitions deleted.
+    private void invalidateByPrefix(long catalogId, byte[] prefix) {
+        Database database = getDatabase(catalogId);
+        if (database == null) {
+            return;
+        }
+        List<String> locations = Lists.newArrayList();
+        Cursor cursor = null;
+        try {
+            cursor = database.openCursor(null, null);
+            DatabaseEntry key = new DatabaseEntry(prefix);
+            DatabaseEntry value = new DatabaseEntry();
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.DEFAULT);
+            while (status == OperationStatus.SUCCESS && startsWith(key, prefix)) {
+                byte[] keyBytes = Arrays.copyOfRange(key.getData(), key.getOffset(), key.getOffset() + key.getSize());
+                if (isPartitionKey(keyBytes)) {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(value.getData(),
+                            value.getOffset(), value.getSize()));
+                    in.readLong();
+                    // input format
+                    Text.readString(in);
+                    locations.add(Text.readString(in));
+                }
+                cursor.delete();
+                status = cursor.getNext(key, value, LockMode.DEFAULT);
+            }
+        } catch (Exception e) {
+            LOG.warn("failed to invalidate hive meta disk cache of catalog {}", catalogId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        for (String location : locations) {
+            invalidateFiles(catalogId, location);
+        }
+    }
+
+    private static boolean startsWith(DatabaseEntry key, byte[] prefix) {
+        if (key.getSize() < prefix.length) {
+            return false;
+        }
+        byte[] data = key.getData();
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[key.getOffset() + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove all the entries of the catalog.
+     */
+    public synchronized void invalidateCatalog(long catalogId) {
+        // open it first, the entries may be written before restart
+        if (getDatabase(catalogId) == null) {
+            return;
+        }
+        readKeys.remove(catalogId);
+        try {
+            databases.remove(catalogId).close();
+            env.removeDatabase(null, DB_NAME_PREFIX + catalogId);
+        } catch (DatabaseNotFoundException e) {
+            // nothing cached
+        } catch (Exception e) {
+            LOG.warn("failed to remove hive meta disk cache of catalog {}", catalogId, e);
+        }
+    }
+
+    /**
+     * Remove the expired entries, and then the oldest entries until the total size of the entries
+     * is within Config.hive_meta_disk_cache_max_bytes.
+     */
+    void gc() {
+        long expireTime = System.currentTimeMillis() - Config.hive_meta_disk_cache_expire_minutes * 60 * 1000L;
+        // load time -> total size of the entries loaded at that time
+        TreeMap<Long, Long> loadTimeToSize = Maps.newTreeMap();
+        long totalSize = 0;
+        for (Map.Entry<Long, Database> entry : databases.entrySet()) {
+            totalSize += removeBefore(entry.getKey(), entry.getValue(), expireTime, loadTimeToSize);
+        }
+        if (totalSize <= Config.hive_meta_disk_cache_max_bytes) {
+            return;
+        }
+        long keptSize = 0;
+        long removeTime = expireTime;
+        for (Map.Entry<Long, Long> entry : loadTimeToSize.descendingMap().entrySet()) {
+            keptSize += entry.getValue();
+            if (keptSize > Config.hive_meta_disk_cache_max_bytes) {
+                removeTime = entry.getKey() + 1;
+                break;
+            }
+        }
+        for (Map.Entry<Long, Database> entry : databases.entrySet()) {
+            removeBefore(entry.getKey(), entry.getValue(), removeTime, null);
+        }
+        LOG.info("remove the hive meta disk cache entries loaded before {}, total size before: {}",
+                removeTime, totalSize);
+    }
+
+    // Remove the entries loaded before removeTime, and add the sizes of the others to loadTimeToSize
+    // if it is not null. Return the total size of the entries kept.
+    private long removeBefore(long catalogId, Database database, long removeTime,
+            TreeMap<Long, Long> loadTimeToSize) {
+        long totalSize = 0;
+        Cursor cursor = null;
+        try {
+            cursor = database.openCursor(null, null);
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            while (cursor.getNext(key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+                long loadTime = new DataInputStream(new ByteArrayInputStream(value.getData(),
+                        value.getOffset(), value.getSize())).readLong();
+                if (loadTime < removeTime) {
+                    cursor.delete();
+                    continue;
+                }
+                long size = key.getSize() + value.getSize();
+                totalSize += size;
+                if (loadTimeToSize != null) {
+                    loadTimeToSize.merge(loadTime, size, Long::sum);
+                }
+            }
+        } catch (Exception e) {
+            // e.g. the database is closed because the catalog is dropped
+            LOG.warn("failed to remove expired hive meta disk cache of catalog {}", catalogId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return totalSize;
+    }
+}
@@ -27,12 +27,9 @@ import org.apache.doris.common.AnalysisException;
 import org.apache.doris.common.Config;
 import org.apache.doris.common.FeConstants;
 import org.apache.doris.datasource.CacheException;
+import org.apache.doris.datasource.ExternalMetaCache;
 import org.apache.doris.datasource.HMSExternalCatalog;
 import org.apache.doris.external.hive.util.HiveUtil;
-import org.apache.doris.metric.GaugeMetric;
-import org.apache.doris.metric.Metric;
-import org.apache.doris.metric.MetricLabel;
-import org.apache.doris.metric.MetricRepo;
 import org.apache.doris.planner.ColumnBound;
 import org.apache.doris.planner.ListPartitionPrunerV2;
 import org.apache.doris.planner.PartitionPrunerV2Base.UniqueId;
@@ -40,9 +37,6 @@ import org.apache.doris.planner.external.HiveSplitter;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -56,6 +50,7 @@ import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
@@ -68,101 +63,98 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-// The cache of a hms catalog. 3 kind of caches:
-// 1. partitionValuesCache: cache the partition values of a table, for partition prune.
-// 2. partitionCache: cache the partition info(location, input format, etc.) of a table.
-// 3. fileCache: cache the files of a location.
+// The cache of a hms catalog. 3 kind of entries are cached in the meta cache of the catalog:
+// 1. partition values: cache the partition values of a table, for partition prune.
+// 2. partition: cache the partition info(location, input format, etc.) of a table.
+// 3. file: cache the files of a location.
 public class HiveMetaStoreCache {
     private static final Logger LOG = LogManager.getLogger(HiveMetaStoreCache.class);
     private static final int MIN_BATCH_FETCH_PARTITION_NUM = 50;
     public static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
 
-    private HMSExternalCatalog catalog;
+    // estimated memory of the partition item, partition key, ranges and ids of a partition value,
+    // besides the partition name
+    private static final long PARTITION_VALUE_BYTES = 512;
+    // estimated memory of a partition value string, besides its chars
+    private static final long STRING_BYTES = 48;
+    // estimated memory of an input split, besides its path
+    private static final long SPLIT_BYTES = 256;
 
-    // cache from <dbname-tblname> -> <values of partitions>
-    private LoadingCache<PartitionValueCacheKey, HivePartitionValues> partitionValuesCache;
-    // cache from <dbname-tblname-partition_values> -> <partition info>
-    private LoadingCache<PartitionCacheKey, HivePartition> partitionCache;
-    // cache from <location> -> <file list>
-    private LoadingCache<FileCacheKey, ImmutableList<InputSplit>> fileCache;
+    private HMSExternalCatalog catalog;
 
-    public HiveMetaStoreCache(HMSExternalCatalog catalog, Executor executor) {
+    // the meta cache of this catalog, which holds 3 kinds of entries, each kind in its own cache:
+    // <dbname-tblname> -> <values of partitions>
+    // <dbname-tblname-partition_values> -> <partition info>
+    // <location> -> <file list>
+    private ExternalMetaCache metaCache;
+    // the local disk tier, null if disabled.
+    // Entries missing in memory are looked up in it before loading from source, but only the entries
+    // written before FE started are used, each of them once. Refreshing always loads from source.
+    private HiveMetaDiskCache diskCache;
+
+    public HiveMetaStoreCache(HMSExternalCatalog catalog, ExternalMetaCache metaCache) {
         this.catalog = catalog;
-        init(executor);
-        initMetrics();
+        this.metaCache = metaCache;
+        if (Config.enable_hive_meta_disk_cache) {
+            diskCache = HiveMetaDiskCache.getInstance();
+            metaCache.registerEntryType(PartitionValueCacheKey.class, Config.max_hive_partition_cache_num,
+                    this::loadPartitionValuesFromDisk, this::loadPartitionValues,
+                    HiveMetaStoreCache::estimatePartitionValuesBytes);
+            metaCache.registerEntryType(PartitionCacheKey.class, Config.max_hive_partition_cache_num,
+                    this::loadPartitionsFromDisk, this::loadPartitions, HiveMetaStoreCache::estimatePartitionBytes);
+            metaCache.registerEntryType(FileCacheKey.class, Config.max_external_file_cache_num,
+                    this::loadFilesFromDisk, this::loadFiles, HiveMetaStoreCache::estimateFilesBytes);
+        } else {
+            metaCache.registerEntryType(PartitionValueCacheKey.class, Config.max_hive_partition_cache_num,
+                    this::loadPartitionValues, HiveMetaStoreCache::estimatePartitionValuesBytes);
+            metaCache.registerEntryType(PartitionCacheKey.class, Config.max_hive_partition_cache_num,
+                    this::loadPartitions, HiveMetaStoreCache::estimatePartitionBytes);
+            metaCache.registerEntryType(FileCacheKey.class, Config.max_external_file_cache_num,
+                    this::loadFiles, HiveMetaStoreCache::estimateFilesBytes);
+        }
     }
 
-    private void init(Executor executor) {
-        partitionValuesCache = CacheBuilder.newBuilder().maximumSize(Config.max_hive_partition_cache_num)
-                .expireAfterAccess(Config.external_cache_expire_time_minutes_after_access, TimeUnit.MINUTES)
-                .build(CacheLoader.asyncReloading(
-                        new CacheLoader<PartitionValueCacheKey, HivePartitionValues>() {
-                            @Override
-                            public HivePartitionValues load(PartitionValueCacheKey key) throws Exception {
-                                return loadPartitionValues(key);
-                            }
-                        }, executor));
-
-        partitionCache = CacheBuilder.newBuilder().maximumSize(Config.max_hive_partition_cache_num)
-                .expireAfterAccess(Config.external_cache_expire_time_minutes_after_access, TimeUnit.MINUTES)
-                .build(CacheLoader.asyncReloading(new CacheLoader<PartitionCacheKey, HivePartition>() {
-                    @Override
-                    public HivePartition load(PartitionCacheKey key) throws Exception {
-                        return loadPartitions(key);
-                    }
-                }, executor));
-
-        fileCache = CacheBuilder.newBuilder().maximumSize(Config.max_external_file_cache_num)
-                .expireAfterAccess(Config.external_cache_expire_time_minutes_after_access, TimeUnit.MINUTES)
-                .build(CacheLoader.asyncReloading(new CacheLoader<FileCacheKey, ImmutableList<InputSplit>>() {
-                    @Override
-                    public ImmutableList<InputSplit> load(FileCacheKey key) throws Exception {
-                        return loadFiles(key);
-                    }
-                }, executor));
+    private static long estimatePartitionValuesBytes(HivePartitionValues partitionValues) {
+        long bytes = 0;
+        for (String partitionName : partitionValues.getPartitionNameToIdMap().keySet()) {
+            bytes += PARTITION_VALUE_BYTES + STRING_BYTES + 2L * partitionName.length();
+        }
+        return bytes;
     }
 
-    private void initMetrics() {
-        // partition value
-        GaugeMetric<Long> valueCacheGauge = new GaugeMetric<Long>("hive_meta_cache",
-                Metric.MetricUnit.NOUNIT, "hive partition value cache number") {
-            @Override
-            public Long getValue() {
-                return partitionValuesCache.size();
-            }
-        };
-        valueCacheGauge.addLabel(new MetricLabel("type", "partition_value"));
-        valueCacheGauge.addLabel(new MetricLabel("catalog", catalog.getName()));
-        MetricRepo.DORIS_METRIC_REGISTER.addMetrics(valueCacheGauge);
-        // partition
-        GaugeMetric<Long> partitionCacheGauge = new GaugeMetric<Long>("hive_meta_cache",
-                Metric.MetricUnit.NOUNIT, "hive partition cache number") {
-            @Override
-            public Long getValue() {
-                return partitionCache.size();
-            }
-        };
-        partitionCacheGauge.addLabel(new MetricLabel("type", "partition"));
-        partitionCacheGauge.addLabel(new MetricLabel("catalog", catalog.getName()));
-        MetricRepo.DORIS_METRIC_REGISTER.addMetrics(partitionCacheGauge);
-        // file
-        GaugeMetric<Long> fileCacheGauge = new GaugeMetric<Long>("hive_meta_cache",
-                Metric.MetricUnit.NOUNIT, "hive file cache number") {
-            @Override
-            public Long getValue() {
-                return fileCache.size();
+    private static long estimatePartitionBytes(HivePartition partition) {
+        long bytes = STRING_BYTES * 2 + 2L * (Strings.nullToEmpty(partition.getInputFormat()).length()
+                + Strings.nullToEmpty(partition.getPath()).length());
+        for (String value : partition.getPartitionValues()) {
+            bytes += STRING_BYTES + 2L * value.length();
+        }
+        return bytes;
+    }
+
+    private static long estimateFilesBytes(ImmutableList<InputSplit> splits) {
+        long bytes = 0;
+        for (InputSplit split : splits) {
+            bytes += SPLIT_BYTES;
+            if (split instanceof FileSplit) {
+                bytes += 2L * ((FileSplit) split).getPath().toUri().getPath().length();
             }
-        };
-        fileCacheGauge.addLabel(new MetricLabel("type", "file"));
-        fileCacheGauge.addLabel(new MetricLabel("catalog", catalog.getName()));
-        MetricRepo.DORIS_METRIC_REGISTER.addMetrics(fileCacheGauge);
+        }
+        return bytes;
+    }
+
+    private HivePartitionValues loadPartitionValuesFromDisk(PartitionValueCacheKey key) {
+        List<String> partitionNames = diskCache.getPartitionNames(catalog.getId(), key.dbName, key.tblName);
+        if (partitionNames == null) {
+            return loadPartitionValues(key);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("load #{} partitions for {} in catalog {} from disk",
+                    partitionNames.size(), key, catalog.getName());
+        }
+        return toPartitionValues(key, partitionNames);
     }
 
     private HivePartitionValues loadPartitionValues(PartitionValueCacheKey key) {
@@ -171,6 +163,13 @@ public class HiveMetaStoreCache {
         if (LOG.isDebugEnabled()) {
             LOG.debug("load #{} partitions for {} in catalog {}", partitionNames.size(), key, catalog.getName());
         }
+        if (diskCache != null) {
+            diskCache.putPartitionNames(catalog.getId(), key.dbName, key.tblName, partitionNames);
+        }
+        return toPartitionValues(key, partitionNames);
+    }
+
+    private HivePartitionValues toPartitionValues(PartitionValueCacheKey key, List<String> partitionNames) {
         Map<Long, PartitionItem> idToPartitionItem = Maps.newHashMapWithExpectedSize(partitionNames.size());
         Map<String, Long> partitionNameToIdMap = Maps.newHashMapWithExpectedSize(partitionNames.size());
         Map<Long, List<UniqueId>> idToUniqueIdsMap = Maps.newHashMapWithExpectedSize(partitionNames.size());
@@ -221,6 +220,11 @@ public class HiveMetaStoreCache {
         }
     }
 
+    private HivePartition loadPartitionsFromDisk(PartitionCacheKey key) {
+        HivePartition partition = diskCache.getPartition(catalog.getId(), key.dbName, key.tblName, key.values);
+        return partition != null ? partition : loadPartitions(key);
+    }
+
     private HivePartition loadPartitions(PartitionCacheKey key) {
         Partition partition = catalog.getClient().getPartition(key.dbName, key.tblName, key.values);
         StorageDescriptor sd = partition.getSd();
@@ -229,7 +233,16 @@ public class HiveMetaStoreCache {
                     sd.getInputFormat(), sd.getLocation(), key, catalog.getName());
         }
         // TODO: more info?
-        return new HivePartition(sd.getInputFormat(), sd.getLocation(), key.values);
+        HivePartition hivePartition = new HivePartition(sd.getInputFormat(), sd.getLocation(), key.values);
+        if (diskCache != null) {
+            diskCache.putPartition(catalog.getId(), key.dbName, key.tblName, hivePartition);
+        }
+        return hivePartition;
+    }
+
+    private ImmutableList<InputSplit> loadFilesFromDisk(FileCacheKey key) {
+        ImmutableList<InputSplit> splits = diskCache.getFiles(catalog.getId(), key.location);
+        return splits != null ? splits : loadFiles(key);
     }
 
     private ImmutableList<InputSplit> loadFiles(FileCacheKey key) {
@@ -268,7 +281,11 @@ public class HiveMetaStoreCache {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("load #{} files for {} in catalog {}", splits.length, key, catalog.getName());
                 }
-                return ImmutableList.copyOf(splits);
+                ImmutableList<InputSplit> splitList = ImmutableList.copyOf(splits);
+                if (diskCache != null) {
+                    diskCache.putFiles(catalog.getId(), key.location, splitList);
+                }
+                return splitList;
             } catch (Exception e) {
                 throw new CacheException("failed to get input splits for %s in catalog %s", e, key, catalog.getName());
             }
@@ -310,8 +327,8 @@ public class HiveMetaStoreCache {
 
     public HivePartitionValues getPartitionValues(PartitionValueCacheKey key) {
         try {
-            return partitionValuesCache.get(key);
-        } catch (ExecutionException e) {
+            return metaCache.get(key);
+        } catch (RuntimeException e) {
             throw new CacheException("failed to get partition values for %s in catalog %s", e, key, catalog.getName());
         }
     }
@@ -327,13 +344,8 @@ public class HiveMetaStoreCache {
         } else {
             stream = keys.parallelStream();
         }
-        List<ImmutableList<InputSplit>> fileLists = stream.map(k -> {
-            try {
-                return fileCache.get(k);
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e);
-            }
-        }).collect(Collectors.toList());
+        List<ImmutableList<InputSplit>> fileLists = stream.map(k -> metaCache.<ImmutableList<InputSplit>>get(k))
+                .collect(Collectors.toList());
         List<InputSplit> retFiles = Lists.newArrayListWithExpectedSize(
                 fileLists.stream().mapToInt(l -> l.size()).sum());
         fileLists.stream().forEach(l -> retFiles.addAll(l));
@@ -355,8 +367,8 @@ public class HiveMetaStoreCache {
         }
         List<HivePartition> partitions = stream.map(k -> {
             try {
-                return partitionCache.get(k);
-            } catch (ExecutionException e) {
+                return metaCache.<HivePartition>get(k);
+            } catch (RuntimeException e) {
                 throw new CacheException("failed to get partition for %s in catalog %s", e, k, catalog.getName());
             }
         }).collect(Collectors.toList());
@@ -367,63 +379,76 @@ public class HiveMetaStoreCache {
 
     public void invalidateTableCache(String dbName, String tblName) {
         PartitionValueCacheKey key = new PartitionValueCacheKey(dbName, tblName, null);
-        HivePartitionValues partitionValues = partitionValuesCache.getIfPresent(key);
+        HivePartitionValues partitionValues = metaCache.getIfPresent(key);
         if (partitionValues != null) {
             long start = System.currentTimeMillis();
             for (List<String> values : partitionValues.partitionValuesMap.values()) {
                 PartitionCacheKey partKey = new PartitionCacheKey(dbName, tblName, values);
-                HivePartition partition = partitionCache.getIfPresent(partKey);
+                HivePartition partition = metaCache.getIfPresent(partKey);
                 if (partition != null) {
-                    fileCache.invalidate(new FileCacheKey(partition.getPath(), null));
-                    partitionCache.invalidate(partKey);
+                    metaCache.invalidate(new FileCacheKey(partition.getPath(), null));
+                    metaCache.invalidate(partKey);
                 }
             }
-            partitionValuesCache.invalidate(key);
+            metaCache.invalidate(key);
             LOG.debug("invalid table cache for {}.{} in catalog {}, cache num: {}, cost: {} ms",
                     dbName, tblName, catalog.getName(), partitionValues.partitionValuesMap.size(),
                     (System.currentTimeMillis() - start));
         }
+        if (diskCache != null) {
+            diskCache.invalidateTable(catalog.getId(), dbName, tblName);
+        }
     }
 
     public void invalidatePartitionCache(String dbName, String tblName, String partitionName) {
         PartitionValueCacheKey key = new PartitionValueCacheKey(dbName, tblName, null);
-        HivePartitionValues partitionValues = partitionValuesCache.getIfPresent(key);
+        HivePartitionValues partitionValues = metaCache.getIfPresent(key);
         if (partitionValues != null) {
             Long partitionId = partitionValues.partitionNameToIdMap.get(partitionName);
             List<String> values = partitionValues.partitionValuesMap.get(partitionId);
             PartitionCacheKey partKey = new PartitionCacheKey(dbName, tblName, values);
-            HivePartition partition = partitionCache.getIfPresent(partKey);
+            HivePartition partition = metaCache.getIfPresent(partKey);
             if (partition != null) {
-                fileCache.invalidate(new FileCacheKey(partition.getPath(), null));
-                partitionCache.invalidate(partKey);
+                metaCache.invalidate(new FileCacheKey(partition.getPath(), null));
+                metaCache.invalidate(partKey);
             }
         }
     }
 
     public void invalidateDbCache(String dbName) {
         long start = System.currentTimeMillis();
-        Set<PartitionValueCacheKey> keys = partitionValuesCache.asMap().keySet();
+        List<PartitionValueCacheKey> keys = metaCache.keys(PartitionValueCacheKey.class);
         for (PartitionValueCacheKey key : keys) {
             if (key.dbName.equals(dbName)) {
                 invalidateTableCache(dbName, key.tblName);
             }
         }
+        if (diskCache != null) {
+            diskCache.invalidateDb(catalog.getId(), dbName);
+        }
         LOG.debug("invalid db cache for {} in catalog {}, cache num: {}, cost: {} ms", dbName, catalog.getName(),
                 keys.size(), (System.currentTimeMillis() - start));
     }
 
     public void invalidateAll() {
-        partitionValuesCache.invalidateAll();
-        partitionCache.invalidateAll();
-        fileCache.invalidateAll();
+        metaCache.invalidateAll(PartitionValueCacheKey.class);
+        metaCache.invalidateAll(PartitionCacheKey.class);
+        metaCache.invalidateAll(FileCacheKey.class);
+        if (diskCache != null) {
+            diskCache.invalidateCatalog(catalog.getId());
+        }
         LOG.debug("invalid all meta cache in catalog {}", catalog.getName());
     }
 
     // partition name format: nation=cn/city=beijing
     public void addPartitionsCache(String dbName, String tblName, List<String> partitionNames,
             List<Type> partitionColumnTypes) {
+        if (diskCache != null) {
+            // the partition names on disk are out of date, they will be listed again after restart
+            diskCache.invalidatePartitionNames(catalog.getId(), dbName, tblName);
+        }
         PartitionValueCacheKey key = new PartitionValueCacheKey(dbName, tblName, partitionColumnTypes);
-        HivePartitionValues partitionValues = partitionValuesCache.getIfPresent(key);
+        HivePartitionValues partitionValues = metaCache.getIfPresent(key);
         if (partitionValues == null) {
             return;
         }
@@ -470,16 +495,20 @@ public class HiveMetaStoreCache {
                     .genSingleUidToColumnRange(singleColumnRangeMap);
             singleUidToColumnRangeMapBefore.putAll(singleUidToColumnRangeMap);
         }
-        HivePartitionValues partitionValuesCur = partitionValuesCache.getIfPresent(key);
+        HivePartitionValues partitionValuesCur = metaCache.getIfPresent(key);
         if (partitionValuesCur == partitionValues) {
-            partitionValuesCache.put(key, copy);
+            metaCache.put(key, copy);
         }
     }
 
     public void dropPartitionsCache(String dbName, String tblName, List<String> partitionNames,
             List<Type> partitionColumnTypes, boolean invalidPartitionCache) {
+        if (diskCache != null) {
+            // the partition names on disk are out of date, they will be listed again after restart
+            diskCache.invalidatePartitionNames(catalog.getId(), dbName, tblName);
+        }
         PartitionValueCacheKey key = new PartitionValueCacheKey(dbName, tblName, partitionColumnTypes);
-        HivePartitionValues partitionValues = partitionValuesCache.getIfPresent(key);
+        HivePartitionValues partitionValues = metaCache.getIfPresent(key);
         if (partitionValues == null) {
             return;
         }
@@ -516,14 +545,14 @@ public class HiveMetaStoreCache {
                 invalidatePartitionCache(dbName, tblName, partitionName);
             }
         }
-        HivePartitionValues partitionValuesCur = partitionValuesCache.getIfPresent(key);
+        HivePartitionValues partitionValuesCur = metaCache.getIfPresent(key);
         if (partitionValuesCur == partitionValues) {
-            partitionValuesCache.put(key, copy);
+            metaCache.put(key, copy);
         }
     }
 
     public void putPartitionValuesCacheForTest(PartitionValueCacheKey key, HivePartitionValues values) {
-        partitionValuesCache.put(key, values);
+        metaCache.put(key, values);
     }
 
     /**
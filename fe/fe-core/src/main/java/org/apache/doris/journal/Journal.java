@@ -49,6 +49,9 @@ public interface Journal {
     // Write a journal and sync to disk
     public void write(short op, Writable writable) throws IOException;
 
+    // Write a batch of journals in one transaction and sync to disk
+    public void write(JournalBatch batch) throws IOException;
+
     // Get current journal number
     public long getJournalNum();
 
@@ -0,0 +1,108 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.journal;
+
+import org.apache.doris.common.io.DataOutputBuffer;
+import org.apache.doris.common.io.Writable;
+import org.apache.doris.persist.OperationType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A group of journals which will be written to the journal in one transaction.
+ * Each journal is serialized when it is added, so that the writer only needs to
+ * put the bytes into the journal store.
+ */
+public class JournalBatch {
+    private static final int OUTPUT_BUFFER_INIT_SIZE = 128;
+
+    private final List<Entity> entities;
+
+    public JournalBatch() {
+        entities = new ArrayList<>();
+    }
+
+    public JournalBatch(int capacity) {
+        entities = new ArrayList<>(capacity);
+    }
+
+    // Serialize the journal and add it to the batch.
+    public void addJournal(short op, Writable writable) throws IOException {
+        JournalEntity entity = new JournalEntity();
+        entity.setOpCode(op);
+        entity.setData(writable);
+
+        DataOutputBuffer buffer = new DataOutputBuffer(OUTPUT_BUFFER_INIT_SIZE);
+        entity.write(buffer);
+
+        entities.add(new Entity(op, writable, buffer));
+    }
+
+    public List<Entity> getJournalEntities() {
+        return entities;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    public boolean isEmpty() {
+        return entities.isEmpty();
+    }
+
+    // Only timestamp journals are in this batch, see BDBJEJournal.write for the reason.
+    public boolean isTimestampOnly() {
+        for (Entity entity : entities) {
+            if (entity.op != OperationType.OP_TIMESTAMP) {
+                return false;
+            }
+        }
+        return !entities.isEmpty();
+    }
+
+    public static class Entity {
+        private final short op;
+        private final Writable data;
+        private final DataOutputBuffer buffer;
+
+        private Entity(short op, Writable data, DataOutputBuffer buffer) {
+            this.op = op;
+            this.data = data;
+            this.buffer = buffer;
+        }
+
+        public short getOpCode() {
+            return op;
+        }
+
+        public Writable getData() {
+            return data;
+        }
+
+        // Note: the returned array may be larger than the valid length, see getBinarySize().
+        public byte[] getBinaryData() {
+            return buffer.getData();
+        }
+
+        public int getBinarySize() {
+            return buffer.getLength();
+        }
+    }
+}
@@ -23,12 +23,14 @@ import org.apache.doris.common.io.DataOutputBuffer;
 import org.apache.doris.common.io.Writable;
 import org.apache.doris.common.util.Util;
 import org.apache.doris.journal.Journal;
+import org.apache.doris.journal.JournalBatch;
 import org.apache.doris.journal.JournalCursor;
 import org.apache.doris.journal.JournalEntity;
 import org.apache.doris.metric.MetricRepo;
 import org.apache.doris.persist.OperationType;
 import org.apache.doris.system.SystemInfoService.HostInfo;
 
+import com.google.common.collect.Lists;
 import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseEntry;
@@ -36,6 +38,7 @@ import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.DatabaseNotFoundException;
 import com.sleepycat.je.LockMode;
 import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
 import com.sleepycat.je.rep.InsufficientLogException;
 import com.sleepycat.je.rep.NetworkRestore;
 import com.sleepycat.je.rep.NetworkRestoreConfig;
@@ -190,6 +193,93 @@ public class BDBJEJournal implements Journal { // CHECKSTYLE IGNORE THIS LINE: B
         }
     }
 
+    @Override
+    public synchronized void write(JournalBatch batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // ids are allocated continuously, the first id of this batch is the key of the first journal.
+        long firstId = nextJournalId.getAndAdd(batch.size());
+        long dataSize = 0;
+        TupleBinding<Long> idBinding = TupleBinding.getPrimitiveBinding(Long.class);
+        List<DatabaseEntry> keys = Lists.newArrayListWithCapacity(batch.size());
+        List<DatabaseEntry> values = Lists.newArrayListWithCapacity(batch.size());
+        long id = firstId;
+        for (JournalBatch.Entity entity : batch.getJournalEntities()) {
+            DatabaseEntry theKey = new DatabaseEntry();
+            idBinding.objectToEntry(id++, theKey);
+            keys.add(theKey);
+            values.add(new DatabaseEntry(entity.getBinaryData(), 0, entity.getBinarySize()));
+            dataSize += entity.getBinarySize();
+        }
+        if (MetricRepo.isInit) {
+            MetricRepo.COUNTER_EDIT_LOG_SIZE_BYTES.increase(dataSize);
+            MetricRepo.COUNTER_CURRENT_EDIT_LOG_SIZE_BYTES.increase(dataSize);
+        }
+        LOG.debug("journal batch size = {}, data size = {}", batch.size(), dataSize);
+
+        // Write all the key value pairs in one transaction, so that only one sync is needed for the whole batch.
+        boolean writeSucceed = false;
+        for (int i = 0; i < RETRY_TIME; i++) {
+            Transaction txn = null;
+            try {
+                txn = bdbEnvironment.getReplicatedEnvironment().beginTransaction(null, null);
+                boolean putSucceed = true;
+                for (int j = 0; j < keys.size(); j++) {
+                    if (currentJournalDB.put(txn, keys.get(j), values.get(j)) != OperationStatus.SUCCESS) {
+                        putSucceed = false;
+                        break;
+                    }
+                }
+                if (putSucceed) {
+                    txn.commit();
+                    txn = null;
+                    writeSucceed = true;
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("master write journal {} to {} finished. db name {}, current time {}",
+                                firstId, id - 1, currentJournalDB.getDatabaseName(), System.currentTimeMillis());
+                    }
+                    break;
+                }
+            } catch (DatabaseException e) {
+                LOG.error("catch an exception when writing to database. sleep and retry. journal id {} to {}",
+                        firstId, id - 1, e);
+                try {
+                    Thread.sleep(5 * 1000);
+                } catch (InterruptedException e1) {
+                    LOG.warn("", e1);
+                }
+            } finally {
+                if (txn != null) {
+                    abortQuietly(txn);
+                }
+            }
+        }
+
+        if (!writeSucceed) {
+            if (batch.isTimestampOnly()) {
+                // Same as write(short, Writable), do not exit if only OP_TIMESTAMP is written.
+                nextJournalId.set(firstId);
+                LOG.warn("master can not achieve quorum. write timestamp fail. but will not exit.");
+                return;
+            }
+            String msg = "write bdb failed. will exit. journalId: " + firstId + " to " + (id - 1)
+                    + ", bdb database Name: " + currentJournalDB.getDatabaseName();
+            LOG.error(msg);
+            Util.stdoutWithTime(msg);
+            System.exit(-1);
+        }
+    }
+
+    private void abortQuietly(Transaction txn) {
+        try {
+            txn.abort();
+        } catch (DatabaseException e) {
+            LOG.warn("failed to abort journal transaction", e);
+        }
+    }
+
     @Override
     public JournalEntity read(long journalId) {
         List<Long> dbNames = getDatabaseNames();
@@ -19,6 +19,7 @@ package org.apache.doris.journal.local;
 
 import org.apache.doris.common.io.Writable;
 import org.apache.doris.journal.Journal;
+import org.apache.doris.journal.JournalBatch;
 import org.apache.doris.journal.JournalCursor;
 import org.apache.doris.journal.JournalEntity;
 import org.apache.doris.persist.EditLogFileOutputStream;
@@ -147,6 +148,16 @@ public class LocalJournal implements Journal {
         journalId.incrementAndGet();
     }
 
+    @Override
+    public synchronized void write(JournalBatch batch) throws IOException {
+        for (JournalBatch.Entity entity : batch.getJournalEntities()) {
+            outputStream.write(entity.getOpCode(), entity.getData());
+            journalId.incrementAndGet();
+        }
+        outputStream.setReadyToFlush();
+        outputStream.flush();
+    }
+
     @Override
     public void deleteJournals(long deleteJournalToId) {
         try {
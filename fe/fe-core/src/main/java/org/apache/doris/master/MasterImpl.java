@@ -481,6 +481,8 @@ public class MasterImpl {
         PublishVersionTask publishVersionTask = (PublishVersionTask) task;
         publishVersionTask.addErrorTablets(errorTabletIds);
         publishVersionTask.setIsFinished(true);
+        // try to finish the transaction right now instead of waiting for the next round
+        Env.getCurrentEnv().getPublishVersionDaemon().wakeUp();
 
         if (request.getTaskStatus().getStatusCode() != TStatusCode.OK) {
             // not remove the task from queue and be will retry
@@ -43,6 +43,7 @@ import org.apache.doris.common.util.Daemon;
 import org.apache.doris.common.util.TimeUtils;
 import org.apache.doris.cooldown.CooldownConf;
 import org.apache.doris.metric.GaugeMetric;
+import org.apache.doris.metric.MetricLabel;
 import org.apache.doris.metric.Metric.MetricUnit;
 import org.apache.doris.metric.MetricRepo;
 import org.apache.doris.persist.BackendReplicasInfo;
@@ -82,11 +83,12 @@ import org.apache.doris.thrift.TTablet;
 import org.apache.doris.thrift.TTabletInfo;
 import org.apache.doris.thrift.TTaskType;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.Triple;
@@ -101,29 +103,84 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-public class ReportHandler extends Daemon {
+/*
+ * Reports are handled by a group of workers. Reports of one backend are always handled by the same worker,
+ * so they are handled in order. In each worker, task reports are handled before disk reports,
+ * and disk reports are handled before tablet reports, so they will not wait for a slow tablet report.
+ */
+public class ReportHandler {
     private static final Logger LOG = LogManager.getLogger(ReportHandler.class);
 
-    private BlockingQueue<ReportTask> reportQueue = Queues.newLinkedBlockingQueue();
+    private final ReportWorker[] workers;
 
-    private enum ReportType {
-        UNKNOWN,
+    // report type -> number of report tasks waiting in the queues of workers
+    private final Map<ReportType, AtomicInteger> queueSizes = Maps.newEnumMap(ReportType.class);
+    // report type -> latency of handling the report task
+    private final Map<ReportType, Histogram> latencyHistos = Maps.newEnumMap(ReportType.class);
+    // to keep the order of report tasks with the same priority
+    private final AtomicLong reportTaskSeq = new AtomicLong(0);
+
+    // backend id -> state of the tablet reports of this backend, used to check delta tablet reports.
+    private Map<Long, TabletReportState> tabletReportStates = Maps.newConcurrentMap();
+
+    // the declaring order is also the priority of handling, the former is higher.
+    enum ReportType {
         TASK,
         DISK,
         TABLET
     }
 
     public ReportHandler() {
+        int workerNum = Math.max(1, Config.report_worker_num);
+        workers = new ReportWorker[workerNum];
+        for (int i = 0; i < workerNum; i++) {
+            workers[i] = new ReportWorker("report-worker-" + i);
+        }
+
         GaugeMetric<Long> gauge = new GaugeMetric<Long>(
                 "report_queue_size", MetricUnit.NOUNIT, "report queue size") {
             @Override
             public Long getValue() {
-                return (long) reportQueue.size();
+                return (long) getQueueSize();
             }
         };
         MetricRepo.DORIS_METRIC_REGISTER.addMetrics(gauge);
+
+        for (ReportType type : ReportType.values()) {
+            AtomicInteger queueSize = new AtomicInteger(0);
+            queueSizes.put(type, queueSize);
+            GaugeMetric<Long> typeGauge = new GaugeMetric<Long>(
+                    "report_task_queue_size", MetricUnit.NOUNIT, "report queue size of each report type") {
+                @Override
+                public Long getValue() {
+                    return (long) queueSize.get();
+                }
+            };
+            typeGauge.addLabel(new MetricLabel("type", type.name()));
+            MetricRepo.DORIS_METRIC_REGISTER.addMetrics(typeGauge);
+
+            latencyHistos.put(type, MetricRepo.METRIC_REGISTER.histogram(
+                    MetricRegistry.name("report", type.name().toLowerCase(), "latency", "ms")));
+        }
+    }
+
+    public void start() {
+        for (ReportWorker worker : workers) {
+            worker.start();
+        }
+    }
+
+    private int getQueueSize() {
+        int size = 0;
+        for (AtomicInteger queueSize : queueSizes.values()) {
+            size += queueSize.get();
+        }
+        return size;
     }
 
     public TMasterResult handleReport(TReportRequest request) throws TException {
@@ -148,62 +205,164 @@ public class ReportHandler extends Daemon {
         Map<TTaskType, Set<Long>> tasks = null;
         Map<String, TDisk> disks = null;
         Map<Long, TTablet> tablets = null;
+        List<Long> deletedTablets = null;
         long reportVersion = -1;
-
-        ReportType reportType = ReportType.UNKNOWN;
+        TabletReportState tabletReportState = null;
 
         if (request.isSetTasks()) {
             tasks = request.getTasks();
-            reportType = ReportType.TASK;
         }
 
         if (request.isSetDisks()) {
             disks = request.getDisks();
-            reportType = ReportType.DISK;
         }
 
         if (request.isSetTablets()) {
             tablets = request.getTablets();
             reportVersion = request.getReportVersion();
-            reportType = ReportType.TABLET;
         } else if (request.isSetTabletList()) {
             // the 'tablets' member will be deprecated in future.
             tablets = buildTabletMap(request.getTabletList());
             reportVersion = request.getReportVersion();
-            reportType = ReportType.TABLET;
+        }
+
+        if (tablets != null && request.isSetIsDeltaReport() && request.isIsDeltaReport()) {
+            tabletReportState = acceptDeltaTabletReport(beId, request.getBaseReportVersion(), reportVersion);
+            if (tabletReportState != null) {
+                deletedTablets = request.isSetDeletedTablets() ? request.getDeletedTablets() : Lists.newArrayList();
+            } else {
+                // discard the tablets, but other parts of this report are still handled.
+                LOG.info("reject delta tablet report from be {}. base report version: {}, ask for full report",
+                        beId, request.getBaseReportVersion());
+                tablets = null;
+                result.setNeedFullTabletReport(true);
+            }
+        } else if (tablets != null) {
+            tabletReportState = acceptFullTabletReport(beId, reportVersion);
         }
 
         if (request.isSetTabletMaxCompactionScore()) {
             backend.setTabletMaxCompactionScore(request.getTabletMaxCompactionScore());
         }
 
-        ReportTask reportTask = new ReportTask(beId, tasks, disks, tablets, reportVersion,
-                request.getStoragePolicy(), request.getResource());
+        // split the report by report type, so that each part can be handled with its own priority.
+        List<ReportTask> reportTasks = Lists.newArrayList();
+        if (tasks != null) {
+            reportTasks.add(new ReportTask(ReportType.TASK, beId, tasks, null, null, null, -1, null, null, null));
+        }
+        if (disks != null) {
+            reportTasks.add(new ReportTask(ReportType.DISK, beId, null, disks, null, null, -1, null, null, null));
+        }
+        if (tablets != null || (request.isSetStoragePolicy() && request.isSetResource())) {
+            reportTasks.add(new ReportTask(ReportType.TABLET, beId, null, null, tablets, deletedTablets,
+                    reportVersion, tabletReportState, request.getStoragePolicy(), request.getResource()));
+        }
         try {
-            putToQueue(reportTask);
+            putToQueue(reportTasks);
         } catch (Exception e) {
             tStatus.setStatusCode(TStatusCode.INTERNAL_ERROR);
             List<String> errorMsgs = Lists.newArrayList();
-            errorMsgs.add("failed to put report task to queue. queue size: " + reportQueue.size());
+            errorMsgs.add("failed to put report task to queue. queue size: " + getQueueSize());
             errorMsgs.add("err: " + e.getMessage());
             tStatus.setErrorMsgs(errorMsgs);
+            if (tabletReportState != null) {
+                // the tablet report is discarded, the next delta report can not be based on it.
+                invalidateTabletReportState(beId, tabletReportState);
+            }
             return result;
         }
 
-        LOG.info("receive report from be {}. type: {}, current queue size: {}",
-                backend.getId(), reportType, reportQueue.size());
+        LOG.info("receive report from be {}. type: {}, delta: {}, current queue size: {}",
+                backend.getId(), reportTasks.stream().map(t -> t.type).collect(Collectors.toList()),
+                deletedTablets != null, getQueueSize());
         return result;
     }
 
-    private void putToQueue(ReportTask reportTask) throws Exception {
-        int currentSize = reportQueue.size();
+    /*
+     * A delta tablet report is accepted only if it is based on the last accepted tablet report of the backend,
+     * the full tablet report it is based on has been applied, and the full report is not too old.
+     * Otherwise the backend should send a full tablet report.
+     * Return the state the report is accepted into, or null if it is rejected.
+     */
+    private TabletReportState acceptDeltaTabletReport(long beId, long baseReportVersion, long reportVersion) {
+        if (!Config.enable_delta_tablet_report) {
+            return null;
+        }
+        TabletReportState state = tabletReportStates.get(beId);
+        if (state == null) {
+            // FE restarted or master changed, or the last tablet report was discarded or skipped.
+            return null;
+        }
+        synchronized (state) {
+            if (state.invalid || !state.fullReportApplied || state.acceptedReportVersion != baseReportVersion) {
+                return null;
+            }
+            if (System.currentTimeMillis() - state.lastFullReportTime
+                    > Config.tablet_full_report_interval_second * 1000L) {
+                return null;
+            }
+            state.acceptedReportVersion = reportVersion;
+            return state;
+        }
+    }
+
+    private TabletReportState acceptFullTabletReport(long beId, long reportVersion) {
+        TabletReportState state = new TabletReportState();
+        state.acceptedReportVersion = reportVersion;
+        state.lastFullReportTime = System.currentTimeMillis();
+        tabletReportStates.put(beId, state);
+        return state;
+    }
+
+    // The reports accepted into the state after the invalid one are skipped, and the next delta report of
+    // the backend is rejected. The state of a newer full report is kept.
+    private void invalidateTabletReportState(long beId, TabletReportState state) {
+        synchronized (state) {
+            state.invalid = true;
+        }
+        tabletReportStates.remove(beId, state);
+    }
+
+    /*
+     * The state of a full tablet report and the delta tablet reports based on it.
+     */
+    private static class TabletReportState {
+        // the report version of the last tablet report accepted by FE
+        private long acceptedReportVersion;
+        private long lastFullReportTime;
+        // set when the full report is applied, delta reports are only accepted after that
+        private volatile boolean fullReportApplied = false;
+        // set when one of the reports is discarded or skipped, the reports after it can not be applied
+        private volatile boolean invalid = false;
+    }
+
+    private void putToQueue(List<ReportTask> reportTasks) throws Exception {
+        int currentSize = getQueueSize();
         if (currentSize > Config.report_queue_size) {
             LOG.warn("the report queue size exceeds the limit: {}. current: {}", Config.report_queue_size, currentSize);
             throw new Exception(
                     "the report queue size exceeds the limit: "
                             + Config.report_queue_size + ". current: " + currentSize);
         }
-        reportQueue.put(reportTask);
+        for (ReportTask reportTask : reportTasks) {
+            queueSizes.get(reportTask.type).incrementAndGet();
+            getWorker(reportTask.beId).queue.put(reportTask);
+        }
+    }
+
+    private ReportWorker getWorker(long beId) {
+        return workers[(int) Math.floorMod(beId, (long) workers.length)];
+    }
+
+    // for test, take the report tasks from the queue of the worker of the backend, in the order they are handled
+    List<ReportTask> pollReportTasks(long beId) {
+        List<ReportTask> reportTasks = Lists.newArrayList();
+        ReportTask reportTask;
+        while ((reportTask = getWorker(beId).queue.poll()) != null) {
+            queueSizes.get(reportTask.type).decrementAndGet();
+            reportTasks.add(reportTask);
+        }
+        return reportTasks;
     }
 
     private Map<Long, TTablet> buildTabletMap(List<TTablet> tabletList) {
@@ -218,30 +377,53 @@ public class ReportHandler extends Daemon {
         return tabletMap;
     }
 
-    private class ReportTask extends MasterTask {
+    class ReportTask extends MasterTask implements Comparable<ReportTask> {
 
+        private ReportType type;
+        private long seq;
         private long beId;
         private Map<TTaskType, Set<Long>> tasks;
         private Map<String, TDisk> disks;
         private Map<Long, TTablet> tablets;
+        // not null if this is a delta tablet report
+        private List<Long> deletedTablets;
         private long reportVersion;
+        // the state the tablet report is accepted into, not null if tablets is not null
+        private TabletReportState tabletReportState;
 
         private List<TStoragePolicy> storagePolicies;
         private List<TStorageResource> storageResources;
 
-        public ReportTask(long beId, Map<TTaskType, Set<Long>> tasks,
+        public ReportTask(ReportType type, long beId, Map<TTaskType, Set<Long>> tasks,
                           Map<String, TDisk> disks,
-                          Map<Long, TTablet> tablets, long reportVersion,
+                          Map<Long, TTablet> tablets, List<Long> deletedTablets, long reportVersion,
+                          TabletReportState tabletReportState,
                           List<TStoragePolicy> storagePolicies, List<TStorageResource> storageResources) {
+            this.type = type;
+            this.seq = reportTaskSeq.getAndIncrement();
             this.beId = beId;
             this.tasks = tasks;
             this.disks = disks;
             this.tablets = tablets;
+            this.deletedTablets = deletedTablets;
             this.reportVersion = reportVersion;
+            this.tabletReportState = tabletReportState;
             this.storagePolicies = storagePolicies;
             this.storageResources = storageResources;
         }
 
+        ReportType getType() {
+            return type;
+        }
+
+        long getBeId() {
+            return beId;
+        }
+
+        long getReportVersion() {
+            return reportVersion;
+        }
+
         @Override
         protected void exec() {
             if (tasks != null) {
@@ -256,14 +438,35 @@ public class ReportHandler extends Daemon {
 
             if (tablets != null) {
                 long backendReportVersion = Env.getCurrentSystemInfo().getBackendReportVersion(beId);
-                if (reportVersion < backendReportVersion) {
+                if (tabletReportState.invalid) {
+                    LOG.warn("skip tablet report of version {} from backend[{}], a report it is based on is skipped",
+                            reportVersion, beId);
+                } else if (reportVersion < backendReportVersion) {
                     LOG.warn("out of date report version {} from backend[{}]. current report version[{}]",
                             reportVersion, beId, backendReportVersion);
+                    // the following delta reports are based on a skipped report, so they can not be applied.
+                    invalidateTabletReportState(beId, tabletReportState);
                 } else {
-                    ReportHandler.tabletReport(beId, tablets, reportVersion);
+                    boolean applied = false;
+                    try {
+                        ReportHandler.tabletReport(beId, tablets, deletedTablets, reportVersion);
+                        applied = true;
+                    } finally {
+                        if (!applied) {
+                            invalidateTabletReportState(beId, tabletReportState);
+                        } else if (deletedTablets == null) {
+                            tabletReportState.fullReportApplied = true;
+                        }
+                    }
                 }
             }
         }
+
+        @Override
+        public int compareTo(ReportTask other) {
+            int cmp = Integer.compare(type.ordinal(), other.type.ordinal());
+            return cmp != 0 ? cmp : Long.compare(seq, other.seq);
+        }
     }
 
     private static void handlePushCooldownConf(long backendId, List<CooldownConf> cooldownConfToPush) {
@@ -393,10 +596,17 @@ public class ReportHandler extends Daemon {
         }
     }
 
-    private static void tabletReport(long backendId, Map<Long, TTablet> backendTablets, long backendReportVersion) {
+    /*
+     * If deletedTablets is not null, this is a delta tablet report. backendTablets only contains the tablets
+     * changed since the last accepted report, and deletedTablets contains the tablets dropped on the backend.
+     * So only these tablets are diffed with the meta, instead of all the replicas on this backend.
+     */
+    static void tabletReport(long backendId, Map<Long, TTablet> backendTablets, List<Long> deletedTablets,
+            long backendReportVersion) {
         long start = System.currentTimeMillis();
-        LOG.info("backend[{}] reports {} tablet(s). report version: {}",
-                backendId, backendTablets.size(), backendReportVersion);
+        LOG.info("backend[{}] reports {} tablet(s). delta: {}, deleted: {}, report version: {}",
+                backendId, backendTablets.size(), deletedTablets != null,
+                deletedTablets == null ? 0 : deletedTablets.size(), backendReportVersion);
 
         // storage medium map
         HashMap<Long, TStorageMedium> storageMediumMap = Config.disable_storage_medium_check
@@ -424,7 +634,7 @@ public class ReportHandler extends Daemon {
         List<CooldownConf> cooldownConfToUpdate = new LinkedList<>();
 
         // 1. do the diff. find out (intersection) / (be - meta) / (meta - be)
-        Env.getCurrentInvertedIndex().tabletReport(backendId, backendTablets, storageMediumMap,
+        Env.getCurrentInvertedIndex().tabletReport(backendId, backendTablets, deletedTablets, storageMediumMap,
                 tabletSyncMap,
                 tabletDeleteFromMeta,
                 tabletFoundInMeta,
@@ -1219,15 +1429,28 @@ public class ReportHandler extends Daemon {
         }
     }
 
-    @Override
-    protected void runOneCycle() {
-        while (true) {
-            ReportTask task = null;
-            try {
-                task = reportQueue.take();
-                task.exec();
-            } catch (InterruptedException e) {
-                LOG.warn("got interupted exception when executing report", e);
+    private class ReportWorker extends Daemon {
+        private final BlockingQueue<ReportTask> queue = new PriorityBlockingQueue<>();
+
+        ReportWorker(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void runOneCycle() {
+            while (true) {
+                ReportTask task = null;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    LOG.warn("got interupted exception when executing report", e);
+                    continue;
+                }
+                queueSizes.get(task.type).decrementAndGet();
+                long start = System.currentTimeMillis();
+                // exceptions are caught in run()
+                task.run();
+                latencyHistos.get(task.type).update(System.currentTimeMillis() - start);
             }
         }
     }
@@ -72,4 +72,12 @@ public class DorisMetricRegistry {
             metrics = metrics.stream().filter(m -> !(m.getName().equals(name))).collect(Collectors.toList());
         }
     }
+
+    // remove the given metrics only, other metrics of the same name are kept
+    public synchronized void removeMetrics(Collection<? extends Metric> toRemove) {
+        // Same reason as comment in addMetrics()
+        if (!Env.isCheckpointThread()) {
+            metrics.removeAll(toRemove);
+        }
+    }
 }
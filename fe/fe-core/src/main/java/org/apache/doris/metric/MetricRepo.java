@@ -78,6 +78,8 @@ public final class MetricRepo {
     public static AutoMappedMetric<LongCounterMetric> BE_COUNTER_QUERY_RPC_ALL;
     public static AutoMappedMetric<LongCounterMetric> BE_COUNTER_QUERY_RPC_FAILED;
     public static AutoMappedMetric<LongCounterMetric> BE_COUNTER_QUERY_RPC_SIZE;
+    public static AutoMappedMetric<GaugeMetricImpl<Long>> PLUGIN_GAUGE_AUDIT_EVENT_PENDING;
+    public static AutoMappedMetric<LongCounterMetric> PLUGIN_COUNTER_AUDIT_EVENT_DROPPED;
 
     public static LongCounterMetric COUNTER_CACHE_ADDED_SQL;
     public static LongCounterMetric COUNTER_CACHE_ADDED_PARTITION;
@@ -92,6 +94,8 @@ public final class MetricRepo {
     public static LongCounterMetric COUNTER_EDIT_LOG_CLEAN_SUCCESS;
     public static LongCounterMetric COUNTER_EDIT_LOG_CLEAN_FAILED;
     public static Histogram HISTO_EDIT_LOG_WRITE_LATENCY;
+    public static Histogram HISTO_EDIT_LOG_GROUP_COMMIT_BATCH_SIZE;
+    public static Histogram HISTO_EDIT_LOG_GROUP_COMMIT_LATENCY;
 
     public static LongCounterMetric COUNTER_IMAGE_WRITE_SUCCESS;
     public static LongCounterMetric COUNTER_IMAGE_WRITE_FAILED;
@@ -106,6 +110,7 @@ public final class MetricRepo {
     public static LongCounterMetric COUNTER_TXN_SUCCESS;
     public static Histogram HISTO_TXN_EXEC_LATENCY;
     public static Histogram HISTO_TXN_PUBLISH_LATENCY;
+    public static Histogram HISTO_TXN_VISIBLE_LATENCY;
     public static AutoMappedMetric<GaugeMetricImpl<Long>> DB_GAUGE_TXN_NUM;
     public static AutoMappedMetric<GaugeMetricImpl<Long>> DB_GAUGE_PUBLISH_TXN_NUM;
     public static AutoMappedMetric<GaugeMetricImpl<Long>> DB_GAUGE_TXN_REPLICA_NUM;
@@ -320,6 +325,28 @@ public final class MetricRepo {
         BE_COUNTER_QUERY_RPC_SIZE = addLabeledMetrics("be", () ->
             new LongCounterMetric("query_rpc_size", MetricUnit.BYTES, ""));
 
+        // audit
+        PLUGIN_GAUGE_AUDIT_EVENT_PENDING = addLabeledMetrics("plugin", () ->
+                new GaugeMetricImpl<>("audit_event_pending", MetricUnit.NOUNIT,
+                "number of audit events waiting to be delivered to the audit plugin"));
+        GaugeMetric<Long> auditEventPending = new GaugeMetric<Long>("audit_event_pending",
+                MetricUnit.NOUNIT, "number of audit events waiting to be delivered to all audit plugins") {
+            @Override
+            public Long getValue() {
+                long totalPendingNum = 0;
+                for (Map.Entry<String, Long> e : Env.getCurrentAuditEventProcessor().getPendingEventNums().entrySet()) {
+                    totalPendingNum += e.getValue();
+                    PLUGIN_GAUGE_AUDIT_EVENT_PENDING.getOrAdd(e.getKey()).setValue(e.getValue());
+                }
+                return totalPendingNum;
+            }
+        };
+        DORIS_METRIC_REGISTER.addMetrics(auditEventPending);
+        PLUGIN_COUNTER_AUDIT_EVENT_DROPPED = addLabeledMetrics("plugin", () ->
+                new LongCounterMetric("audit_event_dropped", MetricUnit.NOUNIT,
+                "number of audit events dropped because the queue of the audit plugin is full"
+                        + " or the plugin is removed"));
+
         // cache
         COUNTER_CACHE_ADDED_SQL = new LongCounterMetric("cache_added", MetricUnit.REQUESTS,
                 "Number of SQL mode cache added");
@@ -361,6 +388,10 @@ public final class MetricRepo {
         DORIS_METRIC_REGISTER.addMetrics(COUNTER_CURRENT_EDIT_LOG_SIZE_BYTES);
         HISTO_EDIT_LOG_WRITE_LATENCY = METRIC_REGISTER.histogram(
             MetricRegistry.name("editlog", "write", "latency", "ms"));
+        HISTO_EDIT_LOG_GROUP_COMMIT_BATCH_SIZE = METRIC_REGISTER.histogram(
+            MetricRegistry.name("editlog", "group_commit", "batch_size"));
+        HISTO_EDIT_LOG_GROUP_COMMIT_LATENCY = METRIC_REGISTER.histogram(
+            MetricRegistry.name("editlog", "group_commit", "latency", "ms"));
 
         // edit log clean
         COUNTER_EDIT_LOG_CLEAN_SUCCESS = new LongCounterMetric("edit_log_clean", MetricUnit.OPERATIONS,
@@ -422,6 +453,8 @@ public final class MetricRepo {
             MetricRegistry.name("txn", "exec", "latency", "ms"));
         HISTO_TXN_PUBLISH_LATENCY = METRIC_REGISTER.histogram(
             MetricRegistry.name("txn", "publish", "latency", "ms"));
+        HISTO_TXN_VISIBLE_LATENCY = METRIC_REGISTER.histogram(
+            MetricRegistry.name("txn", "visible", "latency", "ms"));
         GaugeMetric<Long> txnNum = new GaugeMetric<Long>("txn_num", MetricUnit.NOUNIT,
                 "number of running transactions") {
             @Override
@@ -0,0 +1,76 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.mysql;
+
+import org.apache.doris.common.Config;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct buffers shared by all mysql channels.
+ * A channel borrows a buffer when it starts to send a response, and releases it after the response is flushed,
+ * so that idle connections do not hold a send buffer, and sending to socket needs no heap to native copy.
+ */
+public class MysqlBufferPool {
+    private static final MysqlBufferPool SEND_BUFFER_POOL = new MysqlBufferPool(Config.mysql_send_buffer_size);
+
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleNum = new AtomicInteger(0);
+
+    public MysqlBufferPool(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public static MysqlBufferPool getSendBufferPool() {
+        return SEND_BUFFER_POOL;
+    }
+
+    public ByteBuffer borrow() {
+        ByteBuffer buffer = idleBuffers.poll();
+        if (buffer != null) {
+            idleNum.decrementAndGet();
+            buffer.clear();
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (idleNum.incrementAndGet() > Config.mysql_send_buffer_pool_max_idle_num) {
+            // too many idle buffers, let gc free it.
+            idleNum.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        idleBuffers.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getIdleNum() {
+        return idleNum.get();
+    }
+}
@@ -59,6 +59,7 @@ public class MysqlChannel {
     protected ByteBuffer sslHeaderByteBuffer;
     protected ByteBuffer tempBuffer;
     protected ByteBuffer remainingBuffer;
+    // borrowed from the send buffer pool when sending data, and released after flush.
     protected ByteBuffer sendBuffer;
 
     protected ByteBuffer decryptAppData;
@@ -99,7 +100,6 @@ public class MysqlChannel {
         this.serializer = MysqlSerializer.newInstance();
         this.defaultBuffer = ByteBuffer.allocate(16 * 1024);
         this.headerByteBuffer = ByteBuffer.allocate(PACKET_HEADER_LEN);
-        this.sendBuffer = ByteBuffer.allocate(2 * 1024 * 1024);
     }
 
     public void initSslBuffer() {
@@ -165,6 +165,8 @@ public class MysqlChannel {
         } catch (IOException e) {
             LOG.warn("Close channel exception, ignore.");
         }
+        // NOTE: the send buffer is not released here, because close() may be called by other threads
+        // (eg. kill connection) while the send buffer is still in use.
     }
 
     // all packet header is not encrypted, packet body is not sure.
@@ -349,6 +351,21 @@ public class MysqlChannel {
         return result;
     }
 
+    // send multiple buffers with one gathering write, only used when not in ssl mode.
+    protected void realNetSend(ByteBuffer[] buffers) throws IOException {
+        long bufLen = 0;
+        for (ByteBuffer buffer : buffers) {
+            bufLen += buffer.remaining();
+        }
+        long writeLen = Channels.writeBlocking(conn.getSinkChannel(), buffers, 0, buffers.length);
+        if (bufLen != writeLen) {
+            throw new IOException("Write mysql packet failed.[write=" + writeLen
+                    + ", needToWrite=" + bufLen + "]");
+        }
+        Channels.flushBlocking(conn.getSinkChannel());
+        isSend = true;
+    }
+
     protected void realNetSend(ByteBuffer buffer) throws IOException {
         encryptData(buffer);
         long bufLen = buffer.remaining();
@@ -378,7 +395,17 @@ public class MysqlChannel {
         dstBuf.flip();
     }
 
+    // Send the buffered data and return the send buffer to the pool.
     public void flush() throws IOException {
+        try {
+            flushSendBuffer();
+        } finally {
+            releaseSendBuffer();
+        }
+    }
+
+    // Send the buffered data, but keep the send buffer for the following data.
+    private void flushSendBuffer() throws IOException {
         if (null == sendBuffer || sendBuffer.position() == 0) {
             // Nothing to send
             return;
@@ -389,13 +416,24 @@ public class MysqlChannel {
         isSend = true;
     }
 
-    private void writeHeader(int length, boolean isSsl) throws IOException {
+    private void ensureSendBuffer() {
         if (null == sendBuffer) {
-            return;
+            sendBuffer = MysqlBufferPool.getSendBufferPool().borrow();
         }
+    }
+
+    private void releaseSendBuffer() {
+        if (null != sendBuffer) {
+            MysqlBufferPool.getSendBufferPool().release(sendBuffer);
+            sendBuffer = null;
+        }
+    }
+
+    private void writeHeader(int length, boolean isSsl) throws IOException {
+        ensureSendBuffer();
         long leftLength = sendBuffer.capacity() - sendBuffer.position();
         if (leftLength < 4) {
-            flush();
+            flushSendBuffer();
         }
 
         long newLen = length;
@@ -407,14 +445,19 @@ public class MysqlChannel {
     }
 
     private void writeBuffer(ByteBuffer buffer, boolean isSsl) throws IOException {
-        if (null == sendBuffer) {
-            return;
-        }
+        ensureSendBuffer();
         long leftLength = sendBuffer.capacity() - sendBuffer.position();
         // If too long for buffer, send buffered data.
         if (leftLength < buffer.remaining()) {
+            if (!isSslMode && buffer.remaining() > sendBuffer.capacity()) {
+                // Send buffered data and this large buffer together, without copying it into send buffer.
+                sendBuffer.flip();
+                realNetSend(new ByteBuffer[] {sendBuffer, buffer});
+                sendBuffer.clear();
+                return;
+            }
             // Flush data in buffer.
-            flush();
+            flushSendBuffer();
         }
         // Send this buffer if large enough
         if (buffer.remaining() > sendBuffer.capacity()) {
@@ -460,9 +503,7 @@ public class MysqlChannel {
     // Call this function before send query before
     public void reset() {
         isSend = false;
-        if (null != sendBuffer) {
-            sendBuffer.clear();
-        }
+        releaseSendBuffer();
     }
 
     public boolean isSend() {
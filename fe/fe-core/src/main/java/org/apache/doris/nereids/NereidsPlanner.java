@@ -121,6 +121,8 @@ public class NereidsPlanner extends Planner {
         ArrayList<String> columnLabelList = physicalPlan.getOutput().stream().map(NamedExpression::getName)
                 .collect(Collectors.toCollection(ArrayList::new));
         logicalPlanAdapter.setColLabels(columnLabelList);
+        // the search space is useless after translation, release it for the rest lifetime of the query
+        cascadesContext.getMemo().release();
     }
 
     @VisibleForTesting
@@ -179,7 +181,14 @@ public class NereidsPlanner extends Planner {
 
             deriveStats();
 
+            long optimizeStartTime = System.currentTimeMillis();
             optimize();
+            if (LOG.isDebugEnabled()) {
+                Memo memo = cascadesContext.getMemo();
+                LOG.debug("optimize cost {} ms, memo has {} groups and {} group expressions",
+                        System.currentTimeMillis() - optimizeStartTime, memo.getGroups().size(),
+                        memo.getGroupExpressionsSize());
+            }
 
             //print memo before choose plan.
             //if chooseNthPlan failed, we could get memo to debug
@@ -22,6 +22,7 @@ import org.apache.doris.nereids.jobs.JobContext;
 import org.apache.doris.nereids.jobs.JobType;
 import org.apache.doris.nereids.memo.GroupExpression;
 import org.apache.doris.nereids.rules.Rule;
+import org.apache.doris.qe.SessionVariable;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -43,8 +44,9 @@ public class OptimizeGroupExpressionJob extends Job {
         countJobExecutionTimesOfGroupExpressions(groupExpression);
         List<Rule> validRules = new ArrayList<>();
         List<Rule> implementationRules = getRuleSet().getImplementationRules();
-        boolean isDisableJoinReorder = context.getCascadesContext().getConnectContext().getSessionVariable()
-                .isDisableJoinReorder();
+        SessionVariable sessionVariable = context.getCascadesContext().getConnectContext().getSessionVariable();
+        boolean isDisableJoinReorder = sessionVariable.isDisableJoinReorder()
+                || isMemoOverBudget(sessionVariable.getMemoMaxGroupExpressionSize());
         List<Rule> explorationRules = isDisableJoinReorder ? getRuleSet().getExplorationRulesWithoutReorder()
                 : getRuleSet().getExplorationRules();
 
@@ -56,4 +58,12 @@ public class OptimizeGroupExpressionJob extends Job {
             pushJob(new ApplyRuleJob(groupExpression, rule, context));
         }
     }
+
+    /**
+     * When the memo grows beyond the budget, stop exploring join orders, so that the remaining groups keep
+     * the join order generated by ReorderJoin in rewrite stage, instead of planning for a long time.
+     */
+    private boolean isMemoOverBudget(int budget) {
+        return budget > 0 && context.getCascadesContext().getMemo().getGroupExpressionsSize() > budget;
+    }
 }
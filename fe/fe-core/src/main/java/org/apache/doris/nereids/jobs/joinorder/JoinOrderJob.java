@@ -35,6 +35,8 @@ import org.apache.doris.nereids.trees.plans.Plan;
 import org.apache.doris.nereids.trees.plans.logical.LogicalProject;
 
 import com.google.common.collect.Lists;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -44,6 +46,10 @@ import java.util.Set;
  * Join Order job with DPHyp
  */
 public class JoinOrderJob extends Job {
+    private static final Logger LOG = LogManager.getLogger(JoinOrderJob.class);
+    // TODO: Right now, we just hardcode the limit with 1000, maybe we need a better way to set it
+    private static final int DPHYP_LIMIT = 1000;
+
     private final Group group;
     private final Set<NamedExpression> otherProject = new HashSet<>();
 
@@ -78,10 +84,14 @@ public class JoinOrderJob extends Job {
     }
 
     private Group optimizeJoin(Group group) {
+        int limit = getLimit();
+        if (limit <= 0) {
+            // keep the join order generated in rewrite stage
+            LOG.debug("memo is over budget, skip DPHyp and keep the original join order of {}", group.getGroupId());
+            return group;
+        }
         HyperGraph hyperGraph = new HyperGraph();
         buildGraph(group, hyperGraph);
-        // TODO: Right now, we just hardcode the limit with 10000, maybe we need a better way to set it
-        int limit = 1000;
         PlanReceiver planReceiver = new PlanReceiver(this.context, limit, hyperGraph,
                 group.getLogicalProperties().getOutputSet());
         SubgraphEnumerator subgraphEnumerator = new SubgraphEnumerator(planReceiver, hyperGraph);
@@ -89,7 +99,10 @@ public class JoinOrderJob extends Job {
             GraphSimplifier graphSimplifier = new GraphSimplifier(hyperGraph);
             graphSimplifier.simplifyGraph(limit);
             if (!subgraphEnumerator.enumerate()) {
-                throw new RuntimeException("DPHyp can not enumerate all sub graphs with limit=" + limit);
+                // keep the join order generated in rewrite stage
+                LOG.warn("DPHyp can not enumerate all sub graphs with limit={}, keep the original join order of {}",
+                        limit, group.getGroupId());
+                return group;
             }
         }
         Group optimized = planReceiver.getBestPlan(hyperGraph.getNodesMap());
@@ -105,6 +118,19 @@ public class JoinOrderJob extends Job {
         return optimized;
     }
 
+    /**
+     * Every csg-cmp pair copies its join plans into the memo, so the pairs are also bounded by what is left
+     * of the memo budget, see SessionVariable.memoMaxGroupExpressionSize.
+     */
+    private int getLimit() {
+        int budget = context.getCascadesContext().getConnectContext().getSessionVariable()
+                .getMemoMaxGroupExpressionSize();
+        if (budget <= 0) {
+            return DPHYP_LIMIT;
+        }
+        return Math.min(DPHYP_LIMIT, budget - context.getCascadesContext().getMemo().getGroupExpressionsSize());
+    }
+
     /**
      * build a hyperGraph for the root group
      *
@@ -179,6 +179,17 @@ public class Group {
         return move;
     }
 
+    /**
+     * Drop the references to other group expressions and groups, see {@link Memo#release()}.
+     * The group id, logical properties and statistics are kept.
+     */
+    public void release() {
+        parentExpressions.clear();
+        logicalExpressions.clear();
+        physicalExpressions.clear();
+        lowestCostPlans.clear();
+    }
+
     public double getCostLowerBound() {
         return -1D;
     }
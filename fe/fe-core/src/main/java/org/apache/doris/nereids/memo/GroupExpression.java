@@ -76,6 +76,10 @@ public class GroupExpression {
 
     private ObjectId id = StatementScopeIdGenerator.newObjectId();
 
+    // plan is immutable, cache its hash code since it is a deep hash over the expressions of the plan,
+    // and it is computed every time the group expression is looked up in memo.
+    private int planHashCode;
+
     public GroupExpression(Plan plan) {
         this(plan, Lists.newArrayList());
     }
@@ -288,13 +292,23 @@ public class GroupExpression {
             return false;
         }
         GroupExpression that = (GroupExpression) o;
-        return children.equals(that.children) && plan.equals(that.plan)
+        return children.equals(that.children) && planHashCode() == that.planHashCode() && plan.equals(that.plan)
                 && plan.getLogicalProperties().equals(that.plan.getLogicalProperties());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(children, plan);
+        // same as Objects.hash(children, plan)
+        return 31 * (31 + children.hashCode()) + planHashCode();
+    }
+
+    private int planHashCode() {
+        int h = planHashCode;
+        if (h == 0) {
+            h = plan.hashCode();
+            planHashCode = h;
+        }
+        return h;
     }
 
     public Statistics childStatistics(int idx) {
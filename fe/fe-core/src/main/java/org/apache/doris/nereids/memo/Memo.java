@@ -107,6 +107,24 @@ public class Memo {
         return groupExpressions;
     }
 
+    public int getGroupExpressionsSize() {
+        return groupExpressions.size();
+    }
+
+    /**
+     * Release the search space after the best plan is chosen and translated.
+     * The chosen physical plan still references its group expressions and their owner groups,
+     * e.g. to print the group id, so the groups are emptied rather than only dropping the memo,
+     * to make all the other explored and implemented expressions collectable.
+     * The memo can not be used any more after released.
+     */
+    public void release() {
+        groups.values().forEach(Group::release);
+        groups.clear();
+        groupExpressions.clear();
+        root = null;
+    }
+
     /**
      * Add plan to Memo.
      *
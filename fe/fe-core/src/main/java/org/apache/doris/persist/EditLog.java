@@ -50,6 +50,7 @@ import org.apache.doris.datasource.InitCatalogLog;
 import org.apache.doris.datasource.InitDatabaseLog;
 import org.apache.doris.ha.MasterInfo;
 import org.apache.doris.journal.Journal;
+import org.apache.doris.journal.JournalBatch;
 import org.apache.doris.journal.JournalCursor;
 import org.apache.doris.journal.JournalEntity;
 import org.apache.doris.journal.bdbje.BDBJEJournal;
@@ -83,12 +84,15 @@ import org.apache.doris.system.Backend;
 import org.apache.doris.system.Frontend;
 import org.apache.doris.transaction.TransactionState;
 
+import com.google.common.collect.Lists;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * EditLog maintains a log of the memory modifications.
@@ -106,6 +110,12 @@ public class EditLog {
 
     private Journal journal;
 
+    // Only used when Config.enable_edit_log_group_commit is true.
+    // Journals are put into this queue by logEdit() and flushed in batch by flushThread,
+    // which is started when this FE becomes master, see startGroupCommit().
+    private BlockingQueue<EditLogItem> logEditQueue;
+    private volatile Thread flushThread;
+
     /**
      * The constructor.
      **/
@@ -118,6 +128,32 @@ public class EditLog {
         } else {
             throw new IllegalArgumentException("Unknown edit log type: " + journalType);
         }
+
+        if (Config.enable_edit_log_group_commit) {
+            logEditQueue = new LinkedBlockingQueue<>();
+        }
+    }
+
+    // for test
+    EditLog(Journal journal) {
+        this.journal = journal;
+        if (Config.enable_edit_log_group_commit) {
+            logEditQueue = new LinkedBlockingQueue<>();
+        }
+    }
+
+    /**
+     * Start the thread which flushes the journals in batch if group commit is enabled.
+     * Only master writes journals, so it is called when this FE becomes master.
+     */
+    public synchronized void startGroupCommit() {
+        if (logEditQueue == null || flushThread != null) {
+            return;
+        }
+        Thread thread = new Thread(this::flushEditLogLoop, "edit-log-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+        flushThread = thread;
     }
 
     public long getMaxJournalId() {
@@ -1053,9 +1089,23 @@ public class EditLog {
     }
 
     /**
-     * Write an operation to the edit log. Do not sync to persistent store yet.
+     * Write an operation to the edit log and sync it to the persistent store.
+     * If group commit is enabled, the operation is committed together with other concurrent operations,
+     * and this method returns after the batch which contains it is persisted.
      */
-    private synchronized void logEdit(short op, Writable writable) {
+    private void logEdit(short op, Writable writable) {
+        if (logEditQueue == null || flushThread == null) {
+            logEditDirectly(op, writable);
+            return;
+        }
+
+        EditLogItem item = new EditLogItem(op, writable);
+        // the queue is unbounded, so offer() always succeeds.
+        logEditQueue.offer(item);
+        item.waitFinished();
+    }
+
+    private synchronized void logEditDirectly(short op, Writable writable) {
         if (this.getNumEditStreams() == 0) {
             LOG.error("Fatal Error : no editLog stream", new Exception());
             throw new Error("Fatal Error : no editLog stream");
@@ -1101,6 +1151,123 @@ public class EditLog {
         }
     }
 
+    private void flushEditLogLoop() {
+        List<EditLogItem> items = Lists.newArrayList();
+        while (true) {
+            items.clear();
+            try {
+                items.add(logEditQueue.take());
+            } catch (InterruptedException e) {
+                LOG.warn("edit log flush thread is interrupted", e);
+                continue;
+            }
+            logEditQueue.drainTo(items, Math.max(Config.edit_log_group_commit_max_batch_size, 1) - 1);
+            flushEditLogBatch(items);
+        }
+    }
+
+    private void flushEditLogBatch(List<EditLogItem> items) {
+        if (this.getNumEditStreams() == 0) {
+            LOG.error("Fatal Error : no editLog stream", new Exception());
+            // Fail the queued journals instead of throwing here, so that the flush thread keeps running
+            // and the callers get the same error as in logEditDirectly().
+            Error error = new Error("Fatal Error : no editLog stream");
+            for (EditLogItem item : items) {
+                item.setFailed(error);
+            }
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            JournalBatch batch = new JournalBatch(items.size());
+            for (EditLogItem item : items) {
+                batch.addJournal(item.op, item.writable);
+            }
+            journal.write(batch);
+        } catch (Throwable t) {
+            // Throwable contains all Exception and Error, such as IOException and
+            // OutOfMemoryError
+            LOG.error("Fatal Error : write stream Exception", t);
+            System.exit(-1);
+        }
+        long end = System.currentTimeMillis();
+
+        synchronized (this) {
+            txId += items.size();
+            numTransactions += items.size();
+            totalTimeTransactions += (end - start);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("nextId = {}, numTransactions = {}, totalTimeTransactions = {}, batch size = {}", txId,
+                        numTransactions, totalTimeTransactions, items.size());
+            }
+
+            if (txId >= Config.edit_log_roll_num) {
+                LOG.info("txId {} is equal to or larger than edit_log_roll_num {}, will roll edit.", txId,
+                        Config.edit_log_roll_num);
+                rollEditLog();
+                txId = 0;
+            }
+        }
+
+        if (MetricRepo.isInit) {
+            MetricRepo.HISTO_EDIT_LOG_GROUP_COMMIT_BATCH_SIZE.update(items.size());
+            MetricRepo.HISTO_EDIT_LOG_GROUP_COMMIT_LATENCY.update(end - start);
+            MetricRepo.COUNTER_EDIT_LOG_CURRENT.increase((long) items.size());
+            MetricRepo.COUNTER_EDIT_LOG_WRITE.increase((long) items.size());
+        }
+
+        for (EditLogItem item : items) {
+            if (MetricRepo.isInit) {
+                MetricRepo.HISTO_EDIT_LOG_WRITE_LATENCY.update(end - item.enqueueTime);
+            }
+            item.setFinished();
+        }
+    }
+
+    private static class EditLogItem {
+        private final short op;
+        private final Writable writable;
+        private final long enqueueTime;
+        private boolean finished = false;
+        private Error failure = null;
+
+        EditLogItem(short op, Writable writable) {
+            this.op = op;
+            this.writable = writable;
+            this.enqueueTime = System.currentTimeMillis();
+        }
+
+        synchronized void setFinished() {
+            finished = true;
+            notifyAll();
+        }
+
+        synchronized void setFailed(Error error) {
+            failure = error;
+            finished = true;
+            notifyAll();
+        }
+
+        synchronized void waitFinished() {
+            boolean interrupted = false;
+            while (!finished) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // The journal can not be cancelled once it is queued, so wait until it is persisted.
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
     /**
      * Return the size of the current EditLog
      */
@@ -36,10 +36,22 @@ import java.util.List;
  * | | - index b                   |      |
  * | | ...                         |      |
  * | |-----------------------------|      |
+ * | - Section Checksum Num (4 bytes)     |
+ * | - CRC32 of each section (8 bytes)    |
+ * | - Sub Index Num (4 bytes)            |
+ * | |- sub index -----------------|      |
+ * | | - sub index a               |      |
+ * | | ...                         |      |
+ * | |-----------------------------|      |
  * | - other value(undecided)             |
  * |--------------------------------------|
  * - Footer Length (8 bytes)
  * - Magic String (4 bytes)
+ *
+ * The section checksums and sub indices are only written by the parallel image writer.
+ * A section spans from the offset of its index to the offset of the next index (or the footer).
+ * Sub indices point to the start of each database in the "db" section so that databases
+ * can be deserialized in parallel. Older readers stop after the object indices and ignore them.
  */
 
 public class MetaFooter {
@@ -54,6 +66,12 @@ public class MetaFooter {
     public long length;
     // meta indices
     public List<MetaIndex> metaIndices;
+    // CRC32 of each section, in the same order as metaIndices. Empty if not recorded.
+    public List<Long> sectionChecksums = Lists.newArrayList();
+    // sub indices inside a section, named by the section they belong to
+    public List<MetaIndex> subIndices = Lists.newArrayList();
+    // offset of footer in image file, which is also the end of the last section
+    public long offset;
 
     public static MetaFooter read(File imageFile) throws IOException {
         try (RandomAccessFile raf = new RandomAccessFile(imageFile, "r")) {
@@ -81,12 +99,30 @@ public class MetaFooter {
                 MetaIndex index = MetaIndex.read(raf);
                 metaIndices.add(index);
             }
-            LOG.info("Image footer length: {}, indices: {}", footerLength, metaIndices.toArray());
-            return new MetaFooter(metaIndices, checksum, footerLength);
+            MetaFooter footer = new MetaFooter(metaIndices, checksum, footerLength);
+            footer.offset = footerIndex;
+            if (raf.getFilePointer() < footerLengthIndex) {
+                int checksumNum = raf.readInt();
+                for (int i = 0; i < checksumNum; i++) {
+                    footer.sectionChecksums.add(raf.readLong());
+                }
+                int subIndexNum = raf.readInt();
+                for (int i = 0; i < subIndexNum; i++) {
+                    footer.subIndices.add(MetaIndex.read(raf));
+                }
+            }
+            LOG.info("Image footer length: {}, indices: {}, sub indices: {}", footerLength, metaIndices.toArray(),
+                    footer.subIndices.size());
+            return footer;
         }
     }
 
     public static void write(File imageFile, List<MetaIndex> metaIndices, long checksum) throws IOException {
+        write(imageFile, metaIndices, checksum, null, null);
+    }
+
+    public static void write(File imageFile, List<MetaIndex> metaIndices, long checksum,
+            List<Long> sectionChecksums, List<MetaIndex> subIndices) throws IOException {
         try (RandomAccessFile raf = new RandomAccessFile(imageFile, "rw")) {
             long startIndex = raf.length();
             raf.seek(startIndex);
@@ -95,6 +131,20 @@ public class MetaFooter {
             for (MetaIndex metaIndex : metaIndices) {
                 MetaIndex.write(raf, metaIndex);
             }
+            if (sectionChecksums != null || subIndices != null) {
+                raf.writeInt(sectionChecksums == null ? 0 : sectionChecksums.size());
+                if (sectionChecksums != null) {
+                    for (long sectionChecksum : sectionChecksums) {
+                        raf.writeLong(sectionChecksum);
+                    }
+                }
+                raf.writeInt(subIndices == null ? 0 : subIndices.size());
+                if (subIndices != null) {
+                    for (MetaIndex subIndex : subIndices) {
+                        MetaIndex.write(raf, subIndex);
+                    }
+                }
+            }
             long endIndex = raf.length();
             raf.writeLong(endIndex - startIndex);
             MetaMagicNumber.write(raf);
@@ -117,6 +167,8 @@ public class MetaFooter {
         for (MetaIndex metaIndex : metaIndices) {
             sb.append("\n\t").append(metaIndex.toString());
         }
+        sb.append("\nsection checksums: ").append(sectionChecksums);
+        sb.append("\nsub indices: ").append(subIndices.size());
         return sb.toString();
     }
 }
@@ -17,10 +17,13 @@
 
 package org.apache.doris.persist.meta;
 
+import org.apache.doris.catalog.Database;
 import org.apache.doris.catalog.Env;
+import org.apache.doris.common.Config;
 import org.apache.doris.common.DdlException;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -31,6 +34,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Image Format:
@@ -62,6 +67,11 @@ import java.lang.reflect.InvocationTargetException;
  * | - Footer Length (8 bytes)                    |
  * | - Magic String (4 bytes)                     |
  * |----------------------------------------------|
+ *
+ * If the footer contains section checksums, all sections are verified before loading.
+ * If it contains the offset of each database, databases are deserialized in parallel
+ * with metadata_image_parallel_num threads. Other modules are always loaded in order,
+ * because some of them depend on the modules loaded before.
  */
 
 public class MetaReader {
@@ -74,7 +84,11 @@ public class MetaReader {
         MetaFooter metaFooter = MetaFooter.read(imageFile);
 
         long checksum = 0;
-        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(imageFile)))) {
+        try (MetaTaskExecutor executor = new MetaTaskExecutor(Config.metadata_image_parallel_num);
+                DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(imageFile)))) {
+            if (!metaFooter.sectionChecksums.isEmpty()) {
+                verifySectionChecksums(imageFile, metaFooter, executor);
+            }
             // 1. Skip image file header
             IOUtils.skipFully(dis, metaHeader.getEnd());
             // 2. Read meta header first
@@ -95,6 +109,13 @@ public class MetaReader {
                     }
                     continue;
                 }
+                if (metaIndex.name.equals("db") && executor.getParallelism() > 1
+                        && hasSubIndices(metaFooter, metaIndex.name)) {
+                    long end = i < metaFooter.metaIndices.size() - 1
+                            ? metaFooter.metaIndices.get(i + 1).offset : metaFooter.offset;
+                    checksum = loadDbInParallel(imageFile, dis, env, metaFooter, metaIndex, end, executor, checksum);
+                    continue;
+                }
                 MetaPersistMethod persistMethod = PersistMetaModules.MODULES_MAP.get(metaIndex.name);
                 if (persistMethod == null) {
                     throw new IOException("Unknown meta module: " + metaIndex.name + ". Known modules: "
@@ -112,4 +133,54 @@ public class MetaReader {
         long loadImageEndTime = System.currentTimeMillis();
         LOG.info("finished to load image in " + (loadImageEndTime - loadImageStartTime) + " ms");
     }
+
+    private static void verifySectionChecksums(File imageFile, MetaFooter metaFooter, MetaTaskExecutor executor)
+            throws IOException {
+        if (metaFooter.sectionChecksums.size() != metaFooter.metaIndices.size()) {
+            throw new IOException("Image file " + imageFile.getPath() + " has "
+                    + metaFooter.sectionChecksums.size() + " section checksums but "
+                    + metaFooter.metaIndices.size() + " sections");
+        }
+        List<Long> checksums = executor.checksumSections(imageFile, metaFooter.metaIndices, metaFooter.offset);
+        for (int i = 0; i < checksums.size(); i++) {
+            if (!checksums.get(i).equals(metaFooter.sectionChecksums.get(i))) {
+                throw new IOException("Image file " + imageFile.getPath() + " is corrupted. Checksum of section "
+                        + metaFooter.metaIndices.get(i) + " mismatch: " + checksums.get(i) + " vs. "
+                        + metaFooter.sectionChecksums.get(i));
+            }
+        }
+    }
+
+    private static boolean hasSubIndices(MetaFooter metaFooter, String name) {
+        return metaFooter.subIndices.stream().anyMatch(subIndex -> subIndex.name.equals(name));
+    }
+
+    private static long loadDbInParallel(File imageFile, DataInputStream dis, Env env, MetaFooter metaFooter,
+            MetaIndex metaIndex, long end, MetaTaskExecutor executor, long checksum) throws IOException {
+        int dbCount = dis.readInt();
+        List<Callable<Database>> tasks = Lists.newArrayListWithCapacity(dbCount);
+        for (MetaIndex subIndex : metaFooter.subIndices) {
+            if (subIndex.name.equals(metaIndex.name)) {
+                tasks.add(() -> readDb(imageFile, subIndex.offset));
+            }
+        }
+        if (tasks.size() != dbCount) {
+            throw new IOException("Image file " + imageFile.getPath() + " has " + dbCount + " databases but "
+                    + tasks.size() + " database indices");
+        }
+        List<Database> dbs = executor.invokeAll(tasks);
+        // skip the databases which have been read by the tasks
+        IOUtils.skipFully(dis, end - metaIndex.offset - Integer.BYTES);
+        return env.getInternalCatalog().loadDbs(dbs, checksum ^ dbCount);
+    }
+
+    private static Database readDb(File imageFile, long offset) throws IOException {
+        try (FileInputStream in = new FileInputStream(imageFile)) {
+            in.getChannel().position(offset);
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+            Database db = new Database();
+            db.readFields(dis);
+            return db;
+        }
+    }
 }
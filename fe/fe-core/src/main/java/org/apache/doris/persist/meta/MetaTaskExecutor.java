@@ -0,0 +1,145 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.persist.meta;
+
+import org.apache.doris.catalog.Env;
+import org.apache.doris.meta.MetaContext;
+
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * A fork-join pool used to save and load image sections in parallel.
+ * The worker threads inherit the meta context of the creating thread, and are treated as checkpoint threads
+ * if the pool is created by the checkpoint thread, so that Env.getCurrentEnv() in the save and load methods
+ * still returns the env being saved or loaded.
+ */
+public class MetaTaskExecutor implements AutoCloseable {
+    private static final int CHECKSUM_BUFFER_SIZE = 1024 * 1024;
+
+    private final ForkJoinPool pool;
+
+    public MetaTaskExecutor(int parallelism) {
+        boolean forCheckpoint = Env.isCheckpointThread();
+        MetaContext metaContext = MetaContext.get();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism),
+                p -> new MetaWorkerThread(p, forCheckpoint, metaContext), null, false);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Run all tasks and return their results in the order of the given tasks.
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        List<Future<T>> futures = pool.invokeAll(tasks);
+        List<T> results = Lists.newArrayListWithCapacity(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+
+    /**
+     * Compute the CRC32 of each section of the image. Section i spans from the offset of index i
+     * to the offset of index i + 1, and the last section ends at the given end offset.
+     */
+    public List<Long> checksumSections(File imageFile, List<MetaIndex> indices, long end) throws IOException {
+        List<Callable<Long>> tasks = Lists.newArrayListWithCapacity(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            long start = indices.get(i).offset;
+            long sectionEnd = i + 1 < indices.size() ? indices.get(i + 1).offset : end;
+            tasks.add(() -> checksum(imageFile, start, sectionEnd));
+        }
+        return invokeAll(tasks);
+    }
+
+    public static long checksum(File file, long start, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("unexpected end of file " + file.getPath() + " at " + position);
+                }
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+        }
+        return crc.getValue();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public static boolean isCheckpointWorker(Thread thread) {
+        return thread instanceof MetaWorkerThread && ((MetaWorkerThread) thread).forCheckpoint;
+    }
+
+    private static class MetaWorkerThread extends ForkJoinWorkerThread {
+        private final boolean forCheckpoint;
+        private final MetaContext metaContext;
+
+        MetaWorkerThread(ForkJoinPool pool, boolean forCheckpoint, MetaContext metaContext) {
+            super(pool);
+            this.forCheckpoint = forCheckpoint;
+            this.metaContext = metaContext;
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            if (metaContext != null) {
+                metaContext.setThreadLocalInfo();
+            }
+        }
+    }
+}
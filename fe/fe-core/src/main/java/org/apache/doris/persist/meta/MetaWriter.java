@@ -17,11 +17,14 @@
 
 package org.apache.doris.persist.meta;
 
+import org.apache.doris.catalog.Database;
 import org.apache.doris.catalog.Env;
+import org.apache.doris.common.Config;
 import org.apache.doris.common.Reference;
 import org.apache.doris.common.io.CountingDataOutputStream;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -30,7 +33,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Image Format:
@@ -62,6 +68,11 @@ import java.util.List;
  * | - Footer Length (8 bytes)                    |
  * | - Magic String (4 bytes)                     |
  * |----------------------------------------------|
+ *
+ * If metadata_image_parallel_num > 1, every module is serialized into its own section file concurrently,
+ * and the "db" module is further split into chunks of databases. The section files are then concatenated
+ * in module order, so the image body is byte-identical to the one written sequentially. The CRC32 of each
+ * section and the offset of each database are recorded in the footer.
  */
 
 public class MetaWriter {
@@ -93,7 +104,14 @@ public class MetaWriter {
         return delegate.doWork(name, method);
     }
 
+    // number of database chunks per thread when splitting the "db" section
+    private static final int DB_CHUNKS_PER_THREAD = 4;
+
     public static void write(File imageFile, Env env) throws IOException {
+        if (Config.metadata_image_parallel_num > 1) {
+            writeInParallel(imageFile, env, Config.metadata_image_parallel_num);
+            return;
+        }
         // save image does not need any lock. because only checkpoint thread will call this method.
         LOG.info("start to save image to {}. is ckpt: {}",
                 imageFile.getAbsolutePath(), Env.isCheckpointThread());
@@ -131,4 +149,141 @@ public class MetaWriter {
                 (saveImageEndTime - saveImageStartTime), checksum.getRef());
     }
 
+    private interface SectionWriter {
+        long write(CountingDataOutputStream dos, List<Long> subOffsets) throws Exception;
+    }
+
+    // A part of image body serialized into its own file.
+    private static class Section {
+        private final String name;
+        private final File file;
+        private final long checksum;
+        // offsets relative to the start of this section
+        private final List<Long> subOffsets;
+
+        private Section(String name, File file, long checksum, List<Long> subOffsets) {
+            this.name = name;
+            this.file = file;
+            this.checksum = checksum;
+            this.subOffsets = subOffsets;
+        }
+    }
+
+    private static Callable<Section> sectionTask(File sectionDir, int seq, String name, SectionWriter sectionWriter) {
+        return () -> {
+            File file = new File(sectionDir, seq + "." + name);
+            List<Long> subOffsets = Lists.newArrayList();
+            long checksum;
+            try (FileOutputStream out = new FileOutputStream(file);
+                    CountingDataOutputStream dos = new CountingDataOutputStream(new BufferedOutputStream(out))) {
+                try {
+                    checksum = sectionWriter.write(dos, subOffsets);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    LOG.warn("failed to write meta module: {}", name, e);
+                    throw new IOException("failed to write meta module: " + name, e);
+                }
+                dos.flush();
+            }
+            return new Section(name, file, checksum, subOffsets);
+        };
+    }
+
+    private static void writeInParallel(File imageFile, Env env, int parallelism) throws IOException {
+        LOG.info("start to save image to {} with {} threads. is ckpt: {}",
+                imageFile.getAbsolutePath(), parallelism, Env.isCheckpointThread());
+        long saveImageStartTime = System.currentTimeMillis();
+        // the suffix ".part" makes Storage ignore the directory if it is left behind
+        File sectionDir = new File(imageFile.getParentFile(), imageFile.getName() + ".sections.part");
+        FileUtils.deleteQuietly(sectionDir);
+        if (!sectionDir.mkdirs()) {
+            throw new IOException("failed to create directory " + sectionDir.getAbsolutePath());
+        }
+        try (MetaTaskExecutor executor = new MetaTaskExecutor(parallelism)) {
+            // 1. serialize all modules into section files.
+            // The checksum of every section starts from 0, it is fine because all modules combine their
+            // checksum by xor, so the combined checksum is the same as the sequential one.
+            List<Callable<Section>> tasks = Lists.newArrayList();
+            long replayedJournalId = env.getReplayedJournalId();
+            tasks.add(sectionTask(sectionDir, tasks.size(), "header",
+                    (dos, subOffsets) -> env.saveHeader(dos, replayedJournalId, 0L)));
+            for (MetaPersistMethod m : PersistMetaModules.MODULES_IN_ORDER) {
+                if (m.name.equals("db")) {
+                    addDbSectionTasks(tasks, sectionDir, env.getInternalCatalog().getDbsForImage(),
+                            parallelism * DB_CHUNKS_PER_THREAD);
+                    continue;
+                }
+                tasks.add(sectionTask(sectionDir, tasks.size(), m.name,
+                        (dos, subOffsets) -> (long) m.writeMethod.invoke(env, dos, 0L)));
+            }
+            List<Section> sections = executor.invokeAll(tasks);
+            long serializeEndTime = System.currentTimeMillis();
+
+            // 2. concatenate section files in order
+            long startPosition = MetaHeader.write(imageFile);
+            long checksum = 0;
+            long position = startPosition;
+            List<MetaIndex> metaIndices = Lists.newArrayList();
+            List<MetaIndex> subIndices = Lists.newArrayList();
+            try (FileOutputStream imageFileOut = new FileOutputStream(imageFile, true);
+                    FileChannel imageChannel = imageFileOut.getChannel()) {
+                for (Section section : sections) {
+                    if (metaIndices.isEmpty() || !metaIndices.get(metaIndices.size() - 1).name.equals(section.name)) {
+                        metaIndices.add(new MetaIndex(section.name, position));
+                    }
+                    for (long subOffset : section.subOffsets) {
+                        subIndices.add(new MetaIndex(section.name, position + subOffset));
+                    }
+                    checksum ^= section.checksum;
+                    position += transfer(section.file, imageChannel);
+                }
+                imageChannel.force(true);
+            }
+
+            // 3. checksum each section and write footer
+            List<Long> sectionChecksums = executor.checksumSections(imageFile, metaIndices, position);
+            MetaFooter.write(imageFile, metaIndices, checksum, sectionChecksums, subIndices);
+
+            long saveImageEndTime = System.currentTimeMillis();
+            LOG.info("finished save image {} in {} ms, serialize sections in {} ms. checksum is {}",
+                    imageFile.getAbsolutePath(), (saveImageEndTime - saveImageStartTime),
+                    (serializeEndTime - saveImageStartTime), checksum);
+        } finally {
+            FileUtils.deleteQuietly(sectionDir);
+        }
+    }
+
+    // The "db" section is the database count followed by every database, split into chunks of databases.
+    private static void addDbSectionTasks(List<Callable<Section>> tasks, File sectionDir, List<Database> dbs,
+            int maxChunkNum) {
+        tasks.add(sectionTask(sectionDir, tasks.size(), "db", (dos, subOffsets) -> {
+            dos.writeInt(dbs.size());
+            return (long) dbs.size();
+        }));
+        int chunkSize = Math.max(1, (dbs.size() + maxChunkNum - 1) / maxChunkNum);
+        for (int start = 0; start < dbs.size(); start += chunkSize) {
+            List<Database> chunk = dbs.subList(start, Math.min(dbs.size(), start + chunkSize));
+            tasks.add(sectionTask(sectionDir, tasks.size(), "db", (dos, subOffsets) -> {
+                long checksum = 0;
+                for (Database db : chunk) {
+                    subOffsets.add(dos.getCount());
+                    checksum ^= db.getId();
+                    db.write(dos);
+                }
+                return checksum;
+            }));
+        }
+    }
+
+    private static long transfer(File file, FileChannel target) throws IOException {
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
 }
@@ -20,6 +20,7 @@ package org.apache.doris.planner;
 import org.apache.doris.catalog.JdbcTable;
 import org.apache.doris.catalog.OdbcTable;
 import org.apache.doris.qe.ConnectContext;
+import org.apache.doris.qe.SessionVariable;
 import org.apache.doris.thrift.TDataSink;
 import org.apache.doris.thrift.TDataSinkType;
 import org.apache.doris.thrift.TExplainLevel;
@@ -44,12 +45,21 @@ public class JdbcTableSink extends DataSink {
     private final String checkSum;
     private final TOdbcTableType jdbcType;
     private final boolean useTransaction;
+    private final boolean useBatchWrite;
+    private final int sinkParallelism;
+    private final int sinkCommitInterval;
+    private final boolean sinkUseBulkLoad;
 
     public JdbcTableSink(JdbcTable jdbcTable) {
         resourceName = jdbcTable.getResourceName();
         jdbcType = jdbcTable.getJdbcTableType();
         externalTableName = OdbcTable.databaseProperName(jdbcType, jdbcTable.getExternalTableName());
-        useTransaction = ConnectContext.get().getSessionVariable().isEnableOdbcTransaction();
+        SessionVariable sessionVariable = ConnectContext.get().getSessionVariable();
+        useTransaction = sessionVariable.isEnableOdbcTransaction();
+        useBatchWrite = sessionVariable.isEnableJdbcSinkBatchWrite();
+        sinkParallelism = sessionVariable.getJdbcSinkParallelism();
+        sinkCommitInterval = sessionVariable.getJdbcSinkCommitInterval();
+        sinkUseBulkLoad = sessionVariable.isJdbcSinkUseBulkLoad();
         jdbcUrl = jdbcTable.getJdbcUrl();
         jdbcUser = jdbcTable.getJdbcUser();
         jdbcPasswd = jdbcTable.getJdbcPasswd();
@@ -67,6 +77,11 @@ public class JdbcTableSink extends DataSink {
         strBuilder.append(prefix + "TABLE TYPE: ").append(jdbcType.toString()).append("\n");
         strBuilder.append(prefix + "TABLENAME OF EXTERNAL TABLE: ").append(externalTableName).append("\n");
         strBuilder.append(prefix + "EnableTransaction: ").append(useTransaction ? "true" : "false").append("\n");
+        if (useBatchWrite) {
+            strBuilder.append(prefix + "BatchWrite: parallelism=").append(sinkParallelism)
+                    .append(", commitInterval=").append(sinkCommitInterval)
+                    .append(", bulkLoad=").append(sinkUseBulkLoad).append("\n");
+        }
         return strBuilder.toString();
     }
 
@@ -86,6 +101,12 @@ public class JdbcTableSink extends DataSink {
         jdbcTableSink.jdbc_table.setJdbcResourceName(resourceName);
         jdbcTableSink.setUseTransaction(useTransaction);
         jdbcTableSink.setTableType(jdbcType);
+        jdbcTableSink.setUseBatchWrite(useBatchWrite);
+        if (useBatchWrite) {
+            jdbcTableSink.setSinkParallelism(sinkParallelism);
+            jdbcTableSink.setSinkCommitInterval(sinkCommitInterval);
+            jdbcTableSink.setSinkUseBulkLoad(sinkUseBulkLoad);
+        }
 
         tDataSink.setJdbcTableSink(jdbcTableSink);
         return tDataSink;
@@ -1031,6 +1031,30 @@ public class OlapScanNode extends ScanNode {
         return result;
     }
 
+    // Called before a cached plan of prepared statement is executed again. The conjuncts may
+    // refer to place holders bound with new values, and the partitions and their visible versions
+    // may be changed since the plan was made, so prune partitions and tablets again.
+    public void refreshScanRangeLocations() throws UserException {
+        Preconditions.checkState(selectedIndexId != -1);
+        columnFilters.clear();
+        columnNameToRange.clear();
+        computeColumnFilter();
+        computePartitionInfo();
+        scanBackendIds.clear();
+        scanTabletIds.clear();
+        result.clear();
+        bucketSeq2locations.clear();
+        tabletId2BucketSeq.clear();
+        totalTabletsNum = 0;
+        selectedTabletsNum = 0;
+        totalBytes = 0;
+        try {
+            getScanRangeLocations();
+        } catch (AnalysisException e) {
+            throw new UserException(e.getMessage());
+        }
+    }
+
     public void setDescTable(DescriptorTable descTable) {
         this.descTable = descTable;
     }
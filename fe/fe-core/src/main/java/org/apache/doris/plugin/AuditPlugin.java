@@ -17,6 +17,8 @@
 
 package org.apache.doris.plugin;
 
+import java.util.List;
+
 /**
  * Audit plugin interface describe.
  */
@@ -32,4 +34,15 @@ public interface AuditPlugin {
      * Because it will be called after each query. So it must be efficient.
      */
     public void exec(AuditEvent event);
+
+    /**
+     * process a batch of events, which have passed the eventFilter.
+     * The events are delivered by a dedicated thread of each plugin, so a slow plugin does not block others.
+     * Plugins which can handle events in batch more efficiently should override this method.
+     */
+    public default void execBatch(List<AuditEvent> events) {
+        for (AuditEvent event : events) {
+            exec(event);
+        }
+    }
 }
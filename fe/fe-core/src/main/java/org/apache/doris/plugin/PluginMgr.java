@@ -132,6 +132,9 @@ public class PluginMgr implements Writable {
             plugins[info.getTypeId()].put(info.getName(), pluginLoader);
 
             Env.getCurrentEnv().getEditLog().logInstallPlugin(info);
+            if (pluginLoader.getPlugin() instanceof AuditPlugin) {
+                Env.getCurrentAuditEventProcessor().refreshPlugins();
+            }
             LOG.info("install plugin {}", info.getName());
             return info;
         } catch (IOException | UserException e) {
@@ -164,6 +167,10 @@ public class PluginMgr implements Writable {
 
                 loader.pluginUninstallValid();
                 loader.setStatus(PluginStatus.UNINSTALLING);
+                // stop delivering audit events to the plugin before it is closed
+                if (loader.getPlugin() instanceof AuditPlugin) {
+                    Env.getCurrentAuditEventProcessor().removePlugin(loader.getPlugin());
+                }
                 // uninstall plugin
                 loader.uninstall();
 
@@ -17,35 +17,54 @@
 
 package org.apache.doris.qe;
 
+import org.apache.doris.common.Config;
+import org.apache.doris.common.util.Daemon;
+import org.apache.doris.metric.MetricRepo;
 import org.apache.doris.plugin.AuditEvent;
 import org.apache.doris.plugin.AuditPlugin;
 import org.apache.doris.plugin.Plugin;
 import org.apache.doris.plugin.PluginInfo.PluginType;
 import org.apache.doris.plugin.PluginMgr;
 
-import com.google.common.collect.Queues;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Class for processing all audit events.
  * It will receive audit events and handle them to all AUDIT type plugins.
+ * Each plugin has its own bounded queue and worker thread, which delivers the events to the plugin in batch,
+ * so that a slow plugin does not block other plugins.
+ * When the queue of a plugin is full, the event is dropped or the caller is blocked,
+ * according to Config.audit_event_queue_full_policy.
+ * The workers are updated by a daemon thread, instead of the threads handling audit events, because some of
+ * plugins may be installed or uninstalled at runtime.
  */
 public class AuditEventProcessor {
     private static final Logger LOG = LogManager.getLogger(AuditEventProcessor.class);
     private static final long UPDATE_PLUGIN_INTERVAL_MS = 60 * 1000; // 1min
+    private static final long POLL_TIMEOUT_MS = 1000;
+    private static final String QUEUE_FULL_POLICY_BLOCK = "block";
 
     private PluginMgr pluginMgr;
 
-    private List<Plugin> auditPlugins;
-    private long lastUpdateTime = 0;
+    // replaced as a whole when the audit plugins are updated
+    private volatile List<Worker> workers = Collections.emptyList();
 
-    private BlockingQueue<AuditEvent> eventQueue = Queues.newLinkedBlockingDeque(10000);
-    private Thread workerThread;
+    private final Daemon pluginUpdater = new Daemon("AuditEventProcessor-plugin-updater", UPDATE_PLUGIN_INTERVAL_MS) {
+        @Override
+        protected void runOneCycle() {
+            updatePlugins();
+        }
+    };
 
     private volatile boolean isStopped = false;
 
@@ -54,64 +73,160 @@ public class AuditEventProcessor {
     }
 
     public void start() {
-        workerThread = new Thread(new Worker(), "AuditEventProcessor");
-        workerThread.setDaemon(true);
-        workerThread.start();
+        updatePlugins();
+        pluginUpdater.start();
     }
 
     public void stop() {
         isStopped = true;
-        if (workerThread != null) {
-            try {
-                workerThread.join();
-            } catch (InterruptedException e) {
-                LOG.warn("join worker join failed.", e);
+        pluginUpdater.exit();
+        synchronized (this) {
+            for (Worker worker : workers) {
+                worker.stop();
             }
+            workers = Collections.emptyList();
         }
     }
 
     public void handleAuditEvent(AuditEvent auditEvent) {
-        try {
-            eventQueue.add(auditEvent);
-        } catch (Exception e) {
-            LOG.warn("encounter exception when handle audit event, ignore", e);
+        for (Worker worker : workers) {
+            try {
+                worker.offer(auditEvent);
+            } catch (Exception e) {
+                LOG.warn("encounter exception when handle audit event, ignore", e);
+            }
         }
     }
 
-    public class Worker implements Runnable {
-        @Override
-        public void run() {
-            AuditEvent auditEvent;
-            while (!isStopped) {
-                // update audit plugin list every UPDATE_PLUGIN_INTERVAL_MS.
-                // because some of plugins may be installed or uninstalled at runtime.
-                if (auditPlugins == null || System.currentTimeMillis() - lastUpdateTime > UPDATE_PLUGIN_INTERVAL_MS) {
-                    auditPlugins = pluginMgr.getActivePluginList(PluginType.AUDIT);
-                    lastUpdateTime = System.currentTimeMillis();
-                    LOG.debug("update audit plugins. num: {}", auditPlugins.size());
+    // Update the audit plugins asynchronously, e.g. after a plugin is installed.
+    public void refreshPlugins() {
+        pluginUpdater.wakeUp();
+    }
+
+    /**
+     * Stop delivering events to the plugin, and wait until the events being delivered are finished.
+     * Must be called before the plugin is closed. The plugin should not be active any more, otherwise
+     * it may be added again by the next update.
+     */
+    public synchronized void removePlugin(Plugin plugin) {
+        List<Worker> newWorkers = Lists.newArrayList(workers);
+        List<Worker> removed = Lists.newArrayList();
+        newWorkers.removeIf(w -> w.plugin == plugin && removed.add(w));
+        workers = newWorkers;
+        for (Worker worker : removed) {
+            worker.stop();
+        }
+    }
+
+    // Return the number of pending events of each plugin.
+    public Map<String, Long> getPendingEventNums() {
+        Map<String, Long> result = Maps.newHashMap();
+        for (Worker worker : workers) {
+            result.merge(worker.name, (long) worker.eventQueue.size(), Long::sum);
+        }
+        return result;
+    }
+
+    private synchronized void updatePlugins() {
+        if (isStopped) {
+            return;
+        }
+        List<Plugin> auditPlugins = pluginMgr.getActivePluginList(PluginType.AUDIT);
+        List<Worker> oldWorkers = workers;
+        List<Worker> newWorkers = Lists.newArrayListWithCapacity(auditPlugins.size());
+        for (Plugin plugin : auditPlugins) {
+            Worker worker = oldWorkers.stream().filter(w -> w.plugin == plugin).findFirst().orElse(null);
+            if (worker == null) {
+                worker = new Worker((AuditPlugin) plugin);
+                worker.start();
+            }
+            newWorkers.add(worker);
+        }
+        workers = newWorkers;
+        for (Worker worker : oldWorkers) {
+            if (!newWorkers.contains(worker)) {
+                worker.stop();
+            }
+        }
+        LOG.debug("update audit plugins. num: {}", auditPlugins.size());
+    }
+
+    private class Worker implements Runnable {
+        private final AuditPlugin plugin;
+        private final String name;
+        // a bounded ring buffer
+        private final BlockingQueue<AuditEvent> eventQueue = new ArrayBlockingQueue<>(Config.audit_event_queue_size);
+        private final Thread thread;
+        private volatile boolean isStopped = false;
+
+        public Worker(AuditPlugin plugin) {
+            this.plugin = plugin;
+            this.name = plugin.getClass().getSimpleName();
+            this.thread = new Thread(this, "AuditEventProcessor-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public void start() {
+            thread.start();
+        }
+
+        public void offer(AuditEvent auditEvent) throws InterruptedException {
+            if (!plugin.eventFilter(auditEvent.type)) {
+                return;
+            }
+            // the worker may be stopped after the caller got it
+            boolean offered = false;
+            if (QUEUE_FULL_POLICY_BLOCK.equalsIgnoreCase(Config.audit_event_queue_full_policy)) {
+                while (!isStopped && !offered) {
+                    offered = eventQueue.offer(auditEvent, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
                 }
+            } else if (!isStopped) {
+                offered = eventQueue.offer(auditEvent);
+            }
+            // The worker exits once it is stopped and its queue is empty, so the event offered after that
+            // would never be delivered. Take it back if it is still in the queue, otherwise it is delivered.
+            if (offered && isStopped && eventQueue.remove(auditEvent)) {
+                offered = false;
+            }
+            if (!offered && MetricRepo.isInit) {
+                MetricRepo.PLUGIN_COUNTER_AUDIT_EVENT_DROPPED.getOrAdd(name).increase(1L);
+            }
+        }
 
+        public void stop() {
+            isStopped = true;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                LOG.warn("join worker join failed.", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<AuditEvent> batch = Lists.newArrayList();
+            // deliver the remaining events before exiting
+            while (!isStopped || !eventQueue.isEmpty()) {
                 try {
-                    auditEvent = eventQueue.poll(5, TimeUnit.SECONDS);
+                    AuditEvent auditEvent = eventQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
                     if (auditEvent == null) {
                         continue;
                     }
+                    batch.add(auditEvent);
                 } catch (InterruptedException e) {
                     LOG.debug("encounter exception when getting audit event from queue, ignore", e);
                     continue;
                 }
+                eventQueue.drainTo(batch, Math.max(0, Config.audit_event_batch_size - 1));
 
                 try {
-                    for (Plugin plugin : auditPlugins) {
-                        if (((AuditPlugin) plugin).eventFilter(auditEvent.type)) {
-                            ((AuditPlugin) plugin).exec(auditEvent);
-                        }
-                    }
+                    plugin.execBatch(batch);
                 } catch (Exception e) {
                     LOG.debug("encounter exception when processing audit event.", e);
+                } finally {
+                    batch.clear();
                 }
             }
         }
-
     }
 }
@@ -79,13 +79,13 @@ import org.apache.doris.thrift.TDescriptorTable;
 import org.apache.doris.thrift.TErrorTabletInfo;
 import org.apache.doris.thrift.TEsScanRange;
 import org.apache.doris.thrift.TExecPlanFragmentParams;
-import org.apache.doris.thrift.TExecPlanFragmentParamsList;
 import org.apache.doris.thrift.TFileRangeDesc;
 import org.apache.doris.thrift.TNetworkAddress;
 import org.apache.doris.thrift.TPaloScanRange;
 import org.apache.doris.thrift.TPipelineFragmentParams;
 import org.apache.doris.thrift.TPipelineFragmentParamsList;
 import org.apache.doris.thrift.TPipelineInstanceParams;
+import org.apache.doris.thrift.TPlanFragment;
 import org.apache.doris.thrift.TPlanFragmentDestination;
 import org.apache.doris.thrift.TPlanFragmentExecParams;
 import org.apache.doris.thrift.TQueryGlobals;
@@ -251,6 +251,9 @@ public class Coordinator {
 
     private boolean enableRpcOptForPipeline = false;
 
+    // max number of fetch result requests in flight, see SessionVariable.resultFetchPipelineDepth
+    private int resultFetchPipelineDepth = 1;
+
     // Runtime filter merge instance address and ID
     public TNetworkAddress runtimeFilterMergeAddr;
     public TUniqueId runtimeFilterMergeInstanceId;
@@ -327,6 +330,7 @@ public class Coordinator {
 
         this.returnedAllResults = false;
         this.enableShareHashTableForBroadcastJoin = context.getSessionVariable().enableShareHashTableForBroadcastJoin;
+        this.resultFetchPipelineDepth = context.getSessionVariable().resultFetchPipelineDepth;
         this.enablePipelineEngine = context.getSessionVariable().enablePipelineEngine;
         this.enableRpcOptForPipeline = context.getSessionVariable().enablePipelineEngine
                 && context.getSessionVariable().enableRpcOptForPipeline;
@@ -611,7 +615,8 @@ public class Coordinator {
         if (topDataSink instanceof ResultSink || topDataSink instanceof ResultFileSink) {
             TNetworkAddress execBeAddr = topParams.instanceExecParams.get(0).host;
             receiver = new ResultReceiver(topParams.instanceExecParams.get(0).instanceId,
-                    addressToBackendID.get(execBeAddr), toBrpcHost(execBeAddr), this.timeoutDeadline);
+                    addressToBackendID.get(execBeAddr), toBrpcHost(execBeAddr), this.timeoutDeadline,
+                    this.resultFetchPipelineDepth);
             if (LOG.isDebugEnabled()) {
                 LOG.debug("dispatch query job: {} to {}", DebugUtil.printId(queryId),
                         topParams.instanceExecParams.get(0).host);
@@ -768,6 +773,8 @@ public class Coordinator {
             List<Triple<BackendExecStates, BackendServiceProxy, Future<InternalService.PExecPlanFragmentResult>>>
                     futures = Lists.newArrayList();
             Context parentSpanContext = Context.current();
+            // shared by all BEs, so that the common parts of fragment params are only serialized once
+            FragmentParamsSerializer serializer = new FragmentParamsSerializer(Config.use_compact_thrift_rpc);
             for (BackendExecStates states : beToExecStates.values()) {
                 Span span = Telemetry.getNoopSpan();
                 if (ConnectContext.get() != null) {
@@ -777,7 +784,11 @@ public class Coordinator {
                 states.scopedSpan = new ScopedSpan(span);
                 states.unsetFields();
                 BackendServiceProxy proxy = BackendServiceProxy.getInstance();
-                futures.add(ImmutableTriple.of(states, proxy, states.execRemoteFragmentsAsync(proxy)));
+                futures.add(ImmutableTriple.of(states, proxy, states.execRemoteFragmentsAsync(proxy, serializer)));
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("query {} serialized {} bytes of fragment params, {} bytes reused from shared parts",
+                        DebugUtil.printId(queryId), serializer.getSerializedBytes(), serializer.getReusedBytes());
             }
             waitRpc(futures, this.timeoutDeadline - System.currentTimeMillis(), "send fragments");
 
@@ -1225,8 +1236,8 @@ public class Coordinator {
                 numReceivedRows = 0;
                 numReceivedRows += resultBatch.getQueryStatistics().getReturnedRows();
             }
-        } else if (resultBatch.getBatch() != null) {
-            numReceivedRows += resultBatch.getBatch().getRowsSize();
+        } else if (resultBatch.hasBatch()) {
+            numReceivedRows += resultBatch.getRowNum();
         }
 
         return resultBatch;
@@ -2887,15 +2898,16 @@ public class Coordinator {
             }
         }
 
-        public Future<InternalService.PExecPlanFragmentResult> execRemoteFragmentsAsync(BackendServiceProxy proxy)
-                throws TException {
+        public Future<InternalService.PExecPlanFragmentResult> execRemoteFragmentsAsync(BackendServiceProxy proxy,
+                FragmentParamsSerializer serializer) throws TException {
             try {
-                TExecPlanFragmentParamsList paramsList = new TExecPlanFragmentParamsList();
+                List<TExecPlanFragmentParams> paramsList = Lists.newArrayListWithCapacity(states.size());
                 for (BackendExecState state : states) {
                     state.initiated = true;
-                    paramsList.addToParamsList(state.rpcParams);
+                    paramsList.add(state.rpcParams);
                 }
-                return proxy.execPlanFragmentsAsync(brpcAddr, paramsList, twoPhaseExecution);
+                return proxy.execPlanFragmentsAsync(brpcAddr, serializer.serialize(paramsList),
+                        serializer.isCompact(), twoPhaseExecution);
             } catch (RpcException e) {
                 // DO NOT throw exception here, return a complete future with error code,
                 // so that the following logic will cancel the fragment.
@@ -3068,12 +3080,15 @@ public class Coordinator {
 
         List<TExecPlanFragmentParams> toThrift(int backendNum) {
             List<TExecPlanFragmentParams> paramsList = Lists.newArrayList();
+            // The plan fragment is the same for all instances, share it so that it is only serialized once,
+            // see FragmentParamsSerializer.
+            TPlanFragment tFragment = fragment.toThrift();
 
             for (int i = 0; i < instanceExecParams.size(); ++i) {
                 final FInstanceExecParam instanceExecParam = instanceExecParams.get(i);
                 TExecPlanFragmentParams params = new TExecPlanFragmentParams();
                 params.setProtocolVersion(PaloInternalServiceVersion.V1);
-                params.setFragment(fragment.toThrift());
+                params.setFragment(tFragment);
                 params.setDescTbl(descTable);
                 params.setParams(new TPlanFragmentExecParams());
                 params.setResourceInfo(tResourceInfo);
@@ -0,0 +1,230 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.qe;
+
+import org.apache.doris.thrift.TExecPlanFragmentParams;
+import org.apache.doris.thrift.TExecPlanFragmentParamsList;
+import org.apache.doris.thrift.TPlanFragment;
+import org.apache.doris.thrift.TPlanFragmentDestination;
+import org.apache.doris.thrift.TPlanFragmentExecParams;
+import org.apache.doris.thrift.TQueryOptions;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TType;
+
+import java.io.ByteArrayOutputStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialize the TExecPlanFragmentParams of fragment instances into a TExecPlanFragmentParamsList.
+ *
+ * All instances of a fragment share the same TPlanFragment, TQueryOptions and destinations objects,
+ * which are usually the largest parts of the params. Those parts are serialized only once, cached as
+ * bytes by object identity, and spliced into the bytes of every instance which references them, so
+ * that only the per-instance parts (instance id, scan ranges, sender id...) are serialized per instance.
+ * The result is wire-compatible with serializing the TExecPlanFragmentParamsList by TSerializer:
+ * the fields may be written in another order, but BE decodes it to the same params, so BE does not
+ * need any change.
+ *
+ * The cached bytes are only valid as long as the shared objects are not modified,
+ * so a serializer should only be used for one round of sending fragments, after all params are set.
+ * It is not thread safe.
+ */
+public class FragmentParamsSerializer {
+    // Type ids of the compact protocol, see TCompactProtocol.Types
+    private static final byte COMPACT_TYPE_LIST = 0x09;
+    private static final byte COMPACT_TYPE_STRUCT = 0x0C;
+
+    private static final short PARAMS_LIST_ID = TExecPlanFragmentParamsList._Fields.PARAMS_LIST.getThriftFieldId();
+    private static final short FRAGMENT_ID = TExecPlanFragmentParams._Fields.FRAGMENT.getThriftFieldId();
+    private static final short PARAMS_ID = TExecPlanFragmentParams._Fields.PARAMS.getThriftFieldId();
+    private static final short QUERY_OPTIONS_ID = TExecPlanFragmentParams._Fields.QUERY_OPTIONS.getThriftFieldId();
+    private static final short DESTINATIONS_ID = TPlanFragmentExecParams._Fields.DESTINATIONS.getThriftFieldId();
+
+    private final boolean compact;
+    private final TSerializer serializer;
+    private final Map<Object, byte[]> sharedBytes = new IdentityHashMap<>();
+
+    private long serializedBytes = 0;
+    private long reusedBytes = 0;
+
+    public FragmentParamsSerializer(boolean compact) throws TException {
+        this.compact = compact;
+        this.serializer = new TSerializer(compact ? new TCompactProtocol.Factory() : new TBinaryProtocol.Factory());
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    // Total bytes of shared parts which are spliced from cache instead of being serialized again.
+    public long getReusedBytes() {
+        return reusedBytes;
+    }
+
+    // Total bytes of TExecPlanFragmentParamsList returned by this serializer.
+    public long getSerializedBytes() {
+        return serializedBytes;
+    }
+
+    public byte[] serialize(List<TExecPlanFragmentParams> paramsList) throws TException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeFieldHeader(out, TType.LIST, PARAMS_LIST_ID);
+        writeListHeader(out, TType.STRUCT, paramsList.size());
+        for (TExecPlanFragmentParams params : paramsList) {
+            writeParams(out, params);
+        }
+        out.write(TType.STOP);
+        serializedBytes += out.size();
+        return out.toByteArray();
+    }
+
+    private void writeParams(ByteArrayOutputStream out, TExecPlanFragmentParams params) throws TException {
+        TPlanFragment fragment = params.getFragment();
+        TQueryOptions queryOptions = params.getQueryOptions();
+        TPlanFragmentExecParams execParams = params.getParams();
+        List<TPlanFragmentDestination> destinations = execParams == null ? null : execParams.getDestinations();
+
+        byte[] paramsBytes;
+        byte[] execParamsBytes = null;
+        // serialize the per-instance parts only, the shared parts are restored at once
+        params.unsetFragment();
+        params.unsetQueryOptions();
+        params.unsetParams();
+        try {
+            paramsBytes = serializer.serialize(params);
+            if (execParams != null) {
+                execParams.unsetDestinations();
+                execParamsBytes = serializer.serialize(execParams);
+            }
+        } finally {
+            params.setFragment(fragment);
+            params.setQueryOptions(queryOptions);
+            params.setParams(execParams);
+            if (execParams != null) {
+                execParams.setDestinations(destinations);
+            }
+        }
+
+        // fields of thrift struct can be written in any order, write the shared parts after the others
+        writeWithoutStop(out, paramsBytes);
+        if (execParamsBytes != null) {
+            writeFieldHeader(out, TType.STRUCT, PARAMS_ID);
+            writeWithoutStop(out, execParamsBytes);
+            if (destinations != null) {
+                writeFieldHeader(out, TType.LIST, DESTINATIONS_ID);
+                writeShared(out, destinations);
+            }
+            out.write(TType.STOP);
+        }
+        if (fragment != null) {
+            writeFieldHeader(out, TType.STRUCT, FRAGMENT_ID);
+            writeShared(out, fragment);
+        }
+        if (queryOptions != null) {
+            writeFieldHeader(out, TType.STRUCT, QUERY_OPTIONS_ID);
+            writeShared(out, queryOptions);
+        }
+        out.write(TType.STOP);
+    }
+
+    private void writeShared(ByteArrayOutputStream out, Object shared) throws TException {
+        byte[] bytes = sharedBytes.get(shared);
+        if (bytes == null) {
+            bytes = serializeShared(shared);
+            sharedBytes.put(shared, bytes);
+        } else {
+            reusedBytes += bytes.length;
+        }
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private byte[] serializeShared(Object shared) throws TException {
+        if (shared instanceof TBase) {
+            return serializer.serialize((TBase<?, ?>) shared);
+        }
+        List<?> list = (List<?>) shared;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeListHeader(out, TType.STRUCT, list.size());
+        for (Object element : list) {
+            byte[] bytes = serializer.serialize((TBase<?, ?>) element);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    // The serialized struct always ends with a STOP field, strip it so more fields can be appended.
+    private static void writeWithoutStop(ByteArrayOutputStream out, byte[] structBytes) {
+        out.write(structBytes, 0, structBytes.length - 1);
+    }
+
+    private void writeFieldHeader(ByteArrayOutputStream out, byte type, short id) {
+        if (compact) {
+            // Use the long form with explicit field id, because the delta form depends on the previous field.
+            out.write(toCompactType(type));
+            writeVarint(out, (id << 1) ^ (id >> 31));
+        } else {
+            out.write(type);
+            out.write((id >> 8) & 0xff);
+            out.write(id & 0xff);
+        }
+    }
+
+    private void writeListHeader(ByteArrayOutputStream out, byte elemType, int size) {
+        if (compact) {
+            if (size <= 14) {
+                out.write((size << 4) | toCompactType(elemType));
+            } else {
+                out.write(0xf0 | toCompactType(elemType));
+                writeVarint(out, size);
+            }
+        } else {
+            out.write(elemType);
+            out.write((size >>> 24) & 0xff);
+            out.write((size >>> 16) & 0xff);
+            out.write((size >>> 8) & 0xff);
+            out.write(size & 0xff);
+        }
+    }
+
+    private static byte toCompactType(byte type) {
+        switch (type) {
+            case TType.LIST:
+                return COMPACT_TYPE_LIST;
+            case TType.STRUCT:
+                return COMPACT_TYPE_STRUCT;
+            default:
+                throw new IllegalArgumentException("unsupported thrift type: " + type);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int n) {
+        while ((n & ~0x7f) != 0) {
+            out.write((n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        out.write(n);
+    }
+}
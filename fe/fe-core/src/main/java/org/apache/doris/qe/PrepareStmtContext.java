@@ -36,8 +36,9 @@ public class PrepareStmtContext {
         this.stmt = stmt;
         this.ctx = ctx;
         this.planner = planner;
-        // Only support OriginalPlanner for now
-        Preconditions.checkState(planner instanceof OriginalPlanner);
+        // Only support OriginalPlanner for now, the stmt which is not a point query
+        // is planned on execute, see PreparedPlanCache
+        Preconditions.checkState(planner instanceof OriginalPlanner || !stmt.isPointQuery());
         this.analyzer = analyzer;
         this.stmtString = stmtString;
     }
@@ -0,0 +1,507 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.qe;
+
+import org.apache.doris.analysis.Analyzer;
+import org.apache.doris.analysis.Expr;
+import org.apache.doris.analysis.FunctionCallExpr;
+import org.apache.doris.analysis.InformationFunction;
+import org.apache.doris.analysis.InlineViewRef;
+import org.apache.doris.analysis.LiteralExpr;
+import org.apache.doris.analysis.NullLiteral;
+import org.apache.doris.analysis.OrderByElement;
+import org.apache.doris.analysis.PlaceHolderExpr;
+import org.apache.doris.analysis.PrepareStmt;
+import org.apache.doris.analysis.QueryStmt;
+import org.apache.doris.analysis.SelectListItem;
+import org.apache.doris.analysis.SelectStmt;
+import org.apache.doris.analysis.SetOperationStmt;
+import org.apache.doris.analysis.StatementBase;
+import org.apache.doris.analysis.Subquery;
+import org.apache.doris.analysis.SysVariableDesc;
+import org.apache.doris.analysis.TableRef;
+import org.apache.doris.catalog.Database;
+import org.apache.doris.catalog.Env;
+import org.apache.doris.catalog.MaterializedIndexMeta;
+import org.apache.doris.catalog.OlapTable;
+import org.apache.doris.catalog.TableIf;
+import org.apache.doris.catalog.Type;
+import org.apache.doris.common.AnalysisException;
+import org.apache.doris.common.Config;
+import org.apache.doris.common.UserException;
+import org.apache.doris.common.util.MetaLockUtils;
+import org.apache.doris.mysql.privilege.PrivPredicate;
+import org.apache.doris.planner.ExchangeNode;
+import org.apache.doris.planner.HashJoinNode;
+import org.apache.doris.planner.OlapScanNode;
+import org.apache.doris.planner.OriginalPlanner;
+import org.apache.doris.planner.PlanFragment;
+import org.apache.doris.planner.PlanNode;
+import org.apache.doris.planner.Planner;
+import org.apache.doris.planner.ScanNode;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache of the plans of prepared queries which are not point queries.
+ *
+ * The query is analyzed and planned on the first EXECUTE, when the types of place holders are known.
+ * Place holders are kept in the plan as references, so the plan could be executed again with other
+ * values by binding the new literals into the place holders, and only the partitions and tablets to
+ * scan are pruned again. The plan is shared by all the connections preparing the same statement with
+ * the same user, database, session variables and types of parameters.
+ *
+ * A plan is owned by one executor at a time: it is borrowed before execute and given back after the
+ * query is finished, so there may be several plans of the same statement under concurrent executes.
+ * A borrowed plan is dropped if the schema of a table it scans has been changed. An idle plan does not
+ * refer to any connection, it is bound to the connection of the executor which borrows it.
+ *
+ * The query which calls session functions like connection_id(), refers to session variables or calls
+ * nondeterministic functions like now() is not cached, since the values are computed for the connection
+ * and the time the query is planned.
+ */
+public class PreparedPlanCache {
+    private static final Logger LOG = LogManager.getLogger(PreparedPlanCache.class);
+
+    private static final PreparedPlanCache INSTANCE = new PreparedPlanCache();
+
+    private static final Predicate<Expr> IS_SESSION_DEPENDENT = PreparedPlanCache::isSessionDependent;
+
+    // idle plans in access order, from the least recently used to the most recently used
+    private final LinkedHashMap<Key, Deque<PreparedPlan>> idlePlans = new LinkedHashMap<>(16, 0.75f, true);
+    private int idlePlanNum = 0;
+
+    public static PreparedPlanCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return Config.prepared_plan_cache_max_num > 0;
+    }
+
+    /**
+     * Take an idle plan of the key out of the cache, return null if there is none.
+     * The plan is owned by the caller until it is given back.
+     */
+    public synchronized PreparedPlan borrow(Key key) {
+        Deque<PreparedPlan> plans = idlePlans.get(key);
+        if (plans == null) {
+            return null;
+        }
+        PreparedPlan plan = plans.pollFirst();
+        if (plans.isEmpty()) {
+            idlePlans.remove(key);
+        }
+        if (plan != null) {
+            --idlePlanNum;
+        }
+        return plan;
+    }
+
+    public synchronized void giveBack(PreparedPlan plan) {
+        plan.unbindContext();
+        int maxNum = Config.prepared_plan_cache_max_num;
+        if (maxNum <= 0) {
+            idlePlans.clear();
+            idlePlanNum = 0;
+            return;
+        }
+        idlePlans.computeIfAbsent(plan.getKey(), k -> new ArrayDeque<>()).addFirst(plan);
+        ++idlePlanNum;
+        // evict the least recently used plans
+        Iterator<Map.Entry<Key, Deque<PreparedPlan>>> iter = idlePlans.entrySet().iterator();
+        while (idlePlanNum > maxNum && iter.hasNext()) {
+            Deque<PreparedPlan> plans = iter.next().getValue();
+            while (idlePlanNum > maxNum && !plans.isEmpty()) {
+                plans.pollLast();
+                --idlePlanNum;
+            }
+            if (plans.isEmpty()) {
+                iter.remove();
+            }
+        }
+    }
+
+    public synchronized int getIdlePlanNum() {
+        return idlePlanNum;
+    }
+
+    public synchronized void clear() {
+        idlePlans.clear();
+        idlePlanNum = 0;
+    }
+
+    /**
+     * Whether the plan of the analyzed query could be shared by other executes. This should be checked
+     * before the exprs are rewritten, because session functions are folded into literals by rewriting.
+     */
+    public static boolean isShareable(QueryStmt stmt) {
+        List<Expr> exprs = Lists.newArrayList();
+        if (!collectExprs(stmt, exprs)) {
+            return false;
+        }
+        for (Expr expr : exprs) {
+            if (expr.contains(IS_SESSION_DEPENDENT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSessionDependent(Expr expr) {
+        if (expr instanceof InformationFunction || expr instanceof SysVariableDesc) {
+            return true;
+        }
+        return expr instanceof FunctionCallExpr && Env.getCurrentEnv().isNondeterministicFunction(
+                ((FunctionCallExpr) expr).getFnName().getFunction().toLowerCase());
+    }
+
+    // Collect the exprs of the stmt and its inline views and subqueries. Return false if the stmt has
+    // a with clause, which is analyzed by an analyzer of its own and keeps the connection.
+    private static boolean collectExprs(QueryStmt stmt, List<Expr> exprs) {
+        if (stmt.hasWithClause()) {
+            return false;
+        }
+        List<Expr> stmtExprs = Lists.newArrayList();
+        if (stmt instanceof SetOperationStmt) {
+            for (SetOperationStmt.SetOperand operand : ((SetOperationStmt) stmt).getOperands()) {
+                if (!collectExprs(operand.getQueryStmt(), exprs)) {
+                    return false;
+                }
+            }
+        } else if (stmt instanceof SelectStmt) {
+            SelectStmt selectStmt = (SelectStmt) stmt;
+            for (SelectListItem item : selectStmt.getSelectList().getItems()) {
+                if (!item.isStar()) {
+                    stmtExprs.add(item.getExpr());
+                }
+            }
+            for (TableRef tableRef : selectStmt.getTableRefs()) {
+                if (tableRef.getOnClause() != null) {
+                    stmtExprs.add(tableRef.getOnClause());
+                }
+                if (tableRef instanceof InlineViewRef
+                        && !collectExprs(((InlineViewRef) tableRef).getViewStmt(), exprs)) {
+                    return false;
+                }
+            }
+            if (selectStmt.getWhereClause() != null) {
+                stmtExprs.add(selectStmt.getWhereClause());
+            }
+            if (selectStmt.getHavingClauseAfterAnaylzed() != null) {
+                stmtExprs.add(selectStmt.getHavingClauseAfterAnaylzed());
+            }
+            if (selectStmt.getGroupByClause() != null && selectStmt.getGroupByClause().getGroupingExprs() != null) {
+                stmtExprs.addAll(selectStmt.getGroupByClause().getGroupingExprs());
+            }
+        }
+        if (stmt.getOrderByElements() != null) {
+            for (OrderByElement orderByElement : stmt.getOrderByElements()) {
+                stmtExprs.add(orderByElement.getExpr());
+            }
+        }
+        List<Subquery> subqueries = Lists.newArrayList();
+        for (Expr expr : stmtExprs) {
+            expr.collect(Subquery.class, subqueries);
+        }
+        for (Subquery subquery : subqueries) {
+            if (!collectExprs(subquery.getStatement(), exprs)) {
+                return false;
+            }
+        }
+        exprs.addAll(stmtExprs);
+        return true;
+    }
+
+    /**
+     * Identify the plans which could be shared.
+     */
+    public static class Key {
+        private final String user;
+        private final String catalog;
+        private final String db;
+        private final String stmt;
+        private final List<Type> paramTypes;
+        private final Map<String, String> sessionVariables;
+        private final int hashCode;
+
+        public Key(ConnectContext ctx, PrepareStmt prepareStmt, List<LiteralExpr> params) {
+            this(ctx.getQualifiedUser(), ctx.getDefaultCatalog(), ctx.getDatabase(),
+                    prepareStmt.getOrigStmt().originStmt + "#" + prepareStmt.getOrigStmt().idx,
+                    Lists.transform(params, LiteralExpr::getType),
+                    ctx.getSessionVariable().getForwardVariables());
+        }
+
+        Key(String user, String catalog, String db, String stmt, List<Type> paramTypes,
+                Map<String, String> sessionVariables) {
+            this.user = user;
+            this.catalog = catalog;
+            this.db = db;
+            this.stmt = stmt;
+            this.paramTypes = Lists.newArrayList(paramTypes);
+            this.sessionVariables = sessionVariables;
+            this.hashCode = Objects.hash(user, catalog, db, stmt, this.paramTypes, sessionVariables);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode && Objects.equals(user, other.user)
+                    && Objects.equals(catalog, other.catalog) && Objects.equals(db, other.db)
+                    && stmt.equals(other.stmt) && paramTypes.equals(other.paramTypes)
+                    && sessionVariables.equals(other.sessionVariables);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * An analyzed and planned query, with place holders to bind parameters on execute.
+     */
+    public static class PreparedPlan {
+        private final Key key;
+        private final StatementBase stmt;
+        private final List<PlaceHolderExpr> placeholders;
+        private final Analyzer analyzer;
+        private final Planner planner;
+        private final List<OlapTable> tables;
+        // schema signatures of the tables when the plan was made
+        private final List<Long> schemaSignatures;
+
+        PreparedPlan(Key key, StatementBase stmt, List<PlaceHolderExpr> placeholders, Analyzer analyzer,
+                Planner planner, List<OlapTable> tables) {
+            this.key = key;
+            this.stmt = stmt;
+            this.placeholders = placeholders;
+            this.analyzer = analyzer;
+            this.planner = planner;
+            this.tables = tables;
+            this.schemaSignatures = Lists.newArrayListWithCapacity(tables.size());
+            for (OlapTable table : tables) {
+                schemaSignatures.add(getSchemaSignature(table));
+            }
+        }
+
+        /**
+         * Return a plan which could be cached, or null if the plan depends on the values of parameters
+         * or on something else which is not checked when it is reused.
+         */
+        public static PreparedPlan create(ConnectContext ctx, Key key, StatementBase stmt,
+                List<PlaceHolderExpr> placeholders, Analyzer analyzer, Planner planner, List<TableIf> tables) {
+            if (!(stmt instanceof QueryStmt) || stmt.isExplain() || ((QueryStmt) stmt).hasOutFileClause()
+                    || !(planner instanceof OriginalPlanner)) {
+                return null;
+            }
+            // the constants folded by BE and the predicates added by row policy are not tracked
+            if (ctx.getSessionVariable().isEnableFoldConstantByBe()
+                    || Env.getCurrentEnv().getPolicyMgr().existPolicy(ctx.getQualifiedUser())) {
+                return null;
+            }
+            List<OlapTable> olapTables = Lists.newArrayListWithCapacity(tables.size());
+            for (TableIf table : tables) {
+                if (!(table instanceof OlapTable)) {
+                    return null;
+                }
+                olapTables.add((OlapTable) table);
+            }
+            for (ScanNode scanNode : planner.getScanNodes()) {
+                if (!(scanNode instanceof OlapScanNode) || ((OlapScanNode) scanNode).getSelectedIndexId() == -1) {
+                    return null;
+                }
+            }
+            if (!isParameterized(planner, placeholders)) {
+                LOG.debug("plan of prepared stmt could not be reused: {}", key.stmt);
+                return null;
+            }
+            return new PreparedPlan(key, stmt, placeholders, analyzer, planner, olapTables);
+        }
+
+        // The plan could be reused only if all place holders are still referred by the plan, and no other
+        // literal in the plan may be derived from the value of a place holder, e.g. by expr rewriting.
+        private static boolean isParameterized(Planner planner, List<PlaceHolderExpr> placeholders) {
+            List<Expr> exprs = Lists.newArrayList();
+            for (PlanFragment fragment : planner.getFragments()) {
+                if (fragment.getOutputExprs() != null) {
+                    exprs.addAll(fragment.getOutputExprs());
+                }
+                collectExprs(fragment.getPlanRoot(), exprs);
+            }
+            List<LiteralExpr> literals = Lists.newArrayList();
+            for (Expr expr : exprs) {
+                expr.collectAll(Predicates.instanceOf(LiteralExpr.class), literals);
+            }
+            Set<LiteralExpr> referred = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<LiteralExpr> otherLiterals = Lists.newArrayList();
+            for (LiteralExpr literal : literals) {
+                if (literal instanceof PlaceHolderExpr) {
+                    referred.add(literal);
+                } else {
+                    otherLiterals.add(literal);
+                }
+            }
+            for (PlaceHolderExpr placeholder : placeholders) {
+                if (!referred.contains(placeholder)) {
+                    return false;
+                }
+                for (LiteralExpr literal : otherLiterals) {
+                    if (hasSameValue(literal, placeholder)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Compare the values as the type of the literal, since the literal derived from a place holder
+        // may be cast to another type, e.g. the int 5 and the decimal 5.0 cast from it.
+        private static boolean hasSameValue(LiteralExpr literal, PlaceHolderExpr placeholder) {
+            if (literal instanceof NullLiteral || placeholder.isNullable()) {
+                return literal instanceof NullLiteral && placeholder.isNullable();
+            }
+            try {
+                LiteralExpr value = LiteralExpr.create(placeholder.getStringValue(), literal.getType());
+                return value.compareLiteral(literal) == 0;
+            } catch (AnalysisException e) {
+                // the value could not be the one of the literal
+                return false;
+            }
+        }
+
+        private static void collectExprs(PlanNode node, List<Expr> exprs) {
+            exprs.addAll(node.getConjuncts());
+            if (node.getProjectList() != null) {
+                exprs.addAll(node.getProjectList());
+            }
+            if (node instanceof HashJoinNode) {
+                exprs.addAll(((HashJoinNode) node).getEqJoinConjuncts());
+            }
+            // the children of exchange node are collected with their own fragments
+            if (node instanceof ExchangeNode) {
+                return;
+            }
+            for (PlanNode child : node.getChildren()) {
+                collectExprs(child, exprs);
+            }
+        }
+
+        private static long getSchemaSignature(OlapTable table) {
+            long signature = table.getId();
+            for (Map.Entry<Long, MaterializedIndexMeta> entry : table.getIndexIdToMeta().entrySet()) {
+                signature = signature * 31 + entry.getKey();
+                signature = signature * 31 + entry.getValue().getSchemaVersion();
+            }
+            return signature;
+        }
+
+        /**
+         * Check whether the plan is still valid for the tables and the privileges of current user.
+         */
+        public boolean isValid(ConnectContext ctx) {
+            if (Env.getCurrentEnv().getPolicyMgr().existPolicy(ctx.getQualifiedUser())) {
+                return false;
+            }
+            for (int i = 0; i < tables.size(); ++i) {
+                OlapTable table = tables.get(i);
+                Database db = Env.getCurrentInternalCatalog().getDbNullable(table.getQualifiedDbName());
+                if (db == null || db.getTableNullable(table.getId()) != table
+                        || getSchemaSignature(table) != schemaSignatures.get(i)) {
+                    return false;
+                }
+                if (!Env.getCurrentEnv().getAccessManager().checkTblPriv(ctx, table.getQualifiedDbName(),
+                        table.getName(), PrivPredicate.SELECT)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Bind the plan to the connection which borrows it, and the values of parameters to the place holders.
+         */
+        public void bind(ConnectContext ctx, List<LiteralExpr> values) {
+            Preconditions.checkState(values.size() == placeholders.size());
+            analyzer.setContext(ctx);
+            for (int i = 0; i < values.size(); ++i) {
+                placeholders.get(i).setLiteral(values.get(i));
+            }
+        }
+
+        // An idle plan should not keep the connection which used it
+        void unbindContext() {
+            if (analyzer != null) {
+                analyzer.setContext(null);
+            }
+        }
+
+        /**
+         * Prune the partitions and tablets to scan again with the values bound.
+         */
+        public void refreshScanRanges() throws UserException {
+            MetaLockUtils.readLockTables(tables);
+            try {
+                for (ScanNode scanNode : planner.getScanNodes()) {
+                    ((OlapScanNode) scanNode).refreshScanRangeLocations();
+                }
+            } finally {
+                MetaLockUtils.readUnlockTables(tables);
+            }
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        public StatementBase getStmt() {
+            return stmt;
+        }
+
+        public Analyzer getAnalyzer() {
+            return analyzer;
+        }
+
+        public Planner getPlanner() {
+            return planner;
+        }
+    }
+}
@@ -23,15 +23,17 @@ import org.apache.doris.proto.Types;
 import org.apache.doris.rpc.BackendServiceProxy;
 import org.apache.doris.rpc.RpcException;
 import org.apache.doris.thrift.TNetworkAddress;
-import org.apache.doris.thrift.TResultBatch;
 import org.apache.doris.thrift.TStatusCode;
 import org.apache.doris.thrift.TUniqueId;
 
+import com.google.common.collect.Maps;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.thrift.TDeserializer;
 import org.apache.thrift.TException;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -47,12 +49,23 @@ public class ResultReceiver {
     private Types.PUniqueId finstId;
     private Long backendId;
     private Thread currentThread;
+    // max number of fetch requests in flight. Requests are only sent when a batch is taken by getNext(),
+    // so no more than this number of batches are buffered in FE when the client consumes slowly.
+    private final int pipelineDepth;
+    // fetch requests in flight, in the order they are sent
+    private final Deque<Future<InternalService.PFetchDataResult>> fetchFutures = new ArrayDeque<>();
+    // results arrived ahead of the expected packet, keyed by packet seq
+    private final Map<Long, InternalService.PFetchDataResult> aheadResults = Maps.newHashMap();
+    // set when backend has returned the last packet, no more fetch requests need to be sent
+    private boolean eosReceived = false;
 
-    public ResultReceiver(TUniqueId tid, Long backendId, TNetworkAddress address, long timeoutTs) {
+    public ResultReceiver(TUniqueId tid, Long backendId, TNetworkAddress address, long timeoutTs,
+            int pipelineDepth) {
         this.finstId = Types.PUniqueId.newBuilder().setHi(tid.hi).setLo(tid.lo).build();
         this.backendId = backendId;
         this.address = address;
         this.timeoutTs = timeoutTs;
+        this.pipelineDepth = Math.max(1, pipelineDepth);
     }
 
     public RowBatch getNext(Status status) throws TException {
@@ -62,58 +75,74 @@ public class ResultReceiver {
         final RowBatch rowBatch = new RowBatch();
         try {
             while (!isDone && !isCancel) {
-                InternalService.PFetchDataRequest request = InternalService.PFetchDataRequest.newBuilder()
-                        .setFinstId(finstId)
-                        .setRespInAttachment(false)
-                        .build();
-
                 currentThread = Thread.currentThread();
-                Future<InternalService.PFetchDataResult> future
-                        = BackendServiceProxy.getInstance().fetchDataAsync(address, request);
-                InternalService.PFetchDataResult pResult = null;
+                fillPipeline();
+                InternalService.PFetchDataResult pResult = aheadResults.remove(packetIdx);
                 while (pResult == null) {
-                    long currentTs = System.currentTimeMillis();
-                    if (currentTs >= timeoutTs) {
-                        throw new TimeoutException("query timeout");
+                    Future<InternalService.PFetchDataResult> future = fetchFutures.peekFirst();
+                    if (future == null) {
+                        LOG.warn("receive packet failed, expect={}, no request in flight", packetIdx);
+                        status.setRpcStatus("receive error packet");
+                        return null;
                     }
-                    try {
-                        pResult = future.get(timeoutTs - currentTs, TimeUnit.MILLISECONDS);
-                    } catch (InterruptedException e) {
-                        // continue to get result
-                        LOG.info("future get interrupted Exception");
-                        if (isCancel) {
-                            status.setStatus(Status.CANCELLED);
-                            return null;
+                    InternalService.PFetchDataResult result = null;
+                    while (result == null) {
+                        long currentTs = System.currentTimeMillis();
+                        if (currentTs >= timeoutTs) {
+                            throw new TimeoutException("query timeout");
+                        }
+                        try {
+                            result = future.get(timeoutTs - currentTs, TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException e) {
+                            // continue to get result
+                            LOG.info("future get interrupted Exception");
+                            if (isCancel) {
+                                status.setStatus(Status.CANCELLED);
+                                return null;
+                            }
                         }
                     }
-                }
-                TStatusCode code = TStatusCode.findByValue(pResult.getStatus().getStatusCode());
-                if (code != TStatusCode.OK) {
-                    status.setPstatus(pResult.getStatus());
-                    return null;
+                    fetchFutures.pollFirst();
+                    TStatusCode code = TStatusCode.findByValue(result.getStatus().getStatusCode());
+                    if (code != TStatusCode.OK) {
+                        status.setPstatus(result.getStatus());
+                        return null;
+                    }
+                    if (result.getEos()) {
+                        eosReceived = true;
+                    }
+                    // responses of the requests in flight may arrive in a different order,
+                    // keep the ones ahead until their turn.
+                    if (result.getPacketSeq() == packetIdx) {
+                        pResult = result;
+                    } else if (result.getPacketSeq() > packetIdx) {
+                        aheadResults.put(result.getPacketSeq(), result);
+                    } else if (!result.getEos()) {
+                        // backend answers all the pending requests with the same seq when it is closed,
+                        // only a stale data packet is an error.
+                        LOG.warn("receive packet failed, expect={}, receive={}", packetIdx, result.getPacketSeq());
+                        status.setRpcStatus("receive error packet");
+                        return null;
+                    }
                 }
 
                 rowBatch.setQueryStatistics(pResult.getQueryStatistics());
 
-                if (packetIdx != pResult.getPacketSeq()) {
-                    LOG.warn("receive packet failed, expect={}, receive={}", packetIdx, pResult.getPacketSeq());
-                    status.setRpcStatus("receive error packet");
-                    return null;
-                }
-
                 packetIdx++;
                 isDone = pResult.getEos();
+                if (isDone) {
+                    // the rest requests in flight can only get eos, no need to wait for them
+                    fetchFutures.clear();
+                    aheadResults.clear();
+                }
 
                 if (pResult.hasEmptyBatch() && pResult.getEmptyBatch()) {
                     LOG.info("get first empty rowbatch");
                     rowBatch.setEos(false);
                     return rowBatch;
                 } else if (pResult.hasRowBatch() && pResult.getRowBatch().size() > 0) {
-                    byte[] serialResult = pResult.getRowBatch().toByteArray();
-                    TResultBatch resultBatch = new TResultBatch();
-                    TDeserializer deserializer = new TDeserializer();
-                    deserializer.deserialize(resultBatch, serialResult);
-                    rowBatch.setBatch(resultBatch);
+                    // rows are forwarded to client from the received bytes, no copy here
+                    rowBatch.setSerializedBatch(pResult.getRowBatch().asReadOnlyByteBuffer());
                     rowBatch.setEos(pResult.getEos());
                     return rowBatch;
                 }
@@ -146,6 +175,29 @@ public class ResultReceiver {
         return rowBatch;
     }
 
+    // Send fetch requests until there are pipelineDepth requests in flight.
+    // So that backend can prepare the next batches while the current one is being written to the client.
+    private void fillPipeline() throws RpcException {
+        // every request in flight or arrived ahead will take a batch
+        while (!eosReceived && fetchFutures.size() + aheadResults.size() < pipelineDepth) {
+            InternalService.PFetchDataRequest request = InternalService.PFetchDataRequest.newBuilder()
+                    .setFinstId(finstId)
+                    .setRespInAttachment(false)
+                    .build();
+            try {
+                fetchFutures.addLast(BackendServiceProxy.getInstance().fetchDataAsync(address, request));
+            } catch (RpcException e) {
+                if (fetchFutures.isEmpty()) {
+                    throw e;
+                }
+                // the requests already in flight are still valid, send again next time
+                LOG.warn("send fetch result request failed, finstId={}, in flight={}",
+                        finstId, fetchFutures.size(), e);
+                return;
+            }
+        }
+    }
+
     public void cancel() {
         isCancel = true;
         synchronized (this) {
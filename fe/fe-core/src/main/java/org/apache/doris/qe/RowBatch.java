@@ -17,24 +17,161 @@
 
 package org.apache.doris.qe;
 
+import org.apache.doris.mysql.MysqlChannel;
 import org.apache.doris.proto.Data.PQueryStatistics;
 import org.apache.doris.thrift.TResultBatch;
 
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
 public final class RowBatch {
+    // field id of TResultBatch.rows, see Data.thrift
+    private static final short ROWS_FIELD_ID = 1;
+
     private TResultBatch batch;
     private PQueryStatistics statistics;
     private boolean eos;
 
+    // Thrift binary encoded TResultBatch as it is received from backend.
+    // Rows inside are already encoded in mysql protocol, so they can be forwarded to
+    // the client directly without deserializing the whole batch.
+    private ByteBuffer serializedBatch;
+    // start offset and length of each row in serializedBatch, flattened as [offset0, len0, offset1, len1, ...]
+    private int[] rowPositions;
+    private int rowNum;
+
     public RowBatch() {
         eos = true;
     }
 
+    /**
+     * Return the deserialized batch, deserializing the received bytes on demand.
+     */
     public TResultBatch getBatch() {
+        if (batch == null && serializedBatch != null) {
+            try {
+                batch = deserialize(serializedBatch);
+            } catch (TException e) {
+                throw new IllegalStateException("failed to deserialize result batch", e);
+            }
+        }
         return batch;
     }
 
+    private static TResultBatch deserialize(ByteBuffer serializedBatch) throws TException {
+        TResultBatch resultBatch = new TResultBatch();
+        byte[] bytes = new byte[serializedBatch.remaining()];
+        serializedBatch.duplicate().get(bytes);
+        new TDeserializer().deserialize(resultBatch, bytes);
+        return resultBatch;
+    }
+
     public void setBatch(TResultBatch batch) {
         this.batch = batch;
+        this.serializedBatch = null;
+        this.rowPositions = null;
+        this.rowNum = batch == null || batch.getRows() == null ? 0 : batch.getRowsSize();
+    }
+
+    /**
+     * Set the thrift binary encoded TResultBatch. Only the offsets of rows are located here,
+     * the batch is deserialized lazily in {@link #getBatch()} when someone needs it.
+     */
+    public void setSerializedBatch(ByteBuffer serializedBatch) throws TException {
+        this.rowPositions = null;
+        this.rowNum = 0;
+        if (locateRows(serializedBatch.duplicate())) {
+            this.batch = null;
+            this.serializedBatch = serializedBatch;
+        } else {
+            // unexpected layout, fall back to full deserialization
+            setBatch(deserialize(serializedBatch));
+        }
+    }
+
+    public boolean hasBatch() {
+        return batch != null || serializedBatch != null;
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * Send all rows in this batch to the mysql channel, each row as one packet.
+     */
+    public void sendRows(MysqlChannel channel) throws IOException {
+        if (batch != null) {
+            for (ByteBuffer row : batch.getRows()) {
+                channel.sendOnePacket(row);
+            }
+            return;
+        }
+        if (serializedBatch == null) {
+            return;
+        }
+        ByteBuffer row = serializedBatch.duplicate();
+        for (int i = 0; i < rowNum; i++) {
+            int offset = rowPositions[2 * i];
+            row.limit(offset + rowPositions[2 * i + 1]);
+            row.position(offset);
+            channel.sendOnePacket(row);
+        }
+    }
+
+    // Walk through the thrift binary protocol encoded TResultBatch and record where each row is.
+    // Return false if the layout is not the one we know, the caller should deserialize the batch instead.
+    private boolean locateRows(ByteBuffer buffer) {
+        try {
+            boolean rowsFound = false;
+            while (true) {
+                byte fieldType = buffer.get();
+                if (fieldType == TType.STOP) {
+                    return rowsFound;
+                }
+                short fieldId = buffer.getShort();
+                switch (fieldType) {
+                    case TType.LIST:
+                        if (fieldId != ROWS_FIELD_ID || buffer.get() != TType.STRING) {
+                            return false;
+                        }
+                        int size = buffer.getInt();
+                        // every row has at least a 4 bytes length prefix
+                        if (size < 0 || size > buffer.remaining() / 4) {
+                            return false;
+                        }
+                        int[] positions = new int[size * 2];
+                        for (int i = 0; i < size; i++) {
+                            int len = buffer.getInt();
+                            if (len < 0 || len > buffer.remaining()) {
+                                return false;
+                            }
+                            positions[2 * i] = buffer.position();
+                            positions[2 * i + 1] = len;
+                            buffer.position(buffer.position() + len);
+                        }
+                        rowPositions = positions;
+                        rowNum = size;
+                        rowsFound = true;
+                        break;
+                    case TType.I64:
+                        buffer.position(buffer.position() + 8);
+                        break;
+                    case TType.BOOL:
+                        buffer.position(buffer.position() + 1);
+                        break;
+                    default:
+                        return false;
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
     public PQueryStatistics getQueryStatistics() {
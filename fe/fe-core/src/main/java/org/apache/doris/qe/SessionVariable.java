@@ -102,6 +102,10 @@ public class SessionVariable implements Serializable, Writable {
 
     public static final String ENABLE_FOLD_CONSTANT_BY_BE = "enable_fold_constant_by_be";
     public static final String ENABLE_ODBC_TRANSCATION = "enable_odbc_transcation";
+    public static final String ENABLE_JDBC_SINK_BATCH_WRITE = "enable_jdbc_sink_batch_write";
+    public static final String JDBC_SINK_PARALLELISM = "jdbc_sink_parallelism";
+    public static final String JDBC_SINK_COMMIT_INTERVAL = "jdbc_sink_commit_interval";
+    public static final String JDBC_SINK_USE_BULK_LOAD = "jdbc_sink_use_bulk_load";
     public static final String ENABLE_SQL_CACHE = "enable_sql_cache";
     public static final String ENABLE_PARTITION_CACHE = "enable_partition_cache";
 
@@ -282,6 +286,8 @@ public class SessionVariable implements Serializable, Writable {
     public static final String MAX_TABLE_COUNT_USE_CASCADES_JOIN_REORDER = "max_table_count_use_cascades_join_reorder";
     public static final int MIN_JOIN_REORDER_TABLE_COUNT = 2;
 
+    public static final String MEMO_MAX_GROUP_EXPRESSION_SIZE = "memo_max_group_expression_size";
+
     public static final String SHOW_USER_DEFAULT_ROLE = "show_user_default_role";
 
     public static final String DUMP_NEREIDS_MEMO = "dump_nereids_memo";
@@ -291,6 +297,8 @@ public class SessionVariable implements Serializable, Writable {
 
     public static final String DRY_RUN_QUERY = "dry_run_query";
 
+    public static final String RESULT_FETCH_PIPELINE_DEPTH = "result_fetch_pipeline_depth";
+
     public static final List<String> DEBUG_VARIABLES = ImmutableList.of(
             SKIP_DELETE_PREDICATE,
             SKIP_DELETE_BITMAP,
@@ -470,6 +478,22 @@ public class SessionVariable implements Serializable, Writable {
     @VariableMgr.VarAttr(name = ENABLE_ODBC_TRANSCATION)
     public boolean enableOdbcTransaction = false;
 
+    // write rows into a jdbc table with a batched PreparedStatement instead of literal INSERT statements
+    @VariableMgr.VarAttr(name = ENABLE_JDBC_SINK_BATCH_WRITE)
+    public boolean enableJdbcSinkBatchWrite = false;
+
+    // connections of a jdbc sink instance writing in parallel, only used by the batch write
+    @VariableMgr.VarAttr(name = JDBC_SINK_PARALLELISM)
+    public int jdbcSinkParallelism = 1;
+
+    // rows written by a connection of the batch write before commit, 0 means auto commit
+    @VariableMgr.VarAttr(name = JDBC_SINK_COMMIT_INTERVAL)
+    public int jdbcSinkCommitInterval = 0;
+
+    // use COPY of PostgreSQL or rewriteBatchedStatements of MySQL in the batch write
+    @VariableMgr.VarAttr(name = JDBC_SINK_USE_BULK_LOAD)
+    public boolean jdbcSinkUseBulkLoad = false;
+
     @VariableMgr.VarAttr(name = ENABLE_SQL_CACHE)
     public boolean enableSqlCache = false;
 
@@ -768,6 +792,11 @@ public class SessionVariable implements Serializable, Writable {
     @VariableMgr.VarAttr(name = MAX_TABLE_COUNT_USE_CASCADES_JOIN_REORDER)
     public int maxTableCountUseCascadesJoinReorder = 10;
 
+    // If the number of group expressions in memo exceeds this value, the cascades optimizer and DPHyp stop
+    // exploring join orders and keep the heuristic join order of rewrite stage. Non-positive value means no limit.
+    @VariableMgr.VarAttr(name = MEMO_MAX_GROUP_EXPRESSION_SIZE)
+    public int memoMaxGroupExpressionSize = 100000;
+
     // If this is true, the result of `show roles` will return all user default role
     @VariableMgr.VarAttr(name = SHOW_USER_DEFAULT_ROLE, needForward = true)
     public boolean showUserDefaultRole = false;
@@ -783,6 +812,11 @@ public class SessionVariable implements Serializable, Writable {
     @VariableMgr.VarAttr(name = DRY_RUN_QUERY, needForward = true)
     public boolean dryRunQuery = false;
 
+    // Max number of fetch result requests in flight to the backend which returns the query result.
+    // 1 means fetching the next batch only after the current one has been sent to the client.
+    @VariableMgr.VarAttr(name = RESULT_FETCH_PIPELINE_DEPTH)
+    public int resultFetchPipelineDepth = 2;
+
     // If this fe is in fuzzy mode, then will use initFuzzyModeVariables to generate some variables,
     // not the default value set in the code.
     public void initFuzzyModeVariables() {
@@ -1097,6 +1131,22 @@ public class SessionVariable implements Serializable, Writable {
         return enableOdbcTransaction;
     }
 
+    public boolean isEnableJdbcSinkBatchWrite() {
+        return enableJdbcSinkBatchWrite;
+    }
+
+    public int getJdbcSinkParallelism() {
+        return jdbcSinkParallelism;
+    }
+
+    public int getJdbcSinkCommitInterval() {
+        return jdbcSinkCommitInterval;
+    }
+
+    public boolean isJdbcSinkUseBulkLoad() {
+        return jdbcSinkUseBulkLoad;
+    }
+
     public String getPreferJoinMethod() {
         return preferJoinMethod;
     }
@@ -1595,6 +1645,14 @@ public class SessionVariable implements Serializable, Writable {
                         : maxTableCountUseCascadesJoinReorder;
     }
 
+    public int getMemoMaxGroupExpressionSize() {
+        return memoMaxGroupExpressionSize;
+    }
+
+    public void setMemoMaxGroupExpressionSize(int memoMaxGroupExpressionSize) {
+        this.memoMaxGroupExpressionSize = memoMaxGroupExpressionSize;
+    }
+
     public boolean isShowUserDefaultRole() {
         return showUserDefaultRole;
     }
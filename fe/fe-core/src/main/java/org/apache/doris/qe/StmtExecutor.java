@@ -36,6 +36,7 @@ import org.apache.doris.analysis.LoadStmt;
 import org.apache.doris.analysis.LockTablesStmt;
 import org.apache.doris.analysis.NullLiteral;
 import org.apache.doris.analysis.OutFileClause;
+import org.apache.doris.analysis.PlaceHolderExpr;
 import org.apache.doris.analysis.PrepareStmt;
 import org.apache.doris.analysis.Queriable;
 import org.apache.doris.analysis.QueryStmt;
@@ -200,6 +201,11 @@ public class StmtExecutor implements ProfileWriter {
     private QueryPlannerProfile plannerProfile = new QueryPlannerProfile();
     private String stmtName;
     private PrepareStmt prepareStmt;
+    // Set when executing a prepared query which is not a point query, see PreparedPlanCache
+    private PreparedPlanCache.Key preparedPlanKey;
+    private List<PlaceHolderExpr> preparedPlaceHolders;
+    private PreparedPlanCache.PreparedPlan preparedPlan;
+    private boolean preparedPlanShareable = false;
     private String mysqlLoadId;
 
     // The result schema if "dry_run_query" is true.
@@ -354,6 +360,11 @@ public class StmtExecutor implements ProfileWriter {
         return planner;
     }
 
+    // for test
+    PreparedPlanCache.PreparedPlan getPreparedPlan() {
+        return preparedPlan;
+    }
+
     public boolean isForwardToMaster() {
         if (Env.getCurrentEnv().isMaster()) {
             return false;
@@ -645,6 +656,10 @@ public class StmtExecutor implements ProfileWriter {
                 context.getState().setErrType(QueryState.ErrType.ANALYSIS_ERR);
             }
         } finally {
+            if (preparedPlan != null) {
+                PreparedPlanCache.getInstance().giveBack(preparedPlan);
+                preparedPlan = null;
+            }
             // revert Session Value
             try {
                 VariableMgr.revertSessionValue(sessionVariable);
@@ -714,7 +729,7 @@ public class StmtExecutor implements ProfileWriter {
             }
             initProfile(plannerProfile, isLastWriteProfile);
             profile.computeTimeInChildProfile();
-            ProfileManager.getInstance().pushProfile(profile);
+            ProfileManager.getInstance().pushProfile(profile, isLastWriteProfile);
             isFinishedProfile = isLastWriteProfile;
         }
     }
@@ -734,20 +749,28 @@ public class StmtExecutor implements ProfileWriter {
             if (preparedStmtCtx == null) {
                 throw new UserException("Could not execute, since `" + execStmt.getName() + "` not exist");
             }
-            // parsedStmt may already by set when constructing this StmtExecutor();
-            preparedStmtCtx.stmt.asignValues(execStmt.getArgs());
-            parsedStmt = preparedStmtCtx.stmt.getInnerStmt();
-            planner = preparedStmtCtx.planner;
-            analyzer = preparedStmtCtx.analyzer;
-            Preconditions.checkState(parsedStmt.isAnalyzed());
-            LOG.debug("already prepared stmt: {}", preparedStmtCtx.stmtString);
-            if (!preparedStmtCtx.stmt.needReAnalyze()) {
-                // Return directly to bypass analyze and plan
-                return;
+            if (!preparedStmtCtx.stmt.isPointQuery()) {
+                if (analyzeByPreparedPlan(preparedStmtCtx.stmt, execStmt.getArgs())) {
+                    // Return directly to bypass analyze and plan
+                    return;
+                }
+                // continue analyze the new parsed stmt
+            } else {
+                // parsedStmt may already by set when constructing this StmtExecutor();
+                preparedStmtCtx.stmt.asignValues(execStmt.getArgs());
+                parsedStmt = preparedStmtCtx.stmt.getInnerStmt();
+                planner = preparedStmtCtx.planner;
+                analyzer = preparedStmtCtx.analyzer;
+                Preconditions.checkState(parsedStmt.isAnalyzed());
+                LOG.debug("already prepared stmt: {}", preparedStmtCtx.stmtString);
+                if (!preparedStmtCtx.stmt.needReAnalyze()) {
+                    // Return directly to bypass analyze and plan
+                    return;
+                }
+                // continue analyze
+                preparedStmtReanalyzed = true;
+                preparedStmtCtx.stmt.analyze(analyzer);
             }
-            // continue analyze
-            preparedStmtReanalyzed = true;
-            preparedStmtCtx.stmt.analyze(analyzer);
         }
 
         parse();
@@ -765,6 +788,7 @@ public class StmtExecutor implements ProfileWriter {
             if (context.getCommand() == MysqlCommand.COM_STMT_PREPARE) {
                 prepareStmt = new PrepareStmt(parsedStmt,
                         String.valueOf(context.getEnv().getNextStmtId()), true /*binary protocol*/);
+                prepareStmt.setOrigStmt(parsedStmt.getOrigStmt());
             } else {
                 prepareStmt = (PrepareStmt) parsedStmt;
             }
@@ -772,6 +796,10 @@ public class StmtExecutor implements ProfileWriter {
             prepareStmt.analyze(analyzer);
             // Need analyze inner statement
             parsedStmt = prepareStmt.getInnerStmt();
+            if (!prepareStmt.isPointQuery()) {
+                // Analyze and plan on execute, when the types of place holders are known
+                return;
+            }
         }
 
         // Convert show statement to select statement here
@@ -832,6 +860,11 @@ public class StmtExecutor implements ProfileWriter {
                     MetaLockUtils.readUnlockTables(tables);
                 }
             }
+            if (preparedPlanKey != null && preparedPlanShareable) {
+                // Owned by this executor, and will be given back to PreparedPlanCache after execute
+                preparedPlan = PreparedPlanCache.PreparedPlan.create(context, preparedPlanKey, parsedStmt,
+                        preparedPlaceHolders, analyzer, planner, tables);
+            }
         } else {
             try {
                 parsedStmt.analyze(analyzer);
@@ -851,6 +884,56 @@ public class StmtExecutor implements ProfileWriter {
         }
     }
 
+    // Analyze a prepared query which is not a point query. Return true if a cached plan is reused with
+    // the args bound, otherwise the query is parsed again with the args bound and needs to be planned.
+    private boolean analyzeByPreparedPlan(PrepareStmt stmt, List<LiteralExpr> args) throws UserException {
+        if (args.size() != stmt.argsSize()) {
+            throw new UserException("Invalid arguments size " + args.size() + ", expected " + stmt.argsSize());
+        }
+        if (PreparedPlanCache.isEnabled()) {
+            preparedPlanKey = new PreparedPlanCache.Key(context, stmt, args);
+            PreparedPlanCache.PreparedPlan plan;
+            while ((plan = PreparedPlanCache.getInstance().borrow(preparedPlanKey)) != null) {
+                if (plan.isValid(context)) {
+                    break;
+                }
+                LOG.debug("drop invalid prepared plan of stmt: {}", stmt.getName());
+            }
+            if (plan != null) {
+                preparedPlan = plan;
+                plan.bind(context, args);
+                plan.refreshScanRanges();
+                setParsedStmt(plan.getStmt());
+                analyzer = plan.getAnalyzer();
+                planner = plan.getPlanner();
+                return true;
+            }
+        }
+        // The prepared stmt is shared by executes of the connection, so parse a new one owning its place holders
+        OriginStatement origStmt = stmt.getOrigStmt();
+        SqlScanner input = new SqlScanner(new StringReader(origStmt.originStmt),
+                context.getSessionVariable().getSqlMode());
+        StatementBase innerStmt;
+        try {
+            innerStmt = SqlParserUtils.getStmt(new SqlParser(input), origStmt.idx);
+        } catch (Exception e) {
+            LOG.info("unexpected exception happened when parsing prepared stmt {}", origStmt, e);
+            throw new AnalysisException("Unexpected exception: " + e.getMessage());
+        }
+        if (innerStmt instanceof PrepareStmt) {
+            innerStmt = ((PrepareStmt) innerStmt).getInnerStmt();
+        }
+        innerStmt.setOrigStmt(origStmt);
+        innerStmt.setUserInfo(context.getCurrentUserIdentity());
+        preparedPlaceHolders = PrepareStmt.collectPlaceHolders((SelectStmt) innerStmt);
+        Preconditions.checkState(preparedPlaceHolders.size() == args.size());
+        for (int i = 0; i < args.size(); ++i) {
+            preparedPlaceHolders.get(i).setLiteral(args.get(i));
+        }
+        setParsedStmt(innerStmt);
+        return false;
+    }
+
     private void parse() throws AnalysisException, DdlException {
         // parsedStmt may already by set when constructing this StmtExecutor();
         if (parsedStmt == null) {
@@ -901,6 +984,11 @@ public class StmtExecutor implements ProfileWriter {
             }
         }
         parsedStmt.analyze(analyzer);
+        if (preparedPlanKey != null) {
+            // Checked before rewriting, which folds session functions like connection_id() into literals
+            preparedPlanShareable = parsedStmt instanceof QueryStmt
+                    && PreparedPlanCache.isShareable((QueryStmt) parsedStmt);
+        }
         if (parsedStmt instanceof QueryStmt || parsedStmt instanceof InsertStmt) {
             ExprRewriter rewriter = analyzer.getExprRewriter();
             rewriter.reset();
@@ -1260,7 +1348,7 @@ public class StmtExecutor implements ProfileWriter {
                 plannerProfile.freshFetchResultConsumeTime();
 
                 // for outfile query, there will be only one empty batch send back with eos flag
-                if (batch.getBatch() != null) {
+                if (batch.hasBatch()) {
                     if (cacheAnalyzer != null) {
                         cacheAnalyzer.copyRowBatch(batch);
                     }
@@ -1278,11 +1366,9 @@ public class StmtExecutor implements ProfileWriter {
                         }
                         isSendFields = true;
                     }
-                    for (ByteBuffer row : batch.getBatch().getRows()) {
-                        channel.sendOnePacket(row);
-                    }
+                    batch.sendRows(channel);
                     plannerProfile.freshWriteResultConsumeTime();
-                    context.updateReturnRows(batch.getBatch().getRows().size());
+                    context.updateReturnRows(batch.getRowNum());
                 }
                 if (batch.isEos()) {
                     break;
@@ -1805,8 +1891,10 @@ public class StmtExecutor implements ProfileWriter {
         // serializer.writeInt1(0);
         context.getMysqlChannel().sendOnePacket(serializer.toByteBuffer());
         if (numParams > 0) {
-            sendFields(prepareStmt.getColLabelsOfPlaceHolders(),
-                        exprToType(prepareStmt.getSlotRefOfPlaceHolders()));
+            // The types of place holders of a query which is not a point query are sent by client on execute
+            sendFields(prepareStmt.getColLabelsOfPlaceHolders(), prepareStmt.isPointQuery()
+                        ? exprToType(prepareStmt.getSlotRefOfPlaceHolders())
+                        : Collections.nCopies(numParams, PrimitiveType.VARCHAR));
         }
         context.getState().setOk();
     }
@@ -0,0 +1,231 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.qe.cache;
+
+import org.apache.doris.common.Config;
+import org.apache.doris.common.Status;
+import org.apache.doris.proto.InternalService;
+import org.apache.doris.proto.Types;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A FE-local cache tier in front of the BE cache.
+ * The cached values are kept in direct buffers out of the java heap, and are bounded by
+ * Config.cache_fe_local_max_bytes in total. The least recently used sql keys are evicted first.
+ * Only the requests which hit all the partitions locally are served by FE, others are sent to BE.
+ * A cached partition whose version is older than the request is stale, it is removed when it is fetched.
+ */
+public class CacheFeProxy extends CacheProxy {
+    private static final Logger LOG = LogManager.getLogger(CacheFeProxy.class);
+
+    private static final LocalCache LOCAL_CACHE = new LocalCache();
+
+    private final CacheBeProxy beProxy = new CacheBeProxy();
+
+    public static boolean isEnabled() {
+        return Config.cache_fe_local_max_bytes > 0;
+    }
+
+    @Override
+    public void updateCache(InternalService.PUpdateCacheRequest request, int timeoutMs, Status status) {
+        LOCAL_CACHE.update(request);
+        beProxy.updateCache(request, timeoutMs, status);
+    }
+
+    @Override
+    public InternalService.PFetchCacheResult fetchCache(InternalService.PFetchCacheRequest request,
+                                                        int timeoutMs, Status status) {
+        List<InternalService.PCacheValue> values = LOCAL_CACHE.fetch(request);
+        if (values != null) {
+            return InternalService.PFetchCacheResult.newBuilder()
+                    .setStatus(InternalService.PCacheStatus.CACHE_OK).addAllValues(values).build();
+        }
+        InternalService.PFetchCacheResult result = beProxy.fetchCache(request, timeoutMs, status);
+        // fill the local cache with the full hit of BE, e.g. the cache filled by other FEs
+        if (status.ok() && result != null && result.getStatus() == InternalService.PCacheStatus.CACHE_OK
+                && result.getValuesCount() == request.getParamsCount()) {
+            LOCAL_CACHE.update(InternalService.PUpdateCacheRequest.newBuilder().setSqlKey(request.getSqlKey())
+                    .addAllValues(result.getValuesList()).setCacheType(InternalService.CacheType.PARTITION_CACHE)
+                    .build());
+        }
+        return result;
+    }
+
+    @Override
+    public void clearCache(InternalService.PClearCacheRequest clearRequest) {
+        LOCAL_CACHE.clear();
+        beProxy.clearCache(clearRequest);
+    }
+
+    private static class CacheKey {
+        private final long hi;
+        private final long lo;
+
+        CacheKey(Types.PUniqueId key) {
+            this.hi = key.getHi();
+            this.lo = key.getLo();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return hi == other.hi && lo == other.lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hi) * 31 + Long.hashCode(lo);
+        }
+    }
+
+    static class LocalCache {
+        // in access order, from the least recently used to the most recently used
+        private final LinkedHashMap<CacheKey, Map<Long, ByteBuffer>> nodes = new LinkedHashMap<>(16, 0.75f, true);
+        private long totalBytes = 0;
+
+        public List<InternalService.PCacheValue> fetch(InternalService.PFetchCacheRequest request) {
+            if (!isEnabled() || request.getParamsCount() == 0) {
+                return null;
+            }
+            List<ByteBuffer> buffers = Lists.newArrayListWithCapacity(request.getParamsCount());
+            synchronized (this) {
+                Map<Long, ByteBuffer> partitions = nodes.get(new CacheKey(request.getSqlKey()));
+                if (partitions == null) {
+                    return null;
+                }
+                for (InternalService.PCacheParam param : request.getParamsList()) {
+                    ByteBuffer buffer = partitions.get(param.getPartitionKey());
+                    if (buffer == null) {
+                        return null;
+                    }
+                    buffers.add(buffer.duplicate());
+                }
+            }
+
+            List<InternalService.PCacheValue> values = Lists.newArrayListWithCapacity(buffers.size());
+            for (int i = 0; i < buffers.size(); i++) {
+                InternalService.PCacheParam param = request.getParams(i);
+                InternalService.PCacheValue value;
+                try {
+                    value = InternalService.PCacheValue.parseFrom(buffers.get(i));
+                } catch (InvalidProtocolBufferException e) {
+                    LOG.warn("failed to parse local cache value", e);
+                    invalidate(request.getSqlKey(), param.getPartitionKey());
+                    return null;
+                }
+                if (param.getLastVersion() > value.getParam().getLastVersion()
+                        || param.getLastVersionTime() > value.getParam().getLastVersionTime()) {
+                    // the partition has been updated since it was cached
+                    invalidate(request.getSqlKey(), param.getPartitionKey());
+                    return null;
+                }
+                values.add(value);
+            }
+            return values;
+        }
+
+        public void update(InternalService.PUpdateCacheRequest request) {
+            if (!isEnabled()) {
+                clear();
+                return;
+            }
+            if (request.getValuesCount() == 0) {
+                return;
+            }
+            Map<Long, ByteBuffer> buffers = Maps.newHashMap();
+            for (InternalService.PCacheValue value : request.getValuesList()) {
+                byte[] bytes = value.toByteArray();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+                buffer.put(bytes).flip();
+                buffers.put(value.getParam().getPartitionKey(), buffer);
+            }
+
+            synchronized (this) {
+                CacheKey key = new CacheKey(request.getSqlKey());
+                Map<Long, ByteBuffer> partitions = nodes.get(key);
+                if (partitions == null || request.getCacheType() == InternalService.CacheType.SQL_CACHE) {
+                    // the sql cache has only one value, which is replaced as a whole
+                    removeNode(key);
+                    partitions = Maps.newHashMap();
+                    nodes.put(key, partitions);
+                }
+                for (Map.Entry<Long, ByteBuffer> entry : buffers.entrySet()) {
+                    ByteBuffer old = partitions.put(entry.getKey(), entry.getValue());
+                    totalBytes += entry.getValue().capacity() - (old == null ? 0 : old.capacity());
+                }
+                evict();
+            }
+        }
+
+        public synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public synchronized void clear() {
+            nodes.clear();
+            totalBytes = 0;
+        }
+
+        private synchronized void invalidate(Types.PUniqueId sqlKey, long partitionKey) {
+            Map<Long, ByteBuffer> partitions = nodes.get(new CacheKey(sqlKey));
+            if (partitions == null) {
+                return;
+            }
+            ByteBuffer old = partitions.remove(partitionKey);
+            if (old != null) {
+                totalBytes -= old.capacity();
+            }
+        }
+
+        // must hold the lock
+        private void removeNode(CacheKey key) {
+            Map<Long, ByteBuffer> partitions = nodes.remove(key);
+            if (partitions != null) {
+                for (ByteBuffer buffer : partitions.values()) {
+                    totalBytes -= buffer.capacity();
+                }
+            }
+        }
+
+        // must hold the lock
+        private void evict() {
+            Iterator<Map.Entry<CacheKey, Map<Long, ByteBuffer>>> iter = nodes.entrySet().iterator();
+            while (totalBytes > Config.cache_fe_local_max_bytes && iter.hasNext()) {
+                for (ByteBuffer buffer : iter.next().getValue().values()) {
+                    totalBytes -= buffer.capacity();
+                }
+                iter.remove();
+            }
+        }
+    }
+}
@@ -49,6 +49,8 @@ public abstract class CacheProxy {
     public static CacheProxy getCacheProxy(CacheProxyType type) {
         if (CacheProxyType.BE == type) {
             return new CacheBeProxy();
+        } else if (CacheProxyType.FE == type) {
+            return new CacheFeProxy();
         }
         return null;
     }
@@ -82,7 +82,6 @@ public class SqlCache extends Cache {
                 rowBatchBuilder.buildSqlUpdateRequest(getSqlWithViewStmt(), latestTable.latestPartitionId,
                         latestTable.latestVersion, latestTable.latestTime);
         if (updateRequest.getValuesCount() > 0) {
-            CacheBeProxy proxy = new CacheBeProxy();
             Status status = new Status();
             proxy.updateCache(updateRequest, CacheProxy.UPDATE_TIMEOUT, status);
             int rowCount = 0;
@@ -29,6 +29,7 @@ import org.apache.doris.analysis.Expr;
 import org.apache.doris.analysis.InformationFunction;
 import org.apache.doris.analysis.LiteralExpr;
 import org.apache.doris.analysis.NullLiteral;
+import org.apache.doris.analysis.PlaceHolderExpr;
 import org.apache.doris.analysis.SysVariableDesc;
 import org.apache.doris.catalog.Env;
 import org.apache.doris.catalog.PrimitiveType;
@@ -41,6 +42,7 @@ import org.apache.doris.common.util.VectorizedUtil;
 import org.apache.doris.proto.InternalService;
 import org.apache.doris.proto.Types.PScalarType;
 import org.apache.doris.qe.ConnectContext;
+import org.apache.doris.qe.PreparedPlanCache;
 import org.apache.doris.qe.VariableMgr;
 import org.apache.doris.rpc.BackendServiceProxy;
 import org.apache.doris.system.Backend;
@@ -108,6 +110,11 @@ public class FoldConstantsRule implements ExprRewriteRule {
             return expr;
         }
 
+        // The value of placeholder may be changed when the plan of prepared stmt is cached and reused
+        if (PreparedPlanCache.isEnabled() && expr.contains(PlaceHolderExpr.class)) {
+            return expr;
+        }
+
         // Do not constant fold cast(null as dataType) because we cannot preserve the
         // cast-to-types and that can lead to query failures, e.g., CTAS
         if (expr instanceof CastExpr) {
@@ -201,7 +208,7 @@ public class FoldConstantsRule implements ExprRewriteRule {
     public void getConstExpr(Expr expr, Map<String, TExpr> constExprMap, Map<String, Expr> oriConstMap,
             Analyzer analyzer, Map<String, Expr> sysVarMap, Map<String, Expr> infoFnMap)
             throws AnalysisException {
-        if (expr.isConstant()) {
+        if (expr.isConstant() && !(PreparedPlanCache.isEnabled() && expr.contains(PlaceHolderExpr.class))) {
             // Do not constant fold cast(null as dataType) because we cannot preserve the
             // cast-to-types and that can lead to query failures, e.g., CTAS
             if (expr instanceof CastExpr) {
@@ -110,16 +110,25 @@ public class BackendServiceProxy {
 
     public Future<InternalService.PExecPlanFragmentResult> execPlanFragmentsAsync(TNetworkAddress address,
             TExecPlanFragmentParamsList paramsList, boolean twoPhaseExecution) throws TException, RpcException {
-        InternalService.PExecPlanFragmentRequest.Builder builder =
-                InternalService.PExecPlanFragmentRequest.newBuilder();
+        byte[] request;
         if (Config.use_compact_thrift_rpc) {
-            builder.setRequest(
-                    ByteString.copyFrom(new TSerializer(new TCompactProtocol.Factory()).serialize(paramsList)));
-            builder.setCompact(true);
+            request = new TSerializer(new TCompactProtocol.Factory()).serialize(paramsList);
         } else {
-            builder.setRequest(ByteString.copyFrom(new TSerializer().serialize(paramsList))).build();
-            builder.setCompact(false);
+            request = new TSerializer().serialize(paramsList);
         }
+        return execPlanFragmentsAsync(address, request, Config.use_compact_thrift_rpc, twoPhaseExecution);
+    }
+
+    /**
+     * Send an already serialized TExecPlanFragmentParamsList, eg, by FragmentParamsSerializer.
+     * compact indicates whether it is serialized by TCompactProtocol or TBinaryProtocol.
+     */
+    public Future<InternalService.PExecPlanFragmentResult> execPlanFragmentsAsync(TNetworkAddress address,
+            byte[] serializedParamsList, boolean compact, boolean twoPhaseExecution) throws RpcException {
+        InternalService.PExecPlanFragmentRequest.Builder builder =
+                InternalService.PExecPlanFragmentRequest.newBuilder();
+        builder.setRequest(ByteString.copyFrom(serializedParamsList));
+        builder.setCompact(compact);
         // VERSION 2 means we send TExecPlanFragmentParamsList, not single TExecPlanFragmentParams
         builder.setVersion(InternalService.PFragmentRequestVersion.VERSION_2);
 
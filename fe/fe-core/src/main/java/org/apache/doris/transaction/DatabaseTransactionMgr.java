@@ -59,8 +59,8 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -77,6 +77,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
@@ -86,6 +89,14 @@ import java.util.stream.Collectors;
  * 1. provide read/write lock in database level
  * 2. provide basic txn infos interface in database level to GlobalTransactionMgr
  * 3. do some transaction management, such as add/update/delete transaction.
+ * Locking:
+ * 1. transaction states and labels are kept in concurrent maps, so lookups do not take any lock.
+ * 2. beginTransaction only locks the stripe of its label, to dedup labels without blocking other labels.
+ * 3. commit only locks the stripe of its transaction. The partition versions are protected by the
+ *    table write locks which the caller already owns.
+ * 4. transitions to a final status (VISIBLE/ABORTED), removing expired txns and replaying take the
+ *    transaction write lock, because the order of final status txns in the deques must be the same as
+ *    the order in edit log. They lock the transaction stripe inside the write lock.
  * Attention: all api in DatabaseTransactionMgr should be only invoked by GlobalTransactionMgr
  */
 
@@ -96,17 +107,29 @@ public class DatabaseTransactionMgr {
     // set it to avoid holding lock too long when removing too many txns per round.
     private static final int MAX_REMOVE_TXN_PER_ROUND = 10000;
 
+    private static final int LOCK_STRIPES = 64;
+
     private final long dbId;
 
-    // the lock is used to control the access to transaction states
-    // no other locks should be inside this lock
+    // the lock is used to control the transitions to final status and the final status deques.
+    // only the transaction stripe locks can be inside this lock
     private final ReentrantReadWriteLock transactionLock = new ReentrantReadWriteLock(true);
 
+    // label -> lock, held when checking and adding a label in beginTransaction
+    private final Striped<Lock> labelLocks = Striped.lock(LOCK_STRIPES);
+
+    // transactionId -> lock, held when changing the status of a transaction
+    private final Striped<Lock> txnLocks = Striped.lock(LOCK_STRIPES);
+
+    // held in shared mode from allocating a txn id to adding the txn into idToRunningTransactionState,
+    // so that the holder of the exclusive mode can see all txns whose id is allocated before.
+    private final ReentrantReadWriteLock txnIdAllocationLock = new ReentrantReadWriteLock();
+
     // transactionId -> running TransactionState
-    private final Map<Long, TransactionState> idToRunningTransactionState = Maps.newHashMap();
+    private final Map<Long, TransactionState> idToRunningTransactionState = new ConcurrentHashMap<>();
 
     // transactionId -> final status TransactionState
-    private final Map<Long, TransactionState> idToFinalStatusTransactionState = Maps.newHashMap();
+    private final Map<Long, TransactionState> idToFinalStatusTransactionState = new ConcurrentHashMap<>();
 
     // The following 2 queues are to store transactionStates with final status
     // These queues are mainly used to avoid traversing all txns and speed up the cleaning time
@@ -123,14 +146,15 @@ public class DatabaseTransactionMgr {
     // this member should be consistent with idToTransactionState,
     // which means if a txn exist in idToRunningTransactionState or idToFinalStatusTransactionState
     // it must exists in dbIdToTxnLabels, and vice versa
-    private final Map<String, Set<Long>> labelToTxnIds = Maps.newHashMap();
+    // the txn id sets are only modified inside ConcurrentHashMap.compute() of their label
+    private final Map<String, Set<Long>> labelToTxnIds = new ConcurrentHashMap<>();
 
     // count the number of running txns of database, except for the routine load txn
-    private volatile int runningTxnNums = 0;
-    private volatile int runningTxnReplicaNums = 0;
+    private final AtomicInteger runningTxnNums = new AtomicInteger(0);
+    private final AtomicInteger runningTxnReplicaNums = new AtomicInteger(0);
 
     // count only the number of running routine load txns of database
-    private volatile int runningRoutineLoadTxnNums = 0;
+    private final AtomicInteger runningRoutineLoadTxnNums = new AtomicInteger(0);
 
     private final Env env;
 
@@ -171,26 +195,17 @@ public class DatabaseTransactionMgr {
     }
 
     public TransactionState getTransactionState(Long transactionId) {
-        readLock();
-        try {
-            TransactionState transactionState = idToRunningTransactionState.get(transactionId);
-            if (transactionState != null) {
-                return transactionState;
-            } else {
-                return idToFinalStatusTransactionState.get(transactionId);
-            }
-        } finally {
-            readUnlock();
-        }
+        return unprotectedGetTransactionState(transactionId);
     }
 
     private TransactionState unprotectedGetTransactionState(Long transactionId) {
         TransactionState transactionState = idToRunningTransactionState.get(transactionId);
         if (transactionState != null) {
             return transactionState;
-        } else {
-            return idToFinalStatusTransactionState.get(transactionId);
         }
+        // a txn is put into the final map before it is removed from the running map,
+        // so it can not be missed if it is moved between the two lookups
+        return idToFinalStatusTransactionState.get(transactionId);
     }
 
     @VisibleForTesting
@@ -199,11 +214,11 @@ public class DatabaseTransactionMgr {
     }
 
     public int getRunningTxnNums() {
-        return runningTxnNums;
+        return runningTxnNums.get();
     }
 
     protected int getRunningRoutineLoadTxnNums() {
-        return runningRoutineLoadTxnNums;
+        return runningRoutineLoadTxnNums.get();
     }
 
     @VisibleForTesting
@@ -214,50 +229,40 @@ public class DatabaseTransactionMgr {
     public List<List<String>> getTxnStateInfoList(boolean running, int limit) {
         List<List<String>> infos = Lists.newArrayList();
         Collection<TransactionState> transactionStateCollection = null;
-        readLock();
-        try {
-            if (running) {
-                transactionStateCollection = idToRunningTransactionState.values();
-            } else {
-                transactionStateCollection = idToFinalStatusTransactionState.values();
-            }
-            // get transaction order by txn id desc limit 'limit'
-            transactionStateCollection.stream()
-                    .sorted(TransactionState.TXN_ID_COMPARATOR)
-                    .limit(limit)
-                    .forEach(t -> {
-                        List<String> info = Lists.newArrayList();
-                        getTxnStateInfo(t, info);
-                        infos.add(info);
-                    });
-        } finally {
-            readUnlock();
-        }
+        if (running) {
+            transactionStateCollection = idToRunningTransactionState.values();
+        } else {
+            transactionStateCollection = idToFinalStatusTransactionState.values();
+        }
+        // get transaction order by txn id desc limit 'limit'
+        transactionStateCollection.stream()
+                .sorted(TransactionState.TXN_ID_COMPARATOR)
+                .limit(limit)
+                .forEach(t -> {
+                    List<String> info = Lists.newArrayList();
+                    getTxnStateInfo(t, info);
+                    infos.add(info);
+                });
         return infos;
     }
 
     public List<List<String>> getTxnStateInfoList(TransactionStatus status) {
         List<List<String>> infos = Lists.newArrayList();
         Collection<TransactionState> transactionStateCollection = null;
-        readLock();
-        try {
-            if (status == TransactionStatus.VISIBLE || status == TransactionStatus.ABORTED) {
-                transactionStateCollection = idToFinalStatusTransactionState.values();
-            } else {
-                transactionStateCollection = idToRunningTransactionState.values();
-            }
-            // get transaction order by txn id desc limit 'limit'
-            transactionStateCollection.stream()
-                    .filter(transactionState -> (transactionState.getTransactionStatus() == status))
-                    .sorted(TransactionState.TXN_ID_COMPARATOR)
-                    .forEach(t -> {
-                        List<String> info = Lists.newArrayList();
-                        getTxnStateInfo(t, info);
-                        infos.add(info);
-                    });
-        } finally {
-            readUnlock();
-        }
+        if (status == TransactionStatus.VISIBLE || status == TransactionStatus.ABORTED) {
+            transactionStateCollection = idToFinalStatusTransactionState.values();
+        } else {
+            transactionStateCollection = idToRunningTransactionState.values();
+        }
+        // get transaction order by txn id desc limit 'limit'
+        transactionStateCollection.stream()
+                .filter(transactionState -> (transactionState.getTransactionStatus() == status))
+                .sorted(TransactionState.TXN_ID_COMPARATOR)
+                .forEach(t -> {
+                    List<String> info = Lists.newArrayList();
+                    getTxnStateInfo(t, info);
+                    infos.add(info);
+                });
         return infos;
     }
 
@@ -285,10 +290,11 @@ public class DatabaseTransactionMgr {
             throws DuplicatedRequestException, LabelAlreadyUsedException, BeginTransactionException,
             AnalysisException, QuotaExceedException, MetaNotFoundException {
         checkDatabaseDataQuota();
-        writeLock();
+        Preconditions.checkNotNull(coordinator);
+        Preconditions.checkNotNull(label);
+        Lock labelLock = labelLocks.get(label);
+        labelLock.lock();
         try {
-            Preconditions.checkNotNull(coordinator);
-            Preconditions.checkNotNull(label);
             FeNameFormat.checkLabel(label);
 
             /*
@@ -303,8 +309,8 @@ public class DatabaseTransactionMgr {
                 List<TransactionState> notAbortedTxns = Lists.newArrayList();
                 for (long txnId : existingTxnIds) {
                     TransactionState txn = unprotectedGetTransactionState(txnId);
-                    Preconditions.checkNotNull(txn);
-                    if (txn.getTransactionStatus() != TransactionStatus.ABORTED) {
+                    // the txn may be removed as expired concurrently
+                    if (txn != null && txn.getTransactionStatus() != TransactionStatus.ABORTED) {
                         notAbortedTxns.add(txn);
                     }
                 }
@@ -323,15 +329,25 @@ public class DatabaseTransactionMgr {
                 }
             }
 
-            checkRunningTxnExceedLimit(sourceType);
-
-            long tid = idGenerator.getNextTransactionId();
+            boolean reserved = reserveRunningTxn(sourceType);
+            boolean added = false;
+            long tid;
+            txnIdAllocationLock.readLock().lock();
+            try {
+                tid = idGenerator.getNextTransactionId();
+                TransactionState transactionState = new TransactionState(dbId, tableIdList,
+                        tid, label, requestId, sourceType, coordinator, listenerId, timeoutSecond * 1000);
+                transactionState.setPrepareTime(System.currentTimeMillis());
+                unprotectUpsertTransactionState(transactionState, false, reserved);
+                added = true;
+            } finally {
+                txnIdAllocationLock.readLock().unlock();
+                if (reserved && !added) {
+                    runningTxnNums.decrementAndGet();
+                }
+            }
             LOG.info("begin transaction: txn id {} with label {} from coordinator {}, listener id: {}",
                     tid, label, coordinator, listenerId);
-            TransactionState transactionState = new TransactionState(dbId, tableIdList,
-                    tid, label, requestId, sourceType, coordinator, listenerId, timeoutSecond * 1000);
-            transactionState.setPrepareTime(System.currentTimeMillis());
-            unprotectUpsertTransactionState(transactionState, false);
 
             if (MetricRepo.isInit) {
                 MetricRepo.COUNTER_TXN_BEGIN.increase(1L);
@@ -346,7 +362,7 @@ public class DatabaseTransactionMgr {
             }
             throw e;
         } finally {
-            writeUnlock();
+            labelLock.unlock();
         }
     }
 
@@ -373,13 +389,7 @@ public class DatabaseTransactionMgr {
         // check status
         // the caller method already own db lock, we do not obtain db lock here
         Database db = env.getInternalCatalog().getDbOrMetaException(dbId);
-        TransactionState transactionState;
-        readLock();
-        try {
-            transactionState = unprotectedGetTransactionState(transactionId);
-        } finally {
-            readUnlock();
-        }
+        TransactionState transactionState = unprotectedGetTransactionState(transactionId);
         if (transactionState == null
                 || transactionState.getTransactionStatus() == TransactionStatus.ABORTED) {
             throw new TransactionCommitFailedException(
@@ -408,8 +418,14 @@ public class DatabaseTransactionMgr {
         checkCommitStatus(tableList, transactionState, tabletCommitInfos, txnCommitAttachment, errorReplicaIds,
                           tableToPartition, totalInvolvedBackends);
 
-        unprotectedPreCommitTransaction2PC(transactionState, errorReplicaIds, tableToPartition,
-                totalInvolvedBackends, db);
+        Lock txnLock = txnLocks.get(transactionId);
+        txnLock.lock();
+        try {
+            unprotectedPreCommitTransaction2PC(transactionState, errorReplicaIds, tableToPartition,
+                    totalInvolvedBackends, db);
+        } finally {
+            txnLock.unlock();
+        }
         LOG.info("transaction:[{}] successfully pre-committed", transactionState);
     }
 
@@ -589,13 +605,7 @@ public class DatabaseTransactionMgr {
         // check status
         // the caller method already own tables' write lock
         Database db = env.getInternalCatalog().getDbOrMetaException(dbId);
-        TransactionState transactionState;
-        readLock();
-        try {
-            transactionState = unprotectedGetTransactionState(transactionId);
-        } finally {
-            readUnlock();
-        }
+        TransactionState transactionState = unprotectedGetTransactionState(transactionId);
 
         if (transactionState == null) {
             LOG.debug("transaction not found: {}", transactionId);
@@ -642,8 +652,10 @@ public class DatabaseTransactionMgr {
         // before state transform
         transactionState.beforeStateTransform(TransactionStatus.COMMITTED);
         // transaction state transform
+        // COMMITTED is not a final status, so only the transaction itself is locked
         boolean txnOperated = false;
-        writeLock();
+        Lock txnLock = txnLocks.get(transactionId);
+        txnLock.lock();
         try {
             if (is2PC) {
                 unprotectedCommitTransaction2PC(transactionState, db);
@@ -653,7 +665,7 @@ public class DatabaseTransactionMgr {
             }
             txnOperated = true;
         } finally {
-            writeUnlock();
+            txnLock.unlock();
             // after state transform
             transactionState.afterStateTransform(TransactionStatus.COMMITTED, txnOperated);
         }
@@ -661,17 +673,13 @@ public class DatabaseTransactionMgr {
         // update nextVersion because of the failure of persistent transaction resulting in error version
         updateCatalogAfterCommitted(transactionState, db);
         LOG.info("transaction:[{}] successfully committed", transactionState);
+        // publish the transaction right now instead of waiting for the next round
+        env.getPublishVersionDaemon().wakeUp();
     }
 
     public boolean waitForTransactionFinished(DatabaseIf db, long transactionId, long timeoutMillis)
             throws TransactionCommitFailedException {
-        TransactionState transactionState = null;
-        readLock();
-        try {
-            transactionState = unprotectedGetTransactionState(transactionId);
-        } finally {
-            readUnlock();
-        }
+        TransactionState transactionState = unprotectedGetTransactionState(transactionId);
 
         switch (transactionState.getTransactionStatus()) {
             case COMMITTED:
@@ -770,70 +778,46 @@ public class DatabaseTransactionMgr {
     }
 
     public TransactionStatus getLabelState(String label) {
-        readLock();
-        try {
-            Set<Long> existingTxnIds = unprotectedGetTxnIdsByLabel(label);
-            if (existingTxnIds == null || existingTxnIds.isEmpty()) {
-                return TransactionStatus.UNKNOWN;
-            }
-            // find the latest txn (which id is largest)
-            long maxTxnId = existingTxnIds.stream().max(Comparator.comparingLong(Long::valueOf)).get();
-            return unprotectedGetTransactionState(maxTxnId).getTransactionStatus();
-        } finally {
-            readUnlock();
+        Set<Long> existingTxnIds = unprotectedGetTxnIdsByLabel(label);
+        if (existingTxnIds == null) {
+            return TransactionStatus.UNKNOWN;
         }
+        // find the latest txn (which id is largest)
+        Long maxTxnId = existingTxnIds.stream().max(Comparator.comparingLong(Long::valueOf)).orElse(null);
+        TransactionState transactionState = maxTxnId == null ? null : unprotectedGetTransactionState(maxTxnId);
+        // the txn may be removed after getting the txn ids
+        return transactionState == null ? TransactionStatus.UNKNOWN : transactionState.getTransactionStatus();
     }
 
     public Long getTransactionId(String label) {
-        readLock();
-        try {
-            Set<Long> existingTxnIds = unprotectedGetTxnIdsByLabel(label);
-            if (existingTxnIds == null || existingTxnIds.isEmpty()) {
-                return null;
-            }
-            // find the latest txn (which id is largest)
-            return existingTxnIds.stream().max(Comparator.comparingLong(Long::valueOf)).get();
-        } finally {
-            readUnlock();
+        Set<Long> existingTxnIds = unprotectedGetTxnIdsByLabel(label);
+        if (existingTxnIds == null) {
+            return null;
         }
+        // find the latest txn (which id is largest)
+        return existingTxnIds.stream().max(Comparator.comparingLong(Long::valueOf)).orElse(null);
     }
 
     public List<TransactionState> getPreCommittedTxnList() {
-        readLock();
-        try {
-            // only send task to preCommitted transaction
-            return idToRunningTransactionState.values().stream()
-                    .filter(transactionState
-                            -> (transactionState.getTransactionStatus() == TransactionStatus.PRECOMMITTED))
-                    .sorted(Comparator.comparing(TransactionState::getPreCommitTime))
-                    .collect(Collectors.toList());
-        } finally {
-            readUnlock();
-        }
+        // only send task to preCommitted transaction
+        return idToRunningTransactionState.values().stream()
+                .filter(transactionState
+                        -> (transactionState.getTransactionStatus() == TransactionStatus.PRECOMMITTED))
+                .sorted(Comparator.comparing(TransactionState::getPreCommitTime))
+                .collect(Collectors.toList());
     }
 
     public List<TransactionState> getCommittedTxnList() {
-        readLock();
-        try {
-            // only send task to committed transaction
-            return idToRunningTransactionState.values().stream()
-                    .filter(transactionState ->
-                            (transactionState.getTransactionStatus() == TransactionStatus.COMMITTED))
-                    .sorted(Comparator.comparing(TransactionState::getCommitTime))
-                    .collect(Collectors.toList());
-        } finally {
-            readUnlock();
-        }
+        // only send task to committed transaction
+        return idToRunningTransactionState.values().stream()
+                .filter(transactionState ->
+                        (transactionState.getTransactionStatus() == TransactionStatus.COMMITTED))
+                .sorted(Comparator.comparing(TransactionState::getCommitTime))
+                .collect(Collectors.toList());
     }
 
     public void finishTransaction(long transactionId, Set<Long> errorReplicaIds) throws UserException {
-        TransactionState transactionState = null;
-        readLock();
-        try {
-            transactionState = unprotectedGetTransactionState(transactionId);
-        } finally {
-            readUnlock();
-        }
+        TransactionState transactionState = unprotectedGetTransactionState(transactionId);
         // add all commit errors and publish errors to a single set
         if (errorReplicaIds == null) {
             errorReplicaIds = Sets.newHashSet();
@@ -956,6 +940,8 @@ public class DatabaseTransactionMgr {
             }
             boolean txnOperated = false;
             writeLock();
+            Lock txnLock = txnLocks.get(transactionId);
+            txnLock.lock();
             try {
                 transactionState.setErrorReplicas(errorReplicaIds);
                 transactionState.setFinishTime(System.currentTimeMillis());
@@ -969,6 +955,7 @@ public class DatabaseTransactionMgr {
                 // So I add a log here for observation.
                 LOG.debug("after set transaction {} to visible", transactionState);
             } finally {
+                txnLock.unlock();
                 writeUnlock();
                 try {
                     transactionState.afterStateTransform(TransactionStatus.VISIBLE, txnOperated);
@@ -1103,6 +1090,12 @@ public class DatabaseTransactionMgr {
 
     // for add/update/delete TransactionState
     protected void unprotectUpsertTransactionState(TransactionState transactionState, boolean isReplay) {
+        unprotectUpsertTransactionState(transactionState, isReplay, false);
+    }
+
+    // runningTxnReserved means the new running txn has been counted by reserveRunningTxn()
+    private void unprotectUpsertTransactionState(TransactionState transactionState, boolean isReplay,
+            boolean runningTxnReserved) {
         // if this is a replay operation, we should not log it
         if (!isReplay) {
             if (transactionState.getTransactionStatus() != TransactionStatus.PREPARE
@@ -1117,20 +1110,21 @@ public class DatabaseTransactionMgr {
         if (!transactionState.getTransactionStatus().isFinalStatus()) {
             if (idToRunningTransactionState.put(transactionState.getTransactionId(), transactionState) == null) {
                 if (transactionState.getSourceType() == TransactionState.LoadJobSourceType.ROUTINE_LOAD_TASK) {
-                    runningRoutineLoadTxnNums++;
-                } else {
-                    runningTxnNums++;
+                    runningRoutineLoadTxnNums.incrementAndGet();
+                } else if (!runningTxnReserved) {
+                    runningTxnNums.incrementAndGet();
                 }
             }
         } else {
+            // put into final map before removing from running map, see unprotectedGetTransactionState()
+            idToFinalStatusTransactionState.put(transactionState.getTransactionId(), transactionState);
             if (idToRunningTransactionState.remove(transactionState.getTransactionId()) != null) {
                 if (transactionState.getSourceType() == TransactionState.LoadJobSourceType.ROUTINE_LOAD_TASK) {
-                    runningRoutineLoadTxnNums--;
+                    runningRoutineLoadTxnNums.decrementAndGet();
                 } else {
-                    runningTxnNums--;
+                    runningTxnNums.decrementAndGet();
                 }
             }
-            idToFinalStatusTransactionState.put(transactionState.getTransactionId(), transactionState);
             if (transactionState.isShortTxn()) {
                 finalStatusTransactionStateDequeShort.add(transactionState);
             } else {
@@ -1141,74 +1135,65 @@ public class DatabaseTransactionMgr {
     }
 
     public void registerTxnReplicas(long txnId, int replicaNum) throws UserException {
-        writeLock();
+        Lock txnLock = txnLocks.get(txnId);
+        txnLock.lock();
         try {
             TransactionState transactionState = idToRunningTransactionState.get(txnId);
             if (transactionState == null) {
                 throw new UserException("running transaction not found, txnId=" + txnId);
             }
             transactionState.setReplicaNum(replicaNum);
-            runningTxnReplicaNums += replicaNum;
+            runningTxnReplicaNums.addAndGet(replicaNum);
         } finally {
-            writeUnlock();
+            txnLock.unlock();
         }
     }
 
     public int getRunningTxnNum() {
-        readLock();
-        try {
-            return runningTxnNums;
-        } finally {
-            readUnlock();
-        }
+        return runningTxnNums.get();
     }
 
     public int getRunningTxnReplicaNum() {
-        readLock();
-        try {
-            return runningTxnReplicaNums;
-        } finally {
-            readUnlock();
-        }
+        return runningTxnReplicaNums.get();
     }
 
     private void updateTxnLabels(TransactionState transactionState) {
-        Set<Long> txnIds = labelToTxnIds.get(transactionState.getLabel());
-        if (txnIds == null) {
-            txnIds = Sets.newHashSet();
-            labelToTxnIds.put(transactionState.getLabel(), txnIds);
-        }
-        txnIds.add(transactionState.getTransactionId());
+        labelToTxnIds.compute(transactionState.getLabel(), (label, txnIds) -> {
+            if (txnIds == null) {
+                txnIds = Sets.newConcurrentHashSet();
+            }
+            txnIds.add(transactionState.getTransactionId());
+            return txnIds;
+        });
+    }
+
+    private void removeTxnLabel(String label, long txnId) {
+        labelToTxnIds.computeIfPresent(label, (key, txnIds) -> {
+            txnIds.remove(txnId);
+            return txnIds.isEmpty() ? null : txnIds;
+        });
     }
 
     public void abortTransaction(String label, String reason) throws UserException {
         Preconditions.checkNotNull(label);
-        long transactionId = -1;
-        readLock();
-        try {
-            Set<Long> existingTxns = unprotectedGetTxnIdsByLabel(label);
-            if (existingTxns == null || existingTxns.isEmpty()) {
-                throw new TransactionNotFoundException("transaction not found, label=" + label);
-            }
-            // find PREPARE txn. For one load label, there should be only one PREPARE txn.
-            TransactionState prepareTxn = null;
-            for (Long txnId : existingTxns) {
-                TransactionState txn = unprotectedGetTransactionState(txnId);
-                if (txn.getTransactionStatus() == TransactionStatus.PREPARE) {
-                    prepareTxn = txn;
-                    break;
-                }
-            }
-
-            if (prepareTxn == null) {
-                throw new TransactionNotFoundException("running transaction not found, label=" + label);
+        Set<Long> existingTxns = unprotectedGetTxnIdsByLabel(label);
+        if (existingTxns == null || existingTxns.isEmpty()) {
+            throw new TransactionNotFoundException("transaction not found, label=" + label);
+        }
+        // find PREPARE txn. For one load label, there should be only one PREPARE txn.
+        TransactionState prepareTxn = null;
+        for (Long txnId : existingTxns) {
+            TransactionState txn = unprotectedGetTransactionState(txnId);
+            if (txn != null && txn.getTransactionStatus() == TransactionStatus.PREPARE) {
+                prepareTxn = txn;
+                break;
             }
+        }
 
-            transactionId = prepareTxn.getTransactionId();
-        } finally {
-            readUnlock();
+        if (prepareTxn == null) {
+            throw new TransactionNotFoundException("running transaction not found, label=" + label);
         }
-        abortTransaction(transactionId, reason, null);
+        abortTransaction(prepareTxn.getTransactionId(), reason, null);
     }
 
     public void abortTransaction(long transactionId, String reason, TxnCommitAttachment txnCommitAttachment)
@@ -1218,13 +1203,7 @@ public class DatabaseTransactionMgr {
                     + " ignore abort operation", transactionId);
             return;
         }
-        TransactionState transactionState = null;
-        readLock();
-        try {
-            transactionState = idToRunningTransactionState.get(transactionId);
-        } finally {
-            readUnlock();
-        }
+        TransactionState transactionState = idToRunningTransactionState.get(transactionId);
         if (transactionState == null) {
             throw new TransactionNotFoundException("transaction not found", transactionId);
         }
@@ -1264,13 +1243,7 @@ public class DatabaseTransactionMgr {
                     + " ignore abort operation", transactionId);
             return;
         }
-        TransactionState transactionState;
-        readLock();
-        try {
-            transactionState = unprotectedGetTransactionState(transactionId);
-        } finally {
-            readUnlock();
-        }
+        TransactionState transactionState = unprotectedGetTransactionState(transactionId);
 
         if (transactionState == null) {
             throw new TransactionNotFoundException("transaction [" + transactionId + "] not found");
@@ -1300,6 +1273,17 @@ public class DatabaseTransactionMgr {
 
     private boolean unprotectAbortTransaction(long transactionId, String reason)
             throws UserException {
+        Lock txnLock = txnLocks.get(transactionId);
+        txnLock.lock();
+        try {
+            return unprotectAbortTransactionWithTxnLock(transactionId, reason);
+        } finally {
+            txnLock.unlock();
+        }
+    }
+
+    private boolean unprotectAbortTransactionWithTxnLock(long transactionId, String reason)
+            throws UserException {
         TransactionState transactionState = unprotectedGetTransactionState(transactionId);
         if (transactionState == null) {
             throw new TransactionNotFoundException("transaction [" + transactionId + "] not found.");
@@ -1351,45 +1335,35 @@ public class DatabaseTransactionMgr {
 
     protected List<List<Comparable>> getTableTransInfo(long txnId) throws AnalysisException {
         List<List<Comparable>> tableInfos = new ArrayList<>();
-        readLock();
-        try {
-            TransactionState transactionState = unprotectedGetTransactionState(txnId);
-            if (null == transactionState) {
-                throw new AnalysisException("Transaction[" + txnId + "] does not exist.");
-            }
+        TransactionState transactionState = unprotectedGetTransactionState(txnId);
+        if (null == transactionState) {
+            throw new AnalysisException("Transaction[" + txnId + "] does not exist.");
+        }
 
-            for (Map.Entry<Long, TableCommitInfo> entry : transactionState.getIdToTableCommitInfos().entrySet()) {
-                List<Comparable> tableInfo = new ArrayList<>();
-                tableInfo.add(entry.getKey());
-                tableInfo.add(Joiner.on(", ").join(entry.getValue().getIdToPartitionCommitInfo().values().stream().map(
-                        PartitionCommitInfo::getPartitionId).collect(Collectors.toList())));
-                tableInfos.add(tableInfo);
-            }
-        } finally {
-            readUnlock();
+        for (Map.Entry<Long, TableCommitInfo> entry : transactionState.getIdToTableCommitInfos().entrySet()) {
+            List<Comparable> tableInfo = new ArrayList<>();
+            tableInfo.add(entry.getKey());
+            tableInfo.add(Joiner.on(", ").join(entry.getValue().getIdToPartitionCommitInfo().values().stream().map(
+                    PartitionCommitInfo::getPartitionId).collect(Collectors.toList())));
+            tableInfos.add(tableInfo);
         }
         return tableInfos;
     }
 
     protected List<List<Comparable>> getPartitionTransInfo(long txnId, long tableId) throws AnalysisException {
         List<List<Comparable>> partitionInfos = new ArrayList<List<Comparable>>();
-        readLock();
-        try {
-            TransactionState transactionState = unprotectedGetTransactionState(txnId);
-            if (null == transactionState) {
-                throw new AnalysisException("Transaction[" + txnId + "] does not exist.");
-            }
+        TransactionState transactionState = unprotectedGetTransactionState(txnId);
+        if (null == transactionState) {
+            throw new AnalysisException("Transaction[" + txnId + "] does not exist.");
+        }
 
-            TableCommitInfo tableCommitInfo = transactionState.getIdToTableCommitInfos().get(tableId);
-            Map<Long, PartitionCommitInfo> idToPartitionCommitInfo = tableCommitInfo.getIdToPartitionCommitInfo();
-            for (Map.Entry<Long, PartitionCommitInfo> entry : idToPartitionCommitInfo.entrySet()) {
-                List<Comparable> partitionInfo = new ArrayList<Comparable>();
-                partitionInfo.add(entry.getKey());
-                partitionInfo.add(entry.getValue().getVersion());
-                partitionInfos.add(partitionInfo);
-            }
-        } finally {
-            readUnlock();
+        TableCommitInfo tableCommitInfo = transactionState.getIdToTableCommitInfos().get(tableId);
+        Map<Long, PartitionCommitInfo> idToPartitionCommitInfo = tableCommitInfo.getIdToPartitionCommitInfo();
+        for (Map.Entry<Long, PartitionCommitInfo> entry : idToPartitionCommitInfo.entrySet()) {
+            List<Comparable> partitionInfo = new ArrayList<Comparable>();
+            partitionInfo.add(entry.getKey());
+            partitionInfo.add(entry.getValue().getVersion());
+            partitionInfos.add(partitionInfo);
         }
         return partitionInfos;
     }
@@ -1438,11 +1412,7 @@ public class DatabaseTransactionMgr {
     private void clearTransactionState(long txnId) {
         TransactionState transactionState = idToFinalStatusTransactionState.remove(txnId);
         if (transactionState != null) {
-            Set<Long> txnIds = unprotectedGetTxnIdsByLabel(transactionState.getLabel());
-            txnIds.remove(transactionState.getTransactionId());
-            if (txnIds.isEmpty()) {
-                labelToTxnIds.remove(transactionState.getLabel());
-            }
+            removeTxnLabel(transactionState.getLabel(), transactionState.getTransactionId());
             if (LOG.isDebugEnabled()) {
                 LOG.debug("transaction [" + txnId + "] is expired, remove it from transaction manager");
             }
@@ -1459,97 +1429,82 @@ public class DatabaseTransactionMgr {
 
 
     public TransactionState getTransactionStateByCallbackIdAndStatus(long callbackId, Set<TransactionStatus> status) {
-        readLock();
-        try {
-            for (TransactionState txn : idToRunningTransactionState.values()) {
-                if (txn.getCallbackId() == callbackId && status.contains(txn.getTransactionStatus())) {
-                    return txn;
-                }
+        for (TransactionState txn : idToRunningTransactionState.values()) {
+            if (txn.getCallbackId() == callbackId && status.contains(txn.getTransactionStatus())) {
+                return txn;
             }
-            for (TransactionState txn : idToFinalStatusTransactionState.values()) {
-                if (txn.getCallbackId() == callbackId && status.contains(txn.getTransactionStatus())) {
-                    return txn;
-                }
+        }
+        for (TransactionState txn : idToFinalStatusTransactionState.values()) {
+            if (txn.getCallbackId() == callbackId && status.contains(txn.getTransactionStatus())) {
+                return txn;
             }
-        } finally {
-            readUnlock();
         }
         return null;
     }
 
     public TransactionState getTransactionStateByCallbackId(long callbackId) {
-        readLock();
-        try {
-            for (TransactionState txn : idToRunningTransactionState.values()) {
-                if (txn.getCallbackId() == callbackId) {
-                    return txn;
-                }
+        for (TransactionState txn : idToRunningTransactionState.values()) {
+            if (txn.getCallbackId() == callbackId) {
+                return txn;
             }
-            for (TransactionState txn : idToFinalStatusTransactionState.values()) {
-                if (txn.getCallbackId() == callbackId) {
-                    return txn;
-                }
+        }
+        for (TransactionState txn : idToFinalStatusTransactionState.values()) {
+            if (txn.getCallbackId() == callbackId) {
+                return txn;
             }
-        } finally {
-            readUnlock();
         }
         return null;
     }
 
     public List<Pair<Long, Long>> getTransactionIdByCoordinateBe(String coordinateHost, int limit) {
         ArrayList<Pair<Long, Long>> txnInfos = new ArrayList<>();
-        readLock();
-        try {
-            idToRunningTransactionState.values().stream()
-                    .filter(t -> (t.getCoordinator().sourceType == TransactionState.TxnSourceType.BE
-                            && t.getCoordinator().ip.equals(coordinateHost)))
-                    .limit(limit)
-                    .forEach(t -> txnInfos.add(Pair.of(t.getDbId(), t.getTransactionId())));
-        } finally {
-            readUnlock();
-        }
+        idToRunningTransactionState.values().stream()
+                .filter(t -> (t.getCoordinator().sourceType == TransactionState.TxnSourceType.BE
+                        && t.getCoordinator().ip.equals(coordinateHost)))
+                .limit(limit)
+                .forEach(t -> txnInfos.add(Pair.of(t.getDbId(), t.getTransactionId())));
         return txnInfos;
     }
 
     // get show info of a specified txnId
     public List<List<String>> getSingleTranInfo(long dbId, long txnId) throws AnalysisException {
         List<List<String>> infos = new ArrayList<List<String>>();
-        readLock();
-        try {
-            Database db = Env.getCurrentInternalCatalog().getDbOrAnalysisException(dbId);
-            TransactionState txnState = unprotectedGetTransactionState(txnId);
-            if (txnState == null) {
-                throw new AnalysisException("transaction with id " + txnId + " does not exist");
-            }
-
-            if (ConnectContext.get() != null) {
-                // check auth
-                Set<Long> tblIds = txnState.getIdToTableCommitInfos().keySet();
-                for (Long tblId : tblIds) {
-                    Table tbl = db.getTableNullable(tblId);
-                    if (tbl != null) {
-                        if (!Env.getCurrentEnv().getAccessManager().checkTblPriv(ConnectContext.get(), db.getFullName(),
-                                tbl.getName(), PrivPredicate.SHOW)) {
-                            ErrorReport.reportAnalysisException(ErrorCode.ERR_TABLEACCESS_DENIED_ERROR,
-                                    "SHOW TRANSACTION",
-                                    ConnectContext.get().getQualifiedUser(),
-                                    ConnectContext.get().getRemoteIP(),
-                                    db.getFullName() + ": " + tbl.getName());
-                        }
+        Database db = Env.getCurrentInternalCatalog().getDbOrAnalysisException(dbId);
+        TransactionState txnState = unprotectedGetTransactionState(txnId);
+        if (txnState == null) {
+            throw new AnalysisException("transaction with id " + txnId + " does not exist");
+        }
+
+        if (ConnectContext.get() != null) {
+            // check auth
+            Set<Long> tblIds = txnState.getIdToTableCommitInfos().keySet();
+            for (Long tblId : tblIds) {
+                Table tbl = db.getTableNullable(tblId);
+                if (tbl != null) {
+                    if (!Env.getCurrentEnv().getAccessManager().checkTblPriv(ConnectContext.get(), db.getFullName(),
+                            tbl.getName(), PrivPredicate.SHOW)) {
+                        ErrorReport.reportAnalysisException(ErrorCode.ERR_TABLEACCESS_DENIED_ERROR,
+                                "SHOW TRANSACTION",
+                                ConnectContext.get().getQualifiedUser(),
+                                ConnectContext.get().getRemoteIP(),
+                                db.getFullName() + ": " + tbl.getName());
                     }
                 }
             }
-
-            List<String> info = Lists.newArrayList();
-            getTxnStateInfo(txnState, info);
-            infos.add(info);
-        } finally {
-            readUnlock();
         }
+
+        List<String> info = Lists.newArrayList();
+        getTxnStateInfo(txnState, info);
+        infos.add(info);
         return infos;
     }
 
-    protected void checkRunningTxnExceedLimit(TransactionState.LoadJobSourceType sourceType)
+    /**
+     * Count the txn to begin in runningTxnNums if it does not exceed the limit. The check and the increment
+     * are one atomic operation, so that the txns begun concurrently with different labels never exceed the
+     * limit. Returns whether the txn is counted, the caller must release it if the txn is not added at last.
+     */
+    protected boolean reserveRunningTxn(TransactionState.LoadJobSourceType sourceType)
             throws BeginTransactionException, MetaNotFoundException {
         switch (sourceType) {
             case ROUTINE_LOAD_TASK:
@@ -1557,14 +1512,19 @@ public class DatabaseTransactionMgr {
                 // 1. the number of running routine load tasks is limited by Config.max_routine_load_task_num_per_be
                 // 2. if we add routine load txn to runningTxnNums, runningTxnNums will always be occupied by routine
                 //    load, and other txn may not be able to submitted.
-                break;
+                return false;
             default:
                 long txnQuota = env.getInternalCatalog().getDbOrMetaException(dbId).getTransactionQuotaSize();
-                if (runningTxnNums >= txnQuota) {
-                    throw new BeginTransactionException("current running txns on db " + dbId + " is "
-                            + runningTxnNums + ", larger than limit " + txnQuota);
+                while (true) {
+                    int runningTxnNum = runningTxnNums.get();
+                    if (runningTxnNum >= txnQuota) {
+                        throw new BeginTransactionException("current running txns on db " + dbId + " is "
+                                + runningTxnNum + ", larger than limit " + txnQuota);
+                    }
+                    if (runningTxnNums.compareAndSet(runningTxnNum, runningTxnNum + 1)) {
+                        return true;
+                    }
                 }
-                break;
         }
     }
 
@@ -1680,21 +1640,19 @@ public class DatabaseTransactionMgr {
     }
 
     public boolean isPreviousTransactionsFinished(long endTransactionId, List<Long> tableIdList) {
-        readLock();
-        try {
-            for (Map.Entry<Long, TransactionState> entry : idToRunningTransactionState.entrySet()) {
-                if (entry.getValue().getDbId() != dbId || !isIntersectionNotEmpty(entry.getValue().getTableIdList(),
-                        tableIdList) || entry.getValue().getTransactionStatus().isFinalStatus()) {
-                    continue;
-                }
-                if (entry.getKey() <= endTransactionId) {
-                    LOG.debug("find a running txn with txn_id={} on db: {}, less than watermark txn_id {}",
-                            entry.getKey(), dbId, endTransactionId);
-                    return false;
-                }
+        // wait for the txns whose id has been allocated to be added into idToRunningTransactionState
+        txnIdAllocationLock.writeLock().lock();
+        txnIdAllocationLock.writeLock().unlock();
+        for (Map.Entry<Long, TransactionState> entry : idToRunningTransactionState.entrySet()) {
+            if (entry.getValue().getDbId() != dbId || !isIntersectionNotEmpty(entry.getValue().getTableIdList(),
+                    tableIdList) || entry.getValue().getTransactionStatus().isFinalStatus()) {
+                continue;
+            }
+            if (entry.getKey() <= endTransactionId) {
+                LOG.debug("find a running txn with txn_id={} on db: {}, less than watermark txn_id {}",
+                        entry.getKey(), dbId, endTransactionId);
+                return false;
             }
-        } finally {
-            readUnlock();
         }
         return true;
     }
@@ -1721,16 +1679,11 @@ public class DatabaseTransactionMgr {
 
     public List<Long> getTimeoutTxns(long currentMillis) {
         List<Long> timeoutTxns = Lists.newArrayList();
-        readLock();
-        try {
-            for (TransactionState transactionState : idToRunningTransactionState.values()) {
-                if (transactionState.isTimeout(currentMillis)) {
-                    // txn is running but timeout, abort it.
-                    timeoutTxns.add(transactionState.getTransactionId());
-                }
+        for (TransactionState transactionState : idToRunningTransactionState.values()) {
+            if (transactionState.isTimeout(currentMillis)) {
+                // txn is running but timeout, abort it.
+                timeoutTxns.add(transactionState.getTransactionId());
             }
-        } finally {
-            readUnlock();
         }
         return timeoutTxns;
     }
@@ -1782,15 +1735,10 @@ public class DatabaseTransactionMgr {
 
     public List<List<String>> getDbTransStateInfo() {
         List<List<String>> infos = Lists.newArrayList();
-        readLock();
-        try {
-            infos.add(Lists.newArrayList("running", String.valueOf(
-                    runningTxnNums + runningRoutineLoadTxnNums)));
-            long finishedNum = getFinishedTxnNums();
-            infos.add(Lists.newArrayList("finished", String.valueOf(finishedNum)));
-        } finally {
-            readUnlock();
-        }
+        infos.add(Lists.newArrayList("running", String.valueOf(
+                runningTxnNums.get() + runningRoutineLoadTxnNums.get())));
+        long finishedNum = getFinishedTxnNums();
+        infos.add(Lists.newArrayList("finished", String.valueOf(finishedNum)));
         return infos;
     }
 
@@ -1814,37 +1762,11 @@ public class DatabaseTransactionMgr {
         writeLock();
         try {
             if (Strings.isNullOrEmpty(label)) {
-                Iterator<Map.Entry<String, Set<Long>>> iter = labelToTxnIds.entrySet().iterator();
-                while (iter.hasNext()) {
-                    Set<Long> txnIds = iter.next().getValue();
-                    Iterator<Long> innerIter = txnIds.iterator();
-                    while (innerIter.hasNext()) {
-                        long txnId = innerIter.next();
-                        if (idToFinalStatusTransactionState.remove(txnId) != null) {
-                            innerIter.remove();
-                            removedTxnIds.add(txnId);
-                        }
-                    }
-                    if (txnIds.isEmpty()) {
-                        iter.remove();
-                    }
+                for (String existingLabel : labelToTxnIds.keySet()) {
+                    cleanFinalStatusTxns(existingLabel, removedTxnIds);
                 }
             } else {
-                Set<Long> txnIds = labelToTxnIds.get(label);
-                if (txnIds == null) {
-                    return;
-                }
-                Iterator<Long> iter = txnIds.iterator();
-                while (iter.hasNext()) {
-                    long txnId = iter.next();
-                    if (idToFinalStatusTransactionState.remove(txnId) != null) {
-                        iter.remove();
-                        removedTxnIds.add(txnId);
-                    }
-                }
-                if (txnIds.isEmpty()) {
-                    labelToTxnIds.remove(label);
-                }
+                cleanFinalStatusTxns(label, removedTxnIds);
             }
             // remove from finalStatusTransactionStateDequeShort and finalStatusTransactionStateDequeLong
             // So that we can keep consistency in meta image
@@ -1857,18 +1779,27 @@ public class DatabaseTransactionMgr {
                 label);
     }
 
-    public long getTxnNumByStatus(TransactionStatus status) {
-        readLock();
-        try {
-            if (idToRunningTransactionState.size() > 10000) {
-                return idToRunningTransactionState.values().parallelStream()
-                        .filter(t -> t.getTransactionStatus() == status).count();
-            } else {
-                return idToRunningTransactionState.values().stream().filter(t -> t.getTransactionStatus() == status)
-                        .count();
+    private void cleanFinalStatusTxns(String label, Set<Long> removedTxnIds) {
+        labelToTxnIds.computeIfPresent(label, (key, txnIds) -> {
+            Iterator<Long> iter = txnIds.iterator();
+            while (iter.hasNext()) {
+                long txnId = iter.next();
+                if (idToFinalStatusTransactionState.remove(txnId) != null) {
+                    iter.remove();
+                    removedTxnIds.add(txnId);
+                }
             }
-        } finally {
-            readUnlock();
+            return txnIds.isEmpty() ? null : txnIds;
+        });
+    }
+
+    public long getTxnNumByStatus(TransactionStatus status) {
+        if (idToRunningTransactionState.size() > 10000) {
+            return idToRunningTransactionState.values().parallelStream()
+                    .filter(t -> t.getTransactionStatus() == status).count();
+        } else {
+            return idToRunningTransactionState.values().stream().filter(t -> t.getTransactionStatus() == status)
+                    .count();
         }
     }
 }
@@ -46,6 +46,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Publish the committed transactions to backends and make them visible.
+ * Besides running every publish_version_interval_ms, the daemon is woken up when a transaction is committed
+ * and when a publish version task is finished, so a transaction does not wait for the interval to be
+ * published or to be finished. All wake ups during one round are merged into the next round.
+ * Each transaction still has its own publish version task on each backend, which the backend executes
+ * and reports with its own finish task RPC.
+ */
 public class PublishVersionDaemon extends MasterDaemon {
 
     private static final Logger LOG = LogManager.getLogger(PublishVersionDaemon.class);
@@ -260,6 +268,8 @@ public class PublishVersionDaemon extends MasterDaemon {
                 if (MetricRepo.isInit) {
                     long publishTime = transactionState.getPublishVersionTime() - transactionState.getCommitTime();
                     MetricRepo.HISTO_TXN_PUBLISH_LATENCY.update(publishTime);
+                    MetricRepo.HISTO_TXN_VISIBLE_LATENCY.update(
+                            transactionState.getFinishTime() - transactionState.getCommitTime());
                 }
             }
         } // end for readyTransactionStates
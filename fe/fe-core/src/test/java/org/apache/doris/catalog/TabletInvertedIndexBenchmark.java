@@ -0,0 +1,140 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.catalog;
+
+import org.apache.doris.catalog.Replica.ReplicaState;
+import org.apache.doris.thrift.TStorageMedium;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of {@link TabletInvertedIndex} under concurrent access, on an index of
+ * 1 million tablets with 3 replicas each:
+ * the lookups of replicas by the query planning and the tablet scheduler, which run together with
+ * the creation and the drop of tablets, and with the iteration over all the tablets of a backend
+ * done by the tablet report and the balancer.
+ * Only the public methods of the index are used, so it also runs on the index before it was split into
+ * shards, for comparison.
+ * Run it with the test classpath, e.g. from an IDE or
+ * `java -cp <test-classpath> org.apache.doris.catalog.TabletInvertedIndexBenchmark`.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TabletInvertedIndexBenchmark {
+    private static final long[] BACKEND_IDS = {1, 2, 3};
+
+    @Param({"1000000"})
+    public int tabletNum;
+
+    private TabletInvertedIndex invertedIndex;
+    // the tablets created by the benchmark are after the initial ones
+    private AtomicLong nextTabletId;
+
+    @Setup
+    public void setup() {
+        invertedIndex = new TabletInvertedIndex();
+        for (long tabletId = 0; tabletId < tabletNum; tabletId++) {
+            addTabletWithReplicas(tabletId);
+        }
+        nextTabletId = new AtomicLong(tabletNum);
+    }
+
+    private void addTabletWithReplicas(long tabletId) {
+        invertedIndex.addTablet(tabletId, new TabletMeta(1, 2, 3, 4, 5, TStorageMedium.HDD));
+        for (long backendId : BACKEND_IDS) {
+            invertedIndex.addReplica(tabletId, new Replica(tabletId * 10 + backendId, backendId, 2, 0, 1024,
+                    0, 10, ReplicaState.NORMAL, -1, 2));
+        }
+    }
+
+    private Replica getRandomReplica() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return invertedIndex.getReplica(random.nextLong(tabletNum), BACKEND_IDS[random.nextInt(BACKEND_IDS.length)]);
+    }
+
+    private void createAndDropTablet() {
+        long tabletId = nextTabletId.getAndIncrement();
+        addTabletWithReplicas(tabletId);
+        invertedIndex.deleteTablet(tabletId);
+    }
+
+    // reads only
+    @Benchmark
+    @Group("read")
+    @GroupThreads(8)
+    public Replica read() {
+        return getRandomReplica();
+    }
+
+    // reads with concurrent creation and drop of tablets
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(6)
+    public Replica readWriteRead() {
+        return getRandomReplica();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(2)
+    public void readWriteWrite() {
+        createAndDropTablet();
+    }
+
+    // reads with concurrent iteration over all the tablets of a backend
+    @Benchmark
+    @Group("readIterate")
+    @GroupThreads(7)
+    public Replica readIterateRead() {
+        return getRandomReplica();
+    }
+
+    @Benchmark
+    @Group("readIterate")
+    @GroupThreads(1)
+    public int readIterateIterate() {
+        return invertedIndex.getTabletNumByBackendId(BACKEND_IDS[ThreadLocalRandom.current()
+                .nextInt(BACKEND_IDS.length)]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(TabletInvertedIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,253 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.catalog;
+
+import org.apache.doris.catalog.Replica.ReplicaState;
+import org.apache.doris.common.util.LongLongHashMap;
+import org.apache.doris.common.util.LongObjectHashMap;
+import org.apache.doris.thrift.TStorageMedium;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import mockit.Deencapsulation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TabletInvertedIndexTest {
+    private static final long BASE_TABLET_ID = 10000;
+    private static final long[] BACKEND_IDS = {1, 2, 3};
+
+    private TabletInvertedIndex invertedIndex;
+
+    @Before
+    public void setUp() {
+        invertedIndex = new TabletInvertedIndex();
+    }
+
+    private static TabletMeta createTabletMeta(long tabletId) {
+        // tablets of even ids are on HDD, the others on SSD
+        return new TabletMeta(1, 2, 3, 4, 5, tabletId % 2 == 0 ? TStorageMedium.HDD : TStorageMedium.SSD);
+    }
+
+    // the replica id of a tablet on a backend
+    private static long replicaId(long tabletId, long backendId) {
+        return tabletId * 10 + backendId;
+    }
+
+    private void addTabletWithReplicas(long tabletId) {
+        invertedIndex.addTablet(tabletId, createTabletMeta(tabletId));
+        for (long backendId : BACKEND_IDS) {
+            invertedIndex.addReplica(tabletId, new Replica(replicaId(tabletId, backendId), backendId, 2, 0, 1024,
+                    0, 10, ReplicaState.NORMAL, -1, 2));
+        }
+    }
+
+    private Object[] getShards() {
+        return Deencapsulation.getField(invertedIndex, "shards");
+    }
+
+    @Test
+    public void testShardRouting() {
+        int tabletNum = 6400;
+        for (long tabletId = BASE_TABLET_ID; tabletId < BASE_TABLET_ID + tabletNum; tabletId++) {
+            addTabletWithReplicas(tabletId);
+        }
+
+        Object[] shards = getShards();
+        int shardNum = shards.length;
+        for (long tabletId = BASE_TABLET_ID; tabletId < BASE_TABLET_ID + tabletNum; tabletId++) {
+            // a tablet and its replicas are in exactly one shard, chosen by tablet id,
+            // and the replica -> tablet mapping is in the shard chosen by replica id
+            int tabletShardNum = 0;
+            for (Object shard : shards) {
+                LongObjectHashMap<TabletMeta> tabletMetaMap = Deencapsulation.getField(shard, "tabletMetaMap");
+                LongObjectHashMap<Replica[]> replicaMetaMap = Deencapsulation.getField(shard, "replicaMetaMap");
+                if (tabletMetaMap.containsKey(tabletId)) {
+                    tabletShardNum++;
+                    Assert.assertEquals(BACKEND_IDS.length, replicaMetaMap.get(tabletId).length);
+                } else {
+                    Assert.assertNull(replicaMetaMap.get(tabletId));
+                }
+            }
+            Assert.assertEquals(1, tabletShardNum);
+
+            for (long backendId : BACKEND_IDS) {
+                long replicaId = replicaId(tabletId, backendId);
+                int replicaShardNum = 0;
+                for (Object shard : shards) {
+                    LongLongHashMap replicaToTabletMap = Deencapsulation.getField(shard, "replicaToTabletMap");
+                    long id = replicaToTabletMap.get(replicaId, TabletInvertedIndex.NOT_EXIST_VALUE);
+                    if (id != TabletInvertedIndex.NOT_EXIST_VALUE) {
+                        Assert.assertEquals(tabletId, id);
+                        replicaShardNum++;
+                    }
+                }
+                Assert.assertEquals(1, replicaShardNum);
+                Assert.assertEquals(tabletId, (long) invertedIndex.getTabletIdByReplica(replicaId));
+                Assert.assertEquals(replicaId, invertedIndex.getReplica(tabletId, backendId).getId());
+            }
+        }
+
+        // consecutive tablet ids are spread evenly over the shards
+        for (Object shard : shards) {
+            LongObjectHashMap<TabletMeta> tabletMetaMap = Deencapsulation.getField(shard, "tabletMetaMap");
+            Assert.assertTrue(tabletMetaMap.size() > tabletNum / shardNum / 2);
+            Assert.assertTrue(tabletMetaMap.size() < tabletNum / shardNum * 2);
+        }
+
+        Assert.assertNull(invertedIndex.getTabletIdByReplica(replicaId(BASE_TABLET_ID + tabletNum, 1)));
+        Assert.assertNull(invertedIndex.getTabletMeta(BASE_TABLET_ID + tabletNum));
+    }
+
+    @Test
+    public void testIterateAllShards() {
+        int tabletNum = 1000;
+        Set<Long> tabletIds = Sets.newHashSet();
+        for (long tabletId = BASE_TABLET_ID; tabletId < BASE_TABLET_ID + tabletNum; tabletId++) {
+            addTabletWithReplicas(tabletId);
+            tabletIds.add(tabletId);
+        }
+        // a tablet without replica
+        invertedIndex.addTablet(BASE_TABLET_ID + tabletNum, createTabletMeta(BASE_TABLET_ID + tabletNum));
+
+        for (long backendId : BACKEND_IDS) {
+            Assert.assertEquals(tabletIds, Sets.newHashSet(invertedIndex.getTabletIdsByBackendId(backendId)));
+            Assert.assertEquals(tabletNum, invertedIndex.getTabletNumByBackendId(backendId));
+            Map<TStorageMedium, Long> replicaNumMap = invertedIndex.getReplicaNumByBeIdAndStorageMedium(backendId);
+            Assert.assertEquals(tabletNum / 2, (long) replicaNumMap.get(TStorageMedium.HDD));
+            Assert.assertEquals(tabletNum / 2, (long) replicaNumMap.get(TStorageMedium.SSD));
+            Assert.assertEquals(tabletNum / 2, invertedIndex.getTabletIdsByBackendIdAndStorageMedium(backendId,
+                    TStorageMedium.SSD).size());
+        }
+        Assert.assertTrue(invertedIndex.getTabletIdsByBackendId(BACKEND_IDS.length + 1).isEmpty());
+
+        Assert.assertEquals(tabletNum + 1, invertedIndex.getTabletMetaMap().size());
+        Assert.assertEquals(tabletNum * BACKEND_IDS.length, invertedIndex.getReplicaToTabletMap().size());
+        Table<Long, Long, Replica> replicaMetaTable = invertedIndex.getReplicaMetaTable();
+        Assert.assertEquals(tabletIds, replicaMetaTable.rowKeySet());
+        Assert.assertEquals(tabletNum * BACKEND_IDS.length, replicaMetaTable.size());
+        Assert.assertEquals(tabletNum * BACKEND_IDS.length, invertedIndex.getBackingReplicaMetaTable().size());
+
+        invertedIndex.clear();
+        Assert.assertTrue(invertedIndex.getTabletMetaMap().isEmpty());
+        Assert.assertTrue(invertedIndex.getReplicaToTabletMap().isEmpty());
+        Assert.assertTrue(invertedIndex.getBackingReplicaMetaTable().isEmpty());
+        Assert.assertEquals(0, invertedIndex.getTabletNumByBackendId(BACKEND_IDS[0]));
+    }
+
+    @Test
+    public void testConcurrentAddAndDelete() throws Exception {
+        int threadNum = 8;
+        int tabletNumPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        // tablet id -> the backends which have its replica, when all the threads are done
+        Map<Long, Set<Long>> expected = new ConcurrentHashMap<>();
+
+        List<Thread> writers = Lists.newArrayList();
+        for (int i = 0; i < threadNum; i++) {
+            // each thread works on its own tablets, which are spread over all the shards
+            long firstTabletId = BASE_TABLET_ID + (long) i * tabletNumPerThread;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (long tabletId = firstTabletId; tabletId < firstTabletId + tabletNumPerThread; tabletId++) {
+                        addTabletWithReplicas(tabletId);
+                        if (tabletId % 3 == 0) {
+                            invertedIndex.deleteTablet(tabletId);
+                        } else if (tabletId % 3 == 1) {
+                            invertedIndex.deleteReplica(tabletId, BACKEND_IDS[0]);
+                            expected.put(tabletId, Sets.newHashSet(BACKEND_IDS[1], BACKEND_IDS[2]));
+                        } else {
+                            expected.put(tabletId, Sets.newHashSet(BACKEND_IDS[0], BACKEND_IDS[1], BACKEND_IDS[2]));
+                        }
+                    }
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            }));
+        }
+        // iterate over all the shards while the tablets are added and deleted
+        Thread reader = new Thread(() -> {
+            try {
+                start.await();
+                while (writing.get()) {
+                    for (long backendId : BACKEND_IDS) {
+                        List<Long> tabletIds = invertedIndex.getTabletIdsByBackendId(backendId);
+                        Assert.assertEquals(tabletIds.size(), Sets.newHashSet(tabletIds).size());
+                        invertedIndex.getReplicaNumByBeIdAndStorageMedium(backendId);
+                    }
+                    invertedIndex.getReplicaToTabletMap();
+                }
+            } catch (Throwable t) {
+                error.compareAndSet(null, t);
+            }
+        });
+
+        writers.forEach(Thread::start);
+        reader.start();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        reader.join();
+        Assert.assertNull(error.get());
+
+        // the index is consistent after all the concurrent changes
+        Assert.assertEquals(expected.keySet(), invertedIndex.getTabletMetaMap().keySet());
+        Table<Long, Long, Replica> replicaMetaTable = invertedIndex.getReplicaMetaTable();
+        Assert.assertEquals(expected.keySet(), replicaMetaTable.rowKeySet());
+        Map<Long, Long> expectedReplicaToTablet = Maps.newHashMap();
+        for (Map.Entry<Long, Set<Long>> entry : expected.entrySet()) {
+            long tabletId = entry.getKey();
+            Assert.assertEquals(entry.getValue(), replicaMetaTable.row(tabletId).keySet());
+            for (long backendId : entry.getValue()) {
+                expectedReplicaToTablet.put(replicaId(tabletId, backendId), tabletId);
+            }
+        }
+        Assert.assertEquals(expectedReplicaToTablet, invertedIndex.getReplicaToTabletMap());
+        Table<Long, Long, Replica> backingReplicaMetaTable = invertedIndex.getBackingReplicaMetaTable();
+        for (long backendId : BACKEND_IDS) {
+            List<Long> tabletIds = Lists.newArrayList(backingReplicaMetaTable.row(backendId).keySet());
+            Collections.sort(tabletIds);
+            List<Long> expectedTabletIds = Lists.newArrayList();
+            expected.forEach((tabletId, backendIds) -> {
+                if (backendIds.contains(backendId)) {
+                    expectedTabletIds.add(tabletId);
+                }
+            });
+            Collections.sort(expectedTabletIds);
+            Assert.assertEquals(expectedTabletIds, tabletIds);
+            Assert.assertEquals(expectedTabletIds.size(), invertedIndex.getTabletNumByBackendId(backendId));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.common.util;
+
+import org.apache.doris.thrift.TUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class CompactProfileTest {
+
+    private RuntimeProfile buildProfile() {
+        RuntimeProfile root = new RuntimeProfile("Query");
+        RuntimeProfile summary = new RuntimeProfile("Summary");
+        summary.addInfoString(ProfileManager.QUERY_ID, "a1b2-c3d4");
+        summary.addInfoString(ProfileManager.SQL_STATEMENT, "select * from t");
+        root.addChild(summary);
+        RuntimeProfile fragment = new RuntimeProfile("Fragment 0");
+        root.addChild(fragment);
+        for (int i = 0; i < 10; i++) {
+            RuntimeProfile instance = new RuntimeProfile("Instance " + i);
+            instance.getCounterTotalTime().setValue(1000000L + i);
+            instance.addCounter("RowsReturned", TUnit.UNIT, RuntimeProfile.ROOT_COUNTER).setValue(100 - i * 20);
+            instance.addCounter("PeakMemoryUsage", TUnit.BYTES, RuntimeProfile.ROOT_COUNTER).setValue(1L << 40);
+            instance.addCounter("WaitTime", TUnit.TIME_NS, "PeakMemoryUsage").setValue(i);
+            instance.addInfoString("Host", "host" + i);
+            fragment.addChild(instance);
+        }
+        root.getCounterTotalTime().setValue(2000000L);
+        root.computeTimeInChildProfile();
+        return root;
+    }
+
+    @Test
+    public void testCompactAndExpand() throws IOException {
+        RuntimeProfile profile = buildProfile();
+        CompactProfile compact = CompactProfile.compact(profile);
+        RuntimeProfile expanded = CompactProfile.fromBytes(compact.getData()).expand();
+
+        Assert.assertEquals(profile.toString(), expanded.toString());
+        Assert.assertTrue(compact.size() < profile.toString().length());
+        RuntimeProfile instance = expanded.getChildList().get(1).first.getChildList().get(3).first;
+        Assert.assertEquals(40, instance.getCounterMap().get("RowsReturned").getValue());
+        Assert.assertEquals(1000003L, instance.getCounterTotalTime().getValue());
+        Assert.assertEquals("host3", instance.getInfoString("Host"));
+        Assert.assertEquals("a1b2-c3d4",
+                expanded.getChildList().get(0).first.getInfoString(ProfileManager.QUERY_ID));
+    }
+}
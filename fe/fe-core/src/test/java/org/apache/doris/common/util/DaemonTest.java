@@ -0,0 +1,75 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class DaemonTest {
+
+    private static class CountingDaemon extends Daemon {
+        private final Semaphore cycles = new Semaphore(0);
+
+        CountingDaemon(long intervalMs) {
+            super("counting_daemon", intervalMs);
+        }
+
+        @Override
+        protected void runOneCycle() {
+            cycles.release();
+        }
+    }
+
+    @Test
+    public void testWakeUp() throws InterruptedException {
+        CountingDaemon daemon = new CountingDaemon(3600 * 1000L);
+        daemon.start();
+        try {
+            // the first cycle runs right after start
+            Assert.assertTrue(daemon.cycles.tryAcquire(10, TimeUnit.SECONDS));
+            // then it waits for the interval
+            Assert.assertFalse(daemon.cycles.tryAcquire(200, TimeUnit.MILLISECONDS));
+
+            daemon.wakeUp();
+            Assert.assertTrue(daemon.cycles.tryAcquire(10, TimeUnit.SECONDS));
+
+            // a wake up before waiting is not lost
+            daemon.wakeUp();
+            daemon.wakeUp();
+            Assert.assertTrue(daemon.cycles.tryAcquire(10, TimeUnit.SECONDS));
+        } finally {
+            daemon.exit();
+            daemon.wakeUp();
+        }
+    }
+
+    @Test
+    public void testInterval() throws InterruptedException {
+        CountingDaemon daemon = new CountingDaemon(10);
+        daemon.start();
+        try {
+            Assert.assertTrue(daemon.cycles.tryAcquire(3, 10, TimeUnit.SECONDS));
+        } finally {
+            daemon.exit();
+        }
+    }
+}
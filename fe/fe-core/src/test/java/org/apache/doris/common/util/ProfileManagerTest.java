@@ -0,0 +1,218 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.common.util;
+
+import org.apache.doris.common.Config;
+import org.apache.doris.thrift.TUnit;
+
+import mockit.Deencapsulation;
+import mockit.Invocation;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ProfileManagerTest {
+    private int maxProfileNum;
+    private long maxMemoryBytes;
+    private long maxSpillBytes;
+    private String spillDir;
+    private File tmpDir;
+
+    @Before
+    public void setUp() throws IOException {
+        maxProfileNum = Config.max_query_profile_num;
+        maxMemoryBytes = Config.max_query_profile_memory_bytes;
+        maxSpillBytes = Config.max_query_profile_spill_bytes;
+        spillDir = Config.query_profile_spill_dir;
+        tmpDir = Files.createTempDirectory("profile_spill_" + UUID.randomUUID()).toFile();
+    }
+
+    @After
+    public void tearDown() {
+        Config.max_query_profile_num = maxProfileNum;
+        Config.max_query_profile_memory_bytes = maxMemoryBytes;
+        Config.max_query_profile_spill_bytes = maxSpillBytes;
+        Config.query_profile_spill_dir = spillDir;
+        File[] files = tmpDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tmpDir.delete();
+    }
+
+    private static RuntimeProfile buildProfile(String queryId) {
+        RuntimeProfile root = new RuntimeProfile("Query");
+        RuntimeProfile summary = new RuntimeProfile("Summary");
+        summary.addInfoString(ProfileManager.QUERY_ID, queryId);
+        summary.addInfoString(ProfileManager.QUERY_TYPE, "Query");
+        root.addChild(summary);
+        RuntimeProfile fragment = new RuntimeProfile("Fragment 0");
+        root.addChild(fragment);
+        for (int i = 0; i < 10; i++) {
+            RuntimeProfile instance = new RuntimeProfile("Instance " + i);
+            instance.addCounter("RowsReturned", TUnit.UNIT, RuntimeProfile.ROOT_COUNTER).setValue(100 + i);
+            instance.addInfoString("Host", "host" + i);
+            fragment.addChild(instance);
+        }
+        return root;
+    }
+
+    private static long compactSize(String queryId) throws IOException {
+        return CompactProfile.compact(buildProfile(queryId)).size();
+    }
+
+    @Test
+    public void testEvictWithoutSpillDir() throws IOException {
+        Config.query_profile_spill_dir = "";
+        long size = compactSize("q0");
+        // room for two and a half profiles
+        Config.max_query_profile_memory_bytes = size * 5 / 2;
+        ProfileManager manager = new ProfileManager();
+
+        // a running profile is not counted
+        manager.pushProfile(buildProfile("q0"), false);
+        Assert.assertEquals(0, manager.getMemoryBytes());
+        manager.pushProfile(buildProfile("q0"), true);
+        Assert.assertEquals(compactSize("q0"), manager.getMemoryBytes());
+        for (int i = 1; i < 4; i++) {
+            manager.pushProfile(buildProfile("q" + i), true);
+        }
+
+        // the oldest profiles are dropped
+        Assert.assertNull(manager.getProfile("q0"));
+        Assert.assertNull(manager.getProfile("q1"));
+        Assert.assertEquals(buildProfile("q2").toString(), manager.getProfile("q2"));
+        Assert.assertEquals(buildProfile("q3").toString(), manager.getProfile("q3"));
+        Assert.assertEquals(2, manager.getAllQueries().size());
+        Assert.assertEquals(compactSize("q2") + compactSize("q3"), manager.getMemoryBytes());
+        Assert.assertEquals(0, manager.getSpilledBytes());
+    }
+
+    @Test
+    public void testSpill() throws IOException {
+        Config.query_profile_spill_dir = tmpDir.getAbsolutePath();
+        long size = compactSize("q0");
+        // one profile in memory and two on disk
+        Config.max_query_profile_memory_bytes = size * 3 / 2;
+        Config.max_query_profile_spill_bytes = size * 5 / 2;
+        ProfileManager manager = new ProfileManager();
+        for (int i = 0; i < 4; i++) {
+            manager.pushProfile(buildProfile("q" + i), true);
+        }
+
+        Assert.assertEquals(compactSize("q3"), manager.getMemoryBytes());
+        Assert.assertEquals(compactSize("q1") + compactSize("q2"), manager.getSpilledBytes());
+        Assert.assertEquals(2, tmpDir.listFiles().length);
+        Assert.assertNull(manager.getProfile("q0"));
+        // the spilled profile is read back from disk
+        Assert.assertTrue(manager.findProfileElementObject("q1").isSpilled());
+        Assert.assertEquals(buildProfile("q1").toString(), manager.getProfile("q1"));
+
+        // pushing the profile again replaces the spilled one and releases its bytes and file
+        manager.pushProfile(buildProfile("q1"), true);
+        Assert.assertFalse(manager.findProfileElementObject("q1").isSpilled());
+        Assert.assertEquals(compactSize("q1"), manager.getMemoryBytes());
+        Assert.assertEquals(compactSize("q2") + compactSize("q3"), manager.getSpilledBytes());
+        Assert.assertEquals(2, tmpDir.listFiles().length);
+    }
+
+    @Test
+    public void testRemoveByProfileNum() throws IOException {
+        Config.query_profile_spill_dir = tmpDir.getAbsolutePath();
+        Config.max_query_profile_num = 2;
+        long size = compactSize("q0");
+        Config.max_query_profile_memory_bytes = size * 3 / 2;
+        Config.max_query_profile_spill_bytes = size * 10;
+        ProfileManager manager = new ProfileManager();
+        for (int i = 0; i < 3; i++) {
+            manager.pushProfile(buildProfile("q" + i), true);
+        }
+
+        // q0 is removed from disk by max_query_profile_num, q1 is spilled
+        Assert.assertNull(manager.getProfile("q0"));
+        Assert.assertEquals(compactSize("q2"), manager.getMemoryBytes());
+        Assert.assertEquals(compactSize("q1"), manager.getSpilledBytes());
+        Assert.assertEquals(1, tmpDir.listFiles().length);
+    }
+
+    @Test
+    public void testSpillOutOfLock() throws IOException {
+        Config.query_profile_spill_dir = tmpDir.getAbsolutePath();
+        long size = compactSize("q0");
+        Config.max_query_profile_memory_bytes = size * 3 / 2;
+        Config.max_query_profile_spill_bytes = size * 10;
+        ProfileManager manager = new ProfileManager();
+        ReentrantReadWriteLock lock = Deencapsulation.getField(manager, "lock");
+        AtomicInteger spillNum = new AtomicInteger(0);
+        new MockUp<Files>() {
+            @Mock
+            public Path write(Invocation inv, Path path, byte[] bytes, OpenOption... options) {
+                // the other queries and profile pages are not blocked by writing the spill file
+                Assert.assertFalse(lock.isWriteLocked());
+                spillNum.incrementAndGet();
+                return inv.proceed();
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            manager.pushProfile(buildProfile("q" + i), true);
+        }
+
+        Assert.assertEquals(2, spillNum.get());
+        Assert.assertTrue(manager.findProfileElementObject("q0").isSpilled());
+        Assert.assertTrue(manager.findProfileElementObject("q1").isSpilled());
+        Assert.assertEquals(compactSize("q0") + compactSize("q1"), manager.getSpilledBytes());
+        Assert.assertEquals(buildProfile("q0").toString(), manager.getProfile("q0"));
+    }
+
+    @Test
+    public void testSpillFailure() throws IOException {
+        Config.query_profile_spill_dir = tmpDir.getAbsolutePath();
+        long size = compactSize("q0");
+        Config.max_query_profile_memory_bytes = size * 3 / 2;
+        Config.max_query_profile_spill_bytes = size * 10;
+        ProfileManager manager = new ProfileManager();
+        new MockUp<Files>() {
+            @Mock
+            public Path write(Path path, byte[] bytes, OpenOption... options) throws IOException {
+                throw new IOException("no space left on device");
+            }
+        };
+        manager.pushProfile(buildProfile("q0"), true);
+        manager.pushProfile(buildProfile("q1"), true);
+
+        // the profile failed to spill is dropped
+        Assert.assertNull(manager.getProfile("q0"));
+        Assert.assertEquals(1, manager.getAllQueries().size());
+        Assert.assertEquals(compactSize("q1"), manager.getMemoryBytes());
+        Assert.assertEquals(0, manager.getSpilledBytes());
+    }
+}
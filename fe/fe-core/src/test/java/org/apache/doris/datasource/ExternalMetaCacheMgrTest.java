@@ -0,0 +1,147 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.datasource;
+
+import org.apache.doris.metric.Metric;
+import org.apache.doris.metric.MetricRepo;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ExternalMetaCacheMgrTest {
+    private static final long BUDGET = 1000L;
+
+    @Test
+    public void testAssignCapacitiesEvenly() {
+        // all catalogs are full, each gets an even share
+        long[] capacities = ExternalMetaCacheMgr.assignCapacities(BUDGET,
+                new long[] {500, 500, 500, 500}, new long[] {500, 500, 500, 500});
+        Assert.assertArrayEquals(new long[] {250, 250, 250, 250}, capacities);
+
+        // no catalog
+        Assert.assertEquals(0, ExternalMetaCacheMgr.assignCapacities(BUDGET, new long[0], new long[0]).length);
+    }
+
+    @Test
+    public void testAssignCapacitiesToFullCatalog() {
+        // catalog 0 is idle, catalog 1 uses a little, catalog 2 is full
+        long[] capacities = ExternalMetaCacheMgr.assignCapacities(BUDGET,
+                new long[] {0, 100, 333}, new long[] {333, 333, 333});
+        // idle catalog keeps a quarter of the even share to start caching
+        Assert.assertEquals(BUDGET / 3 / 4, capacities[0]);
+        // catalog with usage gets some room above its usage
+        Assert.assertEquals(125, capacities[1]);
+        // the full catalog takes the rest
+        Assert.assertEquals(BUDGET - capacities[0] - capacities[1], capacities[2]);
+        Assert.assertTrue(Arrays.stream(capacities).sum() <= BUDGET);
+    }
+
+    @Test
+    public void testAssignCapacitiesFairly() {
+        // 2 full catalogs share what is left by the others evenly
+        long[] capacities = ExternalMetaCacheMgr.assignCapacities(BUDGET,
+                new long[] {100, 400, 250}, new long[] {100, 400, 500});
+        Assert.assertEquals(capacities[0], capacities[1]);
+        Assert.assertEquals(Math.max(250 + 250 / 4, BUDGET / 3 / 4), capacities[2]);
+        Assert.assertTrue(Arrays.stream(capacities).sum() <= BUDGET);
+
+        // the left budget is divided evenly when no one is full
+        capacities = ExternalMetaCacheMgr.assignCapacities(BUDGET,
+                new long[] {100, 100}, new long[] {500, 500});
+        Assert.assertArrayEquals(new long[] {500, 500}, capacities);
+    }
+
+    @Test
+    public void testAssignCapacitiesWithLimits() {
+        // the limited one does not get more than its limit, even if it is full, the others get the rest
+        long[] capacities = ExternalMetaCacheMgr.assignCapacities(BUDGET,
+                new long[] {500, 100, 0}, new long[] {500, 500, 0}, new long[] {200, Long.MAX_VALUE, Long.MAX_VALUE});
+        Assert.assertEquals(200, capacities[0]);
+        Assert.assertTrue(capacities[1] >= 125);
+        Assert.assertTrue(capacities[2] >= BUDGET / 3 / 4);
+        Assert.assertTrue(Arrays.stream(capacities).sum() <= BUDGET);
+    }
+
+    @Test
+    public void testNestedLoad() {
+        ExternalMetaCache cache = new ExternalMetaCache(3L, "nested_catalog", BUDGET * 1000, Runnable::run);
+        try {
+            cache.registerEntryType(Integer.class, 0, key -> "v" + key, value -> value.length());
+            // the loader of one kind of entries looks up another kind in the same catalog
+            cache.registerEntryType(Long.class, 0, key -> cache.<String>get((int) (long) key) + "-long",
+                    value -> value.length());
+            Assert.assertEquals("v1-long", cache.<String>get(1L));
+            Assert.assertEquals("v1", cache.<String>getIfPresent(1));
+            Assert.assertEquals(Lists.newArrayList(1L), cache.keys(Long.class));
+
+            cache.invalidateAll(Long.class);
+            Assert.assertNull(cache.getIfPresent(1L));
+            Assert.assertEquals("v1", cache.<String>getIfPresent(1));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testMaxEntryNum() {
+        ExternalMetaCache cache = new ExternalMetaCache(4L, "max_entry_num_catalog", BUDGET * 1000, Runnable::run);
+        try {
+            // the old entry number limit still applies to its kind, but not to the others
+            cache.registerEntryType(Integer.class, 2, key -> "v" + key, value -> 100L);
+            cache.registerEntryType(Long.class, 0, key -> "v" + key, value -> 100L);
+            for (int i = 0; i < 10; i++) {
+                cache.get(i);
+                cache.get((long) i);
+            }
+            cache.setCapacityBytes(cache.getCapacityBytes());
+            Assert.assertTrue(cache.keys(Integer.class).size() <= 2);
+            Assert.assertEquals(10, cache.keys(Long.class).size());
+            Assert.assertTrue(cache.getUsedBytes() <= cache.getCapacityBytes());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testRemoveMetricsOnClose() {
+        ExternalMetaCache cache1 = new ExternalMetaCache(1L, "metrics_catalog1", BUDGET, Runnable::run);
+        ExternalMetaCache cache2 = new ExternalMetaCache(2L, "metrics_catalog2", BUDGET, Runnable::run);
+        Assert.assertFalse(cache1.getGauges().isEmpty());
+        Assert.assertTrue(getMetrics().containsAll(cache1.getGauges()));
+        Assert.assertTrue(getMetrics().containsAll(cache2.getGauges()));
+
+        // only the metrics of the closed cache are removed
+        cache1.close();
+        for (Metric gauge : cache1.getGauges()) {
+            Assert.assertFalse(getMetrics().contains(gauge));
+        }
+        Assert.assertTrue(getMetrics().containsAll(cache2.getGauges()));
+        cache2.close();
+        for (Metric gauge : cache2.getGauges()) {
+            Assert.assertFalse(getMetrics().contains(gauge));
+        }
+    }
+
+    private static List<Metric> getMetrics() {
+        return MetricRepo.DORIS_METRIC_REGISTER.getMetricsByName("external_meta_cache");
+    }
+}
@@ -0,0 +1,206 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.datasource.hive;
+
+import org.apache.doris.common.Config;
+
+import com.google.common.collect.Lists;
+import mockit.Deencapsulation;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+public class HiveMetaDiskCacheTest {
+    private static final long CATALOG_ID = 10001L;
+    private static String originCacheDir;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        originCacheDir = Config.hive_meta_disk_cache_dir;
+        File cacheDir = Files.createTempDirectory("hive_meta_disk_cache").toFile();
+        Config.hive_meta_disk_cache_dir = cacheDir.getAbsolutePath();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        Config.hive_meta_disk_cache_dir = originCacheDir;
+    }
+
+    // regard the entries written before as written before startup, but not the ones written after
+    private static void restart(HiveMetaDiskCache diskCache) {
+        long startTime = System.currentTimeMillis() + 1;
+        Deencapsulation.setField(diskCache, "startTime", startTime);
+        Deencapsulation.<Map<Long, ?>>getField(diskCache, "readKeys").clear();
+        while (System.currentTimeMillis() < startTime) {
+            Thread.yield();
+        }
+    }
+
+    private static HivePartition createPartition(String value) {
+        return new HivePartition("org.apache.hadoop.mapred.TextInputFormat",
+                "hdfs://host:8020/warehouse/tbl/m=" + value, Lists.newArrayList(value));
+    }
+
+    private static List<InputSplit> createSplits(String location) {
+        List<InputSplit> splits = Lists.newArrayList();
+        splits.add(new FileSplit(new Path(location + "/file1"), 0, 100, new String[] {"host1", "host2"}));
+        splits.add(new FileSplit(new Path(location + "/file2"), 100, 200, new String[0]));
+        return splits;
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        HiveMetaDiskCache diskCache = HiveMetaDiskCache.getInstance();
+        restart(diskCache);
+        Assert.assertNull(diskCache.getPartitionNames(CATALOG_ID, "db1", "tbl1"));
+
+        diskCache.putPartitionNames(CATALOG_ID, "db1", "tbl1", Lists.newArrayList("m=1", "m=2"));
+        HivePartition partition = createPartition("1");
+        diskCache.putPartition(CATALOG_ID, "db1", "tbl1", partition);
+        diskCache.putFiles(CATALOG_ID, partition.getPath(), createSplits(partition.getPath()));
+
+        restart(diskCache);
+        Assert.assertEquals(Lists.newArrayList("m=1", "m=2"), diskCache.getPartitionNames(CATALOG_ID, "db1", "tbl1"));
+        HivePartition readPartition = diskCache.getPartition(CATALOG_ID, "db1", "tbl1", Lists.newArrayList("1"));
+        Assert.assertEquals(partition.getPath(), readPartition.getPath());
+        Assert.assertEquals(partition.getInputFormat(), readPartition.getInputFormat());
+        List<InputSplit> splits = diskCache.getFiles(CATALOG_ID, partition.getPath());
+        Assert.assertEquals(2, splits.size());
+        FileSplit split = (FileSplit) splits.get(1);
+        Assert.assertEquals(new Path(partition.getPath() + "/file2"), split.getPath());
+        Assert.assertEquals(100, split.getStart());
+        Assert.assertEquals(200, split.getLength());
+        Assert.assertArrayEquals(new String[] {"host1", "host2"}, ((FileSplit) splits.get(0)).getLocations());
+
+        diskCache.putPartitionNames(CATALOG_ID, "db1", "tbl1", Lists.newArrayList("m=1"));
+        restart(diskCache);
+        diskCache.invalidateCatalog(CATALOG_ID);
+        Assert.assertNull(diskCache.getPartitionNames(CATALOG_ID, "db1", "tbl1"));
+    }
+
+    @Test
+    public void testReadOnceAfterRestart() throws Exception {
+        HiveMetaDiskCache diskCache = HiveMetaDiskCache.getInstance();
+        long catalogId = CATALOG_ID + 3;
+        diskCache.putPartitionNames(catalogId, "db1", "tbl1", Lists.newArrayList("m=1"));
+        // the entry loaded from the source since startup is not read, it may be stale if it is missing in memory
+        Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+
+        restart(diskCache);
+        Assert.assertEquals(Lists.newArrayList("m=1"), diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+        // the entry is only used for the first load after startup
+        Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+        // but it is kept for the next start
+        restart(diskCache);
+        Assert.assertEquals(Lists.newArrayList("m=1"), diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        HiveMetaDiskCache diskCache = HiveMetaDiskCache.getInstance();
+        long catalogId = CATALOG_ID + 1;
+        for (String tbl : new String[] {"tbl1", "tbl10", "tbl2"}) {
+            diskCache.putPartitionNames(catalogId, "db1", tbl, Lists.newArrayList("m=1"));
+            HivePartition partition = createPartition(tbl);
+            diskCache.putPartition(catalogId, "db1", tbl, partition);
+            diskCache.putFiles(catalogId, partition.getPath(), createSplits(partition.getPath()));
+        }
+        diskCache.putPartitionNames(catalogId, "db2", "tbl1", Lists.newArrayList("m=1"));
+        restart(diskCache);
+
+        // the partitions and files of tbl1 are removed, but not the ones of tbl10
+        diskCache.invalidateTable(catalogId, "db1", "tbl1");
+        Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+        Assert.assertNull(diskCache.getPartition(catalogId, "db1", "tbl1", Lists.newArrayList("tbl1")));
+        Assert.assertNull(diskCache.getFiles(catalogId, createPartition("tbl1").getPath()));
+        Assert.assertNotNull(diskCache.getPartitionNames(catalogId, "db1", "tbl10"));
+
+        // the file list of the partition is removed with it
+        diskCache.invalidatePartition(catalogId, "db1", "tbl10", Lists.newArrayList("tbl10"));
+        Assert.assertNull(diskCache.getPartition(catalogId, "db1", "tbl10", Lists.newArrayList("tbl10")));
+        Assert.assertNull(diskCache.getFiles(catalogId, createPartition("tbl10").getPath()));
+
+        diskCache.invalidateDb(catalogId, "db1");
+        Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl2"));
+        Assert.assertNull(diskCache.getFiles(catalogId, createPartition("tbl2").getPath()));
+        Assert.assertNotNull(diskCache.getPartitionNames(catalogId, "db2", "tbl1"));
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        HiveMetaDiskCache diskCache = HiveMetaDiskCache.getInstance();
+        long catalogId = CATALOG_ID + 2;
+        long originExpireMinutes = Config.hive_meta_disk_cache_expire_minutes;
+        try {
+            diskCache.putPartitionNames(catalogId, "db1", "tbl1", Lists.newArrayList("m=1"));
+            restart(diskCache);
+            Config.hive_meta_disk_cache_expire_minutes = -1;
+            Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+            Config.hive_meta_disk_cache_expire_minutes = originExpireMinutes;
+            // expired entry is removed
+            Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+        } finally {
+            Config.hive_meta_disk_cache_expire_minutes = originExpireMinutes;
+        }
+    }
+
+    @Test
+    public void testGc() throws Exception {
+        HiveMetaDiskCache diskCache = HiveMetaDiskCache.getInstance();
+        long catalogId = CATALOG_ID + 4;
+        long originMaxBytes = Config.hive_meta_disk_cache_max_bytes;
+        long originExpireMinutes = Config.hive_meta_disk_cache_expire_minutes;
+        try {
+            // the entries written by the other tests are older than tbl1
+            Thread.sleep(2);
+            diskCache.putPartitionNames(catalogId, "db1", "tbl1", Lists.newArrayList("m=1"));
+            Thread.sleep(2);
+            diskCache.putPartitionNames(catalogId, "db1", "tbl2", Lists.newArrayList("m=1"));
+            diskCache.gc();
+            restart(diskCache);
+            Assert.assertNotNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+            Assert.assertNotNull(diskCache.getPartitionNames(catalogId, "db1", "tbl2"));
+
+            // each entry is 29 bytes: key "db1\0tblN\0V", and load time, count and "m=1" in value
+            Config.hive_meta_disk_cache_max_bytes = 40;
+            diskCache.gc();
+            restart(diskCache);
+            Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl1"));
+            Assert.assertNotNull(diskCache.getPartitionNames(catalogId, "db1", "tbl2"));
+
+            Config.hive_meta_disk_cache_max_bytes = originMaxBytes;
+            Config.hive_meta_disk_cache_expire_minutes = -1;
+            diskCache.gc();
+            Config.hive_meta_disk_cache_expire_minutes = originExpireMinutes;
+            restart(diskCache);
+            Assert.assertNull(diskCache.getPartitionNames(catalogId, "db1", "tbl2"));
+        } finally {
+            Config.hive_meta_disk_cache_max_bytes = originMaxBytes;
+            Config.hive_meta_disk_cache_expire_minutes = originExpireMinutes;
+        }
+    }
+}
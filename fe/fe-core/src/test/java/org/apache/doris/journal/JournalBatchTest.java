@@ -0,0 +1,63 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.journal;
+
+import org.apache.doris.common.io.Text;
+import org.apache.doris.journal.bdbje.Timestamp;
+import org.apache.doris.persist.OperationType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+public class JournalBatchTest {
+
+    @Test
+    public void testAddJournal() throws IOException {
+        JournalBatch batch = new JournalBatch();
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertFalse(batch.isTimestampOnly());
+
+        batch.addJournal(OperationType.OP_SAVE_NEXTID, new Text("10086"));
+        Assert.assertEquals(1, batch.size());
+        Assert.assertFalse(batch.isTimestampOnly());
+
+        JournalBatch.Entity entity = batch.getJournalEntities().get(0);
+        Assert.assertEquals(OperationType.OP_SAVE_NEXTID, entity.getOpCode());
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(entity.getBinaryData(), 0, entity.getBinarySize()));
+        JournalEntity readEntity = new JournalEntity();
+        readEntity.readFields(in);
+        Assert.assertEquals(OperationType.OP_SAVE_NEXTID, readEntity.getOpCode());
+        Assert.assertEquals("10086", readEntity.getData().toString());
+    }
+
+    @Test
+    public void testTimestampOnly() throws IOException {
+        JournalBatch batch = new JournalBatch(2);
+        batch.addJournal(OperationType.OP_TIMESTAMP, new Timestamp());
+        batch.addJournal(OperationType.OP_TIMESTAMP, new Timestamp());
+        Assert.assertTrue(batch.isTimestampOnly());
+
+        batch.addJournal(OperationType.OP_SAVE_NEXTID, new Text("1"));
+        Assert.assertFalse(batch.isTimestampOnly());
+    }
+}
@@ -0,0 +1,294 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.master;
+
+import org.apache.doris.catalog.Env;
+import org.apache.doris.common.Config;
+import org.apache.doris.master.ReportHandler.ReportTask;
+import org.apache.doris.master.ReportHandler.ReportType;
+import org.apache.doris.system.Backend;
+import org.apache.doris.system.SystemInfoService;
+import org.apache.doris.thrift.TBackend;
+import org.apache.doris.thrift.TMasterResult;
+import org.apache.doris.thrift.TReportRequest;
+import org.apache.doris.thrift.TStatusCode;
+import org.apache.doris.thrift.TTablet;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ReportHandlerTest {
+    private static final long BACKEND_ID = 10001L;
+    private static final int BE_PORT = 9060;
+
+    private boolean enableDeltaTabletReport;
+    private long tabletFullReportIntervalSecond;
+    private int reportQueueSize;
+    // the workers are not started, so the report tasks are kept in the queues
+    private ReportHandler reportHandler;
+    // the report version of the backend in SystemInfoService
+    private long backendReportVersion;
+    // the versions of the tablet reports applied, in the order they are applied
+    private final List<Long> appliedReportVersions = Lists.newArrayList();
+
+    @Before
+    public void setUp() {
+        enableDeltaTabletReport = Config.enable_delta_tablet_report;
+        tabletFullReportIntervalSecond = Config.tablet_full_report_interval_second;
+        reportQueueSize = Config.report_queue_size;
+        Config.enable_delta_tablet_report = true;
+
+        SystemInfoService systemInfo = new SystemInfoService();
+        Backend backend = new Backend(BACKEND_ID, "127.0.0.1", 9050);
+        backend.setBePort(BE_PORT);
+        systemInfo.addBackend(backend);
+        new MockUp<Env>() {
+            @Mock
+            public SystemInfoService getCurrentSystemInfo() {
+                return systemInfo;
+            }
+        };
+        backendReportVersion = 0;
+        new MockUp<SystemInfoService>() {
+            @Mock
+            public long getBackendReportVersion(long backendId) {
+                return backendReportVersion;
+            }
+        };
+        appliedReportVersions.clear();
+        new MockUp<ReportHandler>() {
+            @Mock
+            void tabletReport(long backendId, Map<Long, TTablet> backendTablets, List<Long> deletedTablets,
+                    long reportVersion) {
+                appliedReportVersions.add(reportVersion);
+            }
+        };
+        reportHandler = new ReportHandler();
+    }
+
+    @After
+    public void tearDown() {
+        Config.enable_delta_tablet_report = enableDeltaTabletReport;
+        Config.tablet_full_report_interval_second = tabletFullReportIntervalSecond;
+        Config.report_queue_size = reportQueueSize;
+    }
+
+    private static TReportRequest createTabletReport(long reportVersion) {
+        TReportRequest request = new TReportRequest();
+        request.setBackend(new TBackend("127.0.0.1", BE_PORT, 8040));
+        request.setTablets(Maps.newHashMap());
+        request.setReportVersion(reportVersion);
+        return request;
+    }
+
+    private static TReportRequest createDeltaTabletReport(long baseReportVersion, long reportVersion) {
+        TReportRequest request = createTabletReport(reportVersion);
+        request.setIsDeltaReport(true);
+        request.setBaseReportVersion(baseReportVersion);
+        request.setDeletedTablets(Lists.newArrayList());
+        return request;
+    }
+
+    // return true if the tablets of the report are accepted
+    private boolean report(TReportRequest request) throws Exception {
+        TMasterResult result = reportHandler.handleReport(request);
+        Assert.assertEquals(TStatusCode.OK, result.getStatus().getStatusCode());
+        return !result.isSetNeedFullTabletReport();
+    }
+
+    @Test
+    public void testVersionMismatch() throws Exception {
+        // no full report received since FE started
+        Assert.assertFalse(report(createDeltaTabletReport(1, 2)));
+
+        Assert.assertTrue(report(createTabletReport(1)));
+        // the full report is not applied yet
+        Assert.assertFalse(report(createDeltaTabletReport(1, 2)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:1"), pollReportTasks());
+        Assert.assertTrue(report(createDeltaTabletReport(1, 2)));
+        // based on a report which is not the last accepted one
+        Assert.assertFalse(report(createDeltaTabletReport(1, 3)));
+        Assert.assertFalse(report(createDeltaTabletReport(3, 4)));
+        // the rejected reports do not change the base
+        Assert.assertTrue(report(createDeltaTabletReport(2, 5)));
+
+        Config.enable_delta_tablet_report = false;
+        Assert.assertFalse(report(createDeltaTabletReport(5, 6)));
+        Assert.assertTrue(report(createTabletReport(6)));
+    }
+
+    @Test
+    public void testExpiredFullReport() throws Exception {
+        Assert.assertTrue(report(createTabletReport(1)));
+        pollReportTasks();
+        Assert.assertTrue(report(createDeltaTabletReport(1, 2)));
+
+        // the last full report is too old, even if the base matches
+        Config.tablet_full_report_interval_second = -1;
+        Assert.assertFalse(report(createDeltaTabletReport(2, 3)));
+        Config.tablet_full_report_interval_second = tabletFullReportIntervalSecond;
+        Assert.assertTrue(report(createDeltaTabletReport(2, 3)));
+
+        // a new full report resets the base
+        Assert.assertTrue(report(createTabletReport(4)));
+        pollReportTasks();
+        Assert.assertFalse(report(createDeltaTabletReport(3, 5)));
+        Assert.assertTrue(report(createDeltaTabletReport(4, 5)));
+    }
+
+    @Test
+    public void testDiscardedDeltaReport() throws Exception {
+        Assert.assertTrue(report(createTabletReport(1)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:1"), pollReportTasks());
+
+        // the delta report is accepted but discarded because the queue is full
+        Config.report_queue_size = -1;
+        TMasterResult result = reportHandler.handleReport(createDeltaTabletReport(1, 2));
+        Assert.assertEquals(TStatusCode.INTERNAL_ERROR, result.getStatus().getStatusCode());
+        Config.report_queue_size = reportQueueSize;
+
+        // neither the discarded report nor the one before can be the base, a full report is needed
+        Assert.assertFalse(report(createDeltaTabletReport(2, 3)));
+        Assert.assertFalse(report(createDeltaTabletReport(1, 3)));
+        Assert.assertTrue(report(createTabletReport(3)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:3"), pollReportTasks());
+        Assert.assertTrue(report(createDeltaTabletReport(3, 4)));
+    }
+
+    // no tablets are reported if tabletReportVersion is not positive
+    private static TReportRequest createReport(boolean withTasks, boolean withDisks, long tabletReportVersion) {
+        TReportRequest request = new TReportRequest();
+        if (tabletReportVersion > 0) {
+            request = createTabletReport(tabletReportVersion);
+        }
+        request.setBackend(new TBackend("127.0.0.1", BE_PORT, 8040));
+        if (withTasks) {
+            request.setTasks(Maps.newHashMap());
+        }
+        if (withDisks) {
+            request.setDisks(Maps.newHashMap());
+        }
+        return request;
+    }
+
+    // the type and the report version of the tasks queued, in the order they are handled.
+    // The tablet reports are handled, the other reports are not.
+    private List<String> pollReportTasks() {
+        List<ReportTask> reportTasks = reportHandler.pollReportTasks(BACKEND_ID);
+        reportTasks.forEach(task -> Assert.assertEquals(BACKEND_ID, task.getBeId()));
+        reportTasks.stream().filter(task -> task.getType() == ReportType.TABLET).forEach(ReportTask::exec);
+        return reportTasks.stream().map(task -> task.getType() == ReportType.TABLET
+                ? task.getType() + ":" + task.getReportVersion() : task.getType().name()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        Assert.assertTrue(report(createReport(true, true, 1)));
+        Assert.assertTrue(report(createReport(false, false, 2)));
+        report(createReport(true, false, -1));
+        report(createReport(false, true, -1));
+
+        // task reports first, then disk reports and tablet reports, each kind in the order they are received
+        Assert.assertEquals(Lists.newArrayList("TASK", "TASK", "DISK", "DISK", "TABLET:1", "TABLET:2"),
+                pollReportTasks());
+        Assert.assertEquals(Lists.newArrayList(1L, 2L), appliedReportVersions);
+        Assert.assertTrue(pollReportTasks().isEmpty());
+
+        report(createReport(false, true, -1));
+        report(createReport(true, false, -1));
+        Assert.assertEquals(Lists.newArrayList("TASK", "DISK"), pollReportTasks());
+    }
+
+    @Test
+    public void testDuplicateReports() throws Exception {
+        // the same full report is sent again, e.g. backend retries after the rpc timeout
+        Assert.assertTrue(report(createTabletReport(1)));
+        Assert.assertTrue(report(createTabletReport(1)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:1", "TABLET:1"), pollReportTasks());
+        Assert.assertTrue(report(createDeltaTabletReport(1, 2)));
+
+        // the retried delta report is not based on the last accepted report any more, it is not queued again
+        Assert.assertFalse(report(createDeltaTabletReport(1, 2)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:2"), pollReportTasks());
+        Assert.assertTrue(report(createTabletReport(3)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:3"), pollReportTasks());
+        Assert.assertTrue(report(createDeltaTabletReport(3, 4)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:4"), pollReportTasks());
+
+        // the other parts of the rejected report are still handled
+        TReportRequest request = createReport(true, false, -1);
+        request.setTablets(Maps.newHashMap());
+        request.setReportVersion(5);
+        request.setIsDeltaReport(true);
+        request.setBaseReportVersion(3);
+        Assert.assertFalse(report(request));
+        Assert.assertEquals(Lists.newArrayList("TASK"), pollReportTasks());
+    }
+
+    @Test
+    public void testSkippedFullReport() throws Exception {
+        Assert.assertTrue(report(createTabletReport(1)));
+        // the full report is skipped as stale, the delta reports can not be based on it
+        backendReportVersion = 2;
+        Assert.assertEquals(Lists.newArrayList("TABLET:1"), pollReportTasks());
+        Assert.assertTrue(appliedReportVersions.isEmpty());
+        Assert.assertFalse(report(createDeltaTabletReport(1, 2)));
+
+        Assert.assertTrue(report(createTabletReport(2)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:2"), pollReportTasks());
+        Assert.assertTrue(report(createDeltaTabletReport(2, 3)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:3"), pollReportTasks());
+        Assert.assertEquals(Lists.newArrayList(2L, 3L), appliedReportVersions);
+    }
+
+    @Test
+    public void testSkippedOldFullReport() throws Exception {
+        Assert.assertTrue(report(createTabletReport(1)));
+        Assert.assertTrue(report(createTabletReport(2)));
+        // skipping the old full report does not affect the newer one
+        backendReportVersion = 2;
+        Assert.assertEquals(Lists.newArrayList("TABLET:1", "TABLET:2"), pollReportTasks());
+        Assert.assertEquals(Lists.newArrayList(2L), appliedReportVersions);
+        Assert.assertTrue(report(createDeltaTabletReport(2, 3)));
+    }
+
+    @Test
+    public void testSkippedDeltaReport() throws Exception {
+        Assert.assertTrue(report(createTabletReport(1)));
+        Assert.assertEquals(Lists.newArrayList("TABLET:1"), pollReportTasks());
+        Assert.assertTrue(report(createDeltaTabletReport(1, 2)));
+        Assert.assertTrue(report(createDeltaTabletReport(2, 3)));
+
+        // the delta report based on a skipped report is skipped too, even if it is not stale
+        backendReportVersion = 3;
+        Assert.assertEquals(Lists.newArrayList("TABLET:2", "TABLET:3"), pollReportTasks());
+        Assert.assertEquals(Lists.newArrayList(1L), appliedReportVersions);
+        Assert.assertFalse(report(createDeltaTabletReport(3, 4)));
+        Assert.assertTrue(report(createTabletReport(4)));
+    }
+}
@@ -0,0 +1,62 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.mysql;
+
+import org.apache.doris.common.Config;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class MysqlBufferPoolTest {
+
+    @Test
+    public void testBorrowAndRelease() {
+        MysqlBufferPool pool = new MysqlBufferPool(1024);
+        ByteBuffer buffer = pool.borrow();
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(1024, buffer.capacity());
+        buffer.put((byte) 1);
+
+        pool.release(buffer);
+        Assert.assertEquals(1, pool.getIdleNum());
+
+        // the released buffer is reused and cleared
+        ByteBuffer reused = pool.borrow();
+        Assert.assertSame(buffer, reused);
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(0, pool.getIdleNum());
+    }
+
+    @Test
+    public void testMaxIdleNum() {
+        int oldMaxIdleNum = Config.mysql_send_buffer_pool_max_idle_num;
+        Config.mysql_send_buffer_pool_max_idle_num = 1;
+        try {
+            MysqlBufferPool pool = new MysqlBufferPool(16);
+            ByteBuffer buffer1 = pool.borrow();
+            ByteBuffer buffer2 = pool.borrow();
+            pool.release(buffer1);
+            pool.release(buffer2);
+            Assert.assertEquals(1, pool.getIdleNum());
+        } finally {
+            Config.mysql_send_buffer_pool_max_idle_num = oldMaxIdleNum;
+        }
+    }
+}
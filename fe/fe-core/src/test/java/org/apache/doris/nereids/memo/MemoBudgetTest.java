@@ -0,0 +1,81 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.nereids.memo;
+
+import org.apache.doris.nereids.datasets.tpch.TPCHTestBase;
+import org.apache.doris.nereids.datasets.tpch.TPCHUtils;
+import org.apache.doris.nereids.properties.PhysicalProperties;
+import org.apache.doris.nereids.trees.plans.physical.PhysicalPlan;
+import org.apache.doris.nereids.util.PlanChecker;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MemoBudgetTest extends TPCHTestBase {
+    // the memo of tpch queries stays within the default budget, so their join orders are fully explored
+    @Test
+    void testMemoSizeOfTpch() throws NoSuchFieldException, IllegalAccessException {
+        int budget = connectContext.getSessionVariable().getMemoMaxGroupExpressionSize();
+        Assertions.assertTrue(budget > 0);
+        for (int i = 1; i <= 22; i++) {
+            String sql = TPCHUtils.class.getField("Q" + i).get(null).toString();
+            PlanChecker checker = optimize(sql);
+            int size = checker.getCascadesContext().getMemo().getGroupExpressionsSize();
+            Assertions.assertTrue(size > 0 && size <= budget, "Q" + i + " has " + size + " group expressions");
+            Assertions.assertNotNull(checker.getBestPlanTree(PhysicalProperties.GATHER));
+        }
+    }
+
+    @Test
+    void testStopExploringJoinOrderOverBudget() {
+        int budget = connectContext.getSessionVariable().getMemoMaxGroupExpressionSize();
+        try {
+            connectContext.getSessionVariable().setMemoMaxGroupExpressionSize(0);
+            int unlimited = optimize(TPCHUtils.Q5).getCascadesContext().getMemo().getGroupExpressionsSize();
+
+            connectContext.getSessionVariable().setMemoMaxGroupExpressionSize(10);
+            PlanChecker checker = optimize(TPCHUtils.Q5);
+            int limited = checker.getCascadesContext().getMemo().getGroupExpressionsSize();
+            Assertions.assertTrue(limited < unlimited);
+            // still get a plan with the join order of rewrite stage
+            Assertions.assertNotNull(checker.getBestPlanTree(PhysicalProperties.GATHER));
+        } finally {
+            connectContext.getSessionVariable().setMemoMaxGroupExpressionSize(budget);
+        }
+    }
+
+    @Test
+    void testRelease() {
+        PlanChecker checker = optimize(TPCHUtils.Q3);
+        PhysicalPlan plan = checker.getBestPlanTree(PhysicalProperties.GATHER);
+        Memo memo = checker.getCascadesContext().getMemo();
+        memo.release();
+        Assertions.assertTrue(memo.getGroups().isEmpty());
+        Assertions.assertEquals(0, memo.getGroupExpressionsSize());
+        // the chosen plan is still usable
+        Assertions.assertFalse(plan.treeString().isEmpty());
+    }
+
+    private PlanChecker optimize(String sql) {
+        return PlanChecker.from(connectContext)
+                .analyze(sql)
+                .rewrite()
+                .optimize();
+    }
+}
@@ -17,8 +17,11 @@
 
 package org.apache.doris.nereids.sqltest;
 
+import org.apache.doris.nereids.memo.Memo;
+import org.apache.doris.nereids.properties.PhysicalProperties;
 import org.apache.doris.nereids.util.PlanChecker;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class JoinOrderJobTest extends SqlTestBase {
@@ -84,4 +87,29 @@ public class JoinOrderJobTest extends SqlTestBase {
                 .rewrite()
                 .dpHypOptimize();
     }
+
+    @Test
+    protected void testKeepJoinOrderOverMemoBudget() {
+        String sql = "select * from T1, T2, T3, T4 "
+                + "where "
+                + "T1.id = T2.id and "
+                + "T2.score = T3.score and "
+                + "T3.id = T4.id";
+        int budget = connectContext.getSessionVariable().getMemoMaxGroupExpressionSize();
+        try {
+            connectContext.getSessionVariable().setMemoMaxGroupExpressionSize(1);
+            PlanChecker checker = PlanChecker.from(connectContext)
+                    .analyze(sql)
+                    .rewrite()
+                    .deriveStats();
+            Memo memo = checker.getCascadesContext().getMemo();
+            String rewritten = memo.copyOut().treeString();
+            checker.orderJoin();
+            // DPHyp is skipped, so the join groups still hold the join order of rewrite stage
+            Assertions.assertEquals(rewritten, memo.copyOut().treeString());
+            Assertions.assertNotNull(checker.optimize().getBestPlanTree(PhysicalProperties.GATHER));
+        } finally {
+            connectContext.getSessionVariable().setMemoMaxGroupExpressionSize(budget);
+        }
+    }
 }
@@ -17,15 +17,203 @@
 
 package org.apache.doris.persist;
 
+import org.apache.doris.common.Config;
+import org.apache.doris.common.io.Text;
+import org.apache.doris.common.io.Writable;
+import org.apache.doris.journal.Journal;
+import org.apache.doris.journal.JournalBatch;
+import org.apache.doris.journal.JournalCursor;
+import org.apache.doris.journal.JournalEntity;
+
+import com.google.common.collect.Lists;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class EditLogTest {
     private String meta = "editLogTestDir/";
 
+    private boolean enableGroupCommit;
+    private int maxBatchSize;
+
+    // Records the ids of the OP_SAVE_NEXTID journals written, and the size of each batch
+    private static class FakeJournal implements Journal {
+        private final List<String> ids = Collections.synchronizedList(Lists.newArrayList());
+        private final List<Integer> batchSizes = Collections.synchronizedList(Lists.newArrayList());
+        // the first batch waits for it, so that the following journals are queued
+        private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        private final CountDownLatch firstBatchReleased = new CountDownLatch(1);
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void rollJournal() {
+        }
+
+        @Override
+        public long getMaxJournalId() {
+            return 0;
+        }
+
+        @Override
+        public long getMinJournalId() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public JournalEntity read(long journalId) {
+            return null;
+        }
+
+        @Override
+        public JournalCursor read(long fromKey, long toKey) {
+            return null;
+        }
+
+        @Override
+        public void write(short op, Writable writable) {
+            ids.add(writable.toString());
+        }
+
+        @Override
+        public void write(JournalBatch batch) throws IOException {
+            if (firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                try {
+                    firstBatchReleased.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            batchSizes.add(batch.size());
+            for (JournalBatch.Entity entity : batch.getJournalEntities()) {
+                ids.add(entity.getData().toString());
+            }
+        }
+
+        @Override
+        public long getJournalNum() {
+            return 0;
+        }
+
+        @Override
+        public void deleteJournals(long deleteJournalToId) {
+        }
+
+        @Override
+        public long getFinalizedJournalId() {
+            return 0;
+        }
+
+        @Override
+        public List<Long> getDatabaseNames() {
+            return null;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        enableGroupCommit = Config.enable_edit_log_group_commit;
+        maxBatchSize = Config.edit_log_group_commit_max_batch_size;
+        Config.enable_edit_log_group_commit = true;
+        Config.edit_log_group_commit_max_batch_size = 4;
+    }
+
+    @After
+    public void tearDown() {
+        Config.enable_edit_log_group_commit = enableGroupCommit;
+        Config.edit_log_group_commit_max_batch_size = maxBatchSize;
+    }
+
+    private static Thread logSaveNextIdAsync(EditLog editLog, long id) {
+        Thread thread = new Thread(() -> editLog.logSaveNextId(id));
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void testGroupCommitNotStarted() {
+        // the journals are written directly until this FE becomes master
+        FakeJournal journal = new FakeJournal();
+        EditLog editLog = new EditLog(journal);
+        editLog.logSaveNextId(1);
+        Assert.assertEquals(Lists.newArrayList("1"), journal.ids);
+        Assert.assertTrue(journal.batchSizes.isEmpty());
+        Assert.assertNull(Deencapsulation.getField(editLog, "flushThread"));
+    }
+
+    @Test
+    public void testGroupCommitOrderAndBatchSize() throws Exception {
+        FakeJournal journal = new FakeJournal();
+        EditLog editLog = new EditLog(journal);
+        editLog.startGroupCommit();
+
+        List<Thread> threads = Lists.newArrayList();
+        threads.add(logSaveNextIdAsync(editLog, 0));
+        Assert.assertTrue(journal.firstBatchStarted.await(10, TimeUnit.SECONDS));
+        // queued while the first batch is being written
+        int queuedNum = 10;
+        for (int i = 1; i <= queuedNum; i++) {
+            threads.add(logSaveNextIdAsync(editLog, i));
+        }
+        BlockingQueue<Object> queue = Deencapsulation.getField(editLog, "logEditQueue");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (queue.size() < queuedNum && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        List<String> expectedIds = Lists.newArrayList("0");
+        for (Object item : queue) {
+            expectedIds.add(Deencapsulation.getField(item, "writable").toString());
+        }
+        Assert.assertEquals(queuedNum + 1, expectedIds.size());
+
+        // the callers return after their journals are written, in the order they are queued
+        // and in batches of at most edit_log_group_commit_max_batch_size
+        journal.firstBatchReleased.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+            Assert.assertFalse(thread.isAlive());
+        }
+        Assert.assertEquals(expectedIds, journal.ids);
+        Assert.assertEquals(Lists.newArrayList(1, 4, 4, 2), journal.batchSizes);
+        Assert.assertEquals(queuedNum + 1L, (long) Deencapsulation.getField(editLog, "numTransactions"));
+    }
+
+    @Test
+    public void testGroupCommitFailure() throws Exception {
+        // no edit log stream
+        EditLog editLog = new EditLog((Journal) null);
+        editLog.startGroupCommit();
+        Thread flushThread = Deencapsulation.getField(editLog, "flushThread");
+        for (int i = 0; i < 2; i++) {
+            try {
+                editLog.logSaveNextId(i);
+                Assert.fail("the journal should fail");
+            } catch (Error e) {
+                Assert.assertEquals("Fatal Error : no editLog stream", e.getMessage());
+            }
+            // the flush thread keeps running for the next journals
+            Assert.assertTrue(flushThread.isAlive());
+        }
+    }
+
     public void mkdir() {
         File dir = new File(meta);
         if (!dir.exists()) {
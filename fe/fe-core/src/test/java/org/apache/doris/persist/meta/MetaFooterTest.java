@@ -0,0 +1,123 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.persist.meta;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+
+public class MetaFooterTest {
+    private File imageFile;
+    private byte[] body;
+
+    @Before
+    public void setUp() throws IOException {
+        imageFile = File.createTempFile("MetaFooterTest", ".image");
+        body = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i * 31);
+        }
+        try (FileOutputStream out = new FileOutputStream(imageFile)) {
+            out.write(body);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        imageFile.delete();
+    }
+
+    private List<MetaIndex> indices() {
+        return Lists.newArrayList(new MetaIndex("header", 0), new MetaIndex("db", 100),
+                new MetaIndex("alterJob", 2 * 1024 * 1024));
+    }
+
+    private long crc(int start, int end) {
+        CRC32 crc = new CRC32();
+        crc.update(body, start, end - start);
+        return crc.getValue();
+    }
+
+    @Test
+    public void testReadWithoutSections() throws IOException {
+        MetaFooter.write(imageFile, indices(), 12345L);
+        MetaFooter footer = MetaFooter.read(imageFile);
+        Assert.assertEquals(12345L, footer.checksum);
+        Assert.assertEquals(3, footer.metaIndices.size());
+        Assert.assertEquals(body.length, footer.offset);
+        Assert.assertTrue(footer.sectionChecksums.isEmpty());
+        Assert.assertTrue(footer.subIndices.isEmpty());
+    }
+
+    @Test
+    public void testSectionChecksumsAndSubIndices() throws IOException {
+        List<MetaIndex> indices = indices();
+        List<Long> checksums;
+        try (MetaTaskExecutor executor = new MetaTaskExecutor(3)) {
+            checksums = executor.checksumSections(imageFile, indices, body.length);
+        }
+        Assert.assertEquals(Lists.newArrayList(crc(0, 100), crc(100, 2 * 1024 * 1024),
+                crc(2 * 1024 * 1024, body.length)), checksums);
+
+        List<MetaIndex> subIndices = Lists.newArrayList(new MetaIndex("db", 104), new MetaIndex("db", 1000));
+        MetaFooter.write(imageFile, indices, 678L, checksums, subIndices);
+        MetaFooter footer = MetaFooter.read(imageFile);
+        Assert.assertEquals(678L, footer.checksum);
+        Assert.assertEquals(body.length, footer.offset);
+        Assert.assertEquals(checksums, footer.sectionChecksums);
+        Assert.assertEquals(2, footer.subIndices.size());
+        Assert.assertEquals("db", footer.subIndices.get(1).name);
+        Assert.assertEquals(1000L, footer.subIndices.get(1).offset);
+        Assert.assertEquals("alterJob", footer.metaIndices.get(2).name);
+    }
+
+    @Test
+    public void testInvokeAll() throws IOException {
+        try (MetaTaskExecutor executor = new MetaTaskExecutor(4)) {
+            List<Callable<Integer>> tasks = Lists.newArrayList();
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                tasks.add(() -> value * 2);
+            }
+            List<Integer> results = executor.invokeAll(tasks);
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(i * 2, (int) results.get(i));
+            }
+
+            List<Callable<Integer>> failedTasks = Lists.newArrayList(() -> 1, () -> {
+                throw new IOException("broken section");
+            });
+            try {
+                executor.invokeAll(failedTasks);
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertEquals("broken section", e.getMessage());
+            }
+        }
+    }
+}
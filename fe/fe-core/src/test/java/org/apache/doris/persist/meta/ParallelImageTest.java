@@ -0,0 +1,169 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.persist.meta;
+
+import org.apache.doris.catalog.Database;
+import org.apache.doris.catalog.Env;
+import org.apache.doris.catalog.InfoSchemaDb;
+import org.apache.doris.catalog.Table;
+import org.apache.doris.common.Config;
+import org.apache.doris.common.FeConstants;
+import org.apache.doris.meta.MetaContext;
+import org.apache.doris.utframe.TestWithFeService;
+
+import mockit.Deencapsulation;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class ParallelImageTest extends TestWithFeService {
+    private static final int DB_NUM = 10;
+
+    private File imageDir;
+
+    @Override
+    protected void runBeforeAll() throws Exception {
+        imageDir = Files.createTempDirectory("ParallelImageTest").toFile();
+        for (int i = 0; i < DB_NUM; i++) {
+            createDatabase("db" + i);
+            for (int j = 0; j < 3; j++) {
+                createTable("create table db" + i + ".t" + j + " (k1 int, v1 int) duplicate key(k1)\n"
+                        + "distributed by hash(k1) buckets 3 properties('replication_num' = '1');");
+            }
+        }
+    }
+
+    @Override
+    protected void runAfterAll() throws Exception {
+        FileUtils.deleteQuietly(imageDir);
+    }
+
+    private File writeImage(String name, int parallelNum) throws IOException {
+        int origParallelNum = Config.metadata_image_parallel_num;
+        Config.metadata_image_parallel_num = parallelNum;
+        try {
+            File imageFile = new File(imageDir, name);
+            Assertions.assertTrue(imageFile.createNewFile());
+            MetaWriter.write(imageFile, Env.getServingEnv());
+            return imageFile;
+        } finally {
+            Config.metadata_image_parallel_num = origParallelNum;
+        }
+    }
+
+    // load the image into the checkpoint env, and return the tables of each database in it
+    private Map<String, TreeSet<Long>> loadImage(File imageFile, int parallelNum) throws Exception {
+        int origParallelNum = Config.metadata_image_parallel_num;
+        long ckptThreadId = Deencapsulation.getField(Env.class, "checkpointThreadId");
+        MetaContext origMetaContext = MetaContext.get();
+        MetaContext metaContext = new MetaContext();
+        metaContext.setMetaVersion(FeConstants.meta_version);
+        metaContext.setThreadLocalInfo();
+        Config.metadata_image_parallel_num = parallelNum;
+        // make Env.getCurrentEnv() return the checkpoint env in this thread
+        Deencapsulation.setField(Env.class, "checkpointThreadId", Thread.currentThread().getId());
+        try {
+            Env env = Env.getCurrentEnv();
+            Assertions.assertNotSame(Env.getServingEnv(), env);
+            MetaReader.read(imageFile, env);
+            return getTables(env);
+        } finally {
+            Deencapsulation.setField(Env.class, "checkpointThreadId", ckptThreadId);
+            Config.metadata_image_parallel_num = origParallelNum;
+            Env.destroyCheckpoint();
+            if (origMetaContext != null) {
+                origMetaContext.setThreadLocalInfo();
+            } else {
+                MetaContext.remove();
+            }
+        }
+    }
+
+    private static Map<String, TreeSet<Long>> getTables(Env env) {
+        Map<String, TreeSet<Long>> tables = new TreeMap<>();
+        for (long dbId : env.getInternalCatalog().getDbIds()) {
+            Database db = env.getInternalCatalog().getDbNullable(dbId);
+            if (InfoSchemaDb.isInfoSchemaDb(db.getFullName())) {
+                // not written to image
+                continue;
+            }
+            TreeSet<Long> tableIds = new TreeSet<>();
+            for (Table table : db.getTables()) {
+                tableIds.add(table.getId());
+            }
+            tables.put(db.getFullName() + ":" + dbId, tableIds);
+        }
+        return tables;
+    }
+
+    private static byte[] readBody(File imageFile) throws IOException {
+        MetaFooter footer = MetaFooter.read(imageFile);
+        return Arrays.copyOf(Files.readAllBytes(imageFile.toPath()), (int) footer.offset);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File sequentialImage = writeImage("image.sequential", 1);
+        File parallelImage = writeImage("image.parallel", 4);
+
+        // the bodies are the same, only the footer of the parallel image has the sections and databases
+        Assertions.assertArrayEquals(readBody(sequentialImage), readBody(parallelImage));
+        MetaFooter sequentialFooter = MetaFooter.read(sequentialImage);
+        MetaFooter parallelFooter = MetaFooter.read(parallelImage);
+        Assertions.assertEquals(sequentialFooter.checksum, parallelFooter.checksum);
+        Assertions.assertEquals(sequentialFooter.metaIndices.size(), parallelFooter.metaIndices.size());
+        for (int i = 0; i < sequentialFooter.metaIndices.size(); i++) {
+            Assertions.assertEquals(sequentialFooter.metaIndices.get(i).name, parallelFooter.metaIndices.get(i).name);
+            Assertions.assertEquals(sequentialFooter.metaIndices.get(i).offset,
+                    parallelFooter.metaIndices.get(i).offset);
+        }
+        Assertions.assertTrue(sequentialFooter.sectionChecksums.isEmpty());
+        Assertions.assertEquals(parallelFooter.metaIndices.size(), parallelFooter.sectionChecksums.size());
+        Assertions.assertFalse(parallelFooter.subIndices.isEmpty());
+
+        Map<String, TreeSet<Long>> expected = getTables(Env.getServingEnv());
+        Assertions.assertTrue(expected.size() >= DB_NUM);
+        Assertions.assertEquals(expected, loadImage(sequentialImage, 1));
+        Assertions.assertEquals(expected, loadImage(sequentialImage, 4));
+        Assertions.assertEquals(expected, loadImage(parallelImage, 1));
+        Assertions.assertEquals(expected, loadImage(parallelImage, 4));
+    }
+
+    @Test
+    public void testMissingSectionChecksum() throws Exception {
+        File parallelImage = writeImage("image.parallel.full", 4);
+        MetaFooter footer = MetaFooter.read(parallelImage);
+
+        // copy the body, and write a footer which misses the checksum of the last section
+        File brokenImage = new File(imageDir, "image.parallel.broken");
+        Files.write(brokenImage.toPath(), readBody(parallelImage));
+        MetaFooter.write(brokenImage, footer.metaIndices, footer.checksum,
+                footer.sectionChecksums.subList(0, footer.sectionChecksums.size() - 1), footer.subIndices);
+
+        IOException e = Assertions.assertThrows(IOException.class, () -> loadImage(brokenImage, 4));
+        Assertions.assertTrue(e.getMessage().contains("section checksums"), e.getMessage());
+    }
+}
@@ -18,10 +18,17 @@
 package org.apache.doris.qe;
 
 import org.apache.doris.catalog.Env;
+import org.apache.doris.common.Config;
 import org.apache.doris.common.util.DigitalVersion;
+import org.apache.doris.metric.LongCounterMetric;
+import org.apache.doris.metric.MetricRepo;
 import org.apache.doris.plugin.AuditEvent;
 import org.apache.doris.plugin.AuditEvent.EventType;
+import org.apache.doris.plugin.AuditPlugin;
+import org.apache.doris.plugin.Plugin;
 import org.apache.doris.plugin.PluginInfo;
+import org.apache.doris.plugin.PluginInfo.PluginType;
+import org.apache.doris.plugin.PluginMgr;
 import org.apache.doris.utframe.UtFrameUtils;
 
 import org.junit.AfterClass;
@@ -31,7 +38,11 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AuditEventProcessorTest {
 
@@ -118,4 +129,133 @@ public class AuditEventProcessorTest {
         long total = System.currentTimeMillis() - start;
         System.out.println("total(ms): " + total + ", avg: " + total / 10000.0);
     }
+
+    private static class BatchAuditPlugin extends Plugin implements AuditPlugin {
+        private final AtomicInteger eventNum = new AtomicInteger(0);
+        private final AtomicInteger batchNum = new AtomicInteger(0);
+
+        @Override
+        public boolean eventFilter(EventType type) {
+            return type == EventType.AFTER_QUERY;
+        }
+
+        @Override
+        public void exec(AuditEvent event) {
+            Assert.fail("events should be delivered in batch");
+        }
+
+        @Override
+        public void execBatch(List<AuditEvent> events) {
+            eventNum.addAndGet(events.size());
+            batchNum.incrementAndGet();
+            try {
+                // a slow plugin
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+    }
+
+    @Test
+    public void testBatchDeliveryWithBlockPolicy() throws Exception {
+        String policy = Config.audit_event_queue_full_policy;
+        Config.audit_event_queue_full_policy = "block";
+        BatchAuditPlugin plugin = new BatchAuditPlugin();
+        PluginMgr pluginMgr = new PluginMgr();
+        pluginMgr.registerBuiltinPlugin(new PluginInfo("batch", PluginType.AUDIT, ""), plugin);
+        AuditEventProcessor processor = new AuditEventProcessor(pluginMgr);
+        processor.start();
+        try {
+            int num = Config.audit_event_queue_size * 3;
+            for (int i = 0; i < num; i++) {
+                EventType type = i % 2 == 0 ? EventType.AFTER_QUERY : EventType.CONNECTION;
+                processor.handleAuditEvent(new AuditEvent.AuditEventBuilder().setEventType(type)
+                        .setReturnRows(i).build());
+            }
+            processor.stop();
+            // no event is dropped with the block policy, and the filtered events are not delivered
+            Assert.assertEquals(num / 2, plugin.eventNum.get());
+            Assert.assertTrue(plugin.batchNum.get() < num / 2);
+        } finally {
+            Config.audit_event_queue_full_policy = policy;
+        }
+    }
+
+    @Test
+    public void testUpdateAndRemovePlugin() throws Exception {
+        BatchAuditPlugin plugin = new BatchAuditPlugin();
+        PluginMgr pluginMgr = new PluginMgr();
+        AuditEventProcessor processor = new AuditEventProcessor(pluginMgr);
+        processor.start();
+        try {
+            // the plugin registered after start is added by the updater
+            pluginMgr.registerBuiltinPlugin(new PluginInfo("batch", PluginType.AUDIT, ""), plugin);
+            processor.refreshPlugins();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (processor.getPendingEventNums().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(processor.getPendingEventNums().containsKey("BatchAuditPlugin"));
+
+            int num = 100;
+            for (int i = 0; i < num; i++) {
+                processor.handleAuditEvent(new AuditEvent.AuditEventBuilder().setEventType(EventType.AFTER_QUERY)
+                        .setReturnRows(i).build());
+            }
+            // the events queued are delivered before the plugin is removed, and no event is delivered after
+            processor.removePlugin(plugin);
+            Assert.assertEquals(num, plugin.eventNum.get());
+            Assert.assertTrue(processor.getPendingEventNums().isEmpty());
+            processor.handleAuditEvent(new AuditEvent.AuditEventBuilder().setEventType(EventType.AFTER_QUERY).build());
+            Assert.assertEquals(num, plugin.eventNum.get());
+        } finally {
+            processor.stop();
+        }
+    }
+
+    // blocks the caller in the filter until it is released
+    private static class BlockingFilterPlugin extends BatchAuditPlugin {
+        private final CountDownLatch filtering = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public boolean eventFilter(EventType type) {
+            filtering.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            return true;
+        }
+    }
+
+    @Test
+    public void testEventDroppedByRemovedPlugin() throws Exception {
+        MetricRepo.init();
+        BlockingFilterPlugin plugin = new BlockingFilterPlugin();
+        PluginMgr pluginMgr = new PluginMgr();
+        pluginMgr.registerBuiltinPlugin(new PluginInfo("blocking", PluginType.AUDIT, ""), plugin);
+        AuditEventProcessor processor = new AuditEventProcessor(pluginMgr);
+        processor.start();
+        try {
+            LongCounterMetric dropped = MetricRepo.PLUGIN_COUNTER_AUDIT_EVENT_DROPPED.getOrAdd("BlockingFilterPlugin");
+            long droppedNum = dropped.getValue();
+            // the plugin is removed after the caller got its worker, and before the event is queued
+            Thread caller = new Thread(() -> processor.handleAuditEvent(
+                    new AuditEvent.AuditEventBuilder().setEventType(EventType.AFTER_QUERY).build()));
+            caller.start();
+            Assert.assertTrue(plugin.filtering.await(10, TimeUnit.SECONDS));
+            processor.removePlugin(plugin);
+            plugin.released.countDown();
+            caller.join();
+
+            // the event is never delivered, and it is counted as dropped
+            Assert.assertEquals(0, plugin.eventNum.get());
+            Assert.assertEquals(droppedNum + 1, (long) dropped.getValue());
+        } finally {
+            processor.stop();
+        }
+    }
 }
@@ -0,0 +1,101 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.qe;
+
+import org.apache.doris.thrift.TExecPlanFragmentParams;
+import org.apache.doris.thrift.TExecPlanFragmentParamsList;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time to serialize the params of one fragment for all backends, on a synthetic plan
+ * of 100 backends and 64 instances per backend: serializing the whole TExecPlanFragmentParamsList
+ * of every backend by TSerializer, and {@link FragmentParamsSerializer} which serializes the shared
+ * parts once.
+ * Run it with the test classpath, e.g. from an IDE or
+ * `java -cp <test-classpath> org.apache.doris.qe.FragmentParamsSerializerBenchmark`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FragmentParamsSerializerBenchmark {
+    @Param({"tserializer", "shared"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    @Param({"100"})
+    public int backendNum;
+
+    @Param({"64"})
+    public int instanceNumPerBackend;
+
+    private List<List<TExecPlanFragmentParams>> paramsOfBackends;
+    private TSerializer tSerializer;
+
+    @Setup
+    public void setup() throws TException {
+        paramsOfBackends = FragmentParamsSerializerTest.createParams(backendNum, instanceNumPerBackend);
+        tSerializer = new TSerializer(compact ? new TCompactProtocol.Factory() : new TBinaryProtocol.Factory());
+    }
+
+    // One round of sending the fragment to all the backends
+    @Benchmark
+    public void serialize(Blackhole blackhole) throws TException {
+        if (mode.equals("tserializer")) {
+            for (List<TExecPlanFragmentParams> paramsList : paramsOfBackends) {
+                blackhole.consume(tSerializer.serialize(new TExecPlanFragmentParamsList().setParamsList(paramsList)));
+            }
+        } else {
+            // the cached bytes are only valid for one round
+            FragmentParamsSerializer serializer = new FragmentParamsSerializer(compact);
+            for (List<TExecPlanFragmentParams> paramsList : paramsOfBackends) {
+                blackhole.consume(serializer.serialize(paramsList));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(FragmentParamsSerializerBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+}
@@ -0,0 +1,230 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.qe;
+
+import org.apache.doris.thrift.PaloInternalServiceVersion;
+import org.apache.doris.thrift.TDataPartition;
+import org.apache.doris.thrift.TExecPlanFragmentParams;
+import org.apache.doris.thrift.TExecPlanFragmentParamsList;
+import org.apache.doris.thrift.TNetworkAddress;
+import org.apache.doris.thrift.TPaloScanRange;
+import org.apache.doris.thrift.TPartitionType;
+import org.apache.doris.thrift.TPlan;
+import org.apache.doris.thrift.TPlanFragment;
+import org.apache.doris.thrift.TPlanFragmentDestination;
+import org.apache.doris.thrift.TPlanFragmentExecParams;
+import org.apache.doris.thrift.TPlanNode;
+import org.apache.doris.thrift.TPlanNodeType;
+import org.apache.doris.thrift.TQueryOptions;
+import org.apache.doris.thrift.TScanRange;
+import org.apache.doris.thrift.TScanRangeParams;
+import org.apache.doris.thrift.TUniqueId;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class FragmentParamsSerializerTest {
+    private static final int BACKEND_NUM = 100;
+    private static final int INSTANCE_NUM_PER_BACKEND = 64;
+
+    @Test
+    public void testRoundTripBinary() throws TException {
+        testRoundTrip(false);
+    }
+
+    @Test
+    public void testRoundTripCompact() throws TException {
+        testRoundTrip(true);
+    }
+
+    private void testRoundTrip(boolean compact) throws TException {
+        List<List<TExecPlanFragmentParams>> paramsOfBackends = createParams(3, 20);
+        // some params do not carry the shared parts
+        paramsOfBackends.get(1).get(1).unsetQueryOptions();
+        paramsOfBackends.get(1).get(2).getParams().unsetDestinations();
+        paramsOfBackends.get(2).get(3).unsetParams();
+
+        FragmentParamsSerializer serializer = new FragmentParamsSerializer(compact);
+        TDeserializer deserializer = new TDeserializer(protocolFactory(compact));
+        for (List<TExecPlanFragmentParams> paramsList : paramsOfBackends) {
+            TPlanFragment fragment = paramsList.get(0).getFragment();
+            byte[] bytes = serializer.serialize(paramsList);
+
+            TExecPlanFragmentParamsList result = new TExecPlanFragmentParamsList();
+            deserializer.deserialize(result, bytes);
+            Assert.assertEquals(new TExecPlanFragmentParamsList().setParamsList(paramsList), result);
+            // the shared parts are restored after serialization
+            Assert.assertSame(fragment, paramsList.get(0).getFragment());
+        }
+        Assert.assertTrue(serializer.getReusedBytes() > 0);
+    }
+
+    @Test
+    public void testEmptyList() throws TException {
+        for (boolean compact : new boolean[] {false, true}) {
+            byte[] bytes = new FragmentParamsSerializer(compact).serialize(Lists.newArrayList());
+            TExecPlanFragmentParamsList result = new TExecPlanFragmentParamsList();
+            new TDeserializer(protocolFactory(compact)).deserialize(result, bytes);
+            Assert.assertEquals(0, result.getParamsListSize());
+        }
+    }
+
+    // Compare with serializing the whole params of every instance, on a synthetic plan of
+    // 100 backends and 64 instances per backend.
+    @Test
+    public void testSyntheticLargePlan() throws TException {
+        for (boolean compact : new boolean[] {false, true}) {
+            List<List<TExecPlanFragmentParams>> paramsOfBackends =
+                    createParams(BACKEND_NUM, INSTANCE_NUM_PER_BACKEND);
+
+            TSerializer tSerializer = new TSerializer(protocolFactory(compact));
+            List<byte[]> expected = Lists.newArrayList();
+            long expectedBytes = 0;
+            for (List<TExecPlanFragmentParams> paramsList : paramsOfBackends) {
+                expected.add(tSerializer.serialize(new TExecPlanFragmentParamsList().setParamsList(paramsList)));
+                expectedBytes += expected.get(expected.size() - 1).length;
+            }
+
+            FragmentParamsSerializer serializer = new FragmentParamsSerializer(compact);
+            List<byte[]> actual = Lists.newArrayList();
+            for (List<TExecPlanFragmentParams> paramsList : paramsOfBackends) {
+                actual.add(serializer.serialize(paramsList));
+            }
+            // the shared fragment is serialized once and reused by all the other instances
+            Assert.assertTrue(serializer.getReusedBytes() > 0);
+            Assert.assertTrue(serializer.getReusedBytes() < serializer.getSerializedBytes());
+            if (!compact) {
+                Assert.assertEquals(expectedBytes, serializer.getSerializedBytes());
+            }
+
+            TDeserializer deserializer = new TDeserializer(protocolFactory(compact));
+            for (int i = 0; i < BACKEND_NUM; i++) {
+                TExecPlanFragmentParamsList expectedList = new TExecPlanFragmentParamsList();
+                deserializer.deserialize(expectedList, expected.get(i));
+                TExecPlanFragmentParamsList actualList = new TExecPlanFragmentParamsList();
+                deserializer.deserialize(actualList, actual.get(i));
+                Assert.assertEquals(expectedList, actualList);
+                if (!compact) {
+                    // field order does not change the size of binary protocol
+                    Assert.assertEquals(expected.get(i).length, actual.get(i).length);
+                }
+            }
+        }
+    }
+
+    private static TProtocolFactory protocolFactory(boolean compact) {
+        return compact ? new TCompactProtocol.Factory() : new TBinaryProtocol.Factory();
+    }
+
+    // Params of one fragment, grouped by backend, like Coordinator.sendFragment does.
+    // Also used by FragmentParamsSerializerBenchmark.
+    static List<List<TExecPlanFragmentParams>> createParams(int backendNum, int instanceNumPerBackend) {
+        TUniqueId queryId = new TUniqueId(1, 1);
+        TPlanFragment fragment = createFragment(30);
+        TQueryOptions queryOptions = new TQueryOptions();
+        queryOptions.setMemLimit(2L << 30);
+        queryOptions.setQueryTimeout(300);
+        List<TPlanFragmentDestination> destinations = Lists.newArrayList();
+        for (int i = 0; i < backendNum * instanceNumPerBackend; i++) {
+            TPlanFragmentDestination destination = new TPlanFragmentDestination();
+            destination.setFragmentInstanceId(new TUniqueId(2, i));
+            destination.setServer(new TNetworkAddress("192.168.0." + (i % backendNum), 9060));
+            destination.setBrpcServer(new TNetworkAddress("192.168.0." + (i % backendNum), 8060));
+            destinations.add(destination);
+        }
+        Map<Integer, Integer> perExchNumSenders = Maps.newHashMap();
+
+        int senderId = 0;
+        List<List<TExecPlanFragmentParams>> paramsOfBackends = Lists.newArrayList();
+        for (int be = 0; be < backendNum; be++) {
+            List<TExecPlanFragmentParams> paramsList = Lists.newArrayList();
+            for (int i = 0; i < instanceNumPerBackend; i++) {
+                TExecPlanFragmentParams params = new TExecPlanFragmentParams();
+                params.setProtocolVersion(PaloInternalServiceVersion.V1);
+                params.setFragment(fragment);
+                params.setQueryOptions(queryOptions);
+                params.setBackendNum(senderId);
+                params.setBackendId(be);
+                params.setFragmentNumOnHost(instanceNumPerBackend);
+                TPlanFragmentExecParams execParams = new TPlanFragmentExecParams();
+                execParams.setQueryId(queryId);
+                execParams.setFragmentInstanceId(new TUniqueId(3, senderId));
+                execParams.setPerNodeScanRanges(createScanRanges(senderId, 4));
+                execParams.setPerExchNumSenders(perExchNumSenders);
+                execParams.setDestinations(destinations);
+                execParams.setSenderId(senderId);
+                execParams.setNumSenders(backendNum * instanceNumPerBackend);
+                params.setParams(execParams);
+                paramsList.add(params);
+                senderId++;
+            }
+            paramsOfBackends.add(paramsList);
+        }
+        return paramsOfBackends;
+    }
+
+    private static TPlanFragment createFragment(int nodeNum) {
+        List<TPlanNode> nodes = Lists.newArrayList();
+        for (int i = 0; i < nodeNum; i++) {
+            TPlanNode node = new TPlanNode();
+            node.setNodeId(i);
+            node.setNodeType(i == nodeNum - 1 ? TPlanNodeType.OLAP_SCAN_NODE : TPlanNodeType.HASH_JOIN_NODE);
+            node.setNumChildren(i == nodeNum - 1 ? 0 : 1);
+            node.setLimit(-1);
+            node.setRowTuples(Lists.newArrayList(i, i + 1));
+            node.setNullableTuples(Lists.newArrayList(false, true));
+            node.setCompactData(false);
+            nodes.add(node);
+        }
+        TPlanFragment fragment = new TPlanFragment();
+        fragment.setPlan(new TPlan(nodes));
+        fragment.setPartition(new TDataPartition(TPartitionType.RANDOM));
+        return fragment;
+    }
+
+    private static Map<Integer, List<TScanRangeParams>> createScanRanges(int instance, int tabletNum) {
+        List<TScanRangeParams> scanRanges = Lists.newArrayList();
+        for (int i = 0; i < tabletNum; i++) {
+            TPaloScanRange paloScanRange = new TPaloScanRange();
+            paloScanRange.setHosts(Lists.newArrayList(new TNetworkAddress("192.168.0.1", 9060)));
+            paloScanRange.setSchemaHash("12345");
+            paloScanRange.setVersion("10");
+            paloScanRange.setVersionHash("0");
+            paloScanRange.setTabletId(instance * tabletNum + i);
+            paloScanRange.setDbName("");
+            TScanRange scanRange = new TScanRange();
+            scanRange.setPaloScanRange(paloScanRange);
+            scanRanges.add(new TScanRangeParams(scanRange));
+        }
+        Map<Integer, List<TScanRangeParams>> perNodeScanRanges = Maps.newHashMap();
+        perNodeScanRanges.put(29, scanRanges);
+        return perNodeScanRanges;
+    }
+}
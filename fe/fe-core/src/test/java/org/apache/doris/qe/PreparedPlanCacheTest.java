@@ -0,0 +1,104 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.qe;
+
+import org.apache.doris.catalog.Type;
+import org.apache.doris.common.Config;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class PreparedPlanCacheTest {
+    private int maxNum;
+    private final PreparedPlanCache cache = new PreparedPlanCache();
+
+    @Before
+    public void setUp() {
+        maxNum = Config.prepared_plan_cache_max_num;
+        Config.prepared_plan_cache_max_num = 3;
+    }
+
+    @After
+    public void tearDown() {
+        Config.prepared_plan_cache_max_num = maxNum;
+    }
+
+    private static PreparedPlanCache.Key key(String stmt, Type... paramTypes) {
+        return new PreparedPlanCache.Key("root", "internal", "db1", stmt, Lists.newArrayList(paramTypes),
+                Maps.newHashMap());
+    }
+
+    private static PreparedPlanCache.PreparedPlan plan(PreparedPlanCache.Key key) {
+        return new PreparedPlanCache.PreparedPlan(key, null, Collections.emptyList(), null, null,
+                Collections.emptyList());
+    }
+
+    @Test
+    public void testBorrowAndGiveBack() {
+        PreparedPlanCache.Key key = key("select * from t where k1 = ?", Type.INT);
+        Assert.assertNull(cache.borrow(key));
+
+        PreparedPlanCache.PreparedPlan plan1 = plan(key);
+        PreparedPlanCache.PreparedPlan plan2 = plan(key);
+        cache.giveBack(plan1);
+        cache.giveBack(plan2);
+        Assert.assertEquals(2, cache.getIdlePlanNum());
+
+        // the plan given back lately is borrowed first, and one plan is owned by one borrower
+        Assert.assertSame(plan2, cache.borrow(key("select * from t where k1 = ?", Type.INT)));
+        Assert.assertSame(plan1, cache.borrow(key));
+        Assert.assertNull(cache.borrow(key));
+        Assert.assertEquals(0, cache.getIdlePlanNum());
+
+        // plans with different types of parameters are not shared
+        cache.giveBack(plan1);
+        Assert.assertNull(cache.borrow(key("select * from t where k1 = ?", Type.BIGINT)));
+        Assert.assertSame(plan1, cache.borrow(key));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        PreparedPlanCache.Key key1 = key("select * from t where k1 = ?", Type.INT);
+        PreparedPlanCache.Key key2 = key("select * from t where k2 = ?", Type.INT);
+        PreparedPlanCache.Key key3 = key("select * from t where k3 = ?", Type.INT);
+        cache.giveBack(plan(key1));
+        cache.giveBack(plan(key1));
+        cache.giveBack(plan(key2));
+        Assert.assertEquals(3, cache.getIdlePlanNum());
+
+        // the oldest plan of key1 is evicted
+        cache.giveBack(plan(key3));
+        Assert.assertEquals(3, cache.getIdlePlanNum());
+        Assert.assertNotNull(cache.borrow(key1));
+        Assert.assertNull(cache.borrow(key1));
+        Assert.assertNotNull(cache.borrow(key2));
+        Assert.assertNotNull(cache.borrow(key3));
+
+        Config.prepared_plan_cache_max_num = 0;
+        cache.giveBack(plan(key1));
+        Assert.assertEquals(0, cache.getIdlePlanNum());
+        Assert.assertNull(cache.borrow(key1));
+    }
+}
@@ -0,0 +1,184 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.qe;
+
+import org.apache.doris.analysis.AlterTableStmt;
+import org.apache.doris.analysis.Analyzer;
+import org.apache.doris.analysis.ExecuteStmt;
+import org.apache.doris.analysis.IntLiteral;
+import org.apache.doris.analysis.LiteralExpr;
+import org.apache.doris.analysis.PrepareStmt;
+import org.apache.doris.analysis.SqlParser;
+import org.apache.doris.analysis.SqlScanner;
+import org.apache.doris.catalog.Env;
+import org.apache.doris.catalog.OlapTable;
+import org.apache.doris.catalog.Partition;
+import org.apache.doris.catalog.Type;
+import org.apache.doris.common.Config;
+import org.apache.doris.common.ExceptionChecker;
+import org.apache.doris.common.UserException;
+import org.apache.doris.common.util.SqlParserUtils;
+import org.apache.doris.planner.OlapScanNode;
+import org.apache.doris.utframe.TestWithFeService;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+public class PreparedPlanTest extends TestWithFeService {
+    private int maxNum;
+
+    @Override
+    protected void runBeforeAll() throws Exception {
+        maxNum = Config.prepared_plan_cache_max_num;
+        Config.prepared_plan_cache_max_num = 10;
+        createDatabase("test");
+        createTable("create table test.t (k1 int, v1 int) duplicate key(k1)\n"
+                + "partition by range(k1) (partition p1 values less than ('10'),"
+                + " partition p2 values less than ('20'))\n"
+                + "distributed by hash(k1) buckets 3 properties('replication_num' = '1');");
+    }
+
+    @Override
+    protected void runAfterAll() throws Exception {
+        Config.prepared_plan_cache_max_num = maxNum;
+        PreparedPlanCache.getInstance().clear();
+    }
+
+    private void prepare(String name, String sql) throws Exception {
+        String stmtStr = "PREPARE " + name + " FROM " + sql;
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(stmtStr),
+                connectContext.getSessionVariable().getSqlMode()));
+        PrepareStmt prepareStmt = (PrepareStmt) SqlParserUtils.getFirstStmt(parser);
+        prepareStmt.setOrigStmt(new OriginStatement(stmtStr, 0));
+        prepareStmt.setContext(connectContext);
+        prepareStmt.analyze(new Analyzer(connectContext.getEnv(), connectContext));
+        Assertions.assertFalse(prepareStmt.isPointQuery());
+        connectContext.addPreparedStmt(name, new PrepareStmtContext(prepareStmt, connectContext, null, null, stmtStr));
+    }
+
+    private StmtExecutor execute(String name, int... args) throws Exception {
+        List<LiteralExpr> literals = Lists.newArrayList();
+        for (int arg : args) {
+            literals.add(new IntLiteral(arg, Type.INT));
+        }
+        ExecuteStmt executeStmt = new ExecuteStmt(name, literals);
+        executeStmt.setOrigStmt(new OriginStatement("EXECUTE " + name, 0));
+        StmtExecutor executor = new StmtExecutor(connectContext, executeStmt);
+        executor.analyze(connectContext.getSessionVariable().toThrift());
+        return executor;
+    }
+
+    private static OlapScanNode getScanNode(StmtExecutor executor) {
+        return (OlapScanNode) executor.planner().getScanNodes().get(0);
+    }
+
+    private static OlapTable getTable() throws Exception {
+        return (OlapTable) Env.getCurrentInternalCatalog().getDbOrMetaException("default_cluster:test")
+                .getTableOrMetaException("t");
+    }
+
+    private static void assertScanPartition(OlapScanNode scanNode, String partitionName) throws Exception {
+        Partition partition = getTable().getPartition(partitionName);
+        Assertions.assertEquals(Lists.newArrayList(partition.getId()),
+                Lists.newArrayList(scanNode.getSelectedPartitionIds()));
+        // only the tablet of the bucket of the value is scanned
+        Assertions.assertEquals(1, scanNode.getScanTabletIds().size());
+        Assertions.assertTrue(partition.getBaseIndex().getTabletIdsInOrder()
+                .contains(scanNode.getScanTabletIds().get(0)));
+        Assertions.assertEquals(1, scanNode.getScanRangeLocations(0).size());
+    }
+
+    @Test
+    public void testReusePlanWithNewValues() throws Exception {
+        PreparedPlanCache.getInstance().clear();
+        prepare("s1", "select * from test.t where k1 = ?");
+
+        StmtExecutor first = execute("s1", 5);
+        PreparedPlanCache.PreparedPlan plan = first.getPreparedPlan();
+        Assertions.assertNotNull(plan);
+        Assertions.assertSame(connectContext, plan.getAnalyzer().getContext());
+        assertScanPartition(getScanNode(first), "p1");
+
+        // the idle plan does not keep the connection
+        PreparedPlanCache.getInstance().giveBack(plan);
+        Assertions.assertEquals(1, PreparedPlanCache.getInstance().getIdlePlanNum());
+        Assertions.assertNull(plan.getAnalyzer().getContext());
+
+        // the plan is reused with the new value bound, and the partitions and tablets are pruned again
+        StmtExecutor second = execute("s1", 15);
+        Assertions.assertSame(plan, second.getPreparedPlan());
+        Assertions.assertSame(first.planner(), second.planner());
+        Assertions.assertSame(connectContext, plan.getAnalyzer().getContext());
+        assertScanPartition(getScanNode(second), "p2");
+        PreparedPlanCache.getInstance().giveBack(plan);
+
+        // the partition added after the plan is made is scanned by the reused plan
+        AlterTableStmt alterTableStmt = (AlterTableStmt) parseAndAnalyzeStmt(
+                "alter table test.t add partition p3 values less than ('30')");
+        Env.getCurrentEnv().alterTable(alterTableStmt);
+        StmtExecutor third = execute("s1", 25);
+        Assertions.assertSame(plan, third.getPreparedPlan());
+        assertScanPartition(getScanNode(third), "p3");
+
+        // prune with a value which matches no partition
+        plan.bind(connectContext, Lists.newArrayList(new IntLiteral(35, Type.INT)));
+        getScanNode(third).refreshScanRangeLocations();
+        Assertions.assertTrue(getScanNode(third).getSelectedPartitionIds().isEmpty());
+        Assertions.assertTrue(getScanNode(third).getScanRangeLocations(0).isEmpty());
+        PreparedPlanCache.getInstance().giveBack(plan);
+    }
+
+    @Test
+    public void testNotCacheSessionDependentQuery() throws Exception {
+        PreparedPlanCache.getInstance().clear();
+        prepare("s2", "select k1, connection_id() from test.t where k1 = ?");
+        Assertions.assertNull(execute("s2", 5).getPreparedPlan());
+        prepare("s3", "select k1 from test.t where k1 = ? and v1 = @@wait_timeout");
+        Assertions.assertNull(execute("s3", 5).getPreparedPlan());
+        prepare("s4", "select k1, now() from test.t where k1 = ?");
+        Assertions.assertNull(execute("s4", 5).getPreparedPlan());
+        prepare("s5", "select k1 from test.t where k1 = ?"
+                + " and v1 in (select v1 from test.t where k1 = connection_id())");
+        Assertions.assertNull(execute("s5", 5).getPreparedPlan());
+        Assertions.assertEquals(0, PreparedPlanCache.getInstance().getIdlePlanNum());
+    }
+
+    @Test
+    public void testNotCacheDerivedLiteral() throws Exception {
+        PreparedPlanCache.getInstance().clear();
+        // the decimal literal has the same value as the int place holder, although their strings differ
+        prepare("s6", "select * from test.t where k1 = ? and cast(v1 as decimal(10, 1)) = 5.0");
+        Assertions.assertNull(execute("s6", 5).getPreparedPlan());
+        Assertions.assertNotNull(execute("s6", 6).getPreparedPlan());
+    }
+
+    @Test
+    public void testPlaceHolderOutOfWhereClause() {
+        ExceptionChecker.expectThrowsWithMsg(UserException.class, "Only support place holders in the where clause",
+                () -> prepare("s7", "select k1, ? from test.t where k1 = ?"));
+        ExceptionChecker.expectThrowsWithMsg(UserException.class, "Only support place holders in the where clause",
+                () -> prepare("s8", "select k1 from test.t where k1 = ?"
+                        + " and v1 in (select v1 from test.t where k1 = ?)"));
+        ExceptionChecker.expectThrowsWithMsg(UserException.class, "Only support place holders in the where clause",
+                () -> prepare("s9", "select k1, count(*) from test.t where k1 = ? group by k1 having count(*) > ?"));
+    }
+}
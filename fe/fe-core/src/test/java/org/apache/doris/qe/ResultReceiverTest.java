@@ -0,0 +1,211 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.qe;
+
+import org.apache.doris.common.Status;
+import org.apache.doris.proto.InternalService;
+import org.apache.doris.proto.Types;
+import org.apache.doris.rpc.BackendServiceProxy;
+import org.apache.doris.thrift.TNetworkAddress;
+import org.apache.doris.thrift.TResultBatch;
+import org.apache.doris.thrift.TUniqueId;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import mockit.Mock;
+import mockit.MockUp;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ResultReceiverTest {
+    // the responses of the fetch requests, in the order the requests are sent.
+    // The requests sent after them get the futures never done.
+    private final List<CompletableFuture<InternalService.PFetchDataResult>> responses = Lists.newArrayList();
+    private final List<CompletableFuture<InternalService.PFetchDataResult>> requests =
+            Collections.synchronizedList(Lists.newArrayList());
+
+    @Before
+    public void setUp() {
+        responses.clear();
+        requests.clear();
+        new MockUp<BackendServiceProxy>() {
+            @Mock
+            public Future<InternalService.PFetchDataResult> fetchDataAsync(TNetworkAddress address,
+                    InternalService.PFetchDataRequest request) {
+                CompletableFuture<InternalService.PFetchDataResult> future = requests.size() < responses.size()
+                        ? responses.get(requests.size()) : new CompletableFuture<>();
+                requests.add(future);
+                return future;
+            }
+        };
+    }
+
+    private static ResultReceiver createReceiver(int pipelineDepth) {
+        return new ResultReceiver(new TUniqueId(1L, 2L), 10001L, new TNetworkAddress("127.0.0.1", 8060),
+                System.currentTimeMillis() + 60000L, pipelineDepth);
+    }
+
+    private static InternalService.PFetchDataResult.Builder createResult(long packetSeq, boolean eos) {
+        return InternalService.PFetchDataResult.newBuilder()
+                .setStatus(Types.PStatus.newBuilder().setStatusCode(0))
+                .setPacketSeq(packetSeq)
+                .setEos(eos);
+    }
+
+    // a packet with one row which is the seq of the packet
+    private void addBatch(long packetSeq, boolean eos) throws TException {
+        TResultBatch resultBatch = new TResultBatch();
+        resultBatch.setRows(Lists.newArrayList(
+                ByteBuffer.wrap(String.valueOf(packetSeq).getBytes(StandardCharsets.UTF_8))));
+        resultBatch.setPacketSeq(packetSeq);
+        resultBatch.setIsCompressed(false);
+        responses.add(CompletableFuture.completedFuture(createResult(packetSeq, eos)
+                .setRowBatch(ByteString.copyFrom(new TSerializer().serialize(resultBatch))).build()));
+    }
+
+    // the eos packet without rows, which backend answers all the pending requests with when it is closed
+    private void addEos(long packetSeq) {
+        responses.add(CompletableFuture.completedFuture(createResult(packetSeq, true).build()));
+    }
+
+    private static String getRow(RowBatch rowBatch) {
+        Assert.assertEquals(1, rowBatch.getRowNum());
+        ByteBuffer row = rowBatch.getBatch().getRows().get(0);
+        byte[] bytes = new byte[row.remaining()];
+        row.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testOutOfOrderBatches() throws Exception {
+        // the 2nd request gets the 1st packet
+        addBatch(1, false);
+        addBatch(0, false);
+        addBatch(2, true);
+        ResultReceiver receiver = createReceiver(3);
+
+        Status status = new Status();
+        RowBatch rowBatch = receiver.getNext(status);
+        Assert.assertTrue(status.ok());
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals("0", getRow(rowBatch));
+        Assert.assertFalse(rowBatch.isEos());
+
+        // the packet arrived ahead is returned in its turn
+        rowBatch = receiver.getNext(status);
+        Assert.assertTrue(status.ok());
+        Assert.assertEquals("1", getRow(rowBatch));
+        Assert.assertFalse(rowBatch.isEos());
+
+        // the requests still in flight after eos are not waited for
+        rowBatch = receiver.getNext(status);
+        Assert.assertTrue(status.ok());
+        Assert.assertEquals("2", getRow(rowBatch));
+        Assert.assertTrue(rowBatch.isEos());
+        Assert.assertTrue(requests.stream().anyMatch(future -> !future.isDone()));
+
+        int requestNum = requests.size();
+        Assert.assertNull(receiver.getNext(status));
+        Assert.assertTrue(status.ok());
+        Assert.assertEquals(requestNum, requests.size());
+    }
+
+    @Test
+    public void testDuplicateEos() throws Exception {
+        // backend is closed when the first packet is being answered, the pending requests get the same eos first
+        addEos(1);
+        addEos(1);
+        addBatch(0, false);
+        ResultReceiver receiver = createReceiver(3);
+
+        Status status = new Status();
+        RowBatch rowBatch = receiver.getNext(status);
+        Assert.assertTrue(status.ok());
+        Assert.assertEquals("0", getRow(rowBatch));
+        Assert.assertFalse(rowBatch.isEos());
+
+        // no more request is sent after eos, and the duplicate eos is not an error
+        rowBatch = receiver.getNext(status);
+        Assert.assertTrue(status.ok());
+        Assert.assertTrue(rowBatch.isEos());
+        Assert.assertFalse(rowBatch.hasBatch());
+        Assert.assertEquals(3, requests.size());
+        Assert.assertNull(receiver.getNext(status));
+        Assert.assertTrue(status.ok());
+        Assert.assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void testStalePacket() throws Exception {
+        addBatch(0, false);
+        addBatch(0, false);
+        ResultReceiver receiver = createReceiver(2);
+
+        Status status = new Status();
+        Assert.assertEquals("0", getRow(receiver.getNext(status)));
+        Assert.assertTrue(status.ok());
+        // a data packet already received is an error, unlike a duplicate eos
+        Assert.assertNull(receiver.getNext(status));
+        Assert.assertTrue(status.isRpcError());
+    }
+
+    @Test
+    public void testCancelWhileFetching() throws Exception {
+        ResultReceiver receiver = createReceiver(2);
+        Status status = new Status();
+        AtomicReference<RowBatch> result = new AtomicReference<>(new RowBatch());
+        Thread fetchThread = new Thread(() -> {
+            try {
+                result.set(receiver.getNext(status));
+            } catch (TException e) {
+                Assert.fail(e.getMessage());
+            }
+        });
+        fetchThread.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (requests.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, requests.size());
+
+        // the fetch thread waiting for the response in flight returns once it is woken up
+        receiver.cancel();
+        fetchThread.interrupt();
+        fetchThread.join(10000);
+        Assert.assertFalse(fetchThread.isAlive());
+        Assert.assertNull(result.get());
+        Assert.assertTrue(status.isCancelled());
+
+        // no more request is sent after cancelled
+        Status nextStatus = new Status();
+        receiver.getNext(nextStatus);
+        Assert.assertTrue(nextStatus.isCancelled());
+        Assert.assertEquals(2, requests.size());
+    }
+}
@@ -0,0 +1,93 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.qe;
+
+import org.apache.doris.thrift.TResultBatch;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RowBatchTest {
+    private static ByteBuffer serialize(TResultBatch resultBatch) throws TException {
+        return ByteBuffer.wrap(new TSerializer().serialize(resultBatch)).asReadOnlyBuffer();
+    }
+
+    private static TResultBatch createBatch(int rowNum) {
+        List<ByteBuffer> rows = new ArrayList<>();
+        for (int i = 0; i < rowNum; i++) {
+            rows.add(ByteBuffer.wrap(("row" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        TResultBatch resultBatch = new TResultBatch();
+        resultBatch.setRows(rows);
+        resultBatch.setPacketSeq(1);
+        resultBatch.setIsCompressed(false);
+        return resultBatch;
+    }
+
+    @Test
+    public void testSerializedBatch() throws TException {
+        TResultBatch resultBatch = createBatch(100);
+        RowBatch rowBatch = new RowBatch();
+        Assert.assertFalse(rowBatch.hasBatch());
+        rowBatch.setSerializedBatch(serialize(resultBatch));
+        Assert.assertTrue(rowBatch.hasBatch());
+        Assert.assertEquals(100, rowBatch.getRowNum());
+        // deserialized on demand
+        Assert.assertEquals(createBatch(100), rowBatch.getBatch());
+    }
+
+    @Test
+    public void testEmptyRows() throws TException {
+        RowBatch rowBatch = new RowBatch();
+        rowBatch.setSerializedBatch(serialize(createBatch(0)));
+        Assert.assertTrue(rowBatch.hasBatch());
+        Assert.assertEquals(0, rowBatch.getRowNum());
+    }
+
+    @Test
+    public void testFallbackToDeserialize() throws TException {
+        // rows field missing, located rows are not trusted
+        TResultBatch resultBatch = new TResultBatch();
+        resultBatch.setPacketSeq(1);
+        resultBatch.setIsCompressed(false);
+        RowBatch rowBatch = new RowBatch();
+        try {
+            rowBatch.setSerializedBatch(serialize(resultBatch));
+            Assert.fail();
+        } catch (TException e) {
+            // rows is a required field
+        }
+
+        RowBatch truncated = new RowBatch();
+        ByteBuffer buffer = serialize(createBatch(10));
+        buffer.limit(buffer.limit() - 10);
+        try {
+            truncated.setSerializedBatch(buffer.slice());
+            Assert.fail();
+        } catch (TException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,122 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.qe.cache;
+
+import org.apache.doris.common.Config;
+import org.apache.doris.proto.InternalService;
+import org.apache.doris.proto.Types;
+
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CacheFeProxyTest {
+    private long maxBytes;
+
+    @Before
+    public void setUp() {
+        maxBytes = Config.cache_fe_local_max_bytes;
+        Config.cache_fe_local_max_bytes = 1024 * 1024;
+    }
+
+    @After
+    public void tearDown() {
+        Config.cache_fe_local_max_bytes = maxBytes;
+    }
+
+    private static InternalService.PCacheParam param(long partitionKey, long version) {
+        return InternalService.PCacheParam.newBuilder().setPartitionKey(partitionKey)
+                .setLastVersion(version).setLastVersionTime(version * 1000).build();
+    }
+
+    private static InternalService.PUpdateCacheRequest updateRequest(Types.PUniqueId sqlKey,
+            InternalService.CacheType type, int rowSize, InternalService.PCacheParam... params) {
+        InternalService.PUpdateCacheRequest.Builder builder = InternalService.PUpdateCacheRequest.newBuilder()
+                .setSqlKey(sqlKey).setCacheType(type);
+        for (InternalService.PCacheParam param : params) {
+            builder.addValues(InternalService.PCacheValue.newBuilder().setParam(param).setDataSize(rowSize)
+                    .addRows(ByteString.copyFrom(new byte[rowSize])));
+        }
+        return builder.build();
+    }
+
+    private static InternalService.PFetchCacheRequest fetchRequest(Types.PUniqueId sqlKey,
+            InternalService.PCacheParam... params) {
+        InternalService.PFetchCacheRequest.Builder builder = InternalService.PFetchCacheRequest.newBuilder()
+                .setSqlKey(sqlKey);
+        for (InternalService.PCacheParam param : params) {
+            builder.addParams(param);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testFetchAndInvalidate() {
+        CacheFeProxy.LocalCache cache = new CacheFeProxy.LocalCache();
+        Types.PUniqueId sqlKey = CacheProxy.getMd5("select * from tbl1 where k1 >= 1");
+        cache.update(updateRequest(sqlKey, InternalService.CacheType.PARTITION_CACHE, 10, param(1, 2), param(2, 3)));
+
+        List<InternalService.PCacheValue> values = cache.fetch(fetchRequest(sqlKey, param(1, 2), param(2, 3)));
+        Assert.assertEquals(2, values.size());
+        Assert.assertEquals(10, values.get(1).getRows(0).size());
+        // a partition is not cached
+        Assert.assertNull(cache.fetch(fetchRequest(sqlKey, param(1, 2), param(3, 1))));
+        // another sql
+        Assert.assertNull(cache.fetch(fetchRequest(CacheProxy.getMd5("select 1"), param(1, 2))));
+
+        // partition 2 has a newer version, the stale partition is removed
+        long bytes = cache.getTotalBytes();
+        Assert.assertNull(cache.fetch(fetchRequest(sqlKey, param(1, 2), param(2, 4))));
+        Assert.assertTrue(cache.getTotalBytes() < bytes);
+        Assert.assertEquals(1, cache.fetch(fetchRequest(sqlKey, param(1, 2))).size());
+
+        cache.update(updateRequest(sqlKey, InternalService.CacheType.PARTITION_CACHE, 10, param(2, 4)));
+        Assert.assertEquals(2, cache.fetch(fetchRequest(sqlKey, param(1, 2), param(2, 4))).size());
+
+        // the sql cache is replaced as a whole
+        cache.update(updateRequest(sqlKey, InternalService.CacheType.SQL_CACHE, 10, param(5, 6)));
+        Assert.assertNull(cache.fetch(fetchRequest(sqlKey, param(1, 2))));
+        Assert.assertEquals(1, cache.fetch(fetchRequest(sqlKey, param(5, 6))).size());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        CacheFeProxy.LocalCache cache = new CacheFeProxy.LocalCache();
+        Config.cache_fe_local_max_bytes = 3000;
+        Types.PUniqueId key1 = CacheProxy.getMd5("select 1");
+        Types.PUniqueId key2 = CacheProxy.getMd5("select 2");
+        Types.PUniqueId key3 = CacheProxy.getMd5("select 3");
+        cache.update(updateRequest(key1, InternalService.CacheType.SQL_CACHE, 1000, param(1, 1)));
+        cache.update(updateRequest(key2, InternalService.CacheType.SQL_CACHE, 1000, param(1, 1)));
+        Assert.assertNotNull(cache.fetch(fetchRequest(key1, param(1, 1))));
+        cache.update(updateRequest(key3, InternalService.CacheType.SQL_CACHE, 1000, param(1, 1)));
+
+        Assert.assertTrue(cache.getTotalBytes() <= 3000);
+        Assert.assertNotNull(cache.fetch(fetchRequest(key1, param(1, 1))));
+        Assert.assertNull(cache.fetch(fetchRequest(key2, param(1, 1))));
+        Assert.assertNotNull(cache.fetch(fetchRequest(key3, param(1, 1))));
+
+        Config.cache_fe_local_max_bytes = 0;
+        Assert.assertNull(cache.fetch(fetchRequest(key1, param(1, 1))));
+    }
+}
@@ -21,10 +21,13 @@ import org.apache.doris.catalog.CatalogTestUtil;
 import org.apache.doris.catalog.Env;
 import org.apache.doris.catalog.FakeEditLog;
 import org.apache.doris.catalog.FakeEnv;
+import org.apache.doris.catalog.OlapTable;
+import org.apache.doris.catalog.Partition;
 import org.apache.doris.catalog.Table;
 import org.apache.doris.common.AnalysisException;
 import org.apache.doris.common.Config;
 import org.apache.doris.common.FeMetaVersion;
+import org.apache.doris.common.LabelAlreadyUsedException;
 import org.apache.doris.common.Pair;
 import org.apache.doris.common.UserException;
 import org.apache.doris.common.util.TimeUtils;
@@ -39,8 +42,14 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DatabaseTransactionMgrTest {
 
@@ -269,4 +278,279 @@ public class DatabaseTransactionMgrTest {
         Assert.assertEquals(3, masterDbTransMgr.getTransactionNum());
         Assert.assertNull(masterDbTransMgr.unprotectedGetTxnIdsByLabel(CatalogTestUtil.testTxnLabel1));
     }
+
+    @Test
+    public void testConcurrentBeginCommitAndAbort() throws Exception {
+        FakeEnv.setEnv(masterEnv);
+        DatabaseTransactionMgr masterDbTransMgr = masterTransMgr.getDatabaseTransactionMgr(CatalogTestUtil.testDbId1);
+        TransactionState.TxnCoordinator beTransactionSource
+                = new TransactionState.TxnCoordinator(TransactionState.TxnSourceType.BE, "be1");
+        int threadNum = 8;
+        int labelNum = 50;
+        int beginPerThread = 200;
+        Map<String, Long> labelToTxnId = new ConcurrentHashMap<>();
+        AtomicInteger labelUsedNum = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < threadNum; i++) {
+                int threadIdx = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < beginPerThread; j++) {
+                        String label = "concurrent_label_" + ((threadIdx + j) % labelNum);
+                        try {
+                            long txnId = masterTransMgr.beginTransaction(CatalogTestUtil.testDbId1,
+                                    Lists.newArrayList(CatalogTestUtil.testTableId1), label, beTransactionSource,
+                                    TransactionState.LoadJobSourceType.BACKEND_STREAMING,
+                                    Config.stream_load_default_timeout_second);
+                            Assert.assertNull(labelToTxnId.put(label, txnId));
+                        } catch (LabelAlreadyUsedException e) {
+                            labelUsedNum.incrementAndGet();
+                        }
+                        // lookups do not block begin
+                        masterDbTransMgr.getLabelState(label);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Assert.assertEquals(labelNum, labelToTxnId.size());
+            Assert.assertEquals(threadNum * beginPerThread - labelNum, labelUsedNum.get());
+            Assert.assertEquals(2 + labelNum, masterDbTransMgr.getRunningTxnNums());
+            for (Map.Entry<String, Long> entry : labelToTxnId.entrySet()) {
+                Assert.assertEquals(1, masterDbTransMgr.unprotectedGetTxnIdsByLabel(entry.getKey()).size());
+                Assert.assertEquals(TransactionStatus.PREPARE, masterDbTransMgr.getLabelState(entry.getKey()));
+            }
+
+            // commit half of the txns and abort the others concurrently
+            Table testTable1 = masterEnv.getInternalCatalog().getDbOrMetaException(CatalogTestUtil.testDbId1)
+                    .getTableOrMetaException(CatalogTestUtil.testTableId1);
+            List<TabletCommitInfo> transTablets = Lists.newArrayList(
+                    new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId1),
+                    new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId2),
+                    new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId3));
+            List<String> labels = Lists.newArrayList(labelToTxnId.keySet());
+            List<String> committedLabels = Lists.newArrayList();
+            // in the order of the versions they are committed with
+            List<Long> committedTxnIds = Collections.synchronizedList(Lists.newArrayList());
+            futures.clear();
+            for (int i = 0; i < labels.size(); i++) {
+                long txnId = labelToTxnId.get(labels.get(i));
+                if (i % 2 == 0) {
+                    committedLabels.add(labels.get(i));
+                    futures.add(executor.submit(() -> {
+                        // the caller holds the table lock when committing, see commitAndPublishTransaction()
+                        testTable1.writeLock();
+                        try {
+                            masterTransMgr.commitTransaction(CatalogTestUtil.testDbId1,
+                                    Lists.newArrayList(testTable1), txnId, transTablets);
+                            committedTxnIds.add(txnId);
+                        } finally {
+                            testTable1.writeUnlock();
+                        }
+                        return null;
+                    }));
+                } else {
+                    futures.add(executor.submit(() -> {
+                        masterTransMgr.abortTransaction(CatalogTestUtil.testDbId1, txnId, "test");
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            int committedNum = committedLabels.size();
+            Assert.assertEquals(committedNum, committedTxnIds.size());
+            Assert.assertEquals(2 + committedNum, masterDbTransMgr.getRunningTxnNums());
+            for (String label : committedLabels) {
+                Assert.assertEquals(TransactionStatus.COMMITTED, masterDbTransMgr.getLabelState(label));
+            }
+
+            // publish the versions in order, as the publish version daemon does
+            for (long txnId : committedTxnIds) {
+                masterTransMgr.finishTransaction(CatalogTestUtil.testDbId1, txnId, null);
+            }
+            Assert.assertEquals(2, masterDbTransMgr.getRunningTxnNums());
+            Assert.assertEquals(1 + labelNum, masterDbTransMgr.getFinishedTxnNums());
+            for (String label : labels) {
+                Assert.assertEquals(committedLabels.contains(label) ? TransactionStatus.VISIBLE
+                        : TransactionStatus.ABORTED, masterDbTransMgr.getLabelState(label));
+            }
+            Partition testPartition = ((OlapTable) testTable1).getPartition(CatalogTestUtil.testPartition1);
+            Assert.assertEquals(CatalogTestUtil.testStartVersion + 1 + committedNum,
+                    testPartition.getVisibleVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentBeginCommitAndAbortOnSameLabel() throws Exception {
+        FakeEnv.setEnv(masterEnv);
+        DatabaseTransactionMgr masterDbTransMgr = masterTransMgr.getDatabaseTransactionMgr(CatalogTestUtil.testDbId1);
+        TransactionState.TxnCoordinator beTransactionSource
+                = new TransactionState.TxnCoordinator(TransactionState.TxnSourceType.BE, "be1");
+        Table testTable1 = masterEnv.getInternalCatalog().getDbOrMetaException(CatalogTestUtil.testDbId1)
+                .getTableOrMetaException(CatalogTestUtil.testTableId1);
+        List<TabletCommitInfo> transTablets = Lists.newArrayList(
+                new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId1),
+                new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId2),
+                new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId3));
+        String label = "contended_label";
+        int threadNum = 8;
+        int roundPerThread = 100;
+        List<Long> begunTxnIds = Collections.synchronizedList(Lists.newArrayList());
+        List<Long> committedTxnIds = Collections.synchronizedList(Lists.newArrayList());
+        ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < threadNum; i++) {
+                // half of the threads commit the txns they begin, all of them abort the txn of the label
+                boolean commit = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < roundPerThread; j++) {
+                        long txnId = -1;
+                        try {
+                            txnId = masterTransMgr.beginTransaction(CatalogTestUtil.testDbId1,
+                                    Lists.newArrayList(CatalogTestUtil.testTableId1), label, beTransactionSource,
+                                    TransactionState.LoadJobSourceType.BACKEND_STREAMING,
+                                    Config.stream_load_default_timeout_second);
+                            begunTxnIds.add(txnId);
+                        } catch (LabelAlreadyUsedException e) {
+                            // the txn of the label is running or committed
+                        }
+                        if (commit && txnId != -1) {
+                            testTable1.writeLock();
+                            try {
+                                masterTransMgr.commitTransaction(CatalogTestUtil.testDbId1,
+                                        Lists.newArrayList(testTable1), txnId, transTablets);
+                            } catch (UserException e) {
+                                // aborted by another thread
+                            } finally {
+                                testTable1.writeUnlock();
+                            }
+                            // the commit does nothing if the txn is aborted after it is checked
+                            if (masterDbTransMgr.getTransactionState(txnId).getTransactionStatus()
+                                    == TransactionStatus.COMMITTED) {
+                                committedTxnIds.add(txnId);
+                            }
+                        }
+                        try {
+                            masterTransMgr.abortTransaction(CatalogTestUtil.testDbId1, label, "test");
+                        } catch (UserException e) {
+                            // no running txn of the label, or it is committed
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // the txn begun after the last abort
+        try {
+            masterTransMgr.abortTransaction(CatalogTestUtil.testDbId1, label, "test");
+        } catch (UserException e) {
+            // no running txn of the label
+        }
+
+        // at most one txn of the label is committed, it is the last one begun,
+        // and the others are aborted
+        Assert.assertFalse(begunTxnIds.isEmpty());
+        Assert.assertTrue(committedTxnIds.size() <= 1);
+        Assert.assertEquals(begunTxnIds.size(), masterDbTransMgr.unprotectedGetTxnIdsByLabel(label).size());
+        long lastTxnId = Collections.max(begunTxnIds);
+        for (long txnId : begunTxnIds) {
+            TransactionStatus status = masterDbTransMgr.getTransactionState(txnId).getTransactionStatus();
+            if (committedTxnIds.contains(txnId)) {
+                Assert.assertEquals(lastTxnId, txnId);
+                Assert.assertEquals(TransactionStatus.COMMITTED, status);
+            } else {
+                Assert.assertEquals(TransactionStatus.ABORTED, status);
+            }
+        }
+        Assert.assertEquals(2 + committedTxnIds.size(), masterDbTransMgr.getRunningTxnNums());
+
+        if (committedTxnIds.isEmpty()) {
+            Assert.assertEquals(TransactionStatus.ABORTED, masterDbTransMgr.getLabelState(label));
+        } else {
+            masterTransMgr.finishTransaction(CatalogTestUtil.testDbId1, committedTxnIds.get(0), null);
+            Assert.assertEquals(TransactionStatus.VISIBLE, masterDbTransMgr.getLabelState(label));
+            Assert.assertEquals(2, masterDbTransMgr.getRunningTxnNums());
+            Partition testPartition = ((OlapTable) testTable1).getPartition(CatalogTestUtil.testPartition1);
+            Assert.assertEquals(CatalogTestUtil.testStartVersion + 2, testPartition.getVisibleVersion());
+        }
+    }
+
+    @Test
+    public void testRunningTxnLimit() throws Exception {
+        FakeEnv.setEnv(masterEnv);
+        DatabaseTransactionMgr masterDbTransMgr = masterTransMgr.getDatabaseTransactionMgr(CatalogTestUtil.testDbId1);
+        TransactionState.TxnCoordinator beTransactionSource
+                = new TransactionState.TxnCoordinator(TransactionState.TxnSourceType.BE, "be1");
+        int txnQuota = 10;
+        masterEnv.getInternalCatalog().getDbOrMetaException(CatalogTestUtil.testDbId1)
+                .setTransactionQuotaSize(txnQuota);
+        Assert.assertEquals(2, masterDbTransMgr.getRunningTxnNums());
+
+        // the txns begun concurrently with different labels never exceed the limit
+        int threadNum = 8;
+        int beginPerThread = 20;
+        List<Long> txnIds = Collections.synchronizedList(Lists.newArrayList());
+        AtomicInteger rejectedNum = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < threadNum; i++) {
+                int threadIdx = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < beginPerThread; j++) {
+                        try {
+                            txnIds.add(masterTransMgr.beginTransaction(CatalogTestUtil.testDbId1,
+                                    Lists.newArrayList(CatalogTestUtil.testTableId1),
+                                    "limit_label_" + threadIdx + "_" + j, beTransactionSource,
+                                    TransactionState.LoadJobSourceType.BACKEND_STREAMING,
+                                    Config.stream_load_default_timeout_second));
+                        } catch (BeginTransactionException e) {
+                            rejectedNum.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(txnQuota - 2, txnIds.size());
+        Assert.assertEquals(threadNum * beginPerThread - (txnQuota - 2), rejectedNum.get());
+        Assert.assertEquals(txnQuota, masterDbTransMgr.getRunningTxnNums());
+
+        // routine load txns are not limited
+        masterTransMgr.beginTransaction(CatalogTestUtil.testDbId1, Lists.newArrayList(CatalogTestUtil.testTableId1),
+                "limit_routine_load_label", beTransactionSource,
+                TransactionState.LoadJobSourceType.ROUTINE_LOAD_TASK, Config.stream_load_default_timeout_second);
+        Assert.assertEquals(txnQuota, masterDbTransMgr.getRunningTxnNums());
+        Assert.assertEquals(2, masterDbTransMgr.getRunningRoutineLoadTxnNums());
+
+        // the txn finished releases its slot
+        masterTransMgr.abortTransaction(CatalogTestUtil.testDbId1, txnIds.get(0), "test");
+        Assert.assertEquals(txnQuota - 1, masterDbTransMgr.getRunningTxnNums());
+        masterTransMgr.beginTransaction(CatalogTestUtil.testDbId1, Lists.newArrayList(CatalogTestUtil.testTableId1),
+                "limit_label_after_abort", beTransactionSource,
+                TransactionState.LoadJobSourceType.BACKEND_STREAMING, Config.stream_load_default_timeout_second);
+        Assert.assertEquals(txnQuota, masterDbTransMgr.getRunningTxnNums());
+        expectedEx.expect(BeginTransactionException.class);
+        masterTransMgr.beginTransaction(CatalogTestUtil.testDbId1, Lists.newArrayList(CatalogTestUtil.testTableId1),
+                "limit_label_exceeded", beTransactionSource,
+                TransactionState.LoadJobSourceType.BACKEND_STREAMING, Config.stream_load_default_timeout_second);
+    }
 }
@@ -0,0 +1,148 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.transaction;
+
+import org.apache.doris.catalog.CatalogTestUtil;
+import org.apache.doris.catalog.Env;
+import org.apache.doris.catalog.FakeEnv;
+import org.apache.doris.catalog.Table;
+import org.apache.doris.cluster.Cluster;
+import org.apache.doris.common.Config;
+import org.apache.doris.persist.BatchRemoveTransactionsOperationV2;
+import org.apache.doris.persist.EditLog;
+import org.apache.doris.system.Backend;
+
+import com.google.common.collect.Lists;
+import mockit.Mock;
+import mockit.MockUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of loads through the transaction manager of one database:
+ * begin, commit and publish a txn until it is VISIBLE, by 8 threads with their own labels.
+ * Like the loads of one table, the commit and the publish of the txns are serialized by the
+ * table lock, while the begins run concurrently.
+ * The edit log and Env are mocked by jmockit, so run it with the test classpath and the jmockit agent, e.g.
+ * `java -javaagent:<jmockit-jar> -cp <test-classpath> org.apache.doris.transaction.TransactionThroughputBenchmark`.
+ * The forked JVM of JMH gets the same agent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TransactionThroughputBenchmark {
+    private final AtomicLong labelId = new AtomicLong(0);
+    private final TransactionState.TxnCoordinator coordinator =
+            new TransactionState.TxnCoordinator(TransactionState.TxnSourceType.BE, "be1");
+
+    private GlobalTransactionMgr transactionMgr;
+    private Table table;
+    private List<TabletCommitInfo> tabletCommitInfos;
+
+    // The mocked edit log of FakeEditLog prints every txn, which would be measured too
+    public static class QuietEditLog extends MockUp<EditLog> {
+        @Mock
+        public void $init(String nodeName) { // CHECKSTYLE IGNORE THIS LINE
+        }
+
+        @Mock
+        public void logInsertTransactionState(TransactionState transactionState) {
+        }
+
+        @Mock
+        public void logBatchRemoveTransactions(BatchRemoveTransactionsOperationV2 op) {
+        }
+
+        @Mock
+        public void logSaveTransactionId(long transactionId) {
+        }
+
+        @Mock
+        public void logSaveNextId(long nextId) {
+        }
+
+        @Mock
+        public void logCreateCluster(Cluster cluster) {
+        }
+
+        @Mock
+        public void logBackendStateChange(Backend be) {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupMocks() {
+        new QuietEditLog();
+        new FakeEnv();
+    }
+
+    // A new catalog for each iteration, so that the finished txns of the previous ones are not kept
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+        Env env = CatalogTestUtil.createTestCatalog();
+        transactionMgr = env.getGlobalTransactionMgr();
+        transactionMgr.setEditLog(env.getEditLog());
+        table = env.getInternalCatalog().getDbOrMetaException(CatalogTestUtil.testDbId1)
+                .getTableOrMetaException(CatalogTestUtil.testTableId1);
+        tabletCommitInfos = Lists.newArrayList(
+                new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId1),
+                new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId2),
+                new TabletCommitInfo(CatalogTestUtil.testTabletId1, CatalogTestUtil.testBackendId3));
+    }
+
+    @Benchmark
+    public void beginCommitVisible() throws Exception {
+        long txnId = transactionMgr.beginTransaction(CatalogTestUtil.testDbId1,
+                Lists.newArrayList(CatalogTestUtil.testTableId1), "bench_label_" + labelId.incrementAndGet(),
+                coordinator, TransactionState.LoadJobSourceType.BACKEND_STREAMING,
+                Config.stream_load_default_timeout_second);
+        // the caller holds the table lock when committing, and the txns of a table are published in order
+        table.writeLock();
+        try {
+            transactionMgr.commitTransaction(CatalogTestUtil.testDbId1, Lists.newArrayList(table), txnId,
+                    tabletCommitInfos);
+            transactionMgr.finishTransaction(CatalogTestUtil.testDbId1, txnId, null);
+        } finally {
+            table.writeUnlock();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(TransactionThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -43,6 +43,8 @@ public abstract class BaseExecutor {
 
     // By convention, the function in the class must be called evaluate()
     public static final String UDF_FUNCTION_NAME = "evaluate";
+    // Optional vectorized variant of evaluate(), taking and returning whole column batches
+    public static final String UDF_BATCH_FUNCTION_NAME = "evaluateBatch";
     public static final String UDAF_CREATE_FUNCTION = "create";
     public static final String UDAF_DESTROY_FUNCTION = "destroy";
     public static final String UDAF_ADD_FUNCTION = "add";
@@ -0,0 +1,485 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import org.apache.doris.thrift.TPrimitiveType;
+import org.apache.doris.udf.UdfUtils.JavaUdfDataType;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes BE column buffers into a JDBC table with a parameterized INSERT and driver batching,
+ * instead of one literal INSERT statement per block.
+ * Rows of a block are split over `parallelism` writers, each with its own connection, and every
+ * writer executes its batch every `batchSize` rows and commits every `commitInterval` rows.
+ * With bulk load enabled, PostgreSQL writers use COPY FROM STDIN, MySQL relies on
+ * rewriteBatchedStatements, which is set on the connection url by JdbcExecutor.
+ */
+public class JdbcBatchWriter {
+    private static final Logger LOG = Logger.getLogger(JdbcBatchWriter.class);
+    private static final ExecutorService WRITER_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("jdbc-writer-%d").setDaemon(true).build());
+
+    private final String tableName;
+    private final String[] columnNames;
+    private final JavaUdfDataType[] columnTypes;
+    private final int[] columnScales;
+    private final int batchSize;
+    private final List<Writer> writers = new ArrayList<>();
+    // The writer of the first chunk of the next block, to spread small blocks over all writers
+    private int nextWriter = 0;
+
+    /**
+     * Creates the writers. With an external transaction (the BE called openTrans() on `conn`),
+     * rows are written by a single writer on `conn` and committed by the BE, otherwise extra
+     * connections are opened with the driver of dataSource and each writer commits by itself.
+     */
+    public JdbcBatchWriter(DruidDataSource dataSource, Connection conn, ClassLoader driverClassLoader,
+            String tableName, String[] columnNames, int[] columnTypes, int[] columnScales, int batchSize,
+            int commitInterval, int parallelism, boolean useCopy) throws UdfRuntimeException {
+        Preconditions.checkArgument(columnTypes.length > 0, "no column to write");
+        Preconditions.checkArgument(columnNames == null || columnNames.length == columnTypes.length,
+                "column names do not match column types");
+        this.tableName = tableName;
+        this.columnNames = columnNames;
+        this.columnTypes = new JavaUdfDataType[columnTypes.length];
+        for (int i = 0; i < columnTypes.length; ++i) {
+            this.columnTypes[i] = toJavaUdfDataType(columnTypes[i]);
+        }
+        this.columnScales = columnScales;
+        this.batchSize = Math.max(1, batchSize);
+        try {
+            boolean inTransaction = !conn.getAutoCommit();
+            int numWriters = inTransaction ? 1 : Math.max(1, parallelism);
+            int interval = inTransaction ? 0 : Math.max(0, commitInterval);
+            for (int i = 0; i < numWriters; ++i) {
+                Connection writerConn = i == 0 ? conn : openConnection(dataSource);
+                try {
+                    writers.add(new Writer(writerConn, i != 0, interval, useCopy ? driverClassLoader : null));
+                } catch (SQLException e) {
+                    if (i != 0) {
+                        writerConn.close();
+                    }
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            close();
+            throw new UdfRuntimeException("JDBC executor open batch writer has error: ", e);
+        }
+    }
+
+    /**
+     * Converts numRows rows of the BE columns and hands them to the writers. The rows are copied
+     * before return, so the BE may reuse its buffers. Errors of a writer are thrown by the next
+     * call of write() or finish().
+     */
+    public void write(int numRows, long[] nullMapAddrs, long[] dataAddrs, long[] offsetsAddrs)
+            throws UdfRuntimeException {
+        int chunkSize = Math.max(batchSize, (numRows + writers.size() - 1) / writers.size());
+        for (int start = 0; start < numRows; start += chunkSize) {
+            int end = Math.min(numRows, start + chunkSize);
+            List<Object[]> rows = new ArrayList<>(end - start);
+            for (int row = start; row < end; ++row) {
+                Object[] values = new Object[columnTypes.length];
+                for (int col = 0; col < columnTypes.length; ++col) {
+                    values[col] = readValue(col, row, nullMapAddrs[col], dataAddrs[col], offsetsAddrs[col]);
+                }
+                rows.add(values);
+            }
+            Writer writer = writers.get(nextWriter);
+            nextWriter = (nextWriter + 1) % writers.size();
+            writer.submit(rows);
+        }
+    }
+
+    /**
+     * Waits for all writers, executes the pending batches and commits them.
+     */
+    public void finish() throws UdfRuntimeException {
+        for (Writer writer : writers) {
+            writer.await();
+        }
+        for (Writer writer : writers) {
+            writer.finish();
+        }
+    }
+
+    /**
+     * Releases the connections borrowed by the writers, without committing pending rows.
+     */
+    public void close() {
+        for (Writer writer : writers) {
+            writer.close();
+        }
+        writers.clear();
+    }
+
+    // The data source is shared by all executors of the url, so the extra connections of the writers
+    // are opened outside the pool, rather than taking or resizing the connections of the pool.
+    private static Connection openConnection(DruidDataSource dataSource) throws SQLException {
+        Properties info = new Properties();
+        info.putAll(dataSource.getConnectProperties());
+        if (dataSource.getUsername() != null) {
+            info.setProperty("user", dataSource.getUsername());
+        }
+        if (dataSource.getPassword() != null) {
+            info.setProperty("password", dataSource.getPassword());
+        }
+        Connection conn = dataSource.getDriver().connect(dataSource.getUrl(), info);
+        if (conn == null) {
+            throw new SQLException("JDBC driver does not accept url: " + dataSource.getUrl());
+        }
+        return conn;
+    }
+
+    private String insertSql() {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(tableName);
+        if (columnNames != null) {
+            sb.append(" (").append(Joiner.on(", ").join(columnNames)).append(")");
+        }
+        sb.append(" VALUES (").append(Joiner.on(", ").join(Collections.nCopies(columnTypes.length, "?")));
+        return sb.append(")").toString();
+    }
+
+    private String copySql() {
+        StringBuilder sb = new StringBuilder("COPY ").append(tableName);
+        if (columnNames != null) {
+            sb.append(" (").append(Joiner.on(", ").join(columnNames)).append(")");
+        }
+        return sb.append(" FROM STDIN").toString();
+    }
+
+    // Reads one value of a BE column as an object accepted by PreparedStatement.setObject().
+    private Object readValue(int col, int row, long nullMapAddr, long dataAddr, long offsetsAddr) {
+        if (nullMapAddr != 0 && UdfUtils.UNSAFE.getByte(nullMapAddr + row) != 0) {
+            return null;
+        }
+        JavaUdfDataType type = columnTypes[col];
+        long addr = dataAddr + (long) type.getLen() * row;
+        switch (type) {
+            case BOOLEAN:
+                return UdfUtils.UNSAFE.getByte(addr) != 0;
+            case TINYINT:
+                return UdfUtils.UNSAFE.getByte(addr);
+            case SMALLINT:
+                return UdfUtils.UNSAFE.getShort(addr);
+            case INT:
+                return UdfUtils.UNSAFE.getInt(addr);
+            case BIGINT:
+                return UdfUtils.UNSAFE.getLong(addr);
+            case FLOAT:
+                return UdfUtils.UNSAFE.getFloat(addr);
+            case DOUBLE:
+                return UdfUtils.UNSAFE.getDouble(addr);
+            case DATE:
+                return Date.valueOf((LocalDate) UdfUtils.convertDateToJavaDate(UdfUtils.UNSAFE.getLong(addr),
+                        LocalDate.class));
+            case DATEV2:
+                return Date.valueOf((LocalDate) UdfUtils.convertDateV2ToJavaDate(UdfUtils.UNSAFE.getInt(addr),
+                        LocalDate.class));
+            case DATETIME:
+                return Timestamp.valueOf((LocalDateTime) UdfUtils.convertDateTimeToJavaDateTime(
+                        UdfUtils.UNSAFE.getLong(addr), LocalDateTime.class));
+            case DATETIMEV2:
+                return Timestamp.valueOf((LocalDateTime) UdfUtils.convertDateTimeV2ToJavaDateTime(
+                        UdfUtils.UNSAFE.getLong(addr), LocalDateTime.class));
+            case LARGEINT:
+                return new BigDecimal(readLittleEndian(addr, type.getLen()));
+            case DECIMALV2:
+                return new BigDecimal(readLittleEndian(addr, type.getLen()), 9);
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                return new BigDecimal(readLittleEndian(addr, type.getLen()), columnScales[col]);
+            case CHAR:
+            case VARCHAR:
+            case STRING: {
+                long end = Integer.toUnsignedLong(UdfUtils.UNSAFE.getInt(offsetsAddr + 4L * row));
+                long start = row == 0 ? 0
+                        : Integer.toUnsignedLong(UdfUtils.UNSAFE.getInt(offsetsAddr + 4L * (row - 1)));
+                byte[] bytes = new byte[(int) (end - start)];
+                UdfUtils.copyMemory(null, dataAddr + start, bytes, UdfUtils.BYTE_ARRAY_OFFSET, bytes.length);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            default:
+                throw new IllegalStateException("Unsupported column type: " + type);
+        }
+    }
+
+    private static BigInteger readLittleEndian(long addr, int len) {
+        byte[] bytes = new byte[len];
+        UdfUtils.copyMemory(null, addr, bytes, UdfUtils.BYTE_ARRAY_OFFSET, len);
+        return new BigInteger(UdfUtils.convertByteOrder(bytes));
+    }
+
+    private static JavaUdfDataType toJavaUdfDataType(int thriftType) throws UdfRuntimeException {
+        TPrimitiveType primitiveType = TPrimitiveType.findByValue(thriftType);
+        for (JavaUdfDataType type : JavaUdfDataType.values()) {
+            if (type != JavaUdfDataType.INVALID_TYPE && type != JavaUdfDataType.ARRAY_TYPE
+                    && type.getPrimitiveType() == primitiveType) {
+                return type;
+            }
+        }
+        throw new UdfRuntimeException("JDBC batch writer does not support column type: " + primitiveType);
+    }
+
+    private static int toSqlType(JavaUdfDataType type) {
+        switch (type) {
+            case BOOLEAN:
+                return Types.BOOLEAN;
+            case TINYINT:
+                return Types.TINYINT;
+            case SMALLINT:
+                return Types.SMALLINT;
+            case INT:
+                return Types.INTEGER;
+            case BIGINT:
+                return Types.BIGINT;
+            case FLOAT:
+                return Types.REAL;
+            case DOUBLE:
+                return Types.DOUBLE;
+            case DATE:
+            case DATEV2:
+                return Types.DATE;
+            case DATETIME:
+            case DATETIMEV2:
+                return Types.TIMESTAMP;
+            case LARGEINT:
+            case DECIMALV2:
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                return Types.DECIMAL;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+
+    // Text format of PostgreSQL COPY: tab separated, \N for null and backslash escapes.
+    static void appendCopyValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("\\N");
+            return;
+        }
+        String str = value instanceof Boolean ? ((Boolean) value ? "t" : "f") : value.toString();
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private class Writer {
+        private final Connection conn;
+        private final boolean ownsConnection;
+        private final int commitInterval;
+        private final PreparedStatement stmt;
+        // CopyManager of PostgreSQL and its copyIn(String, Reader), null if COPY is not used
+        private final Object copyManager;
+        private final Method copyIn;
+        private Future<?> pending = null;
+        private int batchedRows = 0;
+        private long uncommittedRows = 0;
+
+        Writer(Connection conn, boolean ownsConnection, int commitInterval, ClassLoader copyClassLoader)
+                throws SQLException {
+            this.conn = conn;
+            this.ownsConnection = ownsConnection;
+            this.commitInterval = commitInterval;
+            if (ownsConnection || commitInterval > 0) {
+                conn.setAutoCommit(commitInterval == 0);
+            }
+            Object manager = null;
+            Method method = null;
+            if (copyClassLoader != null) {
+                try {
+                    Class<?> pgConnection = Class.forName("org.postgresql.PGConnection", true, copyClassLoader);
+                    manager = pgConnection.getMethod("getCopyAPI").invoke(conn.unwrap(pgConnection));
+                    method = manager.getClass().getMethod("copyIn", String.class, Reader.class);
+                } catch (ReflectiveOperationException | SQLException e) {
+                    LOG.warn("COPY is not supported by the JDBC driver, fallback to batched INSERT", e);
+                    manager = null;
+                    method = null;
+                }
+            }
+            this.copyManager = manager;
+            this.copyIn = method;
+            this.stmt = manager == null ? conn.prepareStatement(insertSql()) : null;
+        }
+
+        void submit(List<Object[]> rows) throws UdfRuntimeException {
+            await();
+            if (writers.size() == 1) {
+                writeRows(rows);
+            } else {
+                pending = WRITER_EXECUTOR.submit(() -> {
+                    writeRows(rows);
+                    return null;
+                });
+            }
+        }
+
+        void await() throws UdfRuntimeException {
+            if (pending == null) {
+                return;
+            }
+            Future<?> future = pending;
+            pending = null;
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new UdfRuntimeException("JDBC executor batch write has error: ", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UdfRuntimeException("JDBC executor batch write is interrupted: ", e);
+            }
+        }
+
+        private void writeRows(List<Object[]> rows) throws UdfRuntimeException {
+            try {
+                if (copyManager != null) {
+                    copyRows(rows);
+                } else {
+                    for (Object[] row : rows) {
+                        for (int col = 0; col < row.length; ++col) {
+                            if (row[col] == null) {
+                                stmt.setNull(col + 1, toSqlType(columnTypes[col]));
+                            } else {
+                                stmt.setObject(col + 1, row[col]);
+                            }
+                        }
+                        stmt.addBatch();
+                        if (++batchedRows >= batchSize) {
+                            executeBatch();
+                        }
+                    }
+                    executeBatch();
+                }
+                uncommittedRows += rows.size();
+                if (commitInterval > 0 && uncommittedRows >= commitInterval) {
+                    conn.commit();
+                    uncommittedRows = 0;
+                }
+            } catch (SQLException | ReflectiveOperationException e) {
+                throw new UdfRuntimeException("JDBC executor batch write has error: ", e);
+            }
+        }
+
+        private void executeBatch() throws SQLException {
+            if (batchedRows > 0) {
+                stmt.executeBatch();
+                batchedRows = 0;
+            }
+        }
+
+        private void copyRows(List<Object[]> rows) throws ReflectiveOperationException {
+            StringBuilder sb = new StringBuilder();
+            for (Object[] row : rows) {
+                for (int col = 0; col < row.length; ++col) {
+                    if (col != 0) {
+                        sb.append('\t');
+                    }
+                    appendCopyValue(sb, row[col]);
+                }
+                sb.append('\n');
+            }
+            copyIn.invoke(copyManager, copySql(), new StringReader(sb.toString()));
+        }
+
+        void finish() throws UdfRuntimeException {
+            try {
+                if (stmt != null) {
+                    executeBatch();
+                }
+                if (commitInterval > 0 && uncommittedRows > 0) {
+                    conn.commit();
+                    uncommittedRows = 0;
+                }
+            } catch (SQLException e) {
+                throw new UdfRuntimeException("JDBC executor batch write has error: ", e);
+            }
+        }
+
+        void close() {
+            try {
+                // the pending chunk is still using the connection
+                await();
+            } catch (UdfRuntimeException e) {
+                LOG.warn("JDBC executor batch write failed before close: ", e);
+            }
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+                if (ownsConnection) {
+                    if (!conn.getAutoCommit()) {
+                        conn.rollback();
+                    }
+                    conn.close();
+                } else if (commitInterval > 0) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                LOG.warn("JDBC executor close batch writer has error: ", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads one column of a JDBC ResultSet into reusable primitive arrays with a null map, so that
+ * numeric and boolean columns reach the BE without a boxed object per cell.
+ * A reader is only chosen for the columns whose ResultSet.getObject() class is a boxed primitive,
+ * see {@link #create(String, int, int)}, so {@link #toObjects(int)} can always rebuild exactly
+ * the objects the generic path would have read.
+ */
+public abstract class JdbcColumnReader {
+    // 1-based index of the column in the ResultSet
+    protected final int columnIndex;
+    protected final boolean[] nulls;
+
+    protected JdbcColumnReader(int columnIndex, int capacity) {
+        this.columnIndex = columnIndex;
+        this.nulls = new boolean[capacity];
+    }
+
+    /**
+     * Returns the reader of a column given its ResultSetMetaData.getColumnClassName(), or null if
+     * the column has to be read by ResultSet.getObject().
+     */
+    public static JdbcColumnReader create(String columnClassName, int columnIndex, int capacity) {
+        if (columnClassName == null) {
+            return null;
+        }
+        switch (columnClassName) {
+            case "java.lang.Boolean":
+                return new BooleanReader(columnIndex, capacity);
+            case "java.lang.Byte":
+            case "java.lang.Short":
+            case "java.lang.Integer":
+            case "java.lang.Long":
+                return new LongReader(columnIndex, capacity, columnClassName);
+            case "java.lang.Float":
+            case "java.lang.Double":
+                return new DoubleReader(columnIndex, capacity, columnClassName);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reads the value of the current row of resultSet into row.
+     */
+    public abstract void read(ResultSet resultSet, int row) throws SQLException;
+
+    /**
+     * Boxes the values like ResultSet.getObject(), for the copy functions without a primitive path.
+     */
+    public abstract Object[] toObjects(int numRows);
+
+    /**
+     * Moves numRows rows from row `from` to the first row.
+     */
+    public void shift(int from, int numRows) {
+        System.arraycopy(nulls, from, nulls, 0, numRows);
+        System.arraycopy(values(), from, values(), 0, numRows);
+    }
+
+    // the primitive array of the values
+    protected abstract Object values();
+
+    protected abstract long longAt(int row);
+
+    protected abstract double doubleAt(int row);
+
+    public void copyToBoolean(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putByte(columnAddr + i, longAt(i) != 0 ? (byte) 1 : 0);
+        }
+    }
+
+    public void copyToByte(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putByte(columnAddr + i, (byte) longAt(i));
+        }
+    }
+
+    public void copyToShort(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putShort(columnAddr + (i * 2L), (short) longAt(i));
+        }
+    }
+
+    public void copyToInt(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putInt(columnAddr + (i * 4L), (int) longAt(i));
+        }
+    }
+
+    public void copyToLong(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putLong(columnAddr + (i * 8L), longAt(i));
+        }
+    }
+
+    public void copyToFloat(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putFloat(columnAddr + (i * 4L), (float) doubleAt(i));
+        }
+    }
+
+    public void copyToDouble(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+        copyNullMap(isNullable, numRows, nullMapAddr);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putDouble(columnAddr + (i * 8L), doubleAt(i));
+        }
+    }
+
+    // A boolean[] has the same layout as the BE null map, one byte of 0 or 1 per row.
+    protected void copyNullMap(boolean isNullable, int numRows, long nullMapAddr) {
+        if (isNullable) {
+            UdfUtils.copyMemory(nulls, UdfUtils.BOOLEAN_ARRAY_OFFSET, null, nullMapAddr, numRows);
+        }
+    }
+
+    private static class BooleanReader extends JdbcColumnReader {
+        private final boolean[] values;
+
+        BooleanReader(int columnIndex, int capacity) {
+            super(columnIndex, capacity);
+            values = new boolean[capacity];
+        }
+
+        @Override
+        public void read(ResultSet resultSet, int row) throws SQLException {
+            values[row] = resultSet.getBoolean(columnIndex);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        public Object[] toObjects(int numRows) {
+            Object[] objects = new Object[numRows];
+            for (int i = 0; i < numRows; i++) {
+                objects[i] = nulls[i] ? null : values[i];
+            }
+            return objects;
+        }
+
+        @Override
+        protected Object values() {
+            return values;
+        }
+
+        @Override
+        protected long longAt(int row) {
+            return values[row] ? 1 : 0;
+        }
+
+        @Override
+        protected double doubleAt(int row) {
+            return values[row] ? 1 : 0;
+        }
+
+        @Override
+        public void copyToBoolean(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+            copyNullMap(isNullable, numRows, nullMapAddr);
+            UdfUtils.copyMemory(values, UdfUtils.BOOLEAN_ARRAY_OFFSET, null, columnAddr, numRows);
+        }
+    }
+
+    private static class LongReader extends JdbcColumnReader {
+        private final long[] values;
+        // The class returned by ResultSet.getObject(), to box the values the same way
+        private final String className;
+
+        LongReader(int columnIndex, int capacity, String className) {
+            super(columnIndex, capacity);
+            this.values = new long[capacity];
+            this.className = className;
+        }
+
+        @Override
+        public void read(ResultSet resultSet, int row) throws SQLException {
+            values[row] = resultSet.getLong(columnIndex);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        public Object[] toObjects(int numRows) {
+            Object[] objects = new Object[numRows];
+            for (int i = 0; i < numRows; i++) {
+                if (nulls[i]) {
+                    continue;
+                }
+                switch (className) {
+                    case "java.lang.Byte":
+                        objects[i] = (byte) values[i];
+                        break;
+                    case "java.lang.Short":
+                        objects[i] = (short) values[i];
+                        break;
+                    case "java.lang.Integer":
+                        objects[i] = (int) values[i];
+                        break;
+                    default:
+                        objects[i] = values[i];
+                        break;
+                }
+            }
+            return objects;
+        }
+
+        @Override
+        protected Object values() {
+            return values;
+        }
+
+        @Override
+        protected long longAt(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected double doubleAt(int row) {
+            return values[row];
+        }
+
+        @Override
+        public void copyToLong(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+            copyNullMap(isNullable, numRows, nullMapAddr);
+            UdfUtils.copyMemory(values, UdfUtils.LONG_ARRAY_OFFSET, null, columnAddr, numRows * 8L);
+        }
+    }
+
+    private static class DoubleReader extends JdbcColumnReader {
+        private final double[] values;
+        private final boolean isFloat;
+
+        DoubleReader(int columnIndex, int capacity, String className) {
+            super(columnIndex, capacity);
+            this.values = new double[capacity];
+            this.isFloat = "java.lang.Float".equals(className);
+        }
+
+        @Override
+        public void read(ResultSet resultSet, int row) throws SQLException {
+            // float widens to double exactly, so reading by getFloat() keeps the value of a FLOAT column
+            values[row] = isFloat ? resultSet.getFloat(columnIndex) : resultSet.getDouble(columnIndex);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        public Object[] toObjects(int numRows) {
+            Object[] objects = new Object[numRows];
+            for (int i = 0; i < numRows; i++) {
+                if (!nulls[i]) {
+                    objects[i] = isFloat ? (Object) (float) values[i] : (Object) values[i];
+                }
+            }
+            return objects;
+        }
+
+        @Override
+        protected Object values() {
+            return values;
+        }
+
+        @Override
+        protected long longAt(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        protected double doubleAt(int row) {
+            return values[row];
+        }
+
+        @Override
+        public void copyToDouble(boolean isNullable, int numRows, long nullMapAddr, long columnAddr) {
+            copyNullMap(isNullable, numRows, nullMapAddr);
+            UdfUtils.copyMemory(values, UdfUtils.DOUBLE_ARRAY_OFFSET, null, columnAddr, numRows * 8L);
+        }
+    }
+}
@@ -22,13 +22,13 @@ import org.apache.doris.thrift.TJdbcOperation;
 
 import com.alibaba.druid.pool.DruidDataSource;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.log4j.Logger;
 import org.apache.thrift.TDeserializer;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TBinaryProtocol;
 
 import java.io.FileNotFoundException;
-import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
@@ -46,21 +46,52 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class JdbcExecutor {
     private static final Logger LOG = Logger.getLogger(JdbcExecutor.class);
     private static final TBinaryProtocol.Factory PROTOCOL_FACTORY = new TBinaryProtocol.Factory();
+    private static final int PREFETCH_THREAD_NUM = Math.max(4, Runtime.getRuntime().availableProcessors());
+    // Fetches the next block of every reading executor while the BE copies the current one.
+    // A prefetch still queued when the block is needed is cancelled and fetched by the caller.
+    private static final ThreadPoolExecutor PREFETCH_EXECUTOR = new ThreadPoolExecutor(PREFETCH_THREAD_NUM,
+            PREFETCH_THREAD_NUM, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("jdbc-prefetch-%d").setDaemon(true).build());
+
+    static {
+        PREFETCH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     private Connection conn = null;
     private Statement stmt = null;
     private ResultSet resultSet = null;
     private ResultSetMetaData resultSetMetaData = null;
     private List<String> resultColumnTypeNames = null;
     private int baseTypeInt = 0;
-    private List<Object[]> block = null;
+    // Columns of the block returned by getBlock(), each is a JdbcColumnReader or an Object[]
+    private List<Object> block = null;
+    // Columns filled by the prefetch task, swapped with `block` by hasNext()
+    private List<Object> prefetchBlock = null;
+    private Future<Integer> prefetch = null;
+    // Set once a fetch reads less rows than requested, i.e. the result set has no more rows
+    private boolean exhausted = false;
     private int batchSizeNum = 0;
+    // Rows to fetch for the next block, the batch size of the last getBlock()
+    private int fetchSize = 0;
     private int curBlockRows = 0;
+    // Rows of `block` after curBlockRows, which are not returned yet because getBlock() asked for less rows
+    private int leftoverRows = 0;
     private static final byte[] emptyBytes = new byte[0];
     private DruidDataSource druidDataSource = null;
+    private int sinkParallelism = 1;
+    private int sinkCommitInterval = 0;
+    private boolean sinkUseBulkLoad = false;
+    // Writer opened by openBatchWriter(), null if rows are written by write(String)
+    private JdbcBatchWriter batchWriter = null;
 
     public JdbcExecutor(byte[] thriftParams) throws Exception {
         TJdbcExecutorCtorParams request = new TJdbcExecutorCtorParams();
@@ -70,11 +101,37 @@ public class JdbcExecutor {
         } catch (TException e) {
             throw new InternalException(e.getMessage());
         }
+        if (request.isSetSinkParallelism()) {
+            sinkParallelism = Math.max(1, request.sink_parallelism);
+        }
+        if (request.isSetSinkCommitInterval()) {
+            sinkCommitInterval = Math.max(0, request.sink_commit_interval);
+        }
+        sinkUseBulkLoad = request.isSetSinkUseBulkLoad() && request.sink_use_bulk_load;
         init(request.driver_path, request.statement, request.batch_size, request.jdbc_driver_class,
                 request.jdbc_url, request.jdbc_user, request.jdbc_password, request.op);
     }
 
+    // for test
+    JdbcExecutor(Statement stmt, int batchSize) {
+        this.stmt = stmt;
+        this.batchSizeNum = batchSize;
+    }
+
     public void close() throws Exception {
+        if (prefetch != null && !prefetch.cancel(false)) {
+            // the prefetch task is still using the result set
+            try {
+                prefetch.get();
+            } catch (ExecutionException e) {
+                LOG.warn("JDBC executor prefetch failed before close: ", e.getCause());
+            }
+        }
+        prefetch = null;
+        if (batchWriter != null) {
+            batchWriter.close();
+            batchWriter = null;
+        }
         if (resultSet != null) {
             resultSet.close();
         }
@@ -96,9 +153,16 @@ public class JdbcExecutor {
             int columnCount = resultSetMetaData.getColumnCount();
             resultColumnTypeNames = new ArrayList<>(columnCount);
             block = new ArrayList<>(columnCount);
+            prefetchBlock = new ArrayList<>(columnCount);
+            curBlockRows = 0;
+            leftoverRows = 0;
+            fetchSize = batchSizeNum;
+            exhausted = false;
             for (int i = 0; i < columnCount; ++i) {
-                resultColumnTypeNames.add(resultSetMetaData.getColumnClassName(i + 1));
-                block.add((Object[]) Array.newInstance(Object.class, batchSizeNum));
+                String columnClassName = resultSetMetaData.getColumnClassName(i + 1);
+                resultColumnTypeNames.add(columnClassName);
+                block.add(createColumn(columnClassName, i + 1));
+                prefetchBlock.add(createColumn(columnClassName, i + 1));
             }
             return columnCount;
         } catch (SQLException e) {
@@ -114,6 +178,49 @@ public class JdbcExecutor {
         }
     }
 
+    /**
+     * Prepares `INSERT INTO tableName (columnNames) VALUES (?, ...)` for writeBatch(), columnTypes are
+     * the TPrimitiveType values of the columns and columnScales their scales of decimal types.
+     * columnNames may be null to insert all columns of the table in order.
+     */
+    public void openBatchWriter(String tableName, String[] columnNames, int[] columnTypes, int[] columnScales)
+            throws UdfRuntimeException {
+        if (batchWriter != null) {
+            throw new UdfRuntimeException("JDBC executor batch writer is already opened");
+        }
+        batchWriter = new JdbcBatchWriter(druidDataSource, conn, druidDataSource.getDriverClassLoader(), tableName,
+                columnNames, columnTypes, columnScales, batchSizeNum, sinkCommitInterval, sinkParallelism,
+                sinkUseBulkLoad && isPostgreSQL(druidDataSource.getUrl()));
+    }
+
+    /**
+     * Writes numRows rows of a block, the arrays hold the null map (0 if not nullable), data and
+     * offsets (0 if not a string column) address of every column.
+     */
+    public void writeBatch(int numRows, long[] nullMapAddrs, long[] dataAddrs, long[] offsetsAddrs)
+            throws UdfRuntimeException {
+        if (batchWriter == null) {
+            throw new UdfRuntimeException("JDBC executor batch writer is not opened");
+        }
+        batchWriter.write(numRows, nullMapAddrs, dataAddrs, offsetsAddrs);
+    }
+
+    /**
+     * Flushes the rows of writeBatch() and releases the writer, rows written in a transaction
+     * opened by openTrans() are still committed by commitTrans().
+     */
+    public void finishBatchWrite() throws UdfRuntimeException {
+        if (batchWriter == null) {
+            return;
+        }
+        try {
+            batchWriter.finish();
+        } finally {
+            batchWriter.close();
+            batchWriter = null;
+        }
+    }
+
     public List<String> getResultColumnTypeNames() {
         return resultColumnTypeNames;
     }
@@ -162,34 +269,115 @@ public class JdbcExecutor {
         }
     }
 
-    public List<Object[]> getBlock(int batchSize) throws UdfRuntimeException {
-        try {
-            int columnCount = resultSetMetaData.getColumnCount();
-            curBlockRows = 0;
-            do {
-                for (int i = 0; i < columnCount; ++i) {
-                    block.get(i)[curBlockRows] = resultSet.getObject(i + 1);
-                }
-                curBlockRows++;
-            } while (curBlockRows < batchSize && resultSet.next());
-        } catch (SQLException e) {
-            throw new UdfRuntimeException("get next block failed: ", e);
+    /**
+     * Returns the block fetched by the last hasNext() with at most batchSize rows, and starts fetching
+     * the next block in background while the BE copies this one. If the block has more rows, the rest
+     * are returned by the next hasNext() and getBlock().
+     */
+    public List<Object> getBlock(int batchSize) throws UdfRuntimeException {
+        if (prefetch != null) {
+            throw new UdfRuntimeException("getBlock() must be called after hasNext()");
+        }
+        fetchSize = batchSize > 0 ? Math.min(batchSize, batchSizeNum) : batchSizeNum;
+        if (curBlockRows > fetchSize) {
+            leftoverRows = curBlockRows - fetchSize;
+            curBlockRows = fetchSize;
+        } else if (!exhausted) {
+            int size = fetchSize;
+            prefetch = PREFETCH_EXECUTOR.submit(() -> fetchBlock(prefetchBlock, size));
         }
         return block;
     }
 
+    // Moves numRows rows of every column from row `from` to the first row.
+    private static void shiftRows(List<Object> columns, int from, int numRows) {
+        for (Object column : columns) {
+            if (column instanceof JdbcColumnReader) {
+                ((JdbcColumnReader) column).shift(from, numRows);
+            } else {
+                System.arraycopy(column, from, column, 0, numRows);
+            }
+        }
+    }
+
+    private Object createColumn(String columnClassName, int columnIndex) {
+        JdbcColumnReader reader = JdbcColumnReader.create(columnClassName, columnIndex, batchSizeNum);
+        return reader != null ? reader : new Object[batchSizeNum];
+    }
+
+    // Reads at most batchSize rows into columns, returns the number of rows read.
+    private int fetchBlock(List<Object> columns, int batchSize) throws SQLException {
+        int columnCount = columns.size();
+        int rows = 0;
+        int maxRows = Math.min(batchSize, batchSizeNum);
+        while (rows < maxRows && resultSet.next()) {
+            for (int i = 0; i < columnCount; ++i) {
+                Object column = columns.get(i);
+                if (column instanceof JdbcColumnReader) {
+                    ((JdbcColumnReader) column).read(resultSet, rows);
+                } else {
+                    ((Object[]) column)[rows] = resultSet.getObject(i + 1);
+                }
+            }
+            rows++;
+        }
+        if (rows < maxRows) {
+            exhausted = true;
+        }
+        return rows;
+    }
+
+    // Columns without a JdbcColumnReader are plain Object[], the others are boxed on demand for
+    // the copy functions that have no primitive path.
+    private Object[] toObjectColumn(Object columnObj, int numRows) {
+        if (columnObj instanceof JdbcColumnReader) {
+            return ((JdbcColumnReader) columnObj).toObjects(numRows);
+        }
+        return (Object[]) columnObj;
+    }
+
     public int getCurBlockRows() {
         return curBlockRows;
     }
 
+    /**
+     * Fetches the next block, or waits for the block prefetched by the last getBlock(), and
+     * returns whether it has any rows.
+     */
     public boolean hasNext() throws UdfRuntimeException {
+        if (resultSet == null) {
+            return false;
+        }
+        if (leftoverRows > 0) {
+            shiftRows(block, curBlockRows, leftoverRows);
+            curBlockRows = leftoverRows;
+            leftoverRows = 0;
+            return true;
+        }
         try {
-            if (resultSet == null) {
-                return false;
+            int rows;
+            if (prefetch != null) {
+                Future<Integer> pending = prefetch;
+                prefetch = null;
+                // fetch by the caller if the prefetch is still queued behind other executors
+                rows = pending.cancel(false) ? fetchBlock(prefetchBlock, fetchSize) : pending.get();
+            } else if (exhausted) {
+                rows = 0;
+            } else {
+                rows = fetchBlock(prefetchBlock, fetchSize);
             }
-            return resultSet.next();
+            List<Object> fetched = prefetchBlock;
+            prefetchBlock = block;
+            block = fetched;
+            curBlockRows = rows;
+            return rows > 0;
         } catch (SQLException e) {
             throw new UdfRuntimeException("resultSet to get next error: ", e);
+        } catch (ExecutionException e) {
+            throw new UdfRuntimeException("resultSet to get next error: ", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UdfRuntimeException("resultSet to get next error: ", e);
         }
     }
 
@@ -207,6 +395,11 @@ public class JdbcExecutor {
         try {
             ClassLoader parent = getClass().getClassLoader();
             ClassLoader classLoader = UdfUtils.getClassLoader(driverUrl, parent);
+            if (op != TJdbcOperation.READ && sinkUseBulkLoad && isMySQL(jdbcUrl)
+                    && !jdbcUrl.contains("rewriteBatchedStatements")) {
+                // let the driver rewrite a batch of inserts to one multi-row insert
+                jdbcUrl += (jdbcUrl.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+            }
             druidDataSource = JdbcDataSource.getDataSource().getSource(jdbcUrl);
             if (druidDataSource == null) {
                 DruidDataSource ds = new DruidDataSource();
@@ -230,6 +423,7 @@ public class JdbcExecutor {
                 batchSizeNum = batchSize;
             } else {
                 stmt = conn.createStatement();
+                batchSizeNum = batchSize;
             }
         } catch (MalformedURLException e) {
             throw new UdfRuntimeException("MalformedURLException to load class about " + driverUrl, e);
@@ -240,8 +434,20 @@ public class JdbcExecutor {
         }
     }
 
+    private static boolean isMySQL(String jdbcUrl) {
+        return jdbcUrl.startsWith("jdbc:mysql:") || jdbcUrl.startsWith("jdbc:mariadb:");
+    }
+
+    private static boolean isPostgreSQL(String jdbcUrl) {
+        return jdbcUrl.startsWith("jdbc:postgresql:");
+    }
+
     public void copyBatchBooleanResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToBoolean(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         if (isNullable) {
             for (int i = 0; i < numRows; i++) {
@@ -313,6 +519,10 @@ public class JdbcExecutor {
 
     public void copyBatchTinyIntResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToByte(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         int firstNotNullIndex = 0;
         if (isNullable) {
@@ -383,6 +593,10 @@ public class JdbcExecutor {
 
     public void copyBatchSmallIntResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToShort(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         int firstNotNullIndex = 0;
         if (isNullable) {
@@ -437,6 +651,10 @@ public class JdbcExecutor {
 
     public void copyBatchIntResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToInt(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         int firstNotNullIndex = 0;
         if (isNullable) {
@@ -488,6 +706,10 @@ public class JdbcExecutor {
 
     public void copyBatchBigIntResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToLong(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         int firstNotNullIndex = 0;
         if (isNullable) {
@@ -554,7 +776,7 @@ public class JdbcExecutor {
 
     public void copyBatchLargeIntResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         int firstNotNullIndex = 0;
         if (isNullable) {
             firstNotNullIndex = getFirstNotNullObject(column, numRows, nullMapAddr);
@@ -571,6 +793,10 @@ public class JdbcExecutor {
 
     public void copyBatchFloatResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToFloat(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         if (isNullable) {
             for (int i = 0; i < numRows; i++) {
@@ -624,6 +850,10 @@ public class JdbcExecutor {
 
     public void copyBatchDoubleResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
+        if (columnObj instanceof JdbcColumnReader) {
+            ((JdbcColumnReader) columnObj).copyToDouble(isNullable, numRows, nullMapAddr, columnAddr);
+            return;
+        }
         Object[] column = (Object[]) columnObj;
         int firstNotNullIndex = 0;
         if (isNullable) {
@@ -702,7 +932,7 @@ public class JdbcExecutor {
 
     public void copyBatchDateResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         int firstNotNullIndex = 0;
         if (isNullable) {
             firstNotNullIndex = getFirstNotNullObject(column, numRows, nullMapAddr);
@@ -763,7 +993,7 @@ public class JdbcExecutor {
 
     public void copyBatchDateV2Result(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         int firstNotNullIndex = 0;
         if (isNullable) {
             firstNotNullIndex = getFirstNotNullObject(column, numRows, nullMapAddr);
@@ -876,7 +1106,7 @@ public class JdbcExecutor {
 
     public void copyBatchDateTimeResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) throws SQLException {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         int firstNotNullIndex = 0;
         if (isNullable) {
             firstNotNullIndex = getFirstNotNullObject(column, numRows, nullMapAddr);
@@ -966,7 +1196,7 @@ public class JdbcExecutor {
 
     public void copyBatchDateTimeV2Result(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) throws SQLException {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         int firstNotNullIndex = 0;
         if (isNullable) {
             firstNotNullIndex = getFirstNotNullObject(column, numRows, nullMapAddr);
@@ -994,7 +1224,7 @@ public class JdbcExecutor {
     public void copyBatchCharResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long offsetsAddr, long charsAddr, boolean needTrimSpaces) {
         if (needTrimSpaces == true) {
-            Object[] column = (Object[]) columnObj;
+            Object[] column = toObjectColumn(columnObj, numRows);
             for (int i = 0; i < numRows; i++) {
                 if (column[i] != null) {
                     column[i] = trimSpaces((String) column[i]);
@@ -1080,7 +1310,7 @@ public class JdbcExecutor {
 
     public void copyBatchStringResult(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long offsetsAddr, long charsAddr) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         int firstNotNullIndex = 0;
         if (isNullable) {
             firstNotNullIndex = getFirstNotNullObject(column, numRows, nullMapAddr);
@@ -1099,7 +1329,7 @@ public class JdbcExecutor {
 
     public void copyBatchDecimalV2Result(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         BigInteger[] data = new BigInteger[numRows];
         for (int i = 0; i < numRows; i++) {
             if (column[i] == null) {
@@ -1114,7 +1344,7 @@ public class JdbcExecutor {
 
     public void copyBatchDecimal32Result(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr, int scale) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         BigInteger[] data = new BigInteger[numRows];
         for (int i = 0; i < numRows; i++) {
             if (column[i] == null) {
@@ -1129,7 +1359,7 @@ public class JdbcExecutor {
 
     public void copyBatchDecimal64Result(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr, int scale) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         BigInteger[] data = new BigInteger[numRows];
         for (int i = 0; i < numRows; i++) {
             if (column[i] == null) {
@@ -1144,7 +1374,7 @@ public class JdbcExecutor {
 
     public void copyBatchDecimal128Result(Object columnObj, boolean isNullable, int numRows, long nullMapAddr,
             long columnAddr, int scale) {
-        Object[] column = (Object[]) columnObj;
+        Object[] column = toObjectColumn(columnObj, numRows);
         BigInteger[] data = new BigInteger[numRows];
         for (int i = 0; i < numRows; i++) {
             if (column[i] == null) {
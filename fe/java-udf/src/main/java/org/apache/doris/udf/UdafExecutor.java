@@ -19,6 +19,7 @@ package org.apache.doris.udf;
 
 import org.apache.doris.catalog.Type;
 import org.apache.doris.common.Pair;
+import org.apache.doris.common.util.LongObjectHashMap;
 import org.apache.doris.thrift.TJavaUdfExecutorCtorParams;
 import org.apache.doris.udf.UdfUtils.JavaUdfDataType;
 
@@ -30,9 +31,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -45,9 +51,19 @@ public class UdafExecutor extends BaseExecutor {
 
     private long inputPlacesPtr;
     private HashMap<String, Method> allMethods;
-    private HashMap<Long, Object> stateObjMap;
+    private LongObjectHashMap<Object> stateObjMap;
     private Class retClass;
 
+    // Method handles of the UDAF functions bound to the udf instance, resolved once in init()
+    private MethodHandle createHandle;
+    // Takes the state followed by the input arguments as one Object[]
+    private MethodHandle addHandle;
+    private MethodHandle mergeHandle;
+    private MethodHandle serializeHandle;
+    private MethodHandle deserializeHandle;
+    private MethodHandle destroyHandle;
+    private MethodHandle resultHandle;
+
     /**
      * Constructor to create an object.
      */
@@ -61,30 +77,42 @@ public class UdafExecutor extends BaseExecutor {
     @Override
     public void close() {
         allMethods = null;
+        createHandle = null;
+        addHandle = null;
+        mergeHandle = null;
+        serializeHandle = null;
+        deserializeHandle = null;
+        destroyHandle = null;
+        resultHandle = null;
         super.close();
     }
 
     /**
      * invoke add function, add row in loop [rowStart, rowEnd).
+     * The state of a place is only looked up when the place changes, so runs of rows
+     * belonging to the same group share one lookup.
      */
     public void add(boolean isSinglePlace, long rowStart, long rowEnd) throws UdfRuntimeException {
         try {
-            long idx = rowStart;
-            do {
-                Long curPlace = UdfUtils.UNSAFE.getLong(null, UdfUtils.UNSAFE.getLong(null, inputPlacesPtr) + 8L * idx);
-                Object[] inputArgs = new Object[argTypes.length + 1];
-                stateObjMap.putIfAbsent(curPlace, createAggState());
-                inputArgs[0] = stateObjMap.get(curPlace);
-                do {
-                    Object[] inputObjects = allocateInputObjects(idx, 1);
-                    for (int i = 0; i < argTypes.length; ++i) {
-                        inputArgs[i + 1] = inputObjects[i];
+            long placesBase = UdfUtils.UNSAFE.getLong(null, inputPlacesPtr);
+            Object[] inputArgs = new Object[argTypes.length + 1];
+            Object state = null;
+            long lastPlace = 0;
+            for (long idx = rowStart; idx < rowEnd; ++idx) {
+                // In single place mode, all rows are added to the place of the first row
+                if (idx == rowStart || !isSinglePlace) {
+                    long curPlace = UdfUtils.UNSAFE.getLong(null, placesBase + 8L * idx);
+                    if (idx == rowStart || curPlace != lastPlace) {
+                        state = getOrCreateState(curPlace);
+                        lastPlace = curPlace;
                     }
-                    allMethods.get(UDAF_ADD_FUNCTION).invoke(udf, inputArgs);
-                    idx++;
-                } while (isSinglePlace && idx < rowEnd);
-            } while (idx < rowEnd);
-        } catch (Exception e) {
+                }
+                Object[] inputObjects = allocateInputObjects(idx, 1);
+                inputArgs[0] = state;
+                System.arraycopy(inputObjects, 0, inputArgs, 1, argTypes.length);
+                addHandle.invokeExact(inputArgs);
+            }
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDAF failed to add: ", e);
         }
     }
@@ -94,8 +122,8 @@ public class UdafExecutor extends BaseExecutor {
      */
     public Object createAggState() throws UdfRuntimeException {
         try {
-            return allMethods.get(UDAF_CREATE_FUNCTION).invoke(udf, null);
-        } catch (Exception e) {
+            return (Object) createHandle.invokeExact();
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDAF failed to create: ", e);
         }
     }
@@ -105,13 +133,13 @@ public class UdafExecutor extends BaseExecutor {
      */
     public void destroy() throws UdfRuntimeException {
         try {
-            for (Object obj : stateObjMap.values()) {
-                allMethods.get(UDAF_DESTROY_FUNCTION).invoke(udf, obj);
+            for (Object state : stateObjMap.values()) {
+                destroyHandle.invokeExact(state);
             }
-            stateObjMap.clear();
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDAF failed to destroy: ", e);
         }
+        stateObjMap.clear();
     }
 
     /**
@@ -119,34 +147,69 @@ public class UdafExecutor extends BaseExecutor {
      */
     public byte[] serialize(long place) throws UdfRuntimeException {
         try {
-            Object[] args = new Object[2];
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            args[0] = stateObjMap.get((Long) place);
-            args[1] = new DataOutputStream(baos);
-            allMethods.get(UDAF_SERIALIZE_FUNCTION).invoke(udf, args);
+            serializeHandle.invokeExact(stateObjMap.get(place), (Object) new DataOutputStream(baos));
             return baos.toByteArray();
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDAF failed to serialize: ", e);
         }
     }
 
+    /**
+     * Serializes the states of the places [0, numPlaces) in the places buffer of BE with one call,
+     * instead of one JNI call per place. The result is the serialized states in the order of the
+     * places, each after its length as a 4 bytes little endian int.
+     */
+    public byte[] serializeAll(int numPlaces) throws UdfRuntimeException {
+        try {
+            long placesBase = UdfUtils.UNSAFE.getLong(null, inputPlacesPtr);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            ByteArrayOutputStream stateBytes = new ByteArrayOutputStream();
+            DataOutputStream stateOut = new DataOutputStream(stateBytes);
+            for (int i = 0; i < numPlaces; ++i) {
+                long place = UdfUtils.UNSAFE.getLong(null, placesBase + 8L * i);
+                stateBytes.reset();
+                serializeHandle.invokeExact(stateObjMap.get(place), (Object) stateOut);
+                stateOut.flush();
+                out.writeInt(Integer.reverseBytes(stateBytes.size()));
+                stateBytes.writeTo(out);
+            }
+            out.flush();
+            return baos.toByteArray();
+        } catch (Throwable e) {
+            throw new UdfRuntimeException("UDAF failed to serialize: ", e);
+        }
+    }
+
+    /**
+     * Merges the serialized states into the places [0, numPlaces) in the places buffer of BE with
+     * one call. The layout of data is the same as the result of {@link #serializeAll(int)}, the
+     * i-th state is merged into the i-th place.
+     */
+    public void mergeAll(byte[] data, int numPlaces) throws UdfRuntimeException {
+        try {
+            long placesBase = UdfUtils.UNSAFE.getLong(null, inputPlacesPtr);
+            ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < numPlaces; ++i) {
+                long place = UdfUtils.UNSAFE.getLong(null, placesBase + 8L * i);
+                int length = buffer.getInt();
+                mergeState(place, new ByteArrayInputStream(data, buffer.position(), length));
+                buffer.position(buffer.position() + length);
+            }
+        } catch (Throwable e) {
+            throw new UdfRuntimeException("UDAF failed to merge: ", e);
+        }
+    }
+
     /**
      * invoke merge function and it's have done deserialze.
      * here call deserialize first, and call merge.
      */
     public void merge(long place, byte[] data) throws UdfRuntimeException {
         try {
-            Object[] args = new Object[2];
-            ByteArrayInputStream bins = new ByteArrayInputStream(data);
-            args[0] = createAggState();
-            args[1] = new DataInputStream(bins);
-            allMethods.get(UDAF_DESERIALIZE_FUNCTION).invoke(udf, args);
-            args[1] = args[0];
-            Long curPlace = place;
-            stateObjMap.putIfAbsent(curPlace, createAggState());
-            args[0] = stateObjMap.get(curPlace);
-            allMethods.get(UDAF_MERGE_FUNCTION).invoke(udf, args);
-        } catch (Exception e) {
+            mergeState(place, new ByteArrayInputStream(data));
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDAF failed to merge: ", e);
         }
     }
@@ -156,13 +219,27 @@ public class UdafExecutor extends BaseExecutor {
      */
     public boolean getValue(long row, long place) throws UdfRuntimeException {
         try {
-            return storeUdfResult(allMethods.get(UDAF_RESULT_FUNCTION).invoke(udf, stateObjMap.get((Long) place)),
-                    row, retClass);
-        } catch (Exception e) {
+            return storeUdfResult((Object) resultHandle.invokeExact(stateObjMap.get(place)), row, retClass);
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDAF failed to result", e);
         }
     }
 
+    private Object getOrCreateState(long place) throws UdfRuntimeException {
+        Object state = stateObjMap.get(place);
+        if (state == null) {
+            state = createAggState();
+            stateObjMap.put(place, state);
+        }
+        return state;
+    }
+
+    private void mergeState(long place, ByteArrayInputStream bins) throws Throwable {
+        Object rhs = createAggState();
+        deserializeHandle.invokeExact(rhs, (Object) new DataInputStream(bins));
+        mergeHandle.invokeExact(getOrCreateState(place), rhs);
+    }
+
     @Override
     protected boolean storeUdfResult(Object obj, long row, Class retClass) throws UdfRuntimeException {
         if (obj == null) {
@@ -192,7 +269,7 @@ public class UdafExecutor extends BaseExecutor {
         String className = request.fn.aggregate_fn.symbol;
         inputPlacesPtr = request.input_places_ptr;
         allMethods = new HashMap<>();
-        stateObjMap = new HashMap<>();
+        stateObjMap = new LongObjectHashMap<>();
 
         ArrayList<String> signatures = Lists.newArrayList();
         try {
@@ -260,6 +337,7 @@ public class UdafExecutor extends BaseExecutor {
                 }
             }
             if (idx == methods.length) {
+                initMethodHandles();
                 return;
             }
             StringBuilder sb = new StringBuilder();
@@ -282,4 +360,30 @@ public class UdafExecutor extends BaseExecutor {
             throw new UdfRuntimeException("Unable to call create UDAF instance.", e);
         }
     }
+
+    private void initMethodHandles() throws IllegalAccessException {
+        createHandle = toMethodHandle(UDAF_CREATE_FUNCTION, MethodType.methodType(Object.class));
+        mergeHandle = toMethodHandle(UDAF_MERGE_FUNCTION,
+                MethodType.methodType(void.class, Object.class, Object.class));
+        serializeHandle = toMethodHandle(UDAF_SERIALIZE_FUNCTION,
+                MethodType.methodType(void.class, Object.class, Object.class));
+        deserializeHandle = toMethodHandle(UDAF_DESERIALIZE_FUNCTION,
+                MethodType.methodType(void.class, Object.class, Object.class));
+        destroyHandle = toMethodHandle(UDAF_DESTROY_FUNCTION, MethodType.methodType(void.class, Object.class));
+        resultHandle = toMethodHandle(UDAF_RESULT_FUNCTION, MethodType.methodType(Object.class, Object.class));
+        Method add = allMethods.get(UDAF_ADD_FUNCTION);
+        if (add != null) {
+            addHandle = MethodHandles.lookup().unreflect(add).bindTo(udf)
+                    .asSpreader(Object[].class, add.getParameterCount())
+                    .asType(MethodType.methodType(void.class, Object[].class));
+        }
+    }
+
+    private MethodHandle toMethodHandle(String name, MethodType type) throws IllegalAccessException {
+        Method method = allMethods.get(name);
+        if (method == null) {
+            return null;
+        }
+        return MethodHandles.lookup().unreflect(method).bindTo(udf).asType(type);
+    }
 }
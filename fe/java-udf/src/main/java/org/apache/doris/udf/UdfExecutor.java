@@ -24,17 +24,30 @@ import org.apache.doris.udf.UdfUtils.JavaUdfDataType;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Primitives;
 import org.apache.log4j.Logger;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 public class UdfExecutor extends BaseExecutor {
     private static final Logger LOG = Logger.getLogger(UdfExecutor.class);
     // setup by init() and cleared by close()
     private Method method;
+    // `method` bound to the udf instance and adapted to (Object[])Object, null if it is not accessible
+    private MethodHandle methodHandle;
+    // Optional `evaluateBatch` of the udf, which takes one array per argument and returns an array
+    private Method batchMethod;
+    private MethodHandle batchMethodHandle;
+    // Result of `evaluateBatch` for current batch, kept across calls when the output buffer has to grow
+    private Object batchResult;
 
     // Pre-constructed input objects for the UDF. This minimizes object creation overhead
     // as these objects are reused across calls to evaluate().
@@ -61,6 +74,10 @@ public class UdfExecutor extends BaseExecutor {
         // We are now un-usable (because the class loader has been
         // closed), so null out method_ and classLoader_.
         method = null;
+        methodHandle = null;
+        batchMethod = null;
+        batchMethodHandle = null;
+        batchResult = null;
         super.close();
     }
 
@@ -79,17 +96,35 @@ public class UdfExecutor extends BaseExecutor {
                 rowIdx = UdfUtils.UNSAFE.getLong(null, outputIntermediateStatePtr + 8);
                 if (rowIdx == 0) {
                     outputOffset = 0L;
+                    batchResult = null;
                 }
             } else {
                 rowIdx = 0;
+                batchResult = null;
+            }
+            // The vectorized path only sees non-null values, so batches containing nulls fall back to
+            // row-by-row evaluation.
+            if (rowIdx == 0 && batchMethodHandle != null && !hasNullInput(batchSize)) {
+                batchResult = evaluateBatch(batchSize);
+                if (batchResult.getClass().getComponentType().isPrimitive()) {
+                    storePrimitiveBatchResult(batchResult, batchSize);
+                    batchResult = null;
+                    return;
+                }
             }
             for (; rowIdx < batchSize; rowIdx++) {
-                inputObjects = allocateInputObjects(rowIdx, 0);
+                Object result;
+                if (batchResult != null) {
+                    result = ((Object[]) batchResult)[(int) rowIdx];
+                } else {
+                    inputObjects = allocateInputObjects(rowIdx, 0);
+                    result = evaluate(inputObjects);
+                }
                 // `storeUdfResult` is called to store udf result to output column. If true
                 // is returned, current value is stored successfully. Otherwise, current result is
                 // not processed successfully (e.g. current output buffer is not large enough) so
                 // we break this loop directly.
-                if (!storeUdfResult(evaluate(inputObjects), rowIdx, method.getReturnType())) {
+                if (!storeUdfResult(result, rowIdx, method.getReturnType())) {
                     UdfUtils.UNSAFE.putLong(null, outputIntermediateStatePtr + 8, rowIdx);
                     return;
                 }
@@ -110,16 +145,174 @@ public class UdfExecutor extends BaseExecutor {
      */
     private Object evaluate(Object... args) throws UdfRuntimeException {
         try {
+            if (methodHandle != null) {
+                return (Object) methodHandle.invokeExact(args);
+            }
             return method.invoke(udf, args);
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new UdfRuntimeException("UDF failed to evaluate", e);
         }
     }
 
+    /**
+     * Evaluates the vectorized UDF over the whole batch. None of the inputs may contain nulls.
+     */
+    private Object evaluateBatch(int batchSize) throws UdfRuntimeException {
+        Object result;
+        try {
+            result = (Object) batchMethodHandle.invokeExact(allocateBatchInputs(batchSize));
+        } catch (Throwable e) {
+            throw new UdfRuntimeException("UDF failed to evaluate batch", e);
+        }
+        if (result == null || Array.getLength(result) != batchSize) {
+            throw new UdfRuntimeException("UDF::" + UDF_BATCH_FUNCTION_NAME + "() must return one value per row, "
+                    + "expected " + batchSize + " but got "
+                    + (result == null ? "null" : Array.getLength(result)));
+        }
+        return result;
+    }
+
+    private boolean hasNullInput(int batchSize) {
+        for (int i = 0; i < argTypes.length; ++i) {
+            long nullMap = UdfUtils.UNSAFE.getLong(null, UdfUtils.getAddressAtOffset(inputNullsPtrs, i));
+            if (nullMap == -1) {
+                continue;
+            }
+            for (int row = 0; row < batchSize; ++row) {
+                if (UdfUtils.UNSAFE.getByte(null, nullMap + row) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Copies each input column into a java array matching the parameters of `evaluateBatch`.
+    private Object[] allocateBatchInputs(int batchSize) {
+        Object[] inputs = new Object[argTypes.length];
+        for (int i = 0; i < argTypes.length; ++i) {
+            long base = UdfUtils.UNSAFE.getLong(null, UdfUtils.getAddressAtOffset(inputBufferPtrs, i));
+            switch (argTypes[i]) {
+                case BOOLEAN: {
+                    boolean[] values = new boolean[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.BOOLEAN_ARRAY_OFFSET, batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case TINYINT: {
+                    byte[] values = new byte[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.BYTE_ARRAY_OFFSET, batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case SMALLINT: {
+                    short[] values = new short[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.SHORT_ARRAY_OFFSET, 2L * batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case INT: {
+                    int[] values = new int[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.INT_ARRAY_OFFSET, 4L * batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case BIGINT: {
+                    long[] values = new long[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.LONG_ARRAY_OFFSET, 8L * batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case FLOAT: {
+                    float[] values = new float[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.FLOAT_ARRAY_OFFSET, 4L * batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case DOUBLE: {
+                    double[] values = new double[batchSize];
+                    UdfUtils.copyMemory(null, base, values, UdfUtils.DOUBLE_ARRAY_OFFSET, 8L * batchSize);
+                    inputs[i] = values;
+                    break;
+                }
+                case CHAR:
+                case VARCHAR:
+                case STRING: {
+                    int[] offsets = new int[batchSize];
+                    UdfUtils.copyMemory(null, UdfUtils.UNSAFE.getLong(null,
+                            UdfUtils.getAddressAtOffset(inputOffsetsPtrs, i)), offsets, UdfUtils.INT_ARRAY_OFFSET,
+                            4L * batchSize);
+                    byte[] chars = new byte[batchSize == 0 ? 0 : offsets[batchSize - 1]];
+                    UdfUtils.copyMemory(null, base, chars, UdfUtils.BYTE_ARRAY_OFFSET, chars.length);
+                    String[] values = new String[batchSize];
+                    int start = 0;
+                    for (int row = 0; row < batchSize; ++row) {
+                        values[row] = new String(chars, start, offsets[row] - start, StandardCharsets.UTF_8);
+                        start = offsets[row];
+                    }
+                    inputs[i] = values;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unsupported batch argument type: " + argTypes[i]);
+            }
+        }
+        return inputs;
+    }
+
+    // Copies a primitive result array straight into the output column, no value of it can be null.
+    private void storePrimitiveBatchResult(Object result, int batchSize) {
+        long nullMap = UdfUtils.UNSAFE.getLong(null, outputNullPtr);
+        if (nullMap != -1) {
+            UdfUtils.UNSAFE.setMemory(nullMap, batchSize, (byte) 0);
+        }
+        long base = UdfUtils.UNSAFE.getLong(null, outputBufferPtr);
+        long numBytes = (long) retType.getLen() * batchSize;
+        switch (retType) {
+            case BOOLEAN:
+                UdfUtils.copyMemory(result, UdfUtils.BOOLEAN_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            case TINYINT:
+                UdfUtils.copyMemory(result, UdfUtils.BYTE_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            case SMALLINT:
+                UdfUtils.copyMemory(result, UdfUtils.SHORT_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            case INT:
+                UdfUtils.copyMemory(result, UdfUtils.INT_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            case BIGINT:
+                UdfUtils.copyMemory(result, UdfUtils.LONG_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            case FLOAT:
+                UdfUtils.copyMemory(result, UdfUtils.FLOAT_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            case DOUBLE:
+                UdfUtils.copyMemory(result, UdfUtils.DOUBLE_ARRAY_OFFSET, null, base, numBytes);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported batch return type: " + retType);
+        }
+    }
+
     public Method getMethod() {
         return method;
     }
 
+    public Method getBatchMethod() {
+        return batchMethod;
+    }
+
+    // Used by benchmarks to compare against plain reflective dispatch
+    void disableMethodHandle() {
+        methodHandle = null;
+    }
+
+    // Used by benchmarks to compare against row-by-row evaluation
+    void disableBatch() {
+        batchMethodHandle = null;
+    }
+
     // Sets the result object 'obj' into the outputBufferPtr and outputNullPtr_
     @Override
     protected boolean storeUdfResult(Object obj, long row, Class retClass) throws UdfRuntimeException {
@@ -199,6 +392,7 @@ public class UdfExecutor extends BaseExecutor {
                         retType = returnType.second;
                     }
                     argTypes = new JavaUdfDataType[0];
+                    initDispatch(c);
                     LOG.debug("Loaded UDF '" + className + "' from " + jarPath);
                     return;
                 }
@@ -214,6 +408,7 @@ public class UdfExecutor extends BaseExecutor {
                 } else {
                     argTypes = inputType.second;
                 }
+                initDispatch(c);
                 LOG.debug("Loaded UDF '" + className + "' from " + jarPath);
                 return;
             }
@@ -242,4 +437,81 @@ public class UdfExecutor extends BaseExecutor {
             throw new UdfRuntimeException("Unable to call create UDF instance.", e);
         }
     }
+
+    // Resolves method handles for `evaluate` and the optional `evaluateBatch`. Method handles are
+    // preferred over Method.invoke() because access checks and argument unboxing are resolved once.
+    private void initDispatch(Class<?> c) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        methodHandle = toSpreadHandle(lookup, method);
+        batchMethod = null;
+        batchMethodHandle = null;
+        if (argTypes.length == 0) {
+            return;
+        }
+        for (Method m : c.getMethods()) {
+            if (m.getName().equals(UDF_BATCH_FUNCTION_NAME) && isBatchSignature(m)) {
+                MethodHandle handle = toSpreadHandle(lookup, m);
+                if (handle != null) {
+                    batchMethod = m;
+                    batchMethodHandle = handle;
+                }
+                return;
+            }
+        }
+    }
+
+    private MethodHandle toSpreadHandle(MethodHandles.Lookup lookup, Method m) {
+        try {
+            return lookup.unreflect(m).bindTo(udf)
+                    .asSpreader(Object[].class, m.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            LOG.warn("Unable to create method handle for " + m.toGenericString() + ", fallback to reflection", e);
+            return null;
+        }
+    }
+
+    // `evaluateBatch` must take one array per argument and return an array, e.g.
+    // `long[] evaluateBatch(int[] a, long[] b)` or `String[] evaluateBatch(String[] s)`. Fixed-width results
+    // may be returned as boxed arrays to produce null values.
+    private boolean isBatchSignature(Method m) {
+        Class<?>[] params = m.getParameterTypes();
+        if (params.length != argTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < params.length; ++i) {
+            Class<?> component = batchComponentType(argTypes[i]);
+            if (component == null || params[i].getComponentType() != component) {
+                return false;
+            }
+        }
+        Class<?> component = batchComponentType(retType);
+        Class<?> retComponent = m.getReturnType().getComponentType();
+        return component != null && (retComponent == component || retComponent == Primitives.wrap(component));
+    }
+
+    private static Class<?> batchComponentType(JavaUdfDataType type) {
+        switch (type) {
+            case BOOLEAN:
+                return boolean.class;
+            case TINYINT:
+                return byte.class;
+            case SMALLINT:
+                return short.class;
+            case INT:
+                return int.class;
+            case BIGINT:
+                return long.class;
+            case FLOAT:
+                return float.class;
+            case DOUBLE:
+                return double.class;
+            case CHAR:
+            case VARCHAR:
+            case STRING:
+                return String.class;
+            default:
+                return null;
+        }
+    }
 }
@@ -0,0 +1,311 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import org.apache.doris.thrift.TPrimitiveType;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+public class JdbcBatchWriterTest {
+    // Records what a writer does on a connection
+    private static class FakeConnection {
+        private final List<String> preparedSql = new ArrayList<>();
+        // Parameters of every added row, in order of addBatch()
+        private final List<List<Object>> batchedRows = new ArrayList<>();
+        private final List<Integer> executedBatchSizes = new ArrayList<>();
+        private final List<Integer> committedRows = new ArrayList<>();
+        private boolean autoCommit;
+        private boolean failBatch = false;
+        private boolean closed = false;
+        private int pendingRows = 0;
+
+        FakeConnection(boolean autoCommit) {
+            this.autoCommit = autoCommit;
+        }
+
+        private PreparedStatement createStatement() {
+            List<Object> params = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setObject":
+                                params.add(args[1]);
+                                return null;
+                            case "setNull":
+                                params.add(null);
+                                return null;
+                            case "addBatch":
+                                batchedRows.add(new ArrayList<>(params));
+                                params.clear();
+                                pendingRows++;
+                                return null;
+                            case "executeBatch":
+                                if (failBatch) {
+                                    throw new SQLException("duplicate key");
+                                }
+                                executedBatchSizes.add(pendingRows);
+                                pendingRows = 0;
+                                return new int[0];
+                            case "close":
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        Connection create() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                return autoCommit;
+                            case "setAutoCommit":
+                                autoCommit = (Boolean) args[0];
+                                return null;
+                            case "commit":
+                                committedRows.add(batchedRows.size());
+                                return null;
+                            case "rollback":
+                                return null;
+                            case "prepareStatement":
+                                preparedSql.add((String) args[0]);
+                                return createStatement();
+                            case "close":
+                                closed = true;
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    // A data source whose driver opens the fake connections
+    private static DruidDataSource createDataSource(List<FakeConnection> opened) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setUrl("jdbc:fake://127.0.0.1/db");
+        dataSource.setUsername("root");
+        dataSource.setPassword("");
+        dataSource.setMaxActive(1);
+        dataSource.setDriver((Driver) Proxy.newProxyInstance(Driver.class.getClassLoader(),
+                new Class[] {Driver.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("connect")) {
+                        Assert.assertEquals("jdbc:fake://127.0.0.1/db", args[0]);
+                        Assert.assertEquals("root", ((Properties) args[1]).getProperty("user"));
+                        FakeConnection conn = new FakeConnection(true);
+                        synchronized (opened) {
+                            opened.add(conn);
+                        }
+                        return conn.create();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        return dataSource;
+    }
+
+    private static long createIntColumn(int start, int numRows) {
+        long column = UdfUtils.UNSAFE.allocateMemory(4L * numRows);
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putInt(column + 4L * i, start + i);
+        }
+        return column;
+    }
+
+    private static List<Integer> writtenValues(List<FakeConnection> conns) {
+        List<Integer> values = new ArrayList<>();
+        for (FakeConnection conn : conns) {
+            for (List<Object> row : conn.batchedRows) {
+                values.add((Integer) row.get(0));
+            }
+        }
+        Collections.sort(values);
+        return values;
+    }
+
+    private static JdbcBatchWriter createIntWriter(DruidDataSource dataSource, FakeConnection conn, int batchSize,
+            int commitInterval, int parallelism) throws UdfRuntimeException {
+        return new JdbcBatchWriter(dataSource, conn.create(), null, "t", null,
+                new int[] {TPrimitiveType.INT.getValue()}, new int[] {0}, batchSize, commitInterval, parallelism,
+                false);
+    }
+
+    @Test
+    public void testBatchedInsert() throws Exception {
+        int numRows = 3;
+        long intNullMap = UdfUtils.UNSAFE.allocateMemory(numRows);
+        long intColumn = UdfUtils.UNSAFE.allocateMemory(4L * numRows);
+        byte[] chars = "abcdef".getBytes(StandardCharsets.UTF_8);
+        long stringChars = UdfUtils.UNSAFE.allocateMemory(chars.length);
+        long stringOffsets = UdfUtils.UNSAFE.allocateMemory(4L * numRows);
+        UdfUtils.copyMemory(chars, UdfUtils.BYTE_ARRAY_OFFSET, null, stringChars, chars.length);
+        int[] ends = new int[] {1, 3, 6};
+        for (int i = 0; i < numRows; i++) {
+            UdfUtils.UNSAFE.putByte(intNullMap + i, (byte) (i == 1 ? 1 : 0));
+            UdfUtils.UNSAFE.putInt(intColumn + 4L * i, i * 10);
+            UdfUtils.UNSAFE.putInt(stringOffsets + 4L * i, ends[i]);
+        }
+
+        FakeConnection conn = new FakeConnection(true);
+        JdbcBatchWriter writer = new JdbcBatchWriter(null, conn.create(), null, "t", new String[] {"k", "v"},
+                new int[] {TPrimitiveType.INT.getValue(), TPrimitiveType.STRING.getValue()}, new int[] {0, 0},
+                2, 0, 1, false);
+        writer.write(numRows, new long[] {intNullMap, 0}, new long[] {intColumn, stringChars},
+                new long[] {0, stringOffsets});
+        writer.finish();
+        writer.close();
+
+        Assert.assertEquals(Arrays.asList("INSERT INTO t (k, v) VALUES (?, ?)"), conn.preparedSql);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(0, "a"), Arrays.asList(null, "bc"),
+                Arrays.asList(20, "def")), conn.batchedRows);
+        Assert.assertEquals(Arrays.asList(2, 1), conn.executedBatchSizes);
+        // the connection of the executor is kept open
+        Assert.assertFalse(conn.closed);
+
+        UdfUtils.UNSAFE.freeMemory(intNullMap);
+        UdfUtils.UNSAFE.freeMemory(intColumn);
+        UdfUtils.UNSAFE.freeMemory(stringChars);
+        UdfUtils.UNSAFE.freeMemory(stringOffsets);
+    }
+
+    @Test
+    public void testParallelWriters() throws Exception {
+        List<FakeConnection> opened = new ArrayList<>();
+        DruidDataSource dataSource = createDataSource(opened);
+        FakeConnection conn = new FakeConnection(true);
+        JdbcBatchWriter writer = createIntWriter(dataSource, conn, 2, 0, 3);
+        // the extra connections are opened by the driver, the shared pool is not resized
+        Assert.assertEquals(2, opened.size());
+        Assert.assertEquals(1, dataSource.getMaxActive());
+
+        long block1 = createIntColumn(0, 7);
+        long block2 = createIntColumn(7, 2);
+        // 7 rows are split into chunks of 3, 3 and 1 rows, one for each writer
+        writer.write(7, new long[] {0}, new long[] {block1}, new long[] {0});
+        // a small block goes to the first writer again
+        writer.write(2, new long[] {0}, new long[] {block2}, new long[] {0});
+        writer.finish();
+        writer.close();
+
+        List<FakeConnection> all = new ArrayList<>(opened);
+        all.add(0, conn);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            expected.add(i);
+        }
+        Assert.assertEquals(expected, writtenValues(all));
+        Assert.assertEquals(Arrays.asList(2, 1, 2), conn.executedBatchSizes);
+        Assert.assertEquals(Arrays.asList(2, 1), opened.get(0).executedBatchSizes);
+        Assert.assertEquals(Arrays.asList(1), opened.get(1).executedBatchSizes);
+        // only the connections opened by the writer are closed
+        Assert.assertFalse(conn.closed);
+        Assert.assertTrue(opened.get(0).closed);
+        Assert.assertTrue(opened.get(1).closed);
+
+        UdfUtils.UNSAFE.freeMemory(block1);
+        UdfUtils.UNSAFE.freeMemory(block2);
+    }
+
+    @Test
+    public void testCommitInterval() throws Exception {
+        FakeConnection conn = new FakeConnection(true);
+        JdbcBatchWriter writer = createIntWriter(null, conn, 10, 2, 1);
+        Assert.assertFalse(conn.autoCommit);
+
+        long column = createIntColumn(0, 3);
+        writer.write(3, new long[] {0}, new long[] {column}, new long[] {0});
+        Assert.assertEquals(Arrays.asList(3), conn.committedRows);
+        writer.write(1, new long[] {0}, new long[] {column}, new long[] {0});
+        Assert.assertEquals(Arrays.asList(3), conn.committedRows);
+        // the rows less than the interval are committed by finish()
+        writer.finish();
+        Assert.assertEquals(Arrays.asList(3, 4), conn.committedRows);
+        writer.close();
+        // the connection of the executor is given back in auto commit
+        Assert.assertTrue(conn.autoCommit);
+        Assert.assertFalse(conn.closed);
+
+        UdfUtils.UNSAFE.freeMemory(column);
+    }
+
+    @Test
+    public void testInTransaction() throws Exception {
+        List<FakeConnection> opened = new ArrayList<>();
+        // the BE opened a transaction on the connection
+        FakeConnection conn = new FakeConnection(false);
+        JdbcBatchWriter writer = createIntWriter(createDataSource(opened), conn, 2, 2, 3);
+        // a single writer on the connection of the transaction, which never commits
+        Assert.assertTrue(opened.isEmpty());
+
+        long column = createIntColumn(0, 5);
+        writer.write(5, new long[] {0}, new long[] {column}, new long[] {0});
+        writer.finish();
+        writer.close();
+        Assert.assertEquals(Arrays.asList(2, 2, 1), conn.executedBatchSizes);
+        Assert.assertTrue(conn.committedRows.isEmpty());
+        Assert.assertFalse(conn.autoCommit);
+
+        UdfUtils.UNSAFE.freeMemory(column);
+    }
+
+    @Test
+    public void testParallelWriterError() throws Exception {
+        List<FakeConnection> opened = new ArrayList<>();
+        FakeConnection conn = new FakeConnection(true);
+        JdbcBatchWriter writer = createIntWriter(createDataSource(opened), conn, 2, 0, 2);
+        opened.get(0).failBatch = true;
+
+        long column = createIntColumn(0, 4);
+        writer.write(4, new long[] {0}, new long[] {column}, new long[] {0});
+        try {
+            writer.finish();
+            Assert.fail("the error of a writer should be thrown");
+        } catch (UdfRuntimeException e) {
+            Assert.assertEquals("duplicate key", e.getCause().getCause().getMessage());
+        }
+        writer.close();
+        Assert.assertTrue(opened.get(0).closed);
+
+        UdfUtils.UNSAFE.freeMemory(column);
+    }
+
+    @Test
+    public void testCopyValue() {
+        StringBuilder sb = new StringBuilder();
+        JdbcBatchWriter.appendCopyValue(sb, null);
+        sb.append('|');
+        JdbcBatchWriter.appendCopyValue(sb, true);
+        sb.append('|');
+        JdbcBatchWriter.appendCopyValue(sb, "a\tb\\c\n");
+        Assert.assertEquals("\\N|t|a\\tb\\\\c\\n", sb.toString());
+    }
+}
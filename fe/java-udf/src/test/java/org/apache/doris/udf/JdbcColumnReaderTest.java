@@ -0,0 +1,115 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+public class JdbcColumnReaderTest {
+
+    // A single column result set positioned on the given value, null means SQL NULL
+    private static ResultSet resultSetOf(Object value) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[] {ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "wasNull":
+                            return value == null;
+                        case "getBoolean":
+                            return value != null && (Boolean) value;
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getFloat":
+                            return value == null ? 0f : ((Number) value).floatValue();
+                        case "getDouble":
+                            return value == null ? 0d : ((Number) value).doubleValue();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testLongReader() throws Exception {
+        Integer[] values = new Integer[] {1, null, -3, Integer.MAX_VALUE};
+        JdbcColumnReader reader = JdbcColumnReader.create("java.lang.Integer", 1, values.length);
+        for (int i = 0; i < values.length; i++) {
+            reader.read(resultSetOf(values[i]), i);
+        }
+
+        long nullMap = UdfUtils.UNSAFE.allocateMemory(values.length);
+        long intColumn = UdfUtils.UNSAFE.allocateMemory(4L * values.length);
+        long longColumn = UdfUtils.UNSAFE.allocateMemory(8L * values.length);
+        reader.copyToInt(true, values.length, nullMap, intColumn);
+        reader.copyToLong(false, values.length, 0, longColumn);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(values[i] == null ? 1 : 0, UdfUtils.UNSAFE.getByte(nullMap + i));
+            if (values[i] != null) {
+                Assert.assertEquals(values[i].intValue(), UdfUtils.UNSAFE.getInt(intColumn + 4L * i));
+                Assert.assertEquals(values[i].longValue(), UdfUtils.UNSAFE.getLong(longColumn + 8L * i));
+            }
+        }
+        // boxed the same way as ResultSet.getObject()
+        Assert.assertArrayEquals(values, reader.toObjects(values.length));
+        UdfUtils.UNSAFE.freeMemory(nullMap);
+        UdfUtils.UNSAFE.freeMemory(intColumn);
+        UdfUtils.UNSAFE.freeMemory(longColumn);
+    }
+
+    @Test
+    public void testDoubleAndBooleanReader() throws Exception {
+        Float[] floats = new Float[] {1.5f, null, -0.1f};
+        JdbcColumnReader floatReader = JdbcColumnReader.create("java.lang.Float", 1, floats.length);
+        Boolean[] booleans = new Boolean[] {true, false, null};
+        JdbcColumnReader booleanReader = JdbcColumnReader.create("java.lang.Boolean", 1, booleans.length);
+        for (int i = 0; i < floats.length; i++) {
+            floatReader.read(resultSetOf(floats[i]), i);
+            booleanReader.read(resultSetOf(booleans[i]), i);
+        }
+
+        long nullMap = UdfUtils.UNSAFE.allocateMemory(floats.length);
+        long floatColumn = UdfUtils.UNSAFE.allocateMemory(4L * floats.length);
+        floatReader.copyToFloat(true, floats.length, nullMap, floatColumn);
+        for (int i = 0; i < floats.length; i++) {
+            Assert.assertEquals(floats[i] == null ? 1 : 0, UdfUtils.UNSAFE.getByte(nullMap + i));
+            if (floats[i] != null) {
+                Assert.assertEquals(floats[i], UdfUtils.UNSAFE.getFloat(floatColumn + 4L * i), 0);
+            }
+        }
+        Assert.assertArrayEquals(floats, floatReader.toObjects(floats.length));
+
+        long booleanColumn = UdfUtils.UNSAFE.allocateMemory(booleans.length);
+        booleanReader.copyToBoolean(true, booleans.length, nullMap, booleanColumn);
+        Assert.assertEquals(1, UdfUtils.UNSAFE.getByte(booleanColumn));
+        Assert.assertEquals(0, UdfUtils.UNSAFE.getByte(booleanColumn + 1));
+        Assert.assertEquals(1, UdfUtils.UNSAFE.getByte(nullMap + 2));
+        Assert.assertArrayEquals(booleans, booleanReader.toObjects(booleans.length));
+        UdfUtils.UNSAFE.freeMemory(nullMap);
+        UdfUtils.UNSAFE.freeMemory(floatColumn);
+        UdfUtils.UNSAFE.freeMemory(booleanColumn);
+    }
+
+    @Test
+    public void testUnsupportedColumn() {
+        Assert.assertNull(JdbcColumnReader.create("java.math.BigDecimal", 1, 16));
+        Assert.assertNull(JdbcColumnReader.create("java.lang.String", 1, 16));
+        Assert.assertNull(JdbcColumnReader.create(null, 1, 16));
+    }
+}
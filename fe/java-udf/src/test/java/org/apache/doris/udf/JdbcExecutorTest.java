@@ -0,0 +1,206 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class JdbcExecutorTest {
+    // A result set of numRows rows (i, "v" + i), the first column is read by a JdbcColumnReader
+    // and the second one by getObject()
+    private static class FakeResultSet {
+        private final int numRows;
+        private int cursor = -1;
+        private int nextCalls = 0;
+        private volatile boolean closed = false;
+        // next() to the row blockAtRow waits for release
+        private int blockAtRow = -1;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        FakeResultSet(int numRows) {
+            this.numRows = numRows;
+        }
+
+        private ResultSetMetaData createMetaData() {
+            return (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                    new Class[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getColumnCount":
+                                return 2;
+                            case "getColumnClassName":
+                                return (Integer) args[0] == 1 ? "java.lang.Integer" : "java.lang.String";
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        ResultSet create() {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class[] {ResultSet.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                Assert.assertFalse(closed);
+                                nextCalls++;
+                                if (cursor + 1 == blockAtRow) {
+                                    blocked.countDown();
+                                    release.await();
+                                    events.add("fetched");
+                                }
+                                cursor = Math.min(cursor + 1, numRows);
+                                return cursor < numRows;
+                            case "getMetaData":
+                                return createMetaData();
+                            case "getLong":
+                                return (long) cursor;
+                            case "wasNull":
+                                return false;
+                            case "getObject":
+                                return "v" + cursor;
+                            case "close":
+                                events.add("closed");
+                                closed = true;
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private static JdbcExecutor createExecutor(FakeResultSet resultSet, int batchSize) throws Exception {
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeQuery":
+                            return resultSet.create();
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        JdbcExecutor executor = new JdbcExecutor(stmt, batchSize);
+        Assert.assertEquals(2, executor.read());
+        return executor;
+    }
+
+    // Reads all blocks with getBlock(batchSize), returns the first column of every block
+    private static List<List<Object>> readBlocks(JdbcExecutor executor, int batchSize) throws Exception {
+        List<List<Object>> blocks = new ArrayList<>();
+        while (executor.hasNext()) {
+            List<Object> block = executor.getBlock(batchSize);
+            int rows = executor.getCurBlockRows();
+            Object[] ints = ((JdbcColumnReader) block.get(0)).toObjects(rows);
+            Object[] strings = (Object[]) block.get(1);
+            for (int i = 0; i < rows; i++) {
+                Assert.assertEquals("v" + ints[i], strings[i]);
+            }
+            blocks.add(Arrays.asList(ints));
+        }
+        return blocks;
+    }
+
+    @Test
+    public void testExhausted() throws Exception {
+        FakeResultSet resultSet = new FakeResultSet(7);
+        JdbcExecutor executor = createExecutor(resultSet, 3);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5),
+                Collections.singletonList(6)), readBlocks(executor, 3));
+        // the last fetch read less rows than the batch size, so the result set is not read again
+        Assert.assertEquals(8, resultSet.nextCalls);
+        Assert.assertFalse(executor.hasNext());
+        Assert.assertEquals(8, resultSet.nextCalls);
+        executor.close();
+        Assert.assertTrue(resultSet.closed);
+    }
+
+    @Test
+    public void testRowsMultipleOfBatchSize() throws Exception {
+        FakeResultSet resultSet = new FakeResultSet(6);
+        JdbcExecutor executor = createExecutor(resultSet, 3);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5)),
+                readBlocks(executor, 3));
+        // a full last block needs one more fetch to find the end
+        Assert.assertEquals(0, executor.getCurBlockRows());
+        Assert.assertFalse(executor.hasNext());
+        executor.close();
+    }
+
+    @Test
+    public void testEmptyResult() throws Exception {
+        FakeResultSet resultSet = new FakeResultSet(0);
+        JdbcExecutor executor = createExecutor(resultSet, 3);
+        Assert.assertTrue(readBlocks(executor, 3).isEmpty());
+        Assert.assertEquals(1, resultSet.nextCalls);
+        executor.close();
+    }
+
+    @Test
+    public void testSmallerBatchSize() throws Exception {
+        FakeResultSet resultSet = new FakeResultSet(5);
+        JdbcExecutor executor = createExecutor(resultSet, 4);
+        // the first block is fetched with 4 rows, getBlock() returns at most 2 of them
+        Assert.assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(2, 3), Collections.singletonList(4)),
+                readBlocks(executor, 2));
+        executor.close();
+    }
+
+    @Test
+    public void testCloseWithPendingPrefetch() throws Exception {
+        FakeResultSet resultSet = new FakeResultSet(10);
+        resultSet.blockAtRow = 3;
+        JdbcExecutor executor = createExecutor(resultSet, 3);
+        Assert.assertTrue(executor.hasNext());
+        executor.getBlock(3);
+        // the prefetch of the next block is reading the result set
+        Assert.assertTrue(resultSet.blocked.await(10, TimeUnit.SECONDS));
+
+        Thread closer = new Thread(() -> {
+            try {
+                executor.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        closer.start();
+        closer.join(200);
+        Assert.assertTrue(closer.isAlive());
+        Assert.assertFalse(resultSet.closed);
+
+        resultSet.release.countDown();
+        closer.join(10000);
+        Assert.assertFalse(closer.isAlive());
+        // the result set is closed only after the prefetch finished
+        Assert.assertEquals(Arrays.asList("fetched", "closed"), resultSet.events);
+    }
+}
@@ -0,0 +1,57 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class SimpleSumUdaf {
+    public static class State {
+        public long sum = 0;
+    }
+
+    public State create() {
+        return new State();
+    }
+
+    public void destroy(State state) {
+    }
+
+    public void add(State state, Integer val) {
+        if (val != null) {
+            state.sum += val;
+        }
+    }
+
+    public void serialize(State state, DataOutputStream out) throws IOException {
+        out.writeLong(state.sum);
+    }
+
+    public void deserialize(State state, DataInputStream in) throws IOException {
+        state.sum = in.readLong();
+    }
+
+    public void merge(State state, State rhs) {
+        state.sum += rhs.sum;
+    }
+
+    public Long getValue(State state) {
+        return state.sum;
+    }
+}
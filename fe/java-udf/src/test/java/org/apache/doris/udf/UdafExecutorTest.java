@@ -0,0 +1,158 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import org.apache.doris.thrift.TAggregateFunction;
+import org.apache.doris.thrift.TFunction;
+import org.apache.doris.thrift.TFunctionBinaryType;
+import org.apache.doris.thrift.TFunctionName;
+import org.apache.doris.thrift.TJavaUdfExecutorCtorParams;
+import org.apache.doris.thrift.TPrimitiveType;
+import org.apache.doris.thrift.TScalarType;
+import org.apache.doris.thrift.TTypeDesc;
+import org.apache.doris.thrift.TTypeNode;
+import org.apache.doris.thrift.TTypeNodeType;
+
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+
+public class UdafExecutorTest {
+    private static final long PLACE_1 = 4096L;
+    private static final long PLACE_2 = 8192L;
+
+    private long outputBuffer;
+    // the places buffer of the last created executor
+    private long places;
+
+    @Test
+    public void testAddAndGetValue() throws Exception {
+        int batchSize = 10;
+        UdafExecutor executor = createSumExecutor(batchSize);
+        executor.add(false, 0, batchSize);
+        Assert.assertTrue(executor.getValue(0, PLACE_1));
+        Assert.assertTrue(executor.getValue(1, PLACE_2));
+        // even rows go to PLACE_1, odd rows to PLACE_2
+        Assert.assertEquals(20L, UdfUtils.UNSAFE.getLong(outputBuffer));
+        Assert.assertEquals(25L, UdfUtils.UNSAFE.getLong(outputBuffer + 8));
+
+        // all rows are added to the first place in single place mode
+        executor.add(true, 0, batchSize);
+        Assert.assertTrue(executor.getValue(0, PLACE_1));
+        Assert.assertEquals(65L, UdfUtils.UNSAFE.getLong(outputBuffer));
+        executor.destroy();
+        executor.close();
+    }
+
+    @Test
+    public void testSerializeAndMerge() throws Exception {
+        int batchSize = 10;
+        UdafExecutor executor = createSumExecutor(batchSize);
+        executor.add(false, 0, batchSize);
+
+        UdafExecutor mergeExecutor = createSumExecutor(batchSize);
+        mergeExecutor.merge(PLACE_1, executor.serialize(PLACE_1));
+        mergeExecutor.merge(PLACE_1, executor.serialize(PLACE_1));
+        mergeExecutor.merge(PLACE_2, executor.serialize(PLACE_2));
+        Assert.assertTrue(mergeExecutor.getValue(0, PLACE_1));
+        Assert.assertTrue(mergeExecutor.getValue(1, PLACE_2));
+        Assert.assertEquals(40L, UdfUtils.UNSAFE.getLong(outputBuffer));
+        Assert.assertEquals(25L, UdfUtils.UNSAFE.getLong(outputBuffer + 8));
+        executor.destroy();
+        mergeExecutor.destroy();
+    }
+
+    @Test
+    public void testSerializeAllAndMergeAll() throws Exception {
+        int batchSize = 10;
+        UdafExecutor executor = createSumExecutor(batchSize);
+        executor.add(false, 0, batchSize);
+        byte[] states = executor.serializeAll(2);
+        // the length of each state precedes it
+        byte[] state1 = executor.serialize(PLACE_1);
+        Assert.assertEquals(8 + state1.length + executor.serialize(PLACE_2).length, states.length);
+        Assert.assertEquals(state1.length, ByteBuffer.wrap(states).order(ByteOrder.LITTLE_ENDIAN).getInt());
+
+        // the states are merged into the places in the same positions of the places buffer
+        UdafExecutor mergeExecutor = createSumExecutor(batchSize);
+        UdfUtils.UNSAFE.putLong(places, PLACE_2);
+        UdfUtils.UNSAFE.putLong(places + 8, PLACE_1);
+        mergeExecutor.mergeAll(states, 2);
+        mergeExecutor.mergeAll(states, 1);
+        Assert.assertTrue(mergeExecutor.getValue(0, PLACE_1));
+        Assert.assertTrue(mergeExecutor.getValue(1, PLACE_2));
+        Assert.assertEquals(25L, UdfUtils.UNSAFE.getLong(outputBuffer));
+        Assert.assertEquals(40L, UdfUtils.UNSAFE.getLong(outputBuffer + 8));
+        executor.destroy();
+        mergeExecutor.destroy();
+    }
+
+    private UdafExecutor createSumExecutor(int batchSize) throws Exception {
+        TAggregateFunction aggregateFunction = new TAggregateFunction();
+        aggregateFunction.symbol = "org.apache.doris.udf.SimpleSumUdaf";
+
+        TFunction fn = new TFunction();
+        fn.binary_type = TFunctionBinaryType.JAVA_UDF;
+        TTypeNode argNode = new TTypeNode(TTypeNodeType.SCALAR);
+        argNode.scalar_type = new TScalarType(TPrimitiveType.INT);
+        fn.arg_types = Collections.singletonList(new TTypeDesc(Collections.singletonList(argNode)));
+        TTypeNode retNode = new TTypeNode(TTypeNodeType.SCALAR);
+        retNode.scalar_type = new TScalarType(TPrimitiveType.BIGINT);
+        fn.ret_type = new TTypeDesc(Collections.singletonList(retNode));
+        aggregateFunction.intermediate_type = fn.ret_type;
+        fn.aggregate_fn = aggregateFunction;
+        fn.name = new TFunctionName("SimpleSum");
+
+        TJavaUdfExecutorCtorParams params = new TJavaUdfExecutorCtorParams();
+        params.setFn(fn);
+
+        long outputBufferPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long outputNullPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        outputBuffer = UdfUtils.UNSAFE.allocateMemory(8 * 2);
+        UdfUtils.UNSAFE.putLong(outputBufferPtr, outputBuffer);
+        UdfUtils.UNSAFE.putLong(outputNullPtr, UdfUtils.UNSAFE.allocateMemory(2));
+        params.setOutputBufferPtr(outputBufferPtr);
+        params.setOutputNullPtr(outputNullPtr);
+
+        long inputBufferPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long inputNullPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long inputBuffer = UdfUtils.UNSAFE.allocateMemory(4 * batchSize);
+        UdfUtils.UNSAFE.putLong(inputBufferPtr, inputBuffer);
+        UdfUtils.UNSAFE.putLong(inputNullPtr, -1);
+
+        long inputPlacesPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        places = UdfUtils.UNSAFE.allocateMemory(8 * batchSize);
+        UdfUtils.UNSAFE.putLong(inputPlacesPtr, places);
+        for (int i = 0; i < batchSize; i++) {
+            UdfUtils.UNSAFE.putInt(inputBuffer + 4L * i, i);
+            UdfUtils.UNSAFE.putLong(places + 8L * i, i % 2 == 0 ? PLACE_1 : PLACE_2);
+        }
+        params.setInputBufferPtrs(inputBufferPtr);
+        params.setInputNullsPtrs(inputNullPtr);
+        params.setInputOffsetsPtrs(0);
+        params.setInputPlacesPtr(inputPlacesPtr);
+
+        TSerializer serializer = new TSerializer(new TBinaryProtocol.Factory());
+        return new UdafExecutor(serializer.serialize(params));
+    }
+}
@@ -0,0 +1,160 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.udf;
+
+import org.apache.doris.thrift.TFunction;
+import org.apache.doris.thrift.TFunctionBinaryType;
+import org.apache.doris.thrift.TFunctionName;
+import org.apache.doris.thrift.TJavaUdfExecutorCtorParams;
+import org.apache.doris.thrift.TPrimitiveType;
+import org.apache.doris.thrift.TScalarFunction;
+import org.apache.doris.thrift.TScalarType;
+import org.apache.doris.thrift.TTypeDesc;
+import org.apache.doris.thrift.TTypeNode;
+import org.apache.doris.thrift.TTypeNodeType;
+
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the dispatch modes of {@link UdfExecutor} on a two column INT batch:
+ * per-row Method.invoke(), per-row MethodHandle and the vectorized evaluateBatch().
+ * Run it with the test classpath, e.g. from an IDE or
+ * `java -cp <test-classpath> org.apache.doris.udf.UdfExecutorBenchmark`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UdfExecutorBenchmark {
+    @Param({"reflection", "method_handle", "batch"})
+    public String mode;
+
+    @Param({"4096"})
+    public int batchSize;
+
+    private final List<Long> allocated = new ArrayList<>();
+    private UdfExecutor executor;
+
+    @Setup
+    public void setup() throws Exception {
+        TScalarFunction scalarFunction = new TScalarFunction();
+        scalarFunction.symbol = "org.apache.doris.udf.BatchAddUdf";
+
+        TFunction fn = new TFunction();
+        fn.binary_type = TFunctionBinaryType.JAVA_UDF;
+        TTypeNode typeNode = new TTypeNode(TTypeNodeType.SCALAR);
+        typeNode.scalar_type = new TScalarType(TPrimitiveType.INT);
+        TTypeDesc typeDesc = new TTypeDesc(Collections.singletonList(typeNode));
+        fn.ret_type = typeDesc;
+        fn.arg_types = Arrays.asList(typeDesc, typeDesc);
+        fn.scalar_fn = scalarFunction;
+        fn.name = new TFunctionName("BatchAdd");
+
+        long batchSizePtr = allocate(4);
+        UdfUtils.UNSAFE.putInt(batchSizePtr, batchSize);
+
+        TJavaUdfExecutorCtorParams params = new TJavaUdfExecutorCtorParams();
+        params.setBatchSizePtr(batchSizePtr);
+        params.setFn(fn);
+
+        long outputBufferPtr = allocate(8);
+        long outputNullPtr = allocate(8);
+        UdfUtils.UNSAFE.putLong(outputBufferPtr, allocate(4L * batchSize));
+        UdfUtils.UNSAFE.putLong(outputNullPtr, allocate(batchSize));
+        params.setOutputBufferPtr(outputBufferPtr);
+        params.setOutputNullPtr(outputNullPtr);
+
+        int numCols = 2;
+        long inputBufferPtr = allocate(8L * numCols);
+        long inputNullPtr = allocate(8L * numCols);
+        for (int col = 0; col < numCols; col++) {
+            long inputBuffer = allocate(4L * batchSize);
+            long inputNull = allocate(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                UdfUtils.UNSAFE.putInt(inputBuffer + 4L * i, i);
+            }
+            UdfUtils.UNSAFE.setMemory(inputNull, batchSize, (byte) 0);
+            UdfUtils.UNSAFE.putLong(inputBufferPtr + 8L * col, inputBuffer);
+            UdfUtils.UNSAFE.putLong(inputNullPtr + 8L * col, inputNull);
+        }
+        params.setInputBufferPtrs(inputBufferPtr);
+        params.setInputNullsPtrs(inputNullPtr);
+        params.setInputOffsetsPtrs(0);
+
+        TSerializer serializer = new TSerializer(new TBinaryProtocol.Factory());
+        executor = new UdfExecutor(serializer.serialize(params));
+        switch (mode) {
+            case "reflection":
+                executor.disableMethodHandle();
+                executor.disableBatch();
+                break;
+            case "method_handle":
+                executor.disableBatch();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+        for (long address : allocated) {
+            UdfUtils.UNSAFE.freeMemory(address);
+        }
+        allocated.clear();
+    }
+
+    @Benchmark
+    public void evaluate() throws UdfRuntimeException {
+        executor.evaluate();
+    }
+
+    private long allocate(long bytes) {
+        long address = UdfUtils.UNSAFE.allocateMemory(bytes);
+        allocated.add(address);
+        return address;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(UdfExecutorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -40,6 +40,9 @@ import java.util.Arrays;
 import java.util.Collections;
 
 public class UdfExecutorTest {
+    // output column of the executor created by createBatchAddExecutor()
+    private long batchOutputBuffer;
+    private long batchOutputNull;
 
     @Test
     public void testDateTimeUdf() throws Exception {
@@ -483,6 +486,188 @@ public class UdfExecutorTest {
         }
     }
 
+    @Test
+    public void testBatchAddUdf() throws Exception {
+        int batchSize = 10;
+        int batchCalls = BatchAddUdf.batchCalls;
+        UdfExecutor executor = createBatchAddExecutor(batchSize, false);
+        assert (executor.getBatchMethod() != null);
+
+        executor.evaluate();
+        assert (BatchAddUdf.batchCalls == batchCalls + 1);
+        for (int i = 0; i < batchSize; i++) {
+            assert (UdfUtils.UNSAFE.getByte(batchOutputNull + i) == 0);
+            assert (UdfUtils.UNSAFE.getInt(batchOutputBuffer + 4 * i) == i * 3);
+        }
+    }
+
+    @Test
+    public void testBatchAddUdfWithNull() throws Exception {
+        int batchSize = 10;
+        int batchCalls = BatchAddUdf.batchCalls;
+        UdfExecutor executor = createBatchAddExecutor(batchSize, true);
+
+        // batches containing nulls are evaluated row by row
+        executor.evaluate();
+        assert (BatchAddUdf.batchCalls == batchCalls);
+        for (int i = 0; i < batchSize; i++) {
+            if (i % 2 == 0) {
+                assert (UdfUtils.UNSAFE.getByte(batchOutputNull + i) == 1);
+            } else {
+                assert (UdfUtils.UNSAFE.getByte(batchOutputNull + i) == 0);
+                assert (UdfUtils.UNSAFE.getInt(batchOutputBuffer + 4 * i) == i * 3);
+            }
+        }
+    }
+
+    private UdfExecutor createBatchAddExecutor(int batchSize, boolean withNull) throws Exception {
+        TScalarFunction scalarFunction = new TScalarFunction();
+        scalarFunction.symbol = "org.apache.doris.udf.BatchAddUdf";
+
+        TFunction fn = new TFunction();
+        fn.binary_type = TFunctionBinaryType.JAVA_UDF;
+        TTypeNode typeNode = new TTypeNode(TTypeNodeType.SCALAR);
+        typeNode.scalar_type = new TScalarType(TPrimitiveType.INT);
+        TTypeDesc typeDesc = new TTypeDesc(Collections.singletonList(typeNode));
+        fn.ret_type = typeDesc;
+        fn.arg_types = Arrays.asList(typeDesc, typeDesc);
+        fn.scalar_fn = scalarFunction;
+        fn.name = new TFunctionName("BatchAdd");
+
+        long batchSizePtr = UdfUtils.UNSAFE.allocateMemory(4);
+        UdfUtils.UNSAFE.putInt(batchSizePtr, batchSize);
+
+        TJavaUdfExecutorCtorParams params = new TJavaUdfExecutorCtorParams();
+        params.setBatchSizePtr(batchSizePtr);
+        params.setFn(fn);
+
+        long outputBufferPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long outputNullPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        batchOutputBuffer = UdfUtils.UNSAFE.allocateMemory(4 * batchSize);
+        batchOutputNull = UdfUtils.UNSAFE.allocateMemory(batchSize);
+        UdfUtils.UNSAFE.putLong(outputBufferPtr, batchOutputBuffer);
+        UdfUtils.UNSAFE.putLong(outputNullPtr, batchOutputNull);
+
+        params.setOutputBufferPtr(outputBufferPtr);
+        params.setOutputNullPtr(outputNullPtr);
+
+        int numCols = 2;
+        long inputBufferPtr = UdfUtils.UNSAFE.allocateMemory(8 * numCols);
+        long inputNullPtr = UdfUtils.UNSAFE.allocateMemory(8 * numCols);
+
+        long inputBuffer1 = UdfUtils.UNSAFE.allocateMemory(4 * batchSize);
+        long inputNull1 = UdfUtils.UNSAFE.allocateMemory(batchSize);
+        long inputBuffer2 = UdfUtils.UNSAFE.allocateMemory(4 * batchSize);
+
+        UdfUtils.UNSAFE.putLong(inputBufferPtr, inputBuffer1);
+        UdfUtils.UNSAFE.putLong(inputBufferPtr + 8, inputBuffer2);
+        UdfUtils.UNSAFE.putLong(inputNullPtr, inputNull1);
+        // second column is not nullable
+        UdfUtils.UNSAFE.putLong(inputNullPtr + 8, -1);
+
+        for (int i = 0; i < batchSize; i++) {
+            UdfUtils.UNSAFE.putInt(null, inputBuffer1 + i * 4, i);
+            UdfUtils.UNSAFE.putInt(null, inputBuffer2 + i * 4, i * 2);
+            UdfUtils.UNSAFE.putByte(null, inputNull1 + i, (byte) (withNull && i % 2 == 0 ? 1 : 0));
+        }
+        params.setInputBufferPtrs(inputBufferPtr);
+        params.setInputNullsPtrs(inputNullPtr);
+        params.setInputOffsetsPtrs(0);
+
+        TSerializer serializer = new TSerializer(new TBinaryProtocol.Factory());
+        return new UdfExecutor(serializer.serialize(params));
+    }
+
+    @Test
+    public void testBatchStringConcatUdf() throws Exception {
+        TScalarFunction scalarFunction = new TScalarFunction();
+        scalarFunction.symbol = "org.apache.doris.udf.BatchStringConcatUdf";
+
+        TFunction fn = new TFunction();
+        fn.binary_type = TFunctionBinaryType.JAVA_UDF;
+        TTypeNode typeNode = new TTypeNode(TTypeNodeType.SCALAR);
+        typeNode.scalar_type = new TScalarType(TPrimitiveType.STRING);
+        TTypeDesc typeDesc = new TTypeDesc(Collections.singletonList(typeNode));
+        fn.ret_type = typeDesc;
+        // concat the column with itself
+        fn.arg_types = Arrays.asList(typeDesc, typeDesc);
+        fn.scalar_fn = scalarFunction;
+        fn.name = new TFunctionName("BatchStringConcat");
+
+        long batchSizePtr = UdfUtils.UNSAFE.allocateMemory(4);
+        int batchSize = 10;
+        UdfUtils.UNSAFE.putInt(batchSizePtr, batchSize);
+
+        TJavaUdfExecutorCtorParams params = new TJavaUdfExecutorCtorParams();
+        params.setBatchSizePtr(batchSizePtr);
+        params.setFn(fn);
+
+        String[] input = new String[batchSize];
+        int[] inputOffsets = new int[batchSize];
+        int inputBufferSize = 0;
+        for (int i = 0; i < batchSize; i++) {
+            input[i] = "Input_" + i;
+            inputBufferSize += input[i].getBytes(StandardCharsets.UTF_8).length;
+            inputOffsets[i] = inputBufferSize;
+        }
+
+        long outputBufferPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long outputNullPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long outputOffsetsPtr = UdfUtils.UNSAFE.allocateMemory(8);
+        long outputIntermediateStatePtr = UdfUtils.UNSAFE.allocateMemory(8 * 2);
+        long outputBuffer = UdfUtils.UNSAFE.allocateMemory(2L * inputBufferSize);
+        long outputNull = UdfUtils.UNSAFE.allocateMemory(batchSize);
+        long outputOffset = UdfUtils.UNSAFE.allocateMemory(4 * batchSize);
+        UdfUtils.UNSAFE.putLong(outputBufferPtr, outputBuffer);
+        UdfUtils.UNSAFE.putLong(outputNullPtr, outputNull);
+        UdfUtils.UNSAFE.putLong(outputOffsetsPtr, outputOffset);
+        // reserved buffer size
+        UdfUtils.UNSAFE.putLong(outputIntermediateStatePtr, 2L * inputBufferSize);
+        // current row id
+        UdfUtils.UNSAFE.putLong(outputIntermediateStatePtr + 8, 0);
+
+        params.setOutputBufferPtr(outputBufferPtr);
+        params.setOutputNullPtr(outputNullPtr);
+        params.setOutputOffsetsPtr(outputOffsetsPtr);
+        params.setOutputIntermediateStatePtr(outputIntermediateStatePtr);
+
+        int numCols = 2;
+        long inputBufferPtr = UdfUtils.UNSAFE.allocateMemory(8 * numCols);
+        long inputNullPtr = UdfUtils.UNSAFE.allocateMemory(8 * numCols);
+        long inputOffsetsPtr = UdfUtils.UNSAFE.allocateMemory(8 * numCols);
+        long inputBuffer = UdfUtils.UNSAFE.allocateMemory(inputBufferSize);
+        long inputOffset = UdfUtils.UNSAFE.allocateMemory(4 * batchSize);
+        for (int i = 0; i < numCols; i++) {
+            UdfUtils.UNSAFE.putLong(inputBufferPtr + 8 * i, inputBuffer);
+            UdfUtils.UNSAFE.putLong(inputNullPtr + 8 * i, -1);
+            UdfUtils.UNSAFE.putLong(inputOffsetsPtr + 8 * i, inputOffset);
+        }
+        for (int i = 0; i < batchSize; i++) {
+            byte[] bytes = input[i].getBytes(StandardCharsets.UTF_8);
+            UdfUtils.copyMemory(bytes, UdfUtils.BYTE_ARRAY_OFFSET, null,
+                    inputBuffer + inputOffsets[i] - bytes.length, bytes.length);
+            UdfUtils.UNSAFE.putInt(null, inputOffset + 4L * i, inputOffsets[i]);
+        }
+        params.setInputBufferPtrs(inputBufferPtr);
+        params.setInputNullsPtrs(inputNullPtr);
+        params.setInputOffsetsPtrs(inputOffsetsPtr);
+
+        TSerializer serializer = new TSerializer(new TBinaryProtocol.Factory());
+        UdfExecutor executor = new UdfExecutor(serializer.serialize(params));
+        assert (executor.getBatchMethod() != null);
+
+        executor.evaluate();
+        int lastOffset = 0;
+        for (int i = 0; i < batchSize; i++) {
+            int offset = UdfUtils.UNSAFE.getInt(null, outputOffset + 4L * i);
+            byte[] bytes = new byte[offset - lastOffset];
+            UdfUtils.copyMemory(null, outputBuffer + lastOffset, bytes, UdfUtils.BYTE_ARRAY_OFFSET, bytes.length);
+            assert (UdfUtils.UNSAFE.getByte(null, outputNull + i) == 0);
+            assert (new String(bytes, StandardCharsets.UTF_8).equals(input[i] + input[i]));
+            lastOffset = offset;
+        }
+    }
+
     @Test
     public void testLargeIntUdf() throws Exception {
         TScalarFunction scalarFunction = new TScalarFunction();
@@ -0,0 +1,199 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.load.loadv2.dpp;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.spark.sql.catalyst.util.DateTimeUtils;
+import org.apache.spark.sql.execution.datasources.parquet.SparkToParquetSchemaConverter;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.Decimal;
+import org.apache.spark.sql.types.DecimalType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import scala.Tuple2;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Writes the rows of SparkDpp, one Object[] per row, into parquet without converting them to
+// Row and InternalRow first. The rows are still written one at a time through the RecordConsumer
+// of parquet, like spark's ParquetWriteSupport does, only the per row conversion is removed.
+// The file layout is the same as the one of spark's ParquetWriteSupport, including INT96
+// timestamps and the spark schema metadata, so BE reads the files as before.
+public class DppParquetWriteSupport extends WriteSupport<Object[]> {
+    private static final String SPARK_METADATA_KEY = "org.apache.spark.sql.parquet.row.metadata";
+    private static final String OUTPUT_TIMESTAMP_TYPE = "spark.sql.parquet.outputTimestampType";
+    private static final int MAX_INT_DIGITS = 9;
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final StructType schema;
+    private final String[] fieldNames;
+    private final DecimalType[] decimalTypes;
+    private ValueWriter[] valueWriters;
+    private RecordConsumer recordConsumer;
+    // INT96 value of the current timestamp, reused between rows
+    private final byte[] int96Buffer = new byte[12];
+    private byte[] decimalBuffer = null;
+
+    private interface ValueWriter {
+        void write(Object value);
+    }
+
+    public DppParquetWriteSupport(StructType schema) {
+        this.schema = schema;
+        StructField[] fields = schema.fields();
+        this.fieldNames = new String[fields.length];
+        this.decimalTypes = new DecimalType[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldNames[i] = fields[i].name();
+            if (fields[i].dataType() instanceof DecimalType) {
+                decimalTypes[i] = (DecimalType) fields[i].dataType();
+            }
+        }
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        MessageType messageType = new SparkToParquetSchemaConverter(configuration).convert(schema);
+        String timestampType = configuration.get(OUTPUT_TIMESTAMP_TYPE, "INT96");
+        StructField[] fields = schema.fields();
+        valueWriters = new ValueWriter[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            valueWriters[i] = createValueWriter(fields[i].dataType(), timestampType);
+        }
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(SPARK_METADATA_KEY, schema.json());
+        return new WriteContext(messageType, metadata);
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+    }
+
+    @Override
+    public void write(Object[] row) {
+        recordConsumer.startMessage();
+        for (int i = 0; i < valueWriters.length; i++) {
+            Object value = row[i];
+            if (value != null && decimalTypes[i] != null) {
+                value = toDecimal(value, decimalTypes[i]);
+            }
+            // null is written by skipping the field
+            if (value != null) {
+                recordConsumer.startField(fieldNames[i], i);
+                valueWriters[i].write(value);
+                recordConsumer.endField(fieldNames[i], i);
+            }
+        }
+        recordConsumer.endMessage();
+    }
+
+    // same as the row encoder of spark, a decimal which does not fit the column is written as null
+    private static Decimal toDecimal(Object value, DecimalType type) {
+        Decimal decimal = Decimal.apply((BigDecimal) value);
+        return decimal.changePrecision(type.precision(), type.scale()) ? decimal : null;
+    }
+
+    private ValueWriter createValueWriter(DataType dataType, String timestampType) {
+        if (dataType.equals(DataTypes.BooleanType)) {
+            return value -> recordConsumer.addBoolean((Boolean) value);
+        } else if (dataType.equals(DataTypes.ByteType) || dataType.equals(DataTypes.ShortType)
+                || dataType.equals(DataTypes.IntegerType)) {
+            return value -> recordConsumer.addInteger(((Number) value).intValue());
+        } else if (dataType.equals(DataTypes.LongType)) {
+            return value -> recordConsumer.addLong((Long) value);
+        } else if (dataType.equals(DataTypes.FloatType)) {
+            return value -> recordConsumer.addFloat((Float) value);
+        } else if (dataType.equals(DataTypes.DoubleType)) {
+            return value -> recordConsumer.addDouble((Double) value);
+        } else if (dataType.equals(DataTypes.StringType)) {
+            return value -> recordConsumer.addBinary(Binary.fromString((String) value));
+        } else if (dataType.equals(DataTypes.BinaryType)) {
+            return value -> recordConsumer.addBinary(Binary.fromReusedByteArray((byte[]) value));
+        } else if (dataType.equals(DataTypes.DateType)) {
+            return value -> recordConsumer.addInteger(DateTimeUtils.fromJavaDate((java.sql.Date) value));
+        } else if (dataType.equals(DataTypes.TimestampType)) {
+            return createTimestampWriter(timestampType);
+        } else if (dataType instanceof DecimalType) {
+            return createDecimalWriter((DecimalType) dataType);
+        }
+        throw new UnsupportedOperationException("unsupported data type: " + dataType);
+    }
+
+    private ValueWriter createTimestampWriter(String timestampType) {
+        switch (timestampType) {
+            case "TIMESTAMP_MICROS":
+                return value -> recordConsumer.addLong(DateTimeUtils.fromJavaTimestamp((Timestamp) value));
+            case "TIMESTAMP_MILLIS":
+                return value -> recordConsumer.addLong(
+                        DateTimeUtils.fromJavaTimestamp((Timestamp) value) / 1000L);
+            default:
+                return value -> {
+                    Tuple2<Object, Object> julian = DateTimeUtils.toJulianDay(
+                            DateTimeUtils.fromJavaTimestamp((Timestamp) value));
+                    ByteBuffer.wrap(int96Buffer).order(ByteOrder.LITTLE_ENDIAN)
+                            .putLong((Long) julian._2()).putInt((Integer) julian._1());
+                    recordConsumer.addBinary(Binary.fromReusedByteArray(int96Buffer));
+                };
+        }
+    }
+
+    private ValueWriter createDecimalWriter(DecimalType type) {
+        if (type.precision() <= MAX_INT_DIGITS) {
+            return value -> recordConsumer.addInteger((int) ((Decimal) value).toUnscaledLong());
+        } else if (type.precision() <= MAX_LONG_DIGITS) {
+            return value -> recordConsumer.addLong(((Decimal) value).toUnscaledLong());
+        }
+        // FIXED_LEN_BYTE_ARRAY of the unscaled value, big endian and sign extended
+        int numBytes = minBytesForPrecision(type.precision());
+        return value -> {
+            byte[] bytes = ((Decimal) value).toJavaBigDecimal().unscaledValue().toByteArray();
+            if (bytes.length == numBytes) {
+                recordConsumer.addBinary(Binary.fromReusedByteArray(bytes));
+                return;
+            }
+            if (decimalBuffer == null || decimalBuffer.length != numBytes) {
+                decimalBuffer = new byte[numBytes];
+            }
+            byte signByte = bytes[0] < 0 ? (byte) -1 : 0;
+            int padding = numBytes - bytes.length;
+            Arrays.fill(decimalBuffer, 0, padding, signByte);
+            System.arraycopy(bytes, 0, decimalBuffer, padding, bytes.length);
+            recordConsumer.addBinary(Binary.fromReusedByteArray(decimalBuffer));
+        };
+    }
+
+    static int minBytesForPrecision(int precision) {
+        int numBytes = 1;
+        while (Math.pow(2.0, 8 * numBytes - 1) < Math.pow(10.0, precision)) {
+            numBytes++;
+        }
+        return numBytes;
+    }
+}
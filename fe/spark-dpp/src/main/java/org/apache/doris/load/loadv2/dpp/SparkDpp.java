@@ -46,10 +46,6 @@ import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.SparkSession;
-import org.apache.spark.sql.catalyst.InternalRow;
-import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
-import org.apache.spark.sql.catalyst.encoders.RowEncoder;
-import org.apache.spark.sql.execution.datasources.parquet.ParquetWriteSupport;
 import org.apache.spark.sql.functions;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
@@ -185,22 +181,22 @@ public final class SparkDpp implements java.io.Serializable {
         }
     }
 
-    // write data to parquet file by using writing the parquet scheme of spark.
+    // write data to parquet file in the parquet scheme of spark, the rows are passed to
+    // DppParquetWriteSupport as they are, without being converted to Row and InternalRow.
     private void writeRepartitionAndSortedRDDToParquet(JavaPairRDD<List<Object>, Object[]> resultRDD,
             String pathPattern, long tableId,
             EtlJobConfig.EtlIndex indexMeta, SparkRDDAggregator[] sparkRDDAggregators) {
         // TODO(wb) should deal largeint as BigInteger instead of string when using biginteger as key,
         // data type may affect sorting logic
         StructType dstSchema = DppUtils.createDstTableSchema(indexMeta.columns, false, true);
-        ExpressionEncoder encoder = RowEncoder.apply(dstSchema);
 
         resultRDD.repartitionAndSortWithinPartitions(new BucketPartitioner(bucketKeyMap), new BucketComparator())
                 .foreachPartition((VoidFunction<Iterator<Tuple2<List<Object>, Object[]>>>) t -> {
                     // write the data to dst file
                     Configuration conf = new Configuration(serializableHadoopConf.value());
                     FileSystem fs = FileSystem.get(URI.create(etlJobConfig.outputPath), conf);
-                    String lastBucketKey = null;
-                    ParquetWriter<InternalRow> parquetWriter = null;
+                    Object lastBucketKey = null;
+                    ParquetWriter<Object[]> parquetWriter = null;
                     TaskContext taskContext = TaskContext.get();
                     long taskAttemptId = taskContext.taskAttemptId();
                     String dstPath = "";
@@ -215,16 +211,16 @@ public final class SparkDpp implements java.io.Serializable {
                             continue;
                         }
 
-                        String curBucketKey = keyColumns.get(0).toString();
-                        List<Object> columnObjects = new ArrayList<>();
+                        Object curBucketKey = keyColumns.get(0);
+                        Object[] rowWithoutBucketKey = new Object[keyColumns.size() - 1 + valueColumns.length];
+                        int columnIdx = 0;
                         for (int i = 1; i < keyColumns.size(); ++i) {
-                            columnObjects.add(keyColumns.get(i));
+                            rowWithoutBucketKey[columnIdx++] = keyColumns.get(i);
                         }
                         for (int i = 0; i < valueColumns.length; ++i) {
-                            columnObjects.add(sparkRDDAggregators[i].finalize(valueColumns[i]));
+                            rowWithoutBucketKey[columnIdx++] = sparkRDDAggregators[i].finalize(valueColumns[i]);
                         }
 
-                        Row rowWithoutBucketKey = RowFactory.create(columnObjects.toArray());
                         // if the bucket key is new, it will belong to a new tablet
                         if (lastBucketKey == null || !curBucketKey.equals(lastBucketKey)) {
                             if (parquetWriter != null) {
@@ -239,7 +235,7 @@ public final class SparkDpp implements java.io.Serializable {
                                 }
                             }
                             // flush current writer and create a new writer
-                            String[] bucketKey = curBucketKey.split("_");
+                            String[] bucketKey = curBucketKey.toString().split("_");
                             if (bucketKey.length != 2) {
                                 LOG.warn("invalid bucket key:" + curBucketKey);
                                 continue;
@@ -254,9 +250,8 @@ public final class SparkDpp implements java.io.Serializable {
                             conf.setBoolean("spark.sql.parquet.int96AsTimestamp", true);
                             conf.setBoolean("spark.sql.parquet.binaryAsString", false);
                             conf.set("spark.sql.parquet.outputTimestampType", "INT96");
-                            ParquetWriteSupport.setSchema(dstSchema, conf);
-                            ParquetWriteSupport parquetWriteSupport = new ParquetWriteSupport();
-                            parquetWriter = new ParquetWriter<InternalRow>(new Path(tmpPath), parquetWriteSupport,
+                            DppParquetWriteSupport parquetWriteSupport = new DppParquetWriteSupport(dstSchema);
+                            parquetWriter = new ParquetWriter<Object[]>(new Path(tmpPath), parquetWriteSupport,
                                     CompressionCodecName.SNAPPY, 256 * 1024 * 1024, 16 * 1024, 1024 * 1024, true, false,
                                     WriterVersion.PARQUET_1_0, conf);
                             if (parquetWriter != null) {
@@ -264,8 +259,7 @@ public final class SparkDpp implements java.io.Serializable {
                             }
                             lastBucketKey = curBucketKey;
                         }
-                        InternalRow internalRow = encoder.toRow(rowWithoutBucketKey);
-                        parquetWriter.write(internalRow);
+                        parquetWriter.write(rowWithoutBucketKey);
                     }
                     if (parquetWriter != null) {
                         parquetWriter.close();
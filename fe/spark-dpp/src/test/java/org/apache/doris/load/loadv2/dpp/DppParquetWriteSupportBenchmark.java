@@ -0,0 +1,161 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.load.loadv2.dpp;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ParquetProperties.WriterVersion;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
+import org.apache.spark.sql.catalyst.encoders.RowEncoder;
+import org.apache.spark.sql.execution.datasources.parquet.ParquetWriteSupport;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.DecimalType;
+import org.apache.spark.sql.types.StructType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput, in rows per second, of writing the rows of a tablet file of SparkDpp into parquet:
+ * "rowEncoder" is the previous path, which converts every row to a Row and an InternalRow for spark's
+ * ParquetWriteSupport, and "dpp" passes the rows to {@link DppParquetWriteSupport} as they are.
+ * Both write a local file with the writer settings of SparkDpp, so the compression and the io are measured too.
+ * Run it with the test classpath, e.g. from an IDE or
+ * `java -cp <test-classpath> org.apache.doris.load.loadv2.dpp.DppParquetWriteSupportBenchmark`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DppParquetWriteSupportBenchmark {
+    private static final int ROW_NUM = 100000;
+
+    @Param({"rowEncoder", "dpp"})
+    public String mode;
+
+    private final StructType schema = DataTypes.createStructType(Arrays.asList(
+            DataTypes.createStructField("k1", DataTypes.IntegerType, true),
+            DataTypes.createStructField("k2", DataTypes.LongType, true),
+            DataTypes.createStructField("k3", DataTypes.StringType, true),
+            DataTypes.createStructField("k4", DataTypes.DateType, true),
+            DataTypes.createStructField("v1", DecimalType.apply(9, 2), true),
+            DataTypes.createStructField("v2", DecimalType.apply(27, 9), true),
+            DataTypes.createStructField("v3", DataTypes.LongType, true)));
+
+    private Object[][] rows;
+    private File dir;
+    private Configuration conf;
+    private ExpressionEncoder<Row> encoder;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        rows = new Object[ROW_NUM][];
+        for (int i = 0; i < ROW_NUM; i++) {
+            rows[i] = new Object[] {i, random.nextLong(), "value_" + random.nextInt(1000),
+                    new Date(1640995200000L + random.nextInt(365) * 86400000L),
+                    BigDecimal.valueOf(random.nextInt(1000000), 2),
+                    BigDecimal.valueOf(random.nextLong(), 9), (long) random.nextInt()};
+        }
+        dir = Files.createTempDirectory("dpp_parquet_benchmark").toFile();
+        // the settings of SparkDpp
+        conf = new Configuration();
+        conf.setBoolean("spark.sql.parquet.writeLegacyFormat", false);
+        conf.setBoolean("spark.sql.parquet.int64AsTimestampMillis", false);
+        conf.setBoolean("spark.sql.parquet.int96AsTimestamp", true);
+        conf.setBoolean("spark.sql.parquet.binaryAsString", false);
+        conf.set("spark.sql.parquet.outputTimestampType", "INT96");
+        ParquetWriteSupport.setSchema(schema, conf);
+        encoder = RowEncoder.apply(schema);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private <T> ParquetWriter<T> createWriter(Path path, WriteSupport<T> writeSupport) throws IOException {
+        return new ParquetWriter<>(path, writeSupport, CompressionCodecName.SNAPPY, 256 * 1024 * 1024, 16 * 1024,
+                1024 * 1024, true, false, WriterVersion.PARQUET_1_0, conf);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_NUM)
+    public void write() throws IOException {
+        File file = new File(dir, "tablet.parquet");
+        Path path = new Path(file.toURI());
+        if (mode.equals("rowEncoder")) {
+            try (ParquetWriter<InternalRow> writer = createWriter(path, new ParquetWriteSupport())) {
+                for (Object[] row : rows) {
+                    // what SparkDpp did for every row before
+                    List<Object> columnObjects = new ArrayList<>(Arrays.asList(row));
+                    writer.write(encoder.toRow(RowFactory.create(columnObjects.toArray())));
+                }
+            }
+        } else {
+            try (ParquetWriter<Object[]> writer = createWriter(path, new DppParquetWriteSupport(schema))) {
+                for (Object[] row : rows) {
+                    writer.write(row);
+                }
+            }
+        }
+        file.delete();
+        new File(dir, "." + file.getName() + ".crc").delete();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(DppParquetWriteSupportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package org.apache.doris.load.loadv2.dpp;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.DecimalType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.util.Arrays;
+
+public class DppParquetWriteSupportTest {
+
+    @Test
+    public void testMinBytesForPrecision() {
+        Assert.assertEquals(1, DppParquetWriteSupport.minBytesForPrecision(2));
+        Assert.assertEquals(4, DppParquetWriteSupport.minBytesForPrecision(9));
+        Assert.assertEquals(8, DppParquetWriteSupport.minBytesForPrecision(18));
+        Assert.assertEquals(16, DppParquetWriteSupport.minBytesForPrecision(38));
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        StructType schema = DataTypes.createStructType(Arrays.asList(
+                DataTypes.createStructField("k1", DataTypes.IntegerType, true),
+                DataTypes.createStructField("k2", DataTypes.StringType, true),
+                DataTypes.createStructField("k3", DataTypes.DateType, true),
+                DataTypes.createStructField("v1", DecimalType.apply(9, 2), true),
+                DataTypes.createStructField("v2", DecimalType.apply(27, 9), true),
+                DataTypes.createStructField("v3", DataTypes.BinaryType, true)));
+        File file = File.createTempFile("dpp_parquet", ".parquet");
+        file.delete();
+        Path path = new Path(file.toURI());
+        Configuration conf = new Configuration();
+        conf.set("spark.sql.parquet.outputTimestampType", "INT96");
+        try {
+            ParquetWriter<Object[]> writer = new ParquetWriter<>(path, new DppParquetWriteSupport(schema),
+                    CompressionCodecName.SNAPPY, 1024 * 1024, 16 * 1024, 16 * 1024, true, false,
+                    ParquetWriter.DEFAULT_WRITER_VERSION, conf);
+            writer.write(new Object[] {1, "a", Date.valueOf("2022-01-01"), new BigDecimal("1.5"),
+                    new BigDecimal("-123.456"), new byte[] {1, 2}});
+            // 12345678.9 does not fit decimal(9, 2) and is written as null
+            writer.write(new Object[] {null, null, null, new BigDecimal("12345678.9"), null, null});
+            writer.close();
+
+            ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), path).withConf(conf).build();
+            Group first = reader.read();
+            Assert.assertEquals(1, first.getInteger("k1", 0));
+            Assert.assertEquals("a", first.getString("k2", 0));
+            Assert.assertEquals(Date.valueOf("2022-01-01").toLocalDate().toEpochDay(), first.getInteger("k3", 0));
+            Assert.assertEquals(150, first.getInteger("v1", 0));
+            byte[] v2 = first.getBinary("v2", 0).getBytes();
+            Assert.assertEquals(DppParquetWriteSupport.minBytesForPrecision(27), v2.length);
+            Assert.assertEquals(new BigInteger("-123456000000"), new BigInteger(v2));
+            Assert.assertArrayEquals(new byte[] {1, 2}, first.getBinary("v3", 0).getBytes());
+
+            Group second = reader.read();
+            for (StructField field : schema.fields()) {
+                Assert.assertEquals(0, second.getFieldRepetitionCount(field.name()));
+            }
+            Assert.assertNull(reader.read());
+            reader.close();
+        } finally {
+            file.delete();
+            new File(file.getParent(), "." + file.getName() + ".crc").delete();
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.doris.plugin.audit;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import org.apache.doris.plugin.AuditEvent;
 import org.apache.doris.plugin.AuditPlugin;
@@ -29,6 +30,7 @@ import org.apache.doris.common.Config;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -40,16 +42,27 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /*
  * This plugin will load audit log to specified doris table at specified interval
+ *
+ * The audit events are appended to the current batch by the audit event thread. A batch is sealed when it
+ * reaches max_batch_size or max_batch_interval_sec, and is loaded by the load thread asynchronously
+ * with retries. The batches which can not be loaded, or can not be queued because too many batches are
+ * waiting, are spilled to the local spill dir by the load thread, and are loaded again when the target
+ * table is available. The audit event thread never touches the spill dir.
  */
 public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
     private final static Logger LOG = LogManager.getLogger(AuditLoaderPlugin.class);
@@ -57,12 +70,26 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
     private static final ThreadLocal<SimpleDateFormat> dateFormatContainer = ThreadLocal.withInitial(
             () -> new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
 
+    private static final long MAX_RETRY_INTERVAL_MS = 60 * 1000L;
+
+    // protect the log buffers and the last load times
+    private final Object bufferLock = new Object();
     private StringBuilder auditLogBuffer = new StringBuilder();
     private StringBuilder slowLogBuffer = new StringBuilder();
     private long lastLoadTimeAuditLog = 0;
     private long lastLoadTimeSlowLog = 0;
 
-    private BlockingQueue<AuditEvent> auditEventQueue;
+    // the sealed batches waiting to be loaded
+    private BlockingQueue<LoadBatch> batchQueue;
+    // the sealed batches which can not be queued, waiting to be spilled by the load thread.
+    // It is bounded, because the load thread may be blocked by a slow load for a long time.
+    private BlockingQueue<LoadBatch> spillQueue;
+    // the batches discarded without being loaded
+    private final AtomicLong discardedBatchNum = new AtomicLong(0);
+    // protect the spill dir
+    private final Object spillLock = new Object();
+    private File spillDir;
+    private long lastLoadSpilledTime = 0;
     private DorisStreamLoader streamLoader;
     private Thread loadThread;
 
@@ -83,9 +110,11 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
 
             loadConfig(ctx, info.getProperties());
 
-            this.auditEventQueue = Queues.newLinkedBlockingDeque(conf.maxQueueSize);
+            this.batchQueue = Queues.newArrayBlockingQueue(conf.maxPendingBatchNum);
+            this.spillQueue = Queues.newArrayBlockingQueue(conf.maxPendingSpillBatchNum);
+            this.spillDir = initSpillDir(ctx);
             this.streamLoader = new DorisStreamLoader(conf);
-            this.loadThread = new Thread(new LoadWorker(this.streamLoader), "audit loader thread");
+            this.loadThread = new Thread(new LoadWorker(), "audit loader thread");
             this.loadThread.start();
 
             isInit = true;
@@ -121,6 +150,18 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
         conf.feIdentity = ctx.getFeIdentity();
     }
 
+    private File initSpillDir(PluginContext ctx) {
+        if (conf.maxSpillBytes <= 0) {
+            return null;
+        }
+        File dir = conf.spillDir.isEmpty() ? new File(ctx.getPluginPath(), "spill") : new File(conf.spillDir);
+        if (!dir.exists() && !dir.mkdirs()) {
+            LOG.warn("failed to create spill dir {} of audit loader, spilling is disabled", dir);
+            return null;
+        }
+        return dir;
+    }
+
     @Override
     public void close() throws IOException {
         super.close();
@@ -139,13 +180,28 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
     }
 
     public void exec(AuditEvent event) {
+        execBatch(Collections.singletonList(event));
+    }
+
+    @Override
+    public void execBatch(List<AuditEvent> events) {
         try {
-            auditEventQueue.add(event);
+            synchronized (bufferLock) {
+                for (AuditEvent event : events) {
+                    assembleAudit(event);
+                }
+                // process slow audit logs
+                if (conf.enableSlowLog) {
+                    sealIfNecessary(true, false);
+                }
+                // process all audit logs
+                sealIfNecessary(false, false);
+            }
         } catch (Exception e) {
             // In order to ensure that the system can run normally, here we directly
-            // discard the current audit_event. If this problem occurs frequently,
+            // discard the current audit events. If this problem occurs frequently,
             // improvement can be considered.
-            LOG.debug("encounter exception when putting current audit batch, discard current audit event", e);
+            LOG.debug("encounter exception when putting current audit batch, discard current audit events", e);
         }
     }
 
@@ -199,25 +255,32 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
         return new String(charBuffer.array(), 0, charBuffer.position());
     }
 
-    private void loadIfNecessary(DorisStreamLoader loader, boolean slowLog) {
+    // must hold bufferLock
+    private void sealIfNecessary(boolean slowLog, boolean force) {
         StringBuilder logBuffer = slowLog ? slowLogBuffer : auditLogBuffer;
         long lastLoadTime = slowLog ? lastLoadTimeSlowLog : lastLoadTimeAuditLog;
         long currentTime = System.currentTimeMillis();
-        
-        if (logBuffer.length() >= conf.maxBatchSize || currentTime - lastLoadTime >= conf.maxBatchIntervalSec * 1000) {         
-            // begin to load
-            try {
-                DorisStreamLoader.LoadResponse response = loader.loadBatch(logBuffer, slowLog);
-                LOG.debug("audit loader response: {}", response);
-            } catch (Exception e) {
-                LOG.debug("encounter exception when putting current audit batch, discard current batch", e);
-            } finally {
-                // make a new string builder to receive following events.
-                resetLogBufferAndLastLoadTime(currentTime, slowLog);
+
+        if (logBuffer.length() == 0) {
+            resetLogBufferAndLastLoadTime(currentTime, slowLog);
+            return;
+        }
+        if (force || logBuffer.length() >= conf.maxBatchSize
+                || currentTime - lastLoadTime >= conf.maxBatchIntervalSec * 1000) {
+            // the following events are filled to a new buffer while this one is loaded
+            LoadBatch batch = new LoadBatch(streamLoader.generateLabel(slowLog), slowLog, logBuffer);
+            resetLogBufferAndLastLoadTime(currentTime, slowLog);
+            if (!batchQueue.offer(batch)) {
+                LOG.warn("too many audit batches are waiting to be loaded, spill batch {}", batch.getLabel());
+                // keep the newest batches, like the spill dir does
+                while (!spillQueue.offer(batch)) {
+                    LoadBatch oldest = spillQueue.poll();
+                    if (oldest != null) {
+                        discard(oldest.getLabel(), "too many audit batches are waiting to be spilled");
+                    }
+                }
             }
         }
-
-        return;
     }
 
     private void resetLogBufferAndLastLoadTime(long currentTime, boolean slowLog) {
@@ -232,10 +295,121 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
         return;
     }
 
+    // load the batch with exponential backoff between retries
+    private boolean loadWithRetry(LoadBatch batch) throws IOException {
+        byte[] data = batch.getData(conf.enableCompression);
+        long retryIntervalMs = conf.retryIntervalMs;
+        for (int i = 0; ; i++) {
+            DorisStreamLoader.LoadResponse response = streamLoader.loadBatch(batch, data);
+            LOG.debug("audit loader response: {}", response);
+            if (response.isSuccess()) {
+                return true;
+            }
+            if (i >= conf.maxRetryTimes || isClosed) {
+                return false;
+            }
+            // do not keep the batches which can not be queued in memory while waiting
+            spillPendingBatches();
+            try {
+                Thread.sleep(retryIntervalMs);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            retryIntervalMs = Math.min(retryIntervalMs * 2, MAX_RETRY_INTERVAL_MS);
+        }
+    }
+
+    private void spillPendingBatches() {
+        LoadBatch batch;
+        while ((batch = spillQueue.poll()) != null) {
+            spill(batch);
+        }
+    }
+
+    private void discard(String batchName, String reason) {
+        LOG.warn("{}, discard audit batch {}, {} batches are discarded in total", reason, batchName,
+                discardedBatchNum.incrementAndGet());
+    }
+
+    private void spill(LoadBatch batch) {
+        if (spillDir == null) {
+            discard(batch.getLabel(), "spilling is disabled");
+            return;
+        }
+        synchronized (spillLock) {
+            try {
+                batch.spill(spillDir, conf.enableCompression);
+            } catch (IOException e) {
+                LOG.warn("failed to spill audit batch {}", batch.getLabel(), e);
+                discard(batch.getLabel(), "failed to spill");
+                return;
+            }
+
+            // the spill dir is a ring buffer, drop the oldest batches
+            List<File> files = listSpillFiles();
+            long totalBytes = files.stream().mapToLong(File::length).sum();
+            for (File file : files) {
+                if (totalBytes <= conf.maxSpillBytes) {
+                    break;
+                }
+                totalBytes -= file.length();
+                discard(file.getName(), "spilled audit batches exceed " + conf.maxSpillBytes + " bytes");
+                if (!file.delete()) {
+                    LOG.warn("failed to delete spilled audit batch {}", file);
+                }
+            }
+        }
+    }
+
+    // from the oldest to the newest, must hold spillLock
+    private List<File> listSpillFiles() {
+        File[] files = spillDir.listFiles(LoadBatch::isSpillFile);
+        if (files == null) {
+            return Lists.newArrayList();
+        }
+        List<File> result = Lists.newArrayList(Arrays.asList(files));
+        result.sort(Comparator.comparingLong(File::lastModified));
+        return result;
+    }
+
+    // stop at the first failure, since the target table is probably still unavailable
+    private void loadSpilledBatches() {
+        lastLoadSpilledTime = System.currentTimeMillis();
+        if (spillDir == null) {
+            return;
+        }
+        synchronized (spillLock) {
+            for (File file : listSpillFiles()) {
+                if (isClosed) {
+                    return;
+                }
+                try {
+                    LoadBatch batch = LoadBatch.fromSpillFile(file);
+                    if (!streamLoader.loadBatch(batch, batch.getData(conf.enableCompression)).isSuccess()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    LOG.warn("failed to read spilled audit batch {}, discard it", file, e);
+                }
+                if (!file.delete()) {
+                    LOG.warn("failed to delete spilled audit batch {}", file);
+                }
+            }
+        }
+    }
+
     public static class AuditLoaderConf {
         public static final String PROP_MAX_BATCH_SIZE = "max_batch_size";
         public static final String PROP_MAX_BATCH_INTERVAL_SEC = "max_batch_interval_sec";
+        // deprecated, the audit events are queued by the audit event processor of FE now
         public static final String PROP_MAX_QUEUE_SIZE = "max_queue_size";
+        public static final String PROP_MAX_PENDING_BATCH_NUM = "max_pending_batch_num";
+        public static final String PROP_MAX_PENDING_SPILL_BATCH_NUM = "max_pending_spill_batch_num";
+        public static final String PROP_ENABLE_COMPRESSION = "enable_compression";
+        public static final String PROP_MAX_RETRY_TIMES = "max_retry_times";
+        public static final String PROP_RETRY_INTERVAL_MS = "retry_interval_ms";
+        public static final String PROP_SPILL_DIR = "spill_dir";
+        public static final String PROP_MAX_SPILL_BYTES = "max_spill_bytes";
         public static final String PROP_FRONTEND_HOST_PORT = "frontend_host_port";
         public static final String PROP_USER = "user";
         public static final String PROP_PASSWORD = "password";
@@ -250,6 +424,13 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
         public long maxBatchSize = 50 * 1024 * 1024;
         public long maxBatchIntervalSec = 60;
         public int maxQueueSize = 1000;
+        public int maxPendingBatchNum = 2;
+        public int maxPendingSpillBatchNum = 4;
+        public boolean enableCompression = true;
+        public int maxRetryTimes = 3;
+        public long retryIntervalMs = 1000;
+        public String spillDir = "";
+        public long maxSpillBytes = 1024 * 1024 * 1024L;
         public String frontendHostPort = "127.0.0.1:8030";
         public String user = "root";
         public String password = "";
@@ -272,6 +453,27 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
                 if (properties.containsKey(PROP_MAX_QUEUE_SIZE)) {
                     maxQueueSize = Integer.valueOf(properties.get(PROP_MAX_QUEUE_SIZE));
                 }
+                if (properties.containsKey(PROP_MAX_PENDING_BATCH_NUM)) {
+                    maxPendingBatchNum = Integer.parseInt(properties.get(PROP_MAX_PENDING_BATCH_NUM));
+                }
+                if (properties.containsKey(PROP_MAX_PENDING_SPILL_BATCH_NUM)) {
+                    maxPendingSpillBatchNum = Integer.parseInt(properties.get(PROP_MAX_PENDING_SPILL_BATCH_NUM));
+                }
+                if (properties.containsKey(PROP_ENABLE_COMPRESSION)) {
+                    enableCompression = Boolean.valueOf(properties.get(PROP_ENABLE_COMPRESSION));
+                }
+                if (properties.containsKey(PROP_MAX_RETRY_TIMES)) {
+                    maxRetryTimes = Integer.parseInt(properties.get(PROP_MAX_RETRY_TIMES));
+                }
+                if (properties.containsKey(PROP_RETRY_INTERVAL_MS)) {
+                    retryIntervalMs = Long.valueOf(properties.get(PROP_RETRY_INTERVAL_MS));
+                }
+                if (properties.containsKey(PROP_SPILL_DIR)) {
+                    spillDir = properties.get(PROP_SPILL_DIR);
+                }
+                if (properties.containsKey(PROP_MAX_SPILL_BYTES)) {
+                    maxSpillBytes = Long.valueOf(properties.get(PROP_MAX_SPILL_BYTES));
+                }
                 if (properties.containsKey(PROP_FRONTEND_HOST_PORT)) {
                     frontendHostPort = properties.get(PROP_FRONTEND_HOST_PORT);
                 }
@@ -307,24 +509,28 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
     }
 
     private class LoadWorker implements Runnable {
-        private DorisStreamLoader loader;
-
-        public LoadWorker(DorisStreamLoader loader) {
-            this.loader = loader;
-        }
-
         public void run() {
             while (!isClosed) {
                 try {
-                    AuditEvent event = auditEventQueue.poll(5, TimeUnit.SECONDS);
-                    if (event != null) {
-                        assembleAudit(event);
-                        // process slow audit logs
+                    synchronized (bufferLock) {
                         if (conf.enableSlowLog) {
-                            loadIfNecessary(loader, true);
+                            sealIfNecessary(true, false);
                         }
-                        // process all audit logs
-                        loadIfNecessary(loader, false);
+                        sealIfNecessary(false, false);
+                    }
+                    spillPendingBatches();
+                    LoadBatch batch = batchQueue.poll(5, TimeUnit.SECONDS);
+                    if (batch != null) {
+                        if (!loadWithRetry(batch)) {
+                            LOG.warn("failed to load audit batch {}, spill it", batch.getLabel());
+                            spill(batch);
+                        } else if (lastLoadSpilledTime < System.currentTimeMillis()
+                                - conf.maxBatchIntervalSec * 1000) {
+                            // the target table is available again
+                            loadSpilledBatches();
+                        }
+                    } else if (System.currentTimeMillis() - lastLoadSpilledTime >= conf.maxBatchIntervalSec * 1000) {
+                        loadSpilledBatches();
                     }
                 } catch (InterruptedException ie) {
                     LOG.debug("encounter exception when loading current audit batch", ie);
@@ -332,6 +538,16 @@ public class AuditLoaderPlugin extends Plugin implements AuditPlugin {
                     LOG.error("run audit logger error:", e);
                 }
             }
+
+            // spill the remaining audit logs, they will be loaded after the plugin is started again
+            synchronized (bufferLock) {
+                sealIfNecessary(true, true);
+                sealIfNecessary(false, true);
+            }
+            List<LoadBatch> batches = Lists.newArrayList();
+            batchQueue.drainTo(batches);
+            batches.forEach(AuditLoaderPlugin.this::spill);
+            spillPendingBatches();
         }
     }
 
@@ -17,6 +17,8 @@
 
 package org.apache.doris.plugin.audit;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -29,6 +31,7 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DorisStreamLoader {
     private final static Logger LOG = LogManager.getLogger(DorisStreamLoader.class);
@@ -43,6 +46,8 @@ public class DorisStreamLoader {
     private String slowLogLoadUrlStr;
     private String authEncoding;
     private String feIdentity;
+    // several batches may be sealed in the same second
+    private AtomicLong labelSeq = new AtomicLong(0);
 
     public DorisStreamLoader(AuditLoaderPlugin.AuditLoaderConf conf) {
         this.hostPort = conf.frontendHostPort;
@@ -59,7 +64,7 @@ public class DorisStreamLoader {
         this.feIdentity = conf.feIdentity.replaceAll("\\.", "_");
     }
 
-    private HttpURLConnection getConnection(String urlStr, String label) throws IOException {
+    private HttpURLConnection getConnection(String urlStr, String label, boolean compressed) throws IOException {
         URL url = new URL(urlStr);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
         conn.setInstanceFollowRedirects(false);
@@ -69,6 +74,9 @@ public class DorisStreamLoader {
         conn.addRequestProperty("Content-Type", "text/plain; charset=UTF-8");
 
         conn.addRequestProperty("label", label);
+        if (compressed) {
+            conn.addRequestProperty("compress_type", "gz");
+        }
         conn.addRequestProperty("max_filter_ratio", "1.0");
         conn.addRequestProperty("columns", "query_id, `time`, client_ip, user, db, state, error_code, error_message, " +
                 "query_time, scan_bytes, scan_rows, return_rows, stmt_id, is_query, frontend_ip, cpu_time_ms, sql_hash, " +
@@ -114,24 +122,25 @@ public class DorisStreamLoader {
         return response.toString();
     }
 
-    public LoadResponse loadBatch(StringBuilder sb, boolean slowLog) {
+    // the label is generated when the batch is sealed, and is kept when the batch is retried,
+    // so that a batch which has been loaded is not loaded twice.
+    public String generateLabel(boolean slowLog) {
         Calendar calendar = Calendar.getInstance();
-        String label = String.format("_log_%s%02d%02d_%02d%02d%02d_%s",
+        return String.format("%s_log_%s%02d%02d_%02d%02d%02d_%s_%d",
+                slowLog ? LoadBatch.SLOW_LABEL_PREFIX : LoadBatch.AUDIT_LABEL_PREFIX,
                 calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
                 calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND),
-                feIdentity);
+                feIdentity, labelSeq.incrementAndGet());
+    }
 
+    public LoadResponse loadBatch(LoadBatch batch, byte[] data) {
+        String label = batch.getLabel();
         HttpURLConnection feConn = null;
         HttpURLConnection beConn = null;
         try {
             // build request and send to fe
-            if (slowLog) {
-                label = "slow" + label;
-                feConn = getConnection(slowLogLoadUrlStr, label);
-            } else {
-                label = "audit" + label;
-                feConn = getConnection(auditLogLoadUrlStr, label);
-            }
+            String loadUrlStr = batch.isSlowLog() ? slowLogLoadUrlStr : auditLogLoadUrlStr;
+            feConn = getConnection(loadUrlStr, label, batch.isCompressed());
             int status = feConn.getResponseCode();
             // fe send back http response code TEMPORARY_REDIRECT 307 and new be location
             if (status != 307) {
@@ -143,10 +152,10 @@ public class DorisStreamLoader {
                 throw new Exception("redirect location is null");
             }
             // build request and send to new be location
-            beConn = getConnection(location, label);
+            beConn = getConnection(location, label, batch.isCompressed());
             // send data to be
             BufferedOutputStream bos = new BufferedOutputStream(beConn.getOutputStream());
-            bos.write(sb.toString().getBytes());
+            bos.write(data);
             bos.close();
 
             // get respond
@@ -160,7 +169,6 @@ public class DorisStreamLoader {
             return new LoadResponse(status, respMsg, response);
 
         } catch (Exception e) {
-            e.printStackTrace();
             String err = "failed to load audit via AuditLoader plugin with label: " + label;
             LOG.warn(err, e);
             return new LoadResponse(-1, e.getMessage(), err);
@@ -185,6 +193,21 @@ public class DorisStreamLoader {
             this.respContent = respContent;
         }
 
+        // a batch which has been loaded by the previous try is also regarded as success
+        public boolean isSuccess() {
+            if (status != 200) {
+                return false;
+            }
+            try {
+                JsonObject result = JsonParser.parseString(respContent).getAsJsonObject();
+                String loadStatus = result.get("Status").getAsString();
+                return "Success".equals(loadStatus) || "Publish Timeout".equals(loadStatus)
+                        || "Label Already Exists".equals(loadStatus);
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
@@ -0,0 +1,105 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package org.apache.doris.plugin.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * A batch of audit logs which is loaded by one stream load.
+ * The rows are filled by the audit event thread. After the batch is sealed, a new batch is filled
+ * while the load thread encodes and loads this one, so filling is never blocked by loading.
+ */
+public class LoadBatch {
+    public static final String AUDIT_LABEL_PREFIX = "audit";
+    public static final String SLOW_LABEL_PREFIX = "slow";
+
+    private static final String PLAIN_SUFFIX = ".csv";
+    private static final String COMPRESSED_SUFFIX = ".csv.gz";
+
+    private final String label;
+    private final boolean slowLog;
+    private StringBuilder rows;
+    private byte[] data;
+    private boolean compressed = false;
+
+    public LoadBatch(String label, boolean slowLog, StringBuilder rows) {
+        this.label = label;
+        this.slowLog = slowLog;
+        this.rows = rows;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isSlowLog() {
+        return slowLog;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // encode the rows when it is called for the first time
+    public byte[] getData(boolean compress) throws IOException {
+        if (data != null) {
+            return data;
+        }
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        if (compress) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            }
+            data = out.toByteArray();
+            compressed = true;
+        } else {
+            data = bytes;
+        }
+        rows = null;
+        return data;
+    }
+
+    public File spill(File dir, boolean compress) throws IOException {
+        byte[] bytes = getData(compress);
+        File file = new File(dir, label + (compressed ? COMPRESSED_SUFFIX : PLAIN_SUFFIX));
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    public static boolean isSpillFile(File file) {
+        String name = file.getName();
+        return name.endsWith(PLAIN_SUFFIX) || name.endsWith(COMPRESSED_SUFFIX);
+    }
+
+    public static LoadBatch fromSpillFile(File file) throws IOException {
+        String name = file.getName();
+        boolean compressed = name.endsWith(COMPRESSED_SUFFIX);
+        String label = name.substring(0, name.length() - (compressed ? COMPRESSED_SUFFIX : PLAIN_SUFFIX).length());
+        LoadBatch batch = new LoadBatch(label, label.startsWith(SLOW_LABEL_PREFIX), null);
+        batch.data = Files.readAllBytes(file.toPath());
+        batch.compressed = compressed;
+        return batch;
+    }
+}
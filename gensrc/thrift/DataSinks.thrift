@@ -156,6 +156,11 @@ struct TJdbcTableSink {
     1: optional Descriptors.TJdbcTable jdbc_table
     2: optional bool use_transaction
     3: optional Types.TOdbcTableType table_type
+    // write with the batched PreparedStatement of JdbcExecutor instead of literal INSERT statements
+    4: optional bool use_batch_write
+    5: optional i32 sink_parallelism
+    6: optional i32 sink_commit_interval
+    7: optional bool sink_use_bulk_load
 }
 
 struct TExportSink {
@@ -101,11 +101,18 @@ struct TReportRequest {
     8: optional i64 tablet_max_compaction_score
     9: optional list<AgentService.TStoragePolicy> storage_policy // only id and version
     10: optional list<AgentService.TStorageResource> resource // only id and version
+    // if true, 'tablets' or 'tablet_list' only contains the tablets changed since the report
+    // whose version is 'base_report_version', and 'deleted_tablets' contains the dropped ones.
+    11: optional bool is_delta_report
+    12: optional i64 base_report_version
+    13: optional list<Types.TTabletId> deleted_tablets
 }
 
 struct TMasterResult {
     // required in V1
     1: required Status.TStatus status
+    // set by FE when a delta tablet report is rejected, BE should send a full tablet report next time.
+    2: optional bool need_full_tablet_report
 }
 
 // Now we only support CPU share.
@@ -393,6 +393,15 @@ struct TJdbcExecutorCtorParams {
 
   // "/home/user/mysql-connector-java-5.1.47.jar"
   8: optional string driver_path
+
+  // number of connections writing rows of the batch writer in parallel
+  9: optional i32 sink_parallelism
+
+  // rows written by a connection of the batch writer before commit, 0 means auto commit
+  10: optional i32 sink_commit_interval
+
+  // use the bulk load path of the database in the batch writer, e.g. COPY of PostgreSQL
+  11: optional bool sink_use_bulk_load
 }
 
 struct TJavaUdfExecutorCtorParams {